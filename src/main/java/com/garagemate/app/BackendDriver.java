@@ -1,6 +1,7 @@
 package com.garagemate.app;
 
 import com.garagemate.model.*;
+import com.garagemate.persistence.GarageRepository;
 import com.garagemate.persistence.TextFileRepository;
 
 /**
@@ -10,7 +11,7 @@ import com.garagemate.persistence.TextFileRepository;
 public class BackendDriver {
     public static void main(String[] args) {
         // file path
-        TextFileRepository repo = new TextFileRepository("garage-data.txt");
+        GarageRepository repo = new TextFileRepository("garage-data.txt");
 
         // will need to load first thing in the real app
         Garage garage = new Garage();
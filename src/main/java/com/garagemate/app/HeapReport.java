@@ -0,0 +1,72 @@
+package com.garagemate.app;
+
+import com.garagemate.model.Garage;
+import com.garagemate.model.RecordColumns;
+import com.garagemate.model.StringPool;
+import com.garagemate.model.VehicleBase;
+import com.garagemate.persistence.TextFileRepository;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+
+/**
+ * Shows what the string pool and packed histories save on a real garage file
+ * Loads the file three times (pool off, pool on, pool on plus RecordColumns.pack)
+ * and compares the heap each copy keeps.
+ * GC numbers wobble a bit, run it with a fixed heap (-Xms = -Xmx) for steadier results
+ *
+ * Usage: HeapReport garage-data.txt
+ */
+public final class HeapReport {
+
+    private HeapReport() {}
+
+    public static void main(String[] args) {
+        if (args.length != 1) {
+            System.err.println("Usage: HeapReport <garage file>");
+            System.exit(2);
+        }
+        TextFileRepository repo = new TextFileRepository(args[0]);
+
+        StringPool.setEnabled(false);
+        long without = retainedBy(repo, false);
+
+        StringPool.setEnabled(true);
+        StringPool.reset();
+        long pooled = retainedBy(repo, false);
+        System.out.println("pool: " + StringPool.stats());
+        long packed = retainedBy(repo, true);
+
+        print("without pool:", without, without);
+        print("with pool:", pooled, without);
+        print("pool + packed:", packed, without);
+    }
+
+    // heap still in use while a freshly loaded garage is reachable
+    private static long retainedBy(TextFileRepository repo, boolean pack) {
+        long before = usedAfterGc();
+        Garage garage = repo.loadGarage();
+        long records = 0;
+        for (VehicleBase v : garage.vehicles()) {
+            records += v.getMaintenanceHistory().size(); // pulls in lazy histories too
+        }
+        RecordColumns columns = pack ? RecordColumns.pack(garage) : null;
+        long after = usedAfterGc();
+        System.out.printf("loaded %,d vehicles, %,d records%n", garage.size(), records);
+        if (columns != null) {
+            System.out.printf("packed %,d records, %,d KB off-heap%n", columns.size(), columns.offHeapBytes() / 1024);
+        }
+        Reference.reachabilityFence(garage);
+        return after - before;
+    }
+
+    private static void print(String label, long bytes, long baseline) {
+        System.out.printf("%-15s %,d KB (%.1f%% of no pool)%n", label, bytes / 1024,
+                baseline == 0 ? 0.0 : 100.0 * bytes / baseline);
+    }
+
+    private static long usedAfterGc() {
+        for (int i = 0; i < 3; i++) System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
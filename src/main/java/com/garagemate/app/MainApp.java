@@ -1,9 +1,16 @@
 package com.garagemate.app;
 
 import com.garagemate.model.*;
+import com.garagemate.persistence.BinaryGarageRepository;
+import com.garagemate.persistence.GarageFileWatcher;
+import com.garagemate.persistence.GarageRepository;
+import com.garagemate.persistence.ShardedGarageRepository;
+import com.garagemate.persistence.SkippedLine;
+import com.garagemate.persistence.SqlGarageRepository;
 import com.garagemate.persistence.TextFileRepository;
 import com.garagemate.ui.UiUtils;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.geometry.Insets;
@@ -23,6 +30,10 @@ import javafx.scene.layout.BackgroundSize;
 import javafx.scene.layout.StackPane;
 import javafx.scene.image.Image;
 
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 
 public class MainApp extends Application {
@@ -30,9 +41,23 @@ public class MainApp extends Application {
     // our "db'
     private static final String DATA_FILE = "garage-data.txt";
 
-    private TextFileRepository repo;
+    // pick the backend with -Dgaragemate.storage=text|binary|sql|sharded, text is the default
+    private static final String STORAGE_PROPERTY = "garagemate.storage";
+
+    // histories are only shown in the details view, so the text backend reads them on first use
+    // -Dgaragemate.lazyHistory=false loads everything up front
+    private static final String LAZY_HISTORY_PROPERTY = "garagemate.lazyHistory";
+
+    // moves loaded histories off-heap (see RecordColumns), for big fleets, replaces lazy history
+    private static final String PACKED_HISTORY_PROPERTY = "garagemate.packedHistory";
+
+    private GarageRepository repo;
+    private SaveScheduler saveScheduler;
     private Garage garage;
 
+    // picks up changes other tools make to the text file, null for the other backends
+    private GarageFileWatcher fileWatcher;
+
     // root layout so we can swap center/bottom content
     private BorderPane root;
 
@@ -70,8 +95,32 @@ public class MainApp extends Application {
 
     @Override
     public void start(Stage stage) {
-        repo = new TextFileRepository(DATA_FILE);
-        garage = repo.loadGarage();
+        repo = createRepository(System.getProperty(STORAGE_PROPERTY, "text"));
+        List<SkippedLine> skipped = new ArrayList<>();
+        if (repo instanceof TextFileRepository text) text.setOnSkippedLine(skipped::add);
+        Garage loaded = repo.loadGarage();
+        if (!skipped.isEmpty()) {
+            UiUtils.showError("Some Data Skipped", skipped.size() + " line(s) of " + DATA_FILE
+                    + " couldn't be read and were left out, first one:\n" + skipped.get(0));
+        }
+        if (Boolean.getBoolean(PACKED_HISTORY_PROPERTY)) RecordColumns.pack(loaded);
+        // the watcher and save threads touch it alongside the FX thread
+        garage = new ConcurrentGarage(loaded);
+        saveScheduler = new SaveScheduler(repo,
+                ex -> Platform.runLater(() -> UiUtils.showError("Save Failed", ex.getMessage())));
+        if (repo instanceof TextFileRepository text) {
+            // lazy histories load later, report those as they come
+            text.setOnSkippedLine(line -> Platform.runLater(
+                    () -> UiUtils.showError("Some Data Skipped", line.toString())));
+            text.setOnBackgroundFailure(
+                    ex -> Platform.runLater(() -> UiUtils.showError("Compaction Failed", ex.getMessage())));
+            fileWatcher = new GarageFileWatcher(Paths.get(DATA_FILE),
+                    changes -> Platform.runLater(() -> onStoredChanges(changes)),
+                    ex -> Platform.runLater(() -> UiUtils.showError("Reload Failed", ex.getMessage())));
+            fileWatcher.setOnSkippedLine(line -> Platform.runLater(
+                    () -> UiUtils.showError("Some Data Skipped", line.toString())));
+            fileWatcher.start();
+        }
 
         root = new BorderPane();
         root.setTop(header);
@@ -85,8 +134,17 @@ public class MainApp extends Application {
         stage.setMaxWidth(1200);
         stage.setMaxHeight(750);
 
-        // save on close
-        stage.setOnCloseRequest(e -> safeSave());
+        // save on close, waits for anything still queued
+        stage.setOnCloseRequest(e -> {
+            try {
+                if (fileWatcher != null) fileWatcher.close();
+                saveScheduler.close(garage);
+            } catch (Exception ex) {
+                UiUtils.showError("Save Failed", ex.getMessage());
+            } finally {
+                repo.close();
+            }
+        });
 
         stage.show();
 
@@ -202,7 +260,7 @@ public class MainApp extends Application {
         if (confirm.showAndWait().orElse(ButtonType.CANCEL) == ButtonType.OK) {
             garage.removeVehicle(selected.getVehicleId());
             refreshVehicleList();
-            safeSave();
+            saveChanges();
         }
     }
 
@@ -362,7 +420,7 @@ public class MainApp extends Application {
         try {
             VehicleBase v = buildVehicleFromForm();
             garage.addVehicle(v);
-            safeSave();
+            saveChanges();
             showHomeView();
             refreshVehicleList();
         } catch (Exception ex) {
@@ -438,7 +496,8 @@ public class MainApp extends Application {
         );
         notesCol.setPrefWidth(360);
 
-        recordTable.getColumns().setAll(dateCol, typeCol, milesCol, notesCol);
+        // a List, not varargs: a generic array would be an unchecked warning
+        recordTable.getColumns().setAll(List.of(dateCol, typeCol, milesCol, notesCol));
 
         VBox center = new VBox(10, header, recordTable);
         center.setPadding(new Insets(0, 12, 12, 12));
@@ -485,7 +544,7 @@ public class MainApp extends Application {
         if (confirm.showAndWait().orElse(ButtonType.CANCEL) == ButtonType.OK) {
             selectedVehicle.removeMaintenanceRecord(selected.getRecordId());
             refreshMaintenanceTable();
-            safeSave();
+            saveChanges();
         }
     }
 
@@ -496,7 +555,6 @@ public class MainApp extends Application {
         Label title = UiUtils.createLabel("Add Service Record for: " + selectedVehicle.getNickname());
         title.setStyle("-fx-font-size: 18px; -fx-font-weight: bold;");
 
-        // TODO: want to add validation here, currently can set anything as date which is ok for scope
         recordDateField = new TextField();
         recordDateField.setPromptText("YYYY-MM-DD (ex: 2026-02-17)");
 
@@ -550,6 +608,7 @@ public class MainApp extends Application {
             // Basic input validation
             UiUtils.validateNoPipes(recordDateField.getText(), "Service Date");
             UiUtils.validateNoPipes(recordTypeField.getText(), "Service Type");
+            LocalDate serviceDate = ServiceDates.toLocalDate(ServiceDates.parse(recordDateField.getText()));
 
             int miles = Integer.parseInt(recordMileageField.getText().trim());
             String notes = recordNotesArea.getText() == null ? "" : recordNotesArea.getText().trim();
@@ -572,15 +631,14 @@ public class MainApp extends Application {
             // Create record (UUID id for new records)
             MaintenanceRecord record = new MaintenanceRecord(
                     UUID.randomUUID().toString(),
-                    recordDateField.getText().trim(),
+                    serviceDate,
                     recordTypeField.getText().trim(),
                     miles,
                     notes
             );
 
             selectedVehicle.addMaintenanceRecord(record);
-
-            safeSave();
+            saveChanges(); // also picks up the mileage update above
             showVehicleDetailsView(selectedVehicle);
 
         } catch (NumberFormatException nfe) {
@@ -594,7 +652,7 @@ public class MainApp extends Application {
     // shared helpers
     // -----------------------------
     private void refreshVehicleList() {
-        vehicleItems.setAll(garage.getAllVehicles());
+        vehicleItems.setAll(garage.vehicles());
         if (countLabel != null) {
             countLabel.setText("Vehicles: " + vehicleItems.size());
         }
@@ -602,14 +660,48 @@ public class MainApp extends Application {
         root.setTop(UiUtils.buildHeader(vehicleItems));
     }
 
-    private void safeSave() {
-        try {
-            repo.saveGarage(garage);
-        } catch (Exception ex) {
-            UiUtils.showError("Save Failed", ex.getMessage());
+    // another tool changed the garage file, merge just those vehicles and redraw what shows them
+    private void onStoredChanges(GarageChanges changes) {
+        if (!GarageFileWatcher.applyStoredChanges(garage, changes)) return;
+
+        refreshVehicleList();
+        if (selectedVehicle != null) {
+            VehicleBase current = garage.getVehicleById(selectedVehicle.getVehicleId());
+            if (current == null) {
+                // the vehicle on screen is gone
+                selectedVehicle = null;
+                recordItems.clear();
+                showHomeView();
+            } else if (current != selectedVehicle) {
+                selectedVehicle = current;
+                refreshMaintenanceTable();
+            }
         }
     }
 
+    private static GarageRepository createRepository(String storage) {
+        return switch (storage) {
+            case "text" -> new TextFileRepository(DATA_FILE,
+                    !Boolean.getBoolean(PACKED_HISTORY_PROPERTY)
+                            && Boolean.parseBoolean(System.getProperty(LAZY_HISTORY_PROPERTY, "true")));
+            case "binary" -> new BinaryGarageRepository("garage-data.gmb");
+            case "sql" -> new SqlGarageRepository("garage-data");
+            case "sharded" -> new ShardedGarageRepository("garage-shards");
+            default -> throw new IllegalArgumentException("Unknown storage: " + storage);
+        };
+    }
+
+    // writes happen on the scheduler's background thread, failures come back through UiUtils.showError
+    private void safeSave() {
+        saveScheduler.requestSave(garage);
+    }
+
+    // persist only the vehicles that changed since the last write instead of rewriting everything
+    // the changes are copied here on the FX thread, 'Save Now' still writes a full snapshot
+    private void saveChanges() {
+        saveScheduler.requestChanges(garage);
+    }
+
     public static void main(String[] args) {
         launch(args);
     }
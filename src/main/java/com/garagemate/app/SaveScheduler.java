@@ -0,0 +1,197 @@
+package com.garagemate.app;
+
+import com.garagemate.model.Garage;
+import com.garagemate.model.GarageChanges;
+import com.garagemate.persistence.GarageRepository;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+/**
+ * Moves all file writes off the JavaFX thread
+ * Writes run in the order they were submitted, and bursts are coalesced:
+ * change sets taken one after another merge into one incremental write,
+ * and a burst of full save requests becomes one write of the newest snapshot
+ */
+public class SaveScheduler {
+
+    private static final long CLOSE_TIMEOUT_SECONDS = 30;
+
+    private final GarageRepository repo;
+    private final Consumer<Exception> onFailure;
+
+    // one writer thread keeps change writes and snapshot saves in submission order
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "garage-saver");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // guarded by this
+    private Garage pendingSnapshot;
+    private CompletableFuture<Void> pendingSave;
+    private PendingChanges openChanges; // still accepting merges, not yet picked up by the writer
+    private boolean fullSaveNeeded;     // a write failed, some changes are only in memory now
+    private boolean closing;
+
+    /**
+     * @param onFailure called on the writer thread when a background write fails,
+     *                  the caller decides how to get back to the UI
+     */
+    public SaveScheduler(GarageRepository repo, Consumer<Exception> onFailure) {
+        if (repo == null) throw new IllegalArgumentException("repo cannot be null");
+        if (onFailure == null) throw new IllegalArgumentException("onFailure cannot be null");
+        this.repo = repo;
+        this.onFailure = onFailure;
+    }
+
+    /**
+     * Queues a small write such as a single-change repository call
+     */
+    public void submitChange(Runnable change) {
+        writer.execute(() -> {
+            try {
+                change.run();
+            } catch (Exception ex) {
+                report(ex);
+            }
+        });
+    }
+
+    /**
+     * Takes what changed in the garage right away and writes only that in the background
+     * After a failed write this falls back to a full save
+     */
+    public synchronized CompletableFuture<Void> requestChanges(Garage garage) {
+        if (garage == null) throw new IllegalArgumentException("garage cannot be null");
+        if (fullSaveNeeded) {
+            return requestSave(garage);
+        }
+
+        GarageChanges changes = garage.takeChanges();
+        if (openChanges != null) {
+            openChanges.changes = openChanges.changes.mergedWith(changes);
+            return openChanges.done;
+        }
+        if (changes.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        PendingChanges pending = new PendingChanges(changes);
+        openChanges = pending;
+        writer.execute(() -> writeChanges(pending));
+        return pending.done;
+    }
+
+    private void writeChanges(PendingChanges pending) {
+        GarageChanges changes;
+        synchronized (this) {
+            if (openChanges == pending) openChanges = null;
+            changes = pending.changes;
+        }
+
+        try {
+            repo.saveChanges(changes);
+            pending.done.complete(null);
+        } catch (Exception ex) {
+            synchronized (this) {
+                fullSaveNeeded = true;
+            }
+            pending.done.completeExceptionally(ex);
+            report(ex);
+        }
+    }
+
+    /**
+     * Takes a snapshot of the garage right away and writes it in the background
+     * If a save is already waiting, the newer snapshot replaces it and both callers share one write
+     */
+    public synchronized CompletableFuture<Void> requestSave(Garage garage) {
+        if (garage == null) throw new IllegalArgumentException("garage cannot be null");
+        Garage snapshot = garage.frozenSnapshot();
+        garage.markClean(); // the snapshot carries every change up to now
+
+        // changes taken later must be written after this snapshot, not merged into an earlier write
+        openChanges = null;
+
+        pendingSnapshot = snapshot;
+        if (pendingSave != null) {
+            return pendingSave;
+        }
+        pendingSave = new CompletableFuture<>();
+        CompletableFuture<Void> save = pendingSave;
+        writer.execute(() -> writePendingSnapshot(save));
+        return save;
+    }
+
+    private void writePendingSnapshot(CompletableFuture<Void> save) {
+        Garage snapshot;
+        synchronized (this) {
+            snapshot = pendingSnapshot;
+            pendingSnapshot = null;
+            pendingSave = null;
+        }
+
+        // changes queued after this save may repeat what the snapshot already has,
+        // they carry the newest state of each vehicle so writing them again is harmless
+        try {
+            repo.saveGarage(snapshot);
+            synchronized (this) {
+                fullSaveNeeded = false;
+            }
+            save.complete(null);
+        } catch (Exception ex) {
+            synchronized (this) {
+                fullSaveNeeded = true;
+            }
+            save.completeExceptionally(ex);
+            report(ex);
+        }
+    }
+
+    /**
+     * Flush-on-close: writes the last changes, waits for every queued write and stops the writer
+     * Failures are thrown here instead of going through onFailure, the UI is on its way out
+     */
+    public void close(Garage garage) {
+        CompletableFuture<Void> last;
+        synchronized (this) {
+            closing = true;
+            last = requestChanges(garage);
+        }
+        writer.shutdown();
+
+        try {
+            last.get(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            writer.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause().getMessage(), e.getCause());
+        } catch (TimeoutException e) {
+            throw new RuntimeException("Timed out waiting for the final save", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for the final save", e);
+        }
+    }
+
+    private void report(Exception ex) {
+        synchronized (this) {
+            if (closing) return;
+        }
+        onFailure.accept(ex);
+    }
+
+    private static final class PendingChanges {
+        GarageChanges changes; // guarded by the scheduler
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        PendingChanges(GarageChanges changes) {
+            this.changes = changes;
+        }
+    }
+}
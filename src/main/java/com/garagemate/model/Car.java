@@ -23,10 +23,12 @@ public class Car extends VehicleBase {
     }
 
     public void setNumberOfDoors(int doors) {
+        checkWritable();
         if (doors < 1 || doors > 6) {
             throw new IllegalArgumentException("numberOfDoors must be between 1 and 6");
         }
         this.numberOfDoors = doors;
+        markDirty();
     }
 
     @Override
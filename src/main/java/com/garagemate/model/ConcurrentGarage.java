@@ -0,0 +1,77 @@
+package com.garagemate.model;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A Garage that background threads (imports, saves, analytics) can share with the UI
+ * Reads never lock, writes take turns on one lock, vehicles() iterates without copying
+ * and without ConcurrentModificationException. Insertion order is kept like in Garage
+ *
+ * A write holds the lock until its snapshot hooks and listeners have run, so listeners
+ * see changes in the order they happened. A listener shouldn't wait on another thread that writes
+ *
+ * Only the garage itself is thread-safe, a vehicle that's being edited on one thread
+ * shouldn't be read field by field on another
+ */
+public class ConcurrentGarage extends Garage {
+
+    private final Object writeLock = new Object();
+
+    public ConcurrentGarage() {
+        super(new ConcurrentVehicleStore(), ConcurrentHashMap.newKeySet(), ConcurrentHashMap.newKeySet());
+    }
+
+    /**
+     * Moves the vehicles of a loaded garage over as they are (not copied), unsaved removals included
+     */
+    public ConcurrentGarage(Garage source) {
+        this();
+        for (VehicleBase v : source.vehicles()) {
+            addVehicle(v);
+        }
+        source.copyRemovedIdsTo(this);
+    }
+
+    @Override
+    public void addVehicle(VehicleBase vehicle) {
+        synchronized (writeLock) {
+            super.addVehicle(vehicle);
+        }
+    }
+
+    @Override
+    public void putVehicle(VehicleBase vehicle) {
+        synchronized (writeLock) {
+            super.putVehicle(vehicle);
+        }
+    }
+
+    @Override
+    public boolean removeVehicle(String vehicleId) {
+        synchronized (writeLock) {
+            return super.removeVehicle(vehicleId);
+        }
+    }
+
+    @Override
+    public boolean forgetVehicle(String vehicleId) {
+        synchronized (writeLock) {
+            return super.forgetVehicle(vehicleId);
+        }
+    }
+
+    // vehicle edits notify the same listeners, so they queue up behind the garage writes too
+    @Override
+    void vehicleChanged(VehicleBase vehicle) {
+        synchronized (writeLock) {
+            super.vehicleChanged(vehicle);
+        }
+    }
+
+    @Override
+    void vehicleCleaned(VehicleBase vehicle) {
+        synchronized (writeLock) {
+            super.vehicleCleaned(vehicle);
+        }
+    }
+}
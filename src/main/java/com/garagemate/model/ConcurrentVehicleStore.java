@@ -0,0 +1,164 @@
+package com.garagemate.model;
+
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Vehicle store for ConcurrentGarage
+ *
+ * Lookups go through a ConcurrentHashMap and never lock. Insertion order lives in an
+ * append-only array: adding writes the next free slot and publishes a new count,
+ * removing marks the slot's entry dead. The array is only copied when it's full or mostly dead
+ * (amortized O(1) per write), readers keep iterating whatever array they started with.
+ * Writers take turns on one lock
+ */
+final class ConcurrentVehicleStore implements VehicleStore {
+
+    private static final int INITIAL_SLOTS = 16;
+
+    private final ConcurrentHashMap<String, Entry> index = new ConcurrentHashMap<>();
+    private final Object writeLock = new Object();
+
+    // replaced as a whole, so a reader always sees a matching array and count
+    private volatile Order order = new Order(new Entry[INITIAL_SLOTS], 0);
+    private int deadSlots; // guarded by writeLock
+
+    private final Collection<VehicleBase> values = new ValuesView();
+
+    @Override
+    public VehicleBase get(String vehicleId) {
+        Entry e = index.get(vehicleId);
+        return e == null ? null : e.vehicle;
+    }
+
+    @Override
+    public VehicleBase putIfAbsent(String vehicleId, VehicleBase vehicle) {
+        synchronized (writeLock) {
+            Entry existing = index.get(vehicleId);
+            if (existing != null) return existing.vehicle;
+            append(vehicleId, vehicle);
+            return null;
+        }
+    }
+
+    @Override
+    public VehicleBase put(String vehicleId, VehicleBase vehicle) {
+        synchronized (writeLock) {
+            Entry existing = index.get(vehicleId);
+            if (existing != null) {
+                VehicleBase old = existing.vehicle;
+                existing.vehicle = vehicle; // same slot, same position
+                return old;
+            }
+            append(vehicleId, vehicle);
+            return null;
+        }
+    }
+
+    @Override
+    public VehicleBase remove(String vehicleId) {
+        synchronized (writeLock) {
+            Entry e = index.remove(vehicleId);
+            if (e == null) return null;
+            e.removed = true;
+            deadSlots++;
+
+            Order current = order;
+            if (current.count > INITIAL_SLOTS && deadSlots * 2 > current.count) {
+                order = compacted(current, current.slots.length);
+            }
+            return e.vehicle;
+        }
+    }
+
+    @Override
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * Weakly consistent like ConcurrentHashMap's views: never throws ConcurrentModificationException,
+     * sees every vehicle that was there when iteration started and wasn't removed since
+     */
+    @Override
+    public Collection<VehicleBase> values() {
+        return values;
+    }
+
+    // caller holds writeLock
+    private void append(String vehicleId, VehicleBase vehicle) {
+        Order current = order;
+        if (current.count == current.slots.length) {
+            // full: drop the dead slots, and grow if that doesn't free enough
+            int live = current.count - deadSlots;
+            current = compacted(current, Math.max(INITIAL_SLOTS, live * 2));
+        }
+
+        Entry e = new Entry(vehicle);
+        // slots past a reader's count are never read by it, so filling one in place is safe
+        current.slots[current.count] = e;
+        order = new Order(current.slots, current.count + 1);
+        index.put(vehicleId, e);
+    }
+
+    // caller holds writeLock
+    private Order compacted(Order current, int capacity) {
+        Entry[] slots = new Entry[capacity];
+        int n = 0;
+        for (int i = 0; i < current.count; i++) {
+            Entry e = current.slots[i];
+            if (!e.removed) slots[n++] = e;
+        }
+        deadSlots = 0;
+        return new Order(slots, n);
+    }
+
+    private static final class Entry {
+        volatile VehicleBase vehicle;
+        volatile boolean removed;
+
+        Entry(VehicleBase vehicle) {
+            this.vehicle = vehicle;
+        }
+    }
+
+    private record Order(Entry[] slots, int count) {}
+
+    private final class ValuesView extends AbstractCollection<VehicleBase> {
+
+        @Override
+        public Iterator<VehicleBase> iterator() {
+            Order snapshot = order;
+            return new Iterator<>() {
+                int next = advance(0);
+
+                private int advance(int from) {
+                    int i = from;
+                    while (i < snapshot.count && snapshot.slots[i].removed) i++;
+                    return i;
+                }
+
+                @Override
+                public boolean hasNext() {
+                    return next < snapshot.count;
+                }
+
+                @Override
+                public VehicleBase next() {
+                    if (next >= snapshot.count) throw new NoSuchElementException();
+                    VehicleBase v = snapshot.slots[next].vehicle;
+                    next = advance(next + 1);
+                    return v;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return index.size();
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.garagemate.model;
+
+import java.time.LocalDate;
+
+/**
+ * One service a vehicle needs, as MaintenanceSchedule saw it when the list was made
+ *
+ * due is the earlier of the date it's due by time and the day its mileage was first seen past due,
+ * null while it's only tracked by miles and still has miles left.
+ * dueMileage is -1 and milesLeft Integer.MAX_VALUE when the interval has no miles part,
+ * milesLeft is 0 or negative once it's due by miles
+ */
+public record DueService(VehicleBase vehicle, String serviceType, LocalDate due, int dueMileage, int milesLeft) {
+
+    public boolean isOverdueBy(LocalDate date) {
+        return due != null && !due.isAfter(date);
+    }
+}
@@ -0,0 +1,315 @@
+package com.garagemate.model;
+
+import com.garagemate.model.FleetStats.MakeModel;
+import com.garagemate.model.FleetStats.MileageStats;
+import com.garagemate.model.FleetStats.ServiceGaps;
+
+import java.util.*;
+
+/**
+ * Service counts by type, gaps between services per vehicle and per make/model, mileage by model year
+ *
+ * compute() is a one-off full pass, in parallel over a frozen snapshot so the UI can keep editing.
+ * A FleetAnalytics instance keeps the same totals up to date instead: every vehicle's share is
+ * remembered, a change takes the old share out and puts the new one in (the history is only
+ * read again when it changed, a single added record is counted in without reading the rest).
+ * The starting pass reads lazy histories through frozen copies, which don't keep them loaded.
+ * stats() is cached until the next change, a dashboard refresh
+ * doesn't scan the fleet. Synchronized, a ConcurrentGarage can change it from several threads
+ */
+public final class FleetAnalytics {
+
+    private final Garage garage;
+    private final Map<VehicleBase, Share> shares = new IdentityHashMap<>();
+    private final Totals totals = new Totals();
+    private volatile FleetStats cached;
+
+    private final GarageListener listener = new GarageListener() {
+        @Override
+        public void vehicleAdded(VehicleBase vehicle) {
+            track(vehicle);
+        }
+
+        @Override
+        public void vehicleRemoved(VehicleBase vehicle) {
+            untrack(vehicle);
+        }
+
+        @Override
+        public void vehicleChanged(VehicleBase vehicle) {
+            refresh(vehicle);
+        }
+    };
+
+    /**
+     * Starts from a parallel pass over the garage and follows every change after that, until close()
+     * Create it on the thread that edits the garage, like Garage.frozenSnapshot()
+     */
+    public FleetAnalytics(Garage garage) {
+        this.garage = Objects.requireNonNull(garage, "garage cannot be null");
+
+        // listen first so nothing changed during the pass is missed, tracking twice is a no-op
+        garage.addListener(listener);
+
+        // the shares are worked out in parallel from frozen copies, then filed under the live vehicles
+        // each history keeps the version it was frozen at
+        Map<String, Share> byId = new HashMap<>();
+        garage.frozenSnapshot().getAllVehicles().parallelStream()
+                .map(v -> Map.entry(v.getVehicleId(), Share.of(v, null)))
+                .forEachOrdered(e -> byId.put(e.getKey(), e.getValue()));
+
+        synchronized (this) {
+            for (VehicleBase v : garage.vehicles()) {
+                if (shares.containsKey(v)) continue; // added during the pass, already tracked
+                Share frozen = byId.get(v.getVehicleId());
+                if (frozen == null || frozen.history().version() != v.historyVersion()) {
+                    track(v); // the history changed since it was frozen, read it again
+                    continue;
+                }
+                // same history, the rest is read from the live vehicle in case it was edited meanwhile
+                Share share = Share.of(v, frozen.history());
+                shares.put(v, share);
+                totals.apply(share, 1);
+            }
+        }
+    }
+
+    /**
+     * One full pass over the garage on the common fork-join pool, nothing is kept
+     * Call it on the thread that edits the garage, the pass itself runs on a frozen snapshot
+     */
+    public static FleetStats compute(Garage garage) {
+        Objects.requireNonNull(garage, "garage cannot be null");
+        return garage.frozenSnapshot().getAllVehicles().parallelStream()
+                .map(v -> Share.of(v, null))
+                .collect(Totals::new, (t, s) -> t.apply(s, 1), Totals::merge)
+                .toStats();
+    }
+
+    /**
+     * Gaps between the services of one vehicle, worked out from its history right now
+     */
+    public static ServiceGaps gapsOf(VehicleBase vehicle) {
+        return History.of(Objects.requireNonNull(vehicle, "vehicle cannot be null")).gaps();
+    }
+
+    /**
+     * The current totals, rebuilt only when something changed since the last call
+     */
+    public FleetStats stats() {
+        FleetStats stats = cached;
+        if (stats != null) return stats;
+        synchronized (this) {
+            if (cached == null) cached = totals.toStats();
+            return cached;
+        }
+    }
+
+    /**
+     * Gaps between the services of a vehicle in the garage, NONE when it isn't tracked
+     */
+    public synchronized ServiceGaps gapsFor(String vehicleId) {
+        VehicleBase v = garage.getVehicleById(vehicleId);
+        Share share = v == null ? null : shares.get(v);
+        return share == null ? ServiceGaps.NONE : share.history().gaps();
+    }
+
+    /**
+     * Stops following the garage
+     */
+    public void close() {
+        garage.removeListener(listener);
+    }
+
+    // ---- tracking ----
+
+    private synchronized void track(VehicleBase vehicle) {
+        if (shares.containsKey(vehicle)) return;
+        Share share = Share.of(vehicle, null);
+        shares.put(vehicle, share);
+        totals.apply(share, 1);
+        cached = null;
+    }
+
+    private synchronized void untrack(VehicleBase vehicle) {
+        Share share = shares.remove(vehicle);
+        if (share == null) return;
+        totals.apply(share, -1);
+        cached = null;
+    }
+
+    private synchronized void refresh(VehicleBase vehicle) {
+        Share old = shares.get(vehicle);
+        if (old == null) return;
+        Share now = Share.of(vehicle, old.history());
+        if (now.equals(old)) return; // a nickname, nothing counted here moved
+        totals.apply(old, -1);
+        totals.apply(now, 1);
+        shares.put(vehicle, now);
+        cached = null;
+    }
+
+    // ---- one vehicle's share ----
+
+    // what a history adds to the totals, version says which history it was read from
+    // records counts them all, first and last are the earliest and latest dated service
+    private record History(Map<String, Integer> serviceCounts, int records, int dated,
+                           int firstDay, int firstMiles, int lastDay, int lastMiles, int version) {
+
+        static History of(VehicleBase v) {
+            Tally tally = new Tally(new HashMap<>());
+            for (MaintenanceRecord r : v.getMaintenanceHistory()) {
+                tally.add(r);
+            }
+            // read after the history, a lazy history bumps it when it loads
+            return tally.toHistory(v.historyVersion());
+        }
+
+        // the record that was just added, O(service types) instead of a pass over the history
+        History plus(MaintenanceRecord r, int version) {
+            Tally tally = new Tally(new HashMap<>(serviceCounts));
+            tally.records = records;
+            tally.dated = dated;
+            tally.firstDay = firstDay;
+            tally.firstMiles = firstMiles;
+            tally.lastDay = lastDay;
+            tally.lastMiles = lastMiles;
+            tally.add(r);
+            return tally.toHistory(version);
+        }
+
+        // consecutive gaps add up to last minus first
+        ServiceGaps gaps() {
+            return dated < 2 ? ServiceGaps.NONE : new ServiceGaps(dated - 1, lastMiles - firstMiles, lastDay - firstDay);
+        }
+    }
+
+    // builds a History one record at a time, in history order so a tie keeps the one seen first
+    private static final class Tally {
+        final Map<String, Integer> counts;
+        int records;
+        int dated;
+        int firstDay;
+        int firstMiles;
+        int lastDay;
+        int lastMiles;
+
+        Tally(Map<String, Integer> counts) {
+            this.counts = counts;
+        }
+
+        void add(MaintenanceRecord r) {
+            records++;
+            counts.merge(MaintenanceHistory.typeKey(r.getServiceType()), 1, Integer::sum);
+            if (!r.hasReadableDate()) return;
+
+            int day = r.getServiceDay();
+            int miles = r.getMileageAtService();
+            if (dated == 0 || earlier(day, miles, firstDay, firstMiles)) {
+                firstDay = day;
+                firstMiles = miles;
+            }
+            if (dated == 0 || earlier(lastDay, lastMiles, day, miles)) {
+                lastDay = day;
+                lastMiles = miles;
+            }
+            dated++;
+        }
+
+        History toHistory(int version) {
+            return new History(counts, records, dated, firstDay, firstMiles, lastDay, lastMiles, version);
+        }
+
+        // same day goes by mileage
+        private static boolean earlier(int day, int miles, int otherDay, int otherMiles) {
+            if (day != otherDay) return day < otherDay;
+            return miles < otherMiles;
+        }
+    }
+
+    private record Share(MakeModel makeModel, int year, int mileage, History history) {
+
+        static Share of(VehicleBase v, History previous) {
+            return new Share(new MakeModel(VehicleIndex.textKey(v.getMake()), VehicleIndex.textKey(v.getModel())),
+                    v.getYear(), v.getCurrentMileage(), historyOf(v, previous));
+        }
+
+        private static History historyOf(VehicleBase v, History previous) {
+            if (previous == null) return History.of(v);
+            int version = v.historyVersion();
+            if (previous.version() == version) return previous;
+            // one change that left one more record can only be an add, and adds go at the end
+            if (version == previous.version() + 1 && v.isHistoryLoaded() && !v.isHistoryPacked()) {
+                List<MaintenanceRecord> records = v.getMaintenanceHistory();
+                if (records.size() == previous.records() + 1) {
+                    return previous.plus(records.get(records.size() - 1), version);
+                }
+            }
+            return History.of(v);
+        }
+    }
+
+    // ---- totals ----
+
+    private static final class ModelTotals {
+        long vehicles;
+        ServiceGaps gaps = ServiceGaps.NONE;
+    }
+
+    private static final class YearTotals {
+        long vehicles;
+        long mileage;
+        final TreeMap<Integer, Integer> mileages = new TreeMap<>(); // mileage -> vehicles, for min and max
+    }
+
+    // sign is 1 to add a share, -1 to take it out; also the accumulator for compute()
+    private static final class Totals {
+        final Map<String, Long> serviceCounts = new HashMap<>();
+        final Map<MakeModel, ModelTotals> byMakeModel = new HashMap<>();
+        final Map<Integer, YearTotals> byYear = new HashMap<>();
+
+        void apply(Share share, int sign) {
+            share.history().serviceCounts().forEach((type, n) -> addCount(type, sign * (long) n));
+
+            ModelTotals model = byMakeModel.computeIfAbsent(share.makeModel(), k -> new ModelTotals());
+            model.vehicles += sign;
+            model.gaps = model.gaps.plus(share.history().gaps(), sign);
+            if (model.vehicles == 0) byMakeModel.remove(share.makeModel());
+
+            YearTotals year = byYear.computeIfAbsent(share.year(), k -> new YearTotals());
+            year.vehicles += sign;
+            year.mileage += sign * (long) share.mileage();
+            year.mileages.merge(share.mileage(), sign, (a, b) -> a + b == 0 ? null : a + b);
+            if (year.vehicles == 0) byYear.remove(share.year());
+        }
+
+        private void addCount(String type, long n) {
+            serviceCounts.merge(type, n, (a, b) -> a + b == 0 ? null : a + b);
+        }
+
+        // combines the partial totals of two fork-join tasks
+        void merge(Totals other) {
+            other.serviceCounts.forEach(this::addCount);
+            other.byMakeModel.forEach((key, theirs) -> {
+                ModelTotals ours = byMakeModel.computeIfAbsent(key, k -> new ModelTotals());
+                ours.vehicles += theirs.vehicles;
+                ours.gaps = ours.gaps.plus(theirs.gaps, 1);
+            });
+            other.byYear.forEach((key, theirs) -> {
+                YearTotals ours = byYear.computeIfAbsent(key, k -> new YearTotals());
+                ours.vehicles += theirs.vehicles;
+                ours.mileage += theirs.mileage;
+                theirs.mileages.forEach((m, n) -> ours.mileages.merge(m, n, Integer::sum));
+            });
+        }
+
+        FleetStats toStats() {
+            Map<MakeModel, ServiceGaps> gaps = new HashMap<>();
+            byMakeModel.forEach((key, t) -> gaps.put(key, t.gaps));
+            Map<Integer, MileageStats> mileage = new HashMap<>();
+            byYear.forEach((key, t) -> mileage.put(key,
+                    new MileageStats(t.vehicles, t.mileage, t.mileages.firstKey(), t.mileages.lastKey())));
+            return new FleetStats(serviceCounts, gaps, mileage);
+        }
+    }
+}
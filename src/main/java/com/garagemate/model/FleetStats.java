@@ -0,0 +1,50 @@
+package com.garagemate.model;
+
+import java.util.Map;
+
+/**
+ * Fleet-wide aggregates, see FleetAnalytics
+ * Service types, makes and models ignore case, the keys are lowercase
+ */
+public record FleetStats(Map<String, Long> serviceCounts,
+                         Map<MakeModel, ServiceGaps> gapsByMakeModel,
+                         Map<Integer, MileageStats> mileageByYear) {
+
+    public FleetStats {
+        serviceCounts = Map.copyOf(serviceCounts);
+        gapsByMakeModel = Map.copyOf(gapsByMakeModel);
+        mileageByYear = Map.copyOf(mileageByYear);
+    }
+
+    public record MakeModel(String make, String model) {}
+
+    /**
+     * Gaps between consecutive services (by date), records whose date couldn't be read are left out
+     */
+    public record ServiceGaps(long gaps, long miles, long days) {
+
+        public static final ServiceGaps NONE = new ServiceGaps(0, 0, 0);
+
+        public double averageMiles() {
+            return gaps == 0 ? 0 : (double) miles / gaps;
+        }
+
+        public double averageDays() {
+            return gaps == 0 ? 0 : (double) days / gaps;
+        }
+
+        ServiceGaps plus(ServiceGaps other, int sign) {
+            return new ServiceGaps(gaps + sign * other.gaps, miles + sign * other.miles, days + sign * other.days);
+        }
+    }
+
+    /**
+     * Current mileage of the vehicles of one model year
+     */
+    public record MileageStats(long vehicles, long totalMileage, int min, int max) {
+
+        public double average() {
+            return vehicles == 0 ? 0 : (double) totalMileage / vehicles;
+        }
+    }
+}
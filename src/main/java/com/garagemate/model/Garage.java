@@ -1,20 +1,58 @@
 package com.garagemate.model;
 
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Garage is a container for vehicles
+ * Not thread-safe, see ConcurrentGarage for one that background threads can share with the UI
  */
 public class Garage {
 
-    private final Map<String, VehicleBase> vehicles = new LinkedHashMap<>();
+    private final VehicleStore vehicles;
 
-    public Garage() {}
+    // ids removed since the last save, the persistence layer needs them to delete stored copies
+    private final Set<String> removedSinceSave;
 
+    // vehicles changed since the last save, so saves and markClean() never walk the whole garage
+    // null in a frozen snapshot, its vehicles keep the flag they were frozen with
+    private final Set<VehicleBase> dirtyVehicles;
+
+    // indexes and other derived data, read on every change so it has to be cheap to iterate
+    private final List<GarageListener> listeners = new CopyOnWriteArrayList<>();
+
+    // built the first time someone queries, kept up to date after that
+    private volatile VehicleIndex index;
+
+    // built by the first frozenSnapshot(), kept up to date after that
+    private volatile SnapshotTable snapshots;
+
+    public Garage() {
+        // vehicles don't override equals, so this is an identity set that keeps change order
+        this(new LinkedVehicleStore(), new LinkedHashSet<>(), new LinkedHashSet<>());
+    }
+
+    // lets ConcurrentGarage swap in thread-safe storage, everything else is shared
+    Garage(VehicleStore vehicles, Set<String> removedSinceSave, Set<VehicleBase> dirtyVehicles) {
+        this.vehicles = vehicles;
+        this.removedSinceSave = removedSinceSave;
+        this.dirtyVehicles = dirtyVehicles;
+    }
+
+    /**
+     * A copy the caller can keep and change, see vehicles() for a view that doesn't copy
+     */
     public List<VehicleBase> getAllVehicles() {
         return new ArrayList<>(vehicles.values());
     }
 
+    /**
+     * Read-only live view of the vehicles in insertion order, nothing is copied
+     */
+    public Collection<VehicleBase> vehicles() {
+        return Collections.unmodifiableCollection(vehicles.values());
+    }
+
     public VehicleBase getVehicleById(String vehicleId) {
         String id = VehicleBase.requireNonBlank(vehicleId, "vehicleId");
         return vehicles.get(id);
@@ -22,20 +60,216 @@ public class Garage {
 
     public void addVehicle(VehicleBase vehicle) {
         Objects.requireNonNull(vehicle, "vehicle cannot be null");
-        if (vehicles.containsKey(vehicle.getVehicleId())) {
+        if (vehicles.putIfAbsent(vehicle.getVehicleId(), vehicle) != null) {
             throw new IllegalArgumentException("Duplicate vehicleId: " + vehicle.getVehicleId());
         }
-        vehicles.put(vehicle.getVehicleId(), vehicle);
+        SnapshotTable t = snapshots;
+        if (t != null) t.added(vehicle);
+        added(vehicle);
+    }
+
+    /**
+     * Adds the vehicle or replaces the one with the same id, keeping its position
+     */
+    public void putVehicle(VehicleBase vehicle) {
+        Objects.requireNonNull(vehicle, "vehicle cannot be null");
+        VehicleBase old = vehicles.put(vehicle.getVehicleId(), vehicle);
+        if (old == vehicle) return;
+        SnapshotTable t = snapshots;
+        if (t != null) t.replaced(old, vehicle);
+        if (old != null) removed(old);
+        added(vehicle);
     }
 
     public boolean removeVehicle(String vehicleId) {
         String id = VehicleBase.requireNonBlank(vehicleId, "vehicleId");
-        return vehicles.remove(id) != null;
+        VehicleBase old = vehicles.remove(id);
+        if (old == null) return false;
+        removedSinceSave.add(id);
+        SnapshotTable t = snapshots;
+        if (t != null) t.removed(old);
+        removed(old);
+        // the stored copy goes with the removal, adding it back has to write it again
+        old.removedFromGarage();
+        return true;
+    }
+
+    /**
+     * Drops a vehicle that storage already removed, so there's nothing to save for it
+     */
+    public boolean forgetVehicle(String vehicleId) {
+        String id = VehicleBase.requireNonBlank(vehicleId, "vehicleId");
+        VehicleBase old = vehicles.remove(id);
+        if (old == null) return false;
+        SnapshotTable t = snapshots;
+        if (t != null) t.removed(old);
+        removed(old);
+        return true;
+    }
+
+    /**
+     * True when the vehicle was removed here and the removal isn't saved yet
+     */
+    public boolean isRemovedSinceSave(String vehicleId) {
+        return removedSinceSave.contains(VehicleBase.requireNonBlank(vehicleId, "vehicleId"));
     }
 
     public boolean containsVehicle(String vehicleId) {
         String id = VehicleBase.requireNonBlank(vehicleId, "vehicleId");
-        return vehicles.containsKey(id);
+        return vehicles.get(id) != null;
+    }
+
+    /**
+     * Deep copy of the garage, nothing in it is shared with this one
+     * Copies every vehicle and record, use frozenSnapshot() when the copy is only read
+     */
+    public Garage snapshot() {
+        Garage copy = new Garage();
+        for (VehicleBase v : vehicles.values()) {
+            copy.addVehicle(v.copy());
+        }
+        copy.removedSinceSave.addAll(removedSinceSave);
+        return copy;
+    }
+
+    /**
+     * Read-only copy of the garage as it is now, for saves and other background readers
+     * Any number of threads can read it without locking, changing it throws UnsupportedOperationException.
+     * The vehicles are frozen copies shared with earlier snapshots, only the ones that changed since
+     * the last call are copied again, so after the first call this costs O(changed vehicles), not O(garage).
+     * Call it on the thread that edits the garage, it reads the changed vehicles field by field
+     */
+    public Garage frozenSnapshot() {
+        SnapshotTable t = snapshots;
+        if (t == null) {
+            synchronized (this) {
+                t = snapshots;
+                if (t == null) {
+                    t = new SnapshotTable();
+                    synchronized (t) {
+                        // publish first so nothing added during the pass is missed, the hooks wait for the pass
+                        snapshots = t;
+                        for (VehicleBase v : vehicles.values()) {
+                            if (vehicles.get(v.getVehicleId()) == v) t.added(v);
+                        }
+                    }
+                }
+            }
+        }
+        return t.snapshot(removedSinceSave);
+    }
+
+    // ---- queries ----
+
+    /**
+     * Starts a query over the vehicles, answered from indexes instead of a scan
+     * The indexes are built on the first call (one pass) and kept up to date by every change after that
+     */
+    public VehicleQuery query() {
+        VehicleIndex idx = index;
+        if (idx == null) {
+            synchronized (this) {
+                idx = index;
+                if (idx == null) {
+                    idx = new VehicleIndex();
+                    // listen first so nothing added during the pass is missed, adding twice is a no-op
+                    listeners.add(idx);
+                    for (VehicleBase v : vehicles.values()) {
+                        idx.vehicleAdded(v);
+                    }
+                    index = idx;
+                }
+            }
+        }
+        return new VehicleQuery(idx);
+    }
+
+    // ---- listeners ----
+
+    public void addListener(GarageListener listener) {
+        listeners.add(Objects.requireNonNull(listener, "listener cannot be null"));
+    }
+
+    public void removeListener(GarageListener listener) {
+        listeners.remove(listener);
+    }
+
+    private void added(VehicleBase vehicle) {
+        vehicle.attachTo(this);
+        if (vehicle.isDirty() && dirtyVehicles != null) dirtyVehicles.add(vehicle);
+        for (GarageListener l : listeners) l.vehicleAdded(vehicle);
+    }
+
+    private void removed(VehicleBase vehicle) {
+        // the vehicle may have moved to another garage already, only let go of our own
+        if (vehicle.attachedGarage() == this) vehicle.attachTo(null);
+        if (dirtyVehicles != null) dirtyVehicles.remove(vehicle);
+        for (GarageListener l : listeners) l.vehicleRemoved(vehicle);
+    }
+
+    // called by VehicleBase on every change
+    void vehicleChanged(VehicleBase vehicle) {
+        if (dirtyVehicles != null) dirtyVehicles.add(vehicle);
+        SnapshotTable t = snapshots;
+        if (t != null) t.changed(vehicle);
+        for (GarageListener l : listeners) l.vehicleChanged(vehicle);
+    }
+
+    // called by VehicleBase when a save marks it clean, snapshots carry the flag
+    void vehicleCleaned(VehicleBase vehicle) {
+        if (dirtyVehicles != null) dirtyVehicles.remove(vehicle);
+        SnapshotTable t = snapshots;
+        if (t != null) t.changed(vehicle);
+    }
+
+    // ---- change tracking ----
+
+    // unsaved removals go along when the vehicles move to another garage
+    void copyRemovedIdsTo(Garage target) {
+        target.removedSinceSave.addAll(removedSinceSave);
+    }
+
+    public boolean hasUnsavedChanges() {
+        if (!removedSinceSave.isEmpty()) return true;
+        if (dirtyVehicles != null) return !dirtyVehicles.isEmpty();
+        for (VehicleBase v : vehicles.values()) {
+            if (v.isDirty()) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Collects copies of the dirty vehicles plus the removed ids, then marks everything clean
+     * Cost is a copy of what changed, the clean vehicles aren't looked at
+     */
+    public GarageChanges takeChanges() {
+        List<VehicleBase> changed = new ArrayList<>();
+        for (VehicleBase v : dirtyInGarage()) {
+            changed.add(v.copy());
+            v.markClean();
+        }
+        Set<String> removed = new LinkedHashSet<>(removedSinceSave);
+        // only drop what was taken, a removal that lands meanwhile stays for the next call
+        removedSinceSave.removeAll(removed);
+        return new GarageChanges(removed, changed);
+    }
+
+    /**
+     * Called once a full save stored every vehicle, costs O(vehicles changed since the last save)
+     */
+    public void markClean() {
+        dirtyInGarage().forEach(VehicleBase::markClean);
+        removedSinceSave.clear();
+    }
+
+    // copied since markClean() takes them out of the set, a vehicle that moved to another garage is skipped
+    private List<VehicleBase> dirtyInGarage() {
+        List<VehicleBase> dirty = new ArrayList<>();
+        if (dirtyVehicles == null) return dirty; // frozen, nothing can be cleaned
+        for (VehicleBase v : dirtyVehicles) {
+            if (v.isDirty() && vehicles.get(v.getVehicleId()) == v) dirty.add(v);
+        }
+        return dirty;
     }
 
     public int size() {
@@ -43,6 +277,8 @@ public class Garage {
     }
 
     public void clear() {
-        vehicles.clear();
+        for (VehicleBase v : getAllVehicles()) {
+            removeVehicle(v.getVehicleId());
+        }
     }
 }
@@ -0,0 +1,70 @@
+package com.garagemate.model;
+
+import java.util.*;
+
+/**
+ * What changed in a Garage since its last save, produced by Garage.takeChanges()
+ * Removed ids are applied first, then each changed vehicle (a copy) replaces the stored one
+ */
+public record GarageChanges(Set<String> removedVehicleIds, List<VehicleBase> changedVehicles) {
+
+    public GarageChanges {
+        removedVehicleIds = Collections.unmodifiableSet(new LinkedHashSet<>(removedVehicleIds));
+        changedVehicles = List.copyOf(changedVehicles);
+    }
+
+    public boolean isEmpty() {
+        return removedVehicleIds.isEmpty() && changedVehicles.isEmpty();
+    }
+
+    /**
+     * Folds a newer change set into this one, the result is the same as applying both in order
+     */
+    public GarageChanges mergedWith(GarageChanges newer) {
+        Set<String> removed = new LinkedHashSet<>(removedVehicleIds);
+        removed.addAll(newer.removedVehicleIds);
+
+        Map<String, VehicleBase> olderById = new HashMap<>();
+        for (VehicleBase v : changedVehicles) {
+            olderById.put(v.getVehicleId(), v);
+        }
+        Set<String> newerIds = new HashSet<>();
+        for (VehicleBase v : newer.changedVehicles) {
+            newerIds.add(v.getVehicleId());
+        }
+
+        // keep an older copy only if nothing newer replaced or removed it
+        List<VehicleBase> changed = new ArrayList<>();
+        for (VehicleBase v : changedVehicles) {
+            String id = v.getVehicleId();
+            if (!newerIds.contains(id) && !newer.removedVehicleIds.contains(id)) {
+                changed.add(v);
+            }
+        }
+        // a newer copy also has to write what the older one would have (its records, removed records)
+        // unless a removal came in between, then the newer copy is a full write anyway
+        for (VehicleBase v : newer.changedVehicles) {
+            VehicleBase older = olderById.get(v.getVehicleId());
+            if (older == null || newer.removedVehicleIds.contains(v.getVehicleId())) {
+                changed.add(v);
+            } else {
+                VehicleBase merged = v.copy();
+                merged.mergeUnsavedFrom(older);
+                changed.add(merged);
+            }
+        }
+        return new GarageChanges(removed, changed);
+    }
+
+    /**
+     * Applies the changes to a garage, used when a store can only rewrite everything
+     */
+    public void applyTo(Garage garage) {
+        for (String id : removedVehicleIds) {
+            garage.removeVehicle(id);
+        }
+        for (VehicleBase v : changedVehicles) {
+            garage.putVehicle(v.copy());
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.garagemate.model;
+
+/**
+ * Told about every change to a Garage and the vehicles in it, on the thread that made the change
+ * Used to keep indexes and other derived data up to date without rescanning the garage
+ */
+public interface GarageListener {
+
+    default void vehicleAdded(VehicleBase vehicle) {}
+
+    default void vehicleRemoved(VehicleBase vehicle) {}
+
+    /**
+     * A field, record or the history of a vehicle in the garage changed
+     */
+    default void vehicleChanged(VehicleBase vehicle) {}
+}
@@ -0,0 +1,43 @@
+package com.garagemate.model;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The plain single-threaded store
+ */
+final class LinkedVehicleStore implements VehicleStore {
+
+    private final Map<String, VehicleBase> vehicles = new LinkedHashMap<>();
+
+    @Override
+    public VehicleBase get(String vehicleId) {
+        return vehicles.get(vehicleId);
+    }
+
+    @Override
+    public VehicleBase putIfAbsent(String vehicleId, VehicleBase vehicle) {
+        return vehicles.putIfAbsent(vehicleId, vehicle);
+    }
+
+    @Override
+    public VehicleBase put(String vehicleId, VehicleBase vehicle) {
+        return vehicles.put(vehicleId, vehicle);
+    }
+
+    @Override
+    public VehicleBase remove(String vehicleId) {
+        return vehicles.remove(vehicleId);
+    }
+
+    @Override
+    public int size() {
+        return vehicles.size();
+    }
+
+    @Override
+    public Collection<VehicleBase> values() {
+        return vehicles.values();
+    }
+}
@@ -0,0 +1,211 @@
+package com.garagemate.model;
+
+import java.util.*;
+
+/**
+ * One vehicle's maintenance records, kept in the order they were added
+ *
+ * Records are found by id through a map, so removing one doesn't scan the history:
+ * its slot is cleared and the gaps are squeezed out the next time the list is read.
+ * The ordered indexes (mileage, date, date per service type) are only built when
+ * something asks for a range or a latest record, a history that's just loaded and saved never pays for them
+ */
+final class MaintenanceHistory {
+
+    // what a record is filed under, replaced whenever one of those fields changes
+    private static final class Filed {
+        final MaintenanceRecord record; // null in a search bound
+        final String recordId;
+        final int mileage;
+        final int day;
+        final String typeKey;
+        int slot; // position in records, moves when the gaps are squeezed out
+
+        Filed(MaintenanceRecord record, int slot) {
+            this(record, record.getRecordId(), record.getMileageAtService(), record.getServiceDay(),
+                    typeKey(record.getServiceType()), slot);
+        }
+
+        Filed(MaintenanceRecord record, String recordId, int mileage, int day, String typeKey, int slot) {
+            this.record = record;
+            this.recordId = recordId;
+            this.mileage = mileage;
+            this.day = day;
+            this.typeKey = typeKey;
+            this.slot = slot;
+        }
+
+        // a search key for range queries: the low one sorts before every real record with the same
+        // keys (ids are never blank), the high one after them (a null id sorts last)
+        static Filed low(int mileage, int day) {
+            return new Filed(null, "", mileage, day, null, -1);
+        }
+
+        static Filed high(int mileage, int day) {
+            return new Filed(null, null, mileage, day, null, -1);
+        }
+    }
+
+    // record ids are unique within a history, so they settle ties
+    private static final Comparator<String> BY_ID = Comparator.nullsLast(Comparator.naturalOrder());
+    private static final Comparator<Filed> BY_MILEAGE = Comparator.<Filed>comparingInt(f -> f.mileage)
+            .thenComparing(f -> f.recordId, BY_ID);
+    private static final Comparator<Filed> BY_DATE = Comparator.<Filed>comparingInt(f -> f.day)
+            .thenComparingInt(f -> f.mileage)
+            .thenComparing(f -> f.recordId, BY_ID);
+
+    private final ArrayList<MaintenanceRecord> records = new ArrayList<>(); // null where a record was removed
+    private int gaps;
+    private final Map<String, Filed> byId = new HashMap<>();
+
+    // null until the first range or latest query
+    private TreeSet<Filed> byMileage;
+    private TreeSet<Filed> byDate;
+    private Map<String, TreeSet<Filed>> byTypeAndDate;
+
+    private final List<MaintenanceRecord> view = new AbstractList<>() {
+        @Override
+        public MaintenanceRecord get(int index) {
+            squeeze();
+            return records.get(index);
+        }
+
+        @Override
+        public int size() {
+            return byId.size();
+        }
+    };
+
+    static String typeKey(String serviceType) {
+        return StringPool.canonical(serviceType.trim().toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Read-only live view in the order records were added
+     */
+    List<MaintenanceRecord> view() {
+        return view;
+    }
+
+    int size() {
+        return byId.size();
+    }
+
+    boolean isEmpty() {
+        return byId.isEmpty();
+    }
+
+    MaintenanceRecord get(String recordId) {
+        Filed f = byId.get(recordId);
+        return f == null ? null : f.record;
+    }
+
+    void add(MaintenanceRecord record) {
+        if (byId.containsKey(record.getRecordId())) {
+            throw new IllegalArgumentException("Duplicate recordId: " + record.getRecordId());
+        }
+        Filed f = new Filed(record, records.size());
+        records.add(record);
+        byId.put(record.getRecordId(), f);
+        if (byMileage != null) index(f);
+    }
+
+    MaintenanceRecord remove(String recordId) {
+        Filed f = byId.remove(recordId);
+        if (f == null) return null;
+        records.set(f.slot, null);
+        gaps++;
+        if (gaps > byId.size()) squeeze(); // removals without reads in between can't pile up forever
+        if (byMileage != null) unindex(f);
+        return f.record;
+    }
+
+    /**
+     * Called after a record's date, type or mileage changed, moves it to its new place in the indexes
+     */
+    void refile(MaintenanceRecord record) {
+        Filed old = byId.get(record.getRecordId());
+        if (old == null || old.record != record) return; // not one of ours
+        Filed now = new Filed(record, old.slot);
+        if (now.mileage == old.mileage && now.day == old.day && now.typeKey.equals(old.typeKey)) return;
+
+        byId.put(record.getRecordId(), now);
+        if (byMileage != null) {
+            unindex(old);
+            index(now);
+        }
+    }
+
+    void clear() {
+        records.clear();
+        gaps = 0;
+        byId.clear();
+        byMileage = null;
+        byDate = null;
+        byTypeAndDate = null;
+    }
+
+    // ---- queries ----
+    // synchronized because they build the indexes on first use, and a frozen history is read by several threads
+
+    synchronized List<MaintenanceRecord> betweenMileage(int from, int to) {
+        if (from > to) throw new IllegalArgumentException("from must be <= to");
+        sorted();
+        return records(byMileage.subSet(Filed.low(from, 0), true, Filed.high(to, 0), true));
+    }
+
+    // epoch days, records with an unreadable date never match
+    synchronized List<MaintenanceRecord> betweenDays(int from, int to) {
+        if (from > to) throw new IllegalArgumentException("from must be <= to");
+        sorted();
+        return records(byDate.subSet(Filed.low(Integer.MIN_VALUE, from), true,
+                Filed.high(Integer.MAX_VALUE, to), true));
+    }
+
+    synchronized MaintenanceRecord latestOfType(String serviceType) {
+        sorted();
+        TreeSet<Filed> ofType = byTypeAndDate.get(typeKey(serviceType));
+        return ofType == null ? null : ofType.last().record;
+    }
+
+    // ---- internals ----
+
+    private void squeeze() {
+        if (gaps == 0) return;
+        records.removeIf(Objects::isNull);
+        gaps = 0;
+        for (int i = 0; i < records.size(); i++) {
+            byId.get(records.get(i).getRecordId()).slot = i;
+        }
+    }
+
+    private void sorted() {
+        if (byMileage != null) return;
+        byMileage = new TreeSet<>(BY_MILEAGE);
+        byDate = new TreeSet<>(BY_DATE);
+        byTypeAndDate = new HashMap<>();
+        for (Filed f : byId.values()) index(f);
+    }
+
+    private void index(Filed f) {
+        byMileage.add(f);
+        byDate.add(f);
+        byTypeAndDate.computeIfAbsent(f.typeKey, k -> new TreeSet<>(BY_DATE)).add(f);
+    }
+
+    private void unindex(Filed f) {
+        byMileage.remove(f);
+        byDate.remove(f);
+        TreeSet<Filed> ofType = byTypeAndDate.get(f.typeKey);
+        if (ofType != null) {
+            ofType.remove(f);
+            if (ofType.isEmpty()) byTypeAndDate.remove(f.typeKey);
+        }
+    }
+
+    private static List<MaintenanceRecord> records(Collection<Filed> filed) {
+        List<MaintenanceRecord> result = new ArrayList<>();
+        for (Filed f : filed) result.add(f.record);
+        return result;
+    }
+}
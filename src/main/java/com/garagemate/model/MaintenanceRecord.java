@@ -1,19 +1,29 @@
 package com.garagemate.model;
 
+import java.time.LocalDate;
 import java.util.Objects;
 
 /**
  * Represents one maintenance event for a vehicle
- * Dates are stored as String to keep persistence simple
+ * The date is parsed once and kept as an epoch day, see ServiceDates
  */
 public class MaintenanceRecord {
 
     private final String recordId;
-    private String serviceDate;   // e.g. "2026-02-17"
+    private int serviceDay;       // epoch day of e.g. "2026-02-17", ServiceDates.UNKNOWN if unreadable
+    private String unreadableDate; // the stored text when it wasn't a date, kept so saving doesn't lose it
     private String serviceType;   // e.g. "Oil Change"
     private int mileageAtService; // odometer at time of service
     private String notes;         // optional
 
+    // change tracking, a change here also marks the owning vehicle dirty
+    private VehicleBase owner;
+    private boolean dirty = true;
+
+    // snapshots, see VehicleBase.freeze()
+    private boolean frozen;
+    private MaintenanceRecord frozenCopy; // the last one handed out, dropped by any change
+
     public MaintenanceRecord(String recordId,
                              String serviceDate,
                              String serviceType,
@@ -27,38 +37,162 @@ public class MaintenanceRecord {
         setNotes(notes);
     }
 
+    public MaintenanceRecord(String recordId,
+                             LocalDate serviceDate,
+                             String serviceType,
+                             int mileageAtService,
+                             String notes) {
+
+        this.recordId = VehicleBase.requireNonBlank(recordId, "recordId");
+        setServiceDate(serviceDate);
+        setServiceType(serviceType);
+        setMileageAtService(mileageAtService);
+        setNotes(notes);
+    }
+
+    // for copy(), the fields are already valid
+    // goes through the getters so copying a RecordView gives a real record
+    private MaintenanceRecord(MaintenanceRecord source) {
+        this.recordId = source.getRecordId();
+        this.serviceDay = source.getServiceDay();
+        this.unreadableDate = source.hasReadableDate() ? null : source.getServiceDate();
+        this.serviceType = source.getServiceType();
+        this.mileageAtService = source.getMileageAtService();
+        this.notes = source.getNotes();
+        this.dirty = source.isDirty();
+    }
+
+    // for RecordView, which overrides every getter and keeps nothing in these fields
+    MaintenanceRecord() {
+        this.recordId = null;
+        this.dirty = false;
+    }
+
     public String getRecordId() { return recordId; }
-    public String getServiceDate() { return serviceDate; }
+    public String getServiceDate() {
+        return unreadableDate != null ? unreadableDate : ServiceDates.format(serviceDay);
+    }
     public String getServiceType() { return serviceType; }
     public int getMileageAtService() { return mileageAtService; }
     public String getNotes() { return notes; }
 
+    /**
+     * Days since 1970-01-01, ServiceDates.UNKNOWN when the stored date couldn't be read
+     */
+    public int getServiceDay() { return serviceDay; }
+
+    /**
+     * The service date, or null when the stored date couldn't be read
+     */
+    public LocalDate getServiceLocalDate() { return ServiceDates.toLocalDate(serviceDay); }
+
+    public boolean hasReadableDate() { return unreadableDate == null; }
+
+    /**
+     * Reads the date leniently (see ServiceDates.parseLenient) so older files still load
+     * Text that isn't a date at all is kept as is and the record sorts before every dated one
+     */
     public void setServiceDate(String date) {
-        this.serviceDate = VehicleBase.requireNonBlank(date, "serviceDate");
+        checkWritable();
+        String value = VehicleBase.requireNonBlank(date, "serviceDate");
+        this.serviceDay = ServiceDates.parseLenient(value);
+        this.unreadableDate = serviceDay == ServiceDates.UNKNOWN ? value : null;
+        markDirty();
+    }
+
+    public void setServiceDate(LocalDate date) {
+        checkWritable();
+        Objects.requireNonNull(date, "serviceDate cannot be null");
+        this.serviceDay = (int) date.toEpochDay();
+        this.unreadableDate = null;
+        markDirty();
     }
 
     public void setServiceType(String type) {
-        this.serviceType = VehicleBase.requireNonBlank(type, "serviceType");
+        checkWritable();
+        this.serviceType = StringPool.canonical(VehicleBase.requireNonBlank(type, "serviceType"));
+        markDirty();
     }
 
     public void setMileageAtService(int mileage) {
+        checkWritable();
         VehicleBase.validateMileage(mileage);
         this.mileageAtService = mileage;
+        markDirty();
     }
 
     public void setNotes(String notes) {
+        checkWritable();
         // notes can be blank, but not null
         this.notes = Objects.requireNonNullElse(notes, "").trim();
+        markDirty();
+    }
+
+    // ---- change tracking ----
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    void markClean() {
+        if (frozen) return;
+        dirty = false;
+    }
+
+    // for a record that's new to a history, or a flag a later save cleared (see GarageChanges.mergedWith)
+    // nothing else changed, so nobody is told
+    void markUnsaved() {
+        if (frozen) return;
+        dirty = true;
+    }
+
+    private void markDirty() {
+        dirty = true;
+        frozenCopy = null;
+        if (owner != null) owner.recordChanged(this);
+    }
+
+    // set by VehicleBase when the record is added to or removed from its history
+    void attachTo(VehicleBase vehicle) {
+        this.owner = vehicle;
+    }
+
+    /**
+     * An immutable copy for a frozen vehicle, reused until this record changes or is marked clean
+     */
+    MaintenanceRecord freeze() {
+        if (frozen) return this;
+        MaintenanceRecord last = frozenCopy;
+        if (last != null && last.dirty == isDirty()) return last;
+        MaintenanceRecord f = new MaintenanceRecord(this);
+        f.frozen = true;
+        frozenCopy = f;
+        return f;
+    }
+
+    // for records a frozen vehicle loads from disk itself
+    void markFrozen() {
+        frozen = true;
+    }
+
+    private void checkWritable() {
+        if (frozen) throw new UnsupportedOperationException("records in a frozen snapshot are read-only");
+    }
+
+    /**
+     * Copies the fields and dirty flag, the copy isn't attached to any vehicle
+     */
+    public MaintenanceRecord copy() {
+        return new MaintenanceRecord(this);
     }
 
     @Override
     public String toString() {
         return "MaintenanceRecord{" +
-                "recordId='" + recordId + '\'' +
-                ", serviceDate='" + serviceDate + '\'' +
-                ", serviceType='" + serviceType + '\'' +
-                ", mileageAtService=" + mileageAtService +
-                ", notes='" + notes + '\'' +
+                "recordId='" + getRecordId() + '\'' +
+                ", serviceDate='" + getServiceDate() + '\'' +
+                ", serviceType='" + getServiceType() + '\'' +
+                ", mileageAtService=" + getMileageAtService() +
+                ", notes='" + getNotes() + '\'' +
                 '}';
     }
 }
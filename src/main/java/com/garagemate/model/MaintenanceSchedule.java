@@ -0,0 +1,261 @@
+package com.garagemate.model;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Answers "what's due next" for a garage from a set of ServiceIntervals
+ *
+ * Every vehicle gets one entry per interval that applies to its type, counted from the latest
+ * record of that service type. A service that was never done is due by miles from 0 and has no
+ * due date until it's done once. Entries sit in two ordered sets, by due date and by miles left.
+ * The garage tells the schedule about every change, only that vehicle's entries are worked out again:
+ * a latest-of-type lookup each when the history changed, just the miles left when only the mileage did,
+ * nothing for any other edit. So overdue(n) is O(log n + n) instead of a scan of every history.
+ * Tracking a vehicle whose history is still on disk reads it once without keeping it loaded
+ *
+ * A date can't be put on a mileage, so the day the schedule first sees a vehicle past its due mileage
+ * counts as the day it became due, for a garage loaded already past due that's the day it's tracked.
+ * Services due the same day go most miles overdue first.
+ * Synchronized, a ConcurrentGarage can change it from several threads
+ */
+public final class MaintenanceSchedule {
+
+    private static final int NEVER = Integer.MAX_VALUE;
+
+    private final Garage garage;
+    private final ServiceIntervals intervals;
+    private final Clock clock;
+
+    private final Map<VehicleBase, Tracked> tracked = new IdentityHashMap<>();
+    private final TreeSet<Entry> byDue = new TreeSet<>(Comparator.comparingInt((Entry e) -> e.due)
+            .thenComparingInt(e -> e.milesLeft).thenComparingLong(e -> e.seq));
+    private final TreeSet<Entry> byMilesLeft = new TreeSet<>(Comparator.comparingInt((Entry e) -> e.milesLeft).thenComparingLong(e -> e.seq));
+    private long nextSeq;
+
+    private final GarageListener listener = new GarageListener() {
+        @Override
+        public void vehicleAdded(VehicleBase vehicle) {
+            track(vehicle);
+        }
+
+        @Override
+        public void vehicleRemoved(VehicleBase vehicle) {
+            untrack(vehicle);
+        }
+
+        @Override
+        public void vehicleChanged(VehicleBase vehicle) {
+            refresh(vehicle);
+        }
+    };
+
+    private static final class Entry {
+        final VehicleBase vehicle;
+        final ServiceIntervals.Interval interval;
+        final long seq; // keeps entries with the same key apart
+
+        int dueDay = NEVER;    // by time
+        int dueMileage = -1;   // by miles
+        int milesLeft = NEVER;
+        int crossedDay = NEVER; // first day seen past dueMileage
+        int due = NEVER;        // min(dueDay, crossedDay), the byDue key
+
+        Entry(VehicleBase vehicle, ServiceIntervals.Interval interval, long seq) {
+            this.vehicle = vehicle;
+            this.interval = interval;
+            this.seq = seq;
+        }
+    }
+
+    // what the entries were worked out from, a change that touches neither is skipped
+    private static final class Tracked {
+        final Entry[] entries;
+        int historyVersion;
+        int mileage;
+
+        Tracked(Entry[] entries) {
+            this.entries = entries;
+        }
+    }
+
+    public MaintenanceSchedule(Garage garage, ServiceIntervals intervals) {
+        this(garage, intervals, Clock.systemDefaultZone());
+    }
+
+    /**
+     * Tracks every vehicle in the garage right away (one pass) and every change after that, until close()
+     * The intervals are copied, changing them later doesn't affect this schedule
+     */
+    public MaintenanceSchedule(Garage garage, ServiceIntervals intervals, Clock clock) {
+        this.garage = Objects.requireNonNull(garage, "garage cannot be null");
+        this.intervals = Objects.requireNonNull(intervals, "intervals cannot be null").copy();
+        this.clock = Objects.requireNonNull(clock, "clock cannot be null");
+
+        // listen first so nothing added during the pass is missed, tracking twice is a no-op
+        garage.addListener(listener);
+        for (VehicleBase v : garage.vehicles()) {
+            track(v);
+        }
+    }
+
+    /**
+     * Services due by time or mileage as of today, longest overdue first
+     */
+    public List<DueService> overdue(int limit) {
+        return dueBy(LocalDate.now(clock), limit);
+    }
+
+    /**
+     * Services that are due on or before the date, earliest due first
+     */
+    public synchronized List<DueService> dueBy(LocalDate date, int limit) {
+        if (date == null) throw new IllegalArgumentException("date cannot be null");
+        checkLimit(limit);
+        int day = (int) date.toEpochDay();
+        List<DueService> result = new ArrayList<>();
+        for (Entry e : byDue) {
+            if (e.due > day || result.size() == limit) break;
+            result.add(due(e));
+        }
+        return result;
+    }
+
+    /**
+     * Services due by mileage within the given miles (overdue ones included), fewest miles left first
+     */
+    public synchronized List<DueService> dueWithinMiles(int miles, int limit) {
+        checkLimit(limit);
+        List<DueService> result = new ArrayList<>();
+        for (Entry e : byMilesLeft) {
+            if (e.milesLeft > miles || result.size() == limit) break;
+            result.add(due(e));
+        }
+        return result;
+    }
+
+    /**
+     * Everything tracked for one vehicle, in interval order
+     */
+    public synchronized List<DueService> forVehicle(String vehicleId) {
+        VehicleBase v = garage.getVehicleById(vehicleId);
+        Tracked t = v == null ? null : tracked.get(v);
+        if (t == null) return List.of();
+        List<DueService> result = new ArrayList<>(t.entries.length);
+        for (Entry e : t.entries) result.add(due(e));
+        return result;
+    }
+
+    /**
+     * Stops following the garage
+     */
+    public void close() {
+        garage.removeListener(listener);
+    }
+
+    // ---- tracking ----
+
+    private synchronized void track(VehicleBase vehicle) {
+        if (tracked.containsKey(vehicle)) return;
+        List<ServiceIntervals.Interval> applying = intervals.forVehicleType(vehicle.getVehicleType());
+        Tracked t = new Tracked(new Entry[applying.size()]);
+        for (int i = 0; i < t.entries.length; i++) {
+            t.entries[i] = new Entry(vehicle, applying.get(i), nextSeq++);
+        }
+        reread(t, vehicle, today());
+        tracked.put(vehicle, t);
+    }
+
+    private synchronized void untrack(VehicleBase vehicle) {
+        Tracked t = tracked.remove(vehicle);
+        if (t == null) return;
+        for (Entry e : t.entries) unfile(e);
+    }
+
+    // any change, most don't move anything (a nickname, a record of some other type)
+    private synchronized void refresh(VehicleBase vehicle) {
+        Tracked t = tracked.get(vehicle);
+        if (t == null) return;
+        int version = vehicle.historyVersion();
+        int mileage = vehicle.getCurrentMileage();
+        if (version == t.historyVersion && mileage == t.mileage) return;
+
+        int today = today();
+        if (version != t.historyVersion) {
+            reread(t, vehicle, today);
+        } else {
+            // same latest records, only the miles left move
+            t.mileage = mileage;
+            for (Entry e : t.entries) place(e, e.dueDay, e.dueMileage, today);
+        }
+    }
+
+    // version read before the history, a change in between shows up as a new version next time
+    private void reread(Tracked t, VehicleBase vehicle, int today) {
+        t.historyVersion = vehicle.historyVersion();
+        t.mileage = vehicle.getCurrentMileage();
+        if (t.entries.length == 0) return;
+        Function<String, MaintenanceRecord> latestOfType = vehicle.latestOfTypeLookup();
+        for (Entry e : t.entries) update(e, today, latestOfType);
+    }
+
+    private void update(Entry e, int today, Function<String, MaintenanceRecord> latestOfType) {
+        ServiceIntervals.Interval interval = e.interval;
+        MaintenanceRecord last = latestOfType.apply(interval.serviceType());
+
+        int dueDay = NEVER;
+        if (interval.days() > 0 && last != null && last.hasReadableDate()) {
+            dueDay = (int) Math.min(NEVER - 1L, (long) last.getServiceDay() + interval.days());
+        }
+        int dueMileage = -1;
+        if (interval.miles() > 0) {
+            dueMileage = (last == null ? 0 : last.getMileageAtService()) + interval.miles();
+        }
+        place(e, dueDay, dueMileage, today);
+    }
+
+    // refiles the entry under its new keys, if any of them moved
+    private void place(Entry e, int dueDay, int dueMileage, int today) {
+        int milesLeft = dueMileage < 0 ? NEVER : dueMileage - e.vehicle.getCurrentMileage();
+        int crossedDay = NEVER;
+        if (dueMileage >= 0 && milesLeft <= 0) {
+            // still past the same mileage, keep the day it was first seen
+            crossedDay = e.crossedDay != NEVER && e.dueMileage == dueMileage ? e.crossedDay : today;
+        }
+
+        if (dueDay == e.dueDay && dueMileage == e.dueMileage && milesLeft == e.milesLeft && crossedDay == e.crossedDay) return;
+        unfile(e);
+        e.dueDay = dueDay;
+        e.dueMileage = dueMileage;
+        e.milesLeft = milesLeft;
+        e.crossedDay = crossedDay;
+        e.due = Math.min(dueDay, crossedDay);
+        file(e);
+    }
+
+    private void file(Entry e) {
+        if (e.due != NEVER) byDue.add(e);
+        if (e.dueMileage >= 0) byMilesLeft.add(e);
+    }
+
+    // before any key changes, the sets find entries by key
+    private void unfile(Entry e) {
+        byDue.remove(e);
+        byMilesLeft.remove(e);
+    }
+
+    private int today() {
+        return (int) LocalDate.now(clock).toEpochDay();
+    }
+
+    private static DueService due(Entry e) {
+        return new DueService(e.vehicle, e.interval.serviceType(),
+                e.due == NEVER ? null : LocalDate.ofEpochDay(e.due), e.dueMileage, e.milesLeft);
+    }
+
+    private static void checkLimit(int limit) {
+        if (limit < 0) throw new IllegalArgumentException("limit cannot be negative");
+    }
+}
@@ -23,10 +23,12 @@ public class Motorcycle extends VehicleBase {
     }
 
     public void setEngineCC(int cc) {
+        checkWritable();
         if (cc < 50 || cc > 3000) {
             throw new IllegalArgumentException("engineCC must be between 50 and 3000");
         }
         this.engineCC = cc;
+        markDirty();
     }
 
     @Override
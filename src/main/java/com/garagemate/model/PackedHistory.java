@@ -0,0 +1,95 @@
+package com.garagemate.model;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * A vehicle's history while it lives in a RecordColumns store, answers the same queries
+ * as MaintenanceHistory by scanning the vehicle's rows. Those are plain int compares,
+ * only the records that match get a view
+ * Never changes, copies of the vehicle share it
+ */
+final class PackedHistory {
+
+    private final RecordColumns columns;
+    private final int[] rows; // in the order the records were added
+
+    private final List<MaintenanceRecord> view = new ReadOnlyRows();
+
+    PackedHistory(RecordColumns columns, int[] rows) {
+        this.columns = columns;
+        this.rows = rows;
+    }
+
+    List<MaintenanceRecord> view() {
+        return view;
+    }
+
+    int size() {
+        return rows.length;
+    }
+
+    MaintenanceRecord get(String recordId) {
+        byte[] id = recordId.getBytes(StandardCharsets.UTF_8);
+        for (int row : rows) {
+            if (columns.idEquals(row, id)) return new RecordView(columns, row);
+        }
+        return null;
+    }
+
+    List<MaintenanceRecord> betweenMileage(int from, int to) {
+        if (from > to) throw new IllegalArgumentException("from must be <= to");
+        List<RecordView> found = new ArrayList<>();
+        for (int row : rows) {
+            int m = columns.mileage(row);
+            if (m >= from && m <= to) found.add(new RecordView(columns, row));
+        }
+        found.sort(Comparator.comparingInt(RecordView::getMileageAtService)
+                .thenComparing(RecordView::getRecordId));
+        return new ArrayList<>(found);
+    }
+
+    List<MaintenanceRecord> betweenDays(int from, int to) {
+        if (from > to) throw new IllegalArgumentException("from must be <= to");
+        List<RecordView> found = new ArrayList<>();
+        for (int row : rows) {
+            int d = columns.day(row);
+            if (d >= from && d <= to) found.add(new RecordView(columns, row));
+        }
+        found.sort(Comparator.comparingInt(RecordView::getServiceDay)
+                .thenComparingInt(RecordView::getMileageAtService)
+                .thenComparing(RecordView::getRecordId));
+        return new ArrayList<>(found);
+    }
+
+    MaintenanceRecord latestOfType(String serviceType) {
+        String key = MaintenanceHistory.typeKey(serviceType);
+        int best = -1;
+        for (int row : rows) {
+            if (!columns.typeKey(columns.typeId(row)).equals(key)) continue;
+            if (best < 0 || later(row, best)) best = row;
+        }
+        return best < 0 ? null : new RecordView(columns, best);
+    }
+
+    // same order as MaintenanceHistory: date, then mileage, then id
+    private boolean later(int row, int than) {
+        int c = Integer.compare(columns.day(row), columns.day(than));
+        if (c == 0) c = Integer.compare(columns.mileage(row), columns.mileage(than));
+        if (c == 0) c = columns.recordId(row).compareTo(columns.recordId(than));
+        return c > 0;
+    }
+
+    private final class ReadOnlyRows extends AbstractList<MaintenanceRecord> implements RandomAccess {
+
+        @Override
+        public MaintenanceRecord get(int index) {
+            return new RecordView(columns, rows[Objects.checkIndex(index, rows.length)]);
+        }
+
+        @Override
+        public int size() {
+            return rows.length;
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.garagemate.model;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Off-heap, column-per-field storage for maintenance records
+ *
+ * A garage with millions of records keeps millions of record objects and strings alive, and every
+ * full GC has to walk them. pack() moves each clean, loaded history into direct buffers instead:
+ *
+ *   mileage    int per row
+ *   day        int per row, epoch day
+ *   type       int per row, index into a small table of distinct service types
+ *   text       int per row, offset of the row's bytes in the text buffer:
+ *              short id length, id UTF-8, notes UTF-8 (notes run up to the next row's offset)
+ *
+ * What stays on the heap is one int[] of row numbers per vehicle. Vehicles hand out RecordViews,
+ * throwaway MaintenanceRecords that read a row, so the UI table and the repositories keep working.
+ * The first change to a packed history turns it back into ordinary records.
+ *
+ * The buffers are filled once by pack() and only read after that, so any number of threads can read
+ */
+public final class RecordColumns {
+
+    private static final int INITIAL_ROWS = 1024;
+
+    private ByteBuffer mileage;
+    private ByteBuffer day;
+    private ByteBuffer type;
+    private ByteBuffer textOffset;
+    private ByteBuffer text;
+    private int rows;
+
+    private final List<String> types = new ArrayList<>();
+    private final List<String> typeKeys = new ArrayList<>(); // lowercased, same index as types
+    private final Map<String, Integer> typeIds = new HashMap<>();
+
+    private RecordColumns() {
+        mileage = ints(INITIAL_ROWS);
+        day = ints(INITIAL_ROWS);
+        type = ints(INITIAL_ROWS);
+        textOffset = ints(INITIAL_ROWS + 1);
+        text = ByteBuffer.allocateDirect(INITIAL_ROWS * 48);
+    }
+
+    /**
+     * Moves the maintenance history of every vehicle in the garage into one new store
+     * Skipped, and left as ordinary records: vehicles with unsaved changes or in a frozen snapshot, histories still on disk
+     * (lazy mode) or already packed, and histories holding a date that couldn't be read
+     */
+    public static RecordColumns pack(Garage garage) {
+        RecordColumns columns = new RecordColumns();
+        List<VehicleBase> packed = new ArrayList<>();
+        List<int[]> packedRows = new ArrayList<>();
+
+        // fill everything first, vehicles only start reading once nothing appends anymore
+        for (VehicleBase v : garage.vehicles()) {
+            if (v.isDirty() || v.isFrozen() || !v.isHistoryLoaded() || v.isHistoryPacked()) continue;
+            List<MaintenanceRecord> history = v.getMaintenanceHistory();
+            if (history.isEmpty() || !allDated(history)) continue;
+
+            int[] rows = new int[history.size()];
+            for (int i = 0; i < rows.length; i++) {
+                rows[i] = columns.append(history.get(i));
+            }
+            packed.add(v);
+            packedRows.add(rows);
+        }
+        for (int i = 0; i < packed.size(); i++) {
+            packed.get(i).packHistory(columns, packedRows.get(i));
+        }
+        return columns;
+    }
+
+    private static boolean allDated(List<MaintenanceRecord> history) {
+        for (MaintenanceRecord r : history) {
+            if (!r.hasReadableDate()) return false;
+        }
+        return true;
+    }
+
+    public int size() {
+        return rows;
+    }
+
+    /**
+     * Direct memory held by the columns, none of it is on the Java heap
+     */
+    public long offHeapBytes() {
+        return (long) mileage.capacity() + day.capacity() + type.capacity() + textOffset.capacity() + text.capacity();
+    }
+
+    // ---- rows ----
+
+    int mileage(int row) {
+        return mileage.getInt(row << 2);
+    }
+
+    int day(int row) {
+        return day.getInt(row << 2);
+    }
+
+    int typeId(int row) {
+        return type.getInt(row << 2);
+    }
+
+    String serviceType(int row) {
+        return types.get(typeId(row));
+    }
+
+    String typeKey(int typeId) {
+        return typeKeys.get(typeId);
+    }
+
+    String recordId(int row) {
+        int at = textOffset.getInt(row << 2);
+        return decode(at + 2, text.getShort(at));
+    }
+
+    String notes(int row) {
+        int at = textOffset.getInt(row << 2);
+        int from = at + 2 + text.getShort(at);
+        return decode(from, textOffset.getInt((row + 1) << 2) - from);
+    }
+
+    // compares the stored id with utf8 without building a String
+    boolean idEquals(int row, byte[] utf8) {
+        int at = textOffset.getInt(row << 2);
+        if (text.getShort(at) != utf8.length) return false;
+        for (int i = 0; i < utf8.length; i++) {
+            if (text.get(at + 2 + i) != utf8[i]) return false;
+        }
+        return true;
+    }
+
+    private String decode(int from, int length) {
+        byte[] bytes = new byte[length];
+        text.get(from, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // ---- filling ----
+
+    private int append(MaintenanceRecord r) {
+        if (rows == mileage.capacity() >> 2) grow();
+
+        byte[] id = r.getRecordId().getBytes(StandardCharsets.UTF_8);
+        byte[] notes = r.getNotes().getBytes(StandardCharsets.UTF_8);
+        if (id.length > Short.MAX_VALUE) throw new IllegalArgumentException("recordId is too long to pack");
+        int at = textOffset.getInt(rows << 2);
+        long end = (long) at + 2 + id.length + notes.length;
+        if (end > Integer.MAX_VALUE) throw new IllegalStateException("Record text is over 2 GB, split the garage");
+        if (end > text.capacity()) text = grown(text, (int) Math.min(Integer.MAX_VALUE, Math.max(end, text.capacity() * 2L)));
+
+        text.putShort(at, (short) id.length);
+        text.put(at + 2, id);
+        text.put(at + 2 + id.length, notes);
+
+        int row = rows++;
+        mileage.putInt(row << 2, r.getMileageAtService());
+        day.putInt(row << 2, r.getServiceDay());
+        type.putInt(row << 2, typeId(r.getServiceType()));
+        textOffset.putInt(rows << 2, (int) end);
+        return row;
+    }
+
+    private int typeId(String serviceType) {
+        Integer id = typeIds.get(serviceType);
+        if (id == null) {
+            id = types.size();
+            types.add(serviceType);
+            typeKeys.add(MaintenanceHistory.typeKey(serviceType));
+            typeIds.put(serviceType, id);
+        }
+        return id;
+    }
+
+    private void grow() {
+        int capacity = (mileage.capacity() >> 2) * 2;
+        mileage = grown(mileage, capacity * 4);
+        day = grown(day, capacity * 4);
+        type = grown(type, capacity * 4);
+        textOffset = grown(textOffset, (capacity + 1) * 4);
+    }
+
+    private static ByteBuffer ints(int count) {
+        return ByteBuffer.allocateDirect(count * 4).order(ByteOrder.nativeOrder());
+    }
+
+    private static ByteBuffer grown(ByteBuffer old, int capacity) {
+        ByteBuffer bigger = ByteBuffer.allocateDirect(capacity).order(old.order());
+        bigger.put(0, old, 0, old.capacity());
+        return bigger;
+    }
+}
@@ -0,0 +1,39 @@
+package com.garagemate.model;
+
+import java.time.LocalDate;
+
+/**
+ * A MaintenanceRecord that reads one row of a RecordColumns store
+ * Handed out by packed histories and meant to be thrown away, nothing is cached.
+ * Read-only: to change a packed record, change the vehicle's history (add, remove, clear)
+ * which turns it back into ordinary records first
+ */
+final class RecordView extends MaintenanceRecord {
+
+    private final RecordColumns columns;
+    private final int row;
+
+    RecordView(RecordColumns columns, int row) {
+        this.columns = columns;
+        this.row = row;
+    }
+
+    @Override public String getRecordId() { return columns.recordId(row); }
+    @Override public String getServiceDate() { return ServiceDates.format(columns.day(row)); }
+    @Override public String getServiceType() { return columns.serviceType(row); }
+    @Override public int getMileageAtService() { return columns.mileage(row); }
+    @Override public String getNotes() { return columns.notes(row); }
+    @Override public int getServiceDay() { return columns.day(row); }
+    @Override public LocalDate getServiceLocalDate() { return ServiceDates.toLocalDate(columns.day(row)); }
+    @Override public boolean hasReadableDate() { return true; } // pack() leaves undated histories alone
+
+    @Override public void setServiceDate(String date) { throw readOnly(); }
+    @Override public void setServiceDate(LocalDate date) { throw readOnly(); }
+    @Override public void setServiceType(String type) { throw readOnly(); }
+    @Override public void setMileageAtService(int mileage) { throw readOnly(); }
+    @Override public void setNotes(String notes) { throw readOnly(); }
+
+    private static UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("packed records are read-only");
+    }
+}
@@ -0,0 +1,100 @@
+package com.garagemate.model;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+
+/**
+ * Service dates are kept as epoch days (days since 1970-01-01) so sorting and ranges
+ * are int compares and a record holds 4 bytes instead of a String
+ *
+ * parse() is strict and meant for what the user types. parseLenient() is for stored data,
+ * older files can hold dates in other shapes or not a date at all
+ */
+public final class ServiceDates {
+
+    /**
+     * Epoch day of a date that couldn't be read, sorts before every real date
+     */
+    public static final int UNKNOWN = Integer.MIN_VALUE;
+
+    private ServiceDates() {}
+
+    /**
+     * yyyy-MM-dd only, throws IllegalArgumentException otherwise
+     */
+    public static int parse(String text) {
+        String value = VehicleBase.requireNonBlank(text, "serviceDate");
+        int day = iso(value, 0, value.length());
+        if (day == UNKNOWN) {
+            throw new IllegalArgumentException("serviceDate must be a date like 2026-02-17");
+        }
+        return day;
+    }
+
+    /**
+     * Also reads yyyy/MM/dd, yyyy.MM.dd, single digit months and days, yyyyMMdd, MM/dd/yyyy
+     * and an ISO timestamp (the time is dropped). Returns UNKNOWN when none of those fit
+     */
+    public static int parseLenient(String text) {
+        if (text == null) return UNKNOWN;
+        String value = text.trim();
+
+        // the common case, what the app itself writes
+        int day = iso(value, 0, value.length());
+        if (day != UNKNOWN) return day;
+
+        if (value.length() > 10 && (value.charAt(10) == 'T' || value.charAt(10) == ' ')) {
+            day = iso(value, 0, 10);
+            if (day != UNKNOWN) return day;
+        }
+
+        if (value.length() == 8 && digits(value, 0, 4) >= 0 && digits(value, 4, 8) >= 0) {
+            return of(digits(value, 0, 4), digits(value, 4, 6), digits(value, 6, 8));
+        }
+
+        String[] parts = value.split("[-/.]", -1);
+        if (parts.length != 3) return UNKNOWN;
+        int a = digits(parts[0], 0, parts[0].length());
+        int b = digits(parts[1], 0, parts[1].length());
+        int c = digits(parts[2], 0, parts[2].length());
+        if (a < 0 || b < 0 || c < 0) return UNKNOWN;
+        if (parts[0].length() == 4) return of(a, b, c);
+        if (parts[2].length() == 4) return of(c, a, b); // US order, month first
+        return UNKNOWN;
+    }
+
+    public static String format(int epochDay) {
+        return LocalDate.ofEpochDay(epochDay).toString();
+    }
+
+    public static LocalDate toLocalDate(int epochDay) {
+        return epochDay == UNKNOWN ? null : LocalDate.ofEpochDay(epochDay);
+    }
+
+    // yyyy-MM-dd at value[from, to), without going through a formatter
+    private static int iso(String value, int from, int to) {
+        if (to - from != 10 || value.charAt(from + 4) != '-' || value.charAt(from + 7) != '-') return UNKNOWN;
+        return of(digits(value, from, from + 4), digits(value, from + 5, from + 7), digits(value, from + 8, from + 10));
+    }
+
+    private static int of(int year, int month, int day) {
+        if (year < 0 || month < 0 || day < 0) return UNKNOWN;
+        try {
+            return (int) LocalDate.of(year, month, day).toEpochDay();
+        } catch (DateTimeException e) {
+            return UNKNOWN; // Feb 30 and friends
+        }
+    }
+
+    // the number in value[from, to), -1 if it's empty, too long or not all digits
+    private static int digits(String value, int from, int to) {
+        if (from >= to || to - from > 4) return -1;
+        int n = 0;
+        for (int i = from; i < to; i++) {
+            char ch = value.charAt(i);
+            if (ch < '0' || ch > '9') return -1;
+            n = n * 10 + (ch - '0');
+        }
+        return n;
+    }
+}
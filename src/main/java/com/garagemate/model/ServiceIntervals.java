@@ -0,0 +1,63 @@
+package com.garagemate.model;
+
+import java.util.*;
+
+/**
+ * How often each service is due, by miles, by time or both (whichever comes first)
+ * An interval can be set for every vehicle or only for one vehicle type ("Car", "Motorcycle"),
+ * the vehicle type one wins. Service types and vehicle types ignore case
+ *
+ *   new ServiceIntervals()
+ *       .every("Oil Change", 5000, 180)
+ *       .everyFor("Motorcycle", "Chain Service", 500, 0)
+ */
+public final class ServiceIntervals {
+
+    // miles or days of 0 means that side isn't tracked
+    record Interval(String serviceType, int miles, int days) {}
+
+    private static final String ANY = "";
+
+    // vehicle type key -> service type key -> interval, insertion order so schedules list them the same way
+    private final Map<String, Map<String, Interval>> intervals = new LinkedHashMap<>();
+
+    /**
+     * Sets the interval for every vehicle type
+     */
+    public ServiceIntervals every(String serviceType, int miles, int days) {
+        return put(ANY, serviceType, miles, days);
+    }
+
+    /**
+     * Sets the interval for one vehicle type only, it replaces the one from every() for that type
+     */
+    public ServiceIntervals everyFor(String vehicleType, String serviceType, int miles, int days) {
+        return put(VehicleIndex.textKey(VehicleBase.requireNonBlank(vehicleType, "vehicleType")), serviceType, miles, days);
+    }
+
+    private ServiceIntervals put(String vehicleType, String serviceType, int miles, int days) {
+        String type = VehicleBase.requireNonBlank(serviceType, "serviceType").trim();
+        if (miles < 0 || days < 0) throw new IllegalArgumentException("miles and days cannot be negative");
+        if (miles == 0 && days == 0) throw new IllegalArgumentException("Interval needs miles or days");
+        intervals.computeIfAbsent(vehicleType, k -> new LinkedHashMap<>())
+                .put(MaintenanceHistory.typeKey(type), new Interval(StringPool.canonical(type), miles, days));
+        return this;
+    }
+
+    public boolean isEmpty() {
+        return intervals.isEmpty();
+    }
+
+    // what applies to one vehicle type, the ones for every vehicle first
+    List<Interval> forVehicleType(String vehicleType) {
+        Map<String, Interval> merged = new LinkedHashMap<>(intervals.getOrDefault(ANY, Map.of()));
+        merged.putAll(intervals.getOrDefault(VehicleIndex.textKey(vehicleType), Map.of()));
+        return List.copyOf(merged.values());
+    }
+
+    ServiceIntervals copy() {
+        ServiceIntervals copy = new ServiceIntervals();
+        intervals.forEach((type, byService) -> copy.intervals.put(type, new LinkedHashMap<>(byService)));
+        return copy;
+    }
+}
@@ -0,0 +1,109 @@
+package com.garagemate.model;
+
+import java.util.*;
+
+/**
+ * Read-only vehicle store behind a frozen snapshot, see SnapshotTable
+ * The chunks are never written again once they get here, so any number of threads can read.
+ * The id lookup map is only built if someone looks a vehicle up
+ */
+final class SnapshotStore implements VehicleStore {
+
+    private final VehicleBase[][] chunks;
+    private final int end;
+    private final int size;
+
+    private volatile Map<String, VehicleBase> byId;
+
+    private final Collection<VehicleBase> values = new AbstractCollection<>() {
+        @Override
+        public Iterator<VehicleBase> iterator() {
+            return new Slots();
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    };
+
+    SnapshotStore(VehicleBase[][] chunks, int end, int size) {
+        this.chunks = chunks;
+        this.end = end;
+        this.size = size;
+    }
+
+    @Override
+    public VehicleBase get(String vehicleId) {
+        Map<String, VehicleBase> map = byId;
+        if (map == null) {
+            // racing threads build the same map, whichever lands is fine
+            map = new HashMap<>(size * 2);
+            for (VehicleBase v : values) map.put(v.getVehicleId(), v);
+            byId = map;
+        }
+        return map.get(vehicleId);
+    }
+
+    @Override
+    public VehicleBase putIfAbsent(String vehicleId, VehicleBase vehicle) {
+        throw readOnly();
+    }
+
+    @Override
+    public VehicleBase put(String vehicleId, VehicleBase vehicle) {
+        throw readOnly();
+    }
+
+    @Override
+    public VehicleBase remove(String vehicleId) {
+        throw readOnly();
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Collection<VehicleBase> values() {
+        return values;
+    }
+
+    private VehicleBase at(int slot) {
+        VehicleBase[] chunk = chunks[slot >>> SnapshotTable.SHIFT];
+        return chunk == null ? null : chunk[slot & SnapshotTable.MASK];
+    }
+
+    private static UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("frozen snapshots are read-only");
+    }
+
+    private final class Slots implements Iterator<VehicleBase> {
+        private int slot = -1;
+
+        Slots() {
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return slot < end;
+        }
+
+        @Override
+        public VehicleBase next() {
+            if (slot >= end) throw new NoSuchElementException();
+            VehicleBase v = at(slot);
+            advance();
+            return v;
+        }
+
+        // removed vehicles leave empty slots
+        private void advance() {
+            do {
+                slot++;
+            } while (slot < end && at(slot) == null);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.garagemate.model;
+
+import java.util.*;
+
+/**
+ * Keeps the frozen copies behind Garage.frozenSnapshot() up to date as the garage changes
+ *
+ * One slot per vehicle in insertion order, split into chunks of CHUNK slots. A snapshot takes
+ * the chunk array as it is and the table marks it shared: the next write copies the array
+ * (one pointer per chunk) and then only the chunks it touches, once each, until the next snapshot.
+ * Chunks nobody wrote stay shared between snapshots, and so do the frozen vehicles in them.
+ *
+ * Changes don't freeze anything, they just mark the vehicle stale. snapshot() freezes the stale
+ * ones, so a snapshot costs O(vehicles changed since the last one), not O(garage).
+ * Removed slots stay empty until they outnumber the live ones, then the table is compacted
+ */
+final class SnapshotTable {
+
+    static final int SHIFT = 6;
+    static final int CHUNK = 1 << SHIFT;
+    static final int MASK = CHUNK - 1;
+
+    private VehicleBase[][] chunks = new VehicleBase[4][];
+    private int end;  // next free slot
+    private int live; // slots holding a vehicle
+
+    private final Map<VehicleBase, Integer> slots = new IdentityHashMap<>();
+    private final Set<VehicleBase> stale = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    // true once a snapshot holds the chunk array, owned lists the chunks copied since
+    private boolean shared;
+    private final BitSet owned = new BitSet();
+
+    synchronized void added(VehicleBase vehicle) {
+        if (slots.containsKey(vehicle)) return; // seen while the table was being filled
+        int slot = end++;
+        slots.put(vehicle, slot);
+        stale.add(vehicle); // the slot stays empty until the next snapshot freezes it
+        live++;
+    }
+
+    synchronized void removed(VehicleBase vehicle) {
+        Integer slot = slots.remove(vehicle);
+        if (slot == null) return;
+        stale.remove(vehicle);
+        set(slot, null);
+        live--;
+        if (end - live > Math.max(live, CHUNK)) compact();
+    }
+
+    // putVehicle keeps the position, so the new vehicle takes over the old one's slot
+    synchronized void replaced(VehicleBase old, VehicleBase now) {
+        Integer slot = slots.remove(old);
+        if (slot == null) {
+            added(now);
+            return;
+        }
+        stale.remove(old);
+        slots.put(now, slot);
+        stale.add(now);
+    }
+
+    synchronized void changed(VehicleBase vehicle) {
+        if (slots.containsKey(vehicle)) stale.add(vehicle);
+    }
+
+    /**
+     * Freezes what changed since the last call and hands the table's current state to a read-only Garage
+     */
+    synchronized Garage snapshot(Set<String> removedSinceSave) {
+        for (VehicleBase v : stale) {
+            set(slots.get(v), v.freeze());
+        }
+        stale.clear();
+        shared = true;
+        owned.clear();
+        Set<String> removed = Collections.unmodifiableSet(new LinkedHashSet<>(removedSinceSave));
+        return new Garage(new SnapshotStore(chunks, end, live), removed, null);
+    }
+
+    // ---- internals ----
+
+    private void set(int slot, VehicleBase frozen) {
+        int c = slot >>> SHIFT;
+        if (shared) {
+            chunks = chunks.clone();
+            shared = false;
+        }
+        if (c >= chunks.length) chunks = Arrays.copyOf(chunks, Math.max(c + 1, chunks.length * 2));
+        if (!owned.get(c)) {
+            VehicleBase[] chunk = chunks[c];
+            chunks[c] = chunk == null ? new VehicleBase[CHUNK] : chunk.clone();
+            owned.set(c);
+        }
+        chunks[c][slot & MASK] = frozen;
+    }
+
+    // moves the live slots to the front, same order, frozen copies carried along
+    private void compact() {
+        VehicleBase[] bySlot = new VehicleBase[end];
+        for (Map.Entry<VehicleBase, Integer> e : slots.entrySet()) {
+            bySlot[e.getValue()] = e.getKey();
+        }
+        VehicleBase[][] old = chunks;
+        chunks = new VehicleBase[Math.max(4, (live >>> SHIFT) + 1)][];
+        shared = false;
+        owned.clear();
+        end = 0;
+        for (int slot = 0; slot < bySlot.length; slot++) {
+            VehicleBase v = bySlot[slot];
+            if (v == null) continue;
+            // a vehicle added since the last snapshot may not have a chunk yet
+            VehicleBase[] chunk = (slot >>> SHIFT) < old.length ? old[slot >>> SHIFT] : null;
+            int to = end++;
+            slots.put(v, to);
+            set(to, chunk == null ? null : chunk[slot & MASK]);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.garagemate.model;
+
+import java.lang.ref.WeakReference;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Shares one String per distinct make, model and service type
+ * A fleet repeats "Honda", "Civic" and "Oil Change" thousands of times, every loader used to
+ * keep its own copy of each. The setters hand their value through here, so everything that
+ * builds vehicles and records (loaders, importer, UI) is covered. The per-line String a loader
+ * parses still gets allocated, but it dies young instead of being retained
+ *
+ * Safe to call from several loader threads. Only short repeated fields belong here, never notes or ids.
+ * Entries are weak: a value drops out once nothing outside the pool uses it, so a garage that's
+ * been let go takes its strings with it and there's no cap to run into
+ */
+public final class StringPool {
+
+    // spread over a few locks so parallel loaders don't queue on one
+    private static final Stripe[] STRIPES = new Stripe[16];
+    static {
+        for (int i = 0; i < STRIPES.length; i++) STRIPES[i] = new Stripe();
+    }
+
+    private static final LongAdder LOOKUPS = new LongAdder();
+    private static final LongAdder HITS = new LongAdder();
+    private static final LongAdder BYTES_SAVED = new LongAdder();
+
+    private static volatile boolean enabled = true;
+
+    private StringPool() {}
+
+    /**
+     * entries = distinct values pooled and still in use, hits = lookups that got an existing copy back
+     * bytesSaved estimates the String plus its array for every hit (compact Latin-1 strings, 8 byte alignment)
+     */
+    public record Stats(int entries, long lookups, long hits, long bytesSaved) {
+
+        @Override
+        public String toString() {
+            return String.format("%,d distinct, %,d of %,d lookups shared, ~%,d KB saved",
+                    entries, hits, lookups, bytesSaved / 1024);
+        }
+    }
+
+    /**
+     * The pooled copy of value, or value itself when it's the first one (or the pool is off)
+     */
+    public static String canonical(String value) {
+        if (value == null || !enabled) return value;
+        LOOKUPS.increment();
+
+        int h = value.hashCode();
+        String pooled = STRIPES[(h ^ (h >>> 16)) & (STRIPES.length - 1)].intern(value);
+        if (pooled != value) {
+            HITS.increment();
+            BYTES_SAVED.add(retainedSize(value));
+        }
+        return pooled;
+    }
+
+    public static Stats stats() {
+        int entries = 0;
+        for (Stripe stripe : STRIPES) entries += stripe.size();
+        return new Stats(entries, LOOKUPS.sum(), HITS.sum(), BYTES_SAVED.sum());
+    }
+
+    /**
+     * Turning the pool off is only meant for measuring it (see HeapReport), values already shared stay shared
+     */
+    public static void setEnabled(boolean on) {
+        enabled = on;
+    }
+
+    /**
+     * Empties the pool and zeroes the counters, strings handed out so far are unaffected
+     */
+    public static void reset() {
+        for (Stripe stripe : STRIPES) stripe.clear();
+        LOOKUPS.reset();
+        HITS.reset();
+        BYTES_SAVED.reset();
+    }
+
+    // String header + fields, then the byte[] header + contents
+    private static long retainedSize(String s) {
+        return 24 + ((16 + s.length() + 7) & ~7);
+    }
+
+    // the value only holds its own key weakly, so neither side keeps the entry alive
+    private static final class Stripe {
+        private final WeakHashMap<String, WeakReference<String>> map = new WeakHashMap<>();
+
+        synchronized String intern(String value) {
+            WeakReference<String> ref = map.get(value);
+            String pooled = ref == null ? null : ref.get();
+            if (pooled != null) return pooled;
+            map.put(value, new WeakReference<>(value));
+            return value;
+        }
+
+        synchronized int size() {
+            return map.size();
+        }
+
+        synchronized void clear() {
+            map.clear();
+        }
+    }
+}
@@ -1,15 +1,19 @@
 package com.garagemate.model;
 
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * Abstract base class for all vehicles in Garage Mate
  * This class contains shared fields and behavior for Car and Motorcycle
  */
-public abstract class VehicleBase {
+public abstract class VehicleBase implements Cloneable {
 
     private final String vehicleId; // immutable unique ID
     private String nickname;
@@ -18,7 +22,35 @@ public abstract class VehicleBase {
     private int year;
     private int currentMileage;
 
-    private final List<MaintenanceRecord> maintenanceHistory = new ArrayList<>();
+    private MaintenanceHistory maintenanceHistory = new MaintenanceHistory();
+
+    // set when the history is still on disk, runs once the first time the history is needed
+    // volatile because a frozen copy shares it and can be read on several threads, it never clears it
+    private volatile Supplier<List<MaintenanceRecord>> lazyHistory;
+
+    // set while the history lives in a RecordColumns store, reads use it and any change unpacks it
+    private PackedHistory packedHistory;
+
+    // change tracking: set by every mutation, cleared once the change is persisted
+    // a brand new vehicle has never been saved, so it starts dirty
+    private boolean dirty = true;
+
+    // what the dirty flag is made of, so a save can write just that part
+    // rewrite: the stored copy (if any) can't be patched, a new vehicle, a cleared history
+    // or a vehicle that was removed from its garage
+    private boolean rewrite = true;
+    private boolean fieldsChanged;           // anything but the mileage
+    private boolean mileageChanged;
+    private Set<String> removedRecordIds;    // null while nothing was removed, most vehicles never are
+
+    // the garage holding this vehicle, told about every change so its indexes stay correct
+    private Garage garage;
+
+    // snapshots: a frozen vehicle is an immutable copy handed out by Garage.frozenSnapshot()
+    private boolean frozen;
+    private int changeCount;        // bumped by every change, tells a frozen copy it's out of date
+    private int historyChangeCount; // same, only for the history, while it's equal a frozen history can be shared
+    private VehicleBase frozenCopy; // the last one handed out
 
     protected VehicleBase(String vehicleId,
                           String nickname,
@@ -48,34 +80,305 @@ public abstract class VehicleBase {
      * Returns an unmodifiable view of the maintenance history
      */
     public List<MaintenanceRecord> getMaintenanceHistory() {
-        return Collections.unmodifiableList(maintenanceHistory);
+        PackedHistory packed = packedHistory;
+        return packed != null ? packed.view() : history().view();
+    }
+
+    /**
+     * The record with this id, or null
+     */
+    public MaintenanceRecord getMaintenanceRecord(String recordId) {
+        String id = requireNonBlank(recordId, "recordId");
+        PackedHistory packed = packedHistory;
+        return packed != null ? packed.get(id) : history().get(id);
+    }
+
+    /**
+     * Records serviced between the two mileages (inclusive), lowest mileage first
+     */
+    public List<MaintenanceRecord> getRecordsBetweenMileage(int from, int to) {
+        PackedHistory packed = packedHistory;
+        return packed != null ? packed.betweenMileage(from, to) : history().betweenMileage(from, to);
+    }
+
+    /**
+     * Records serviced between the two dates (inclusive), oldest first
+     * Records whose stored date couldn't be read never match
+     */
+    public List<MaintenanceRecord> getRecordsBetweenDates(LocalDate from, LocalDate to) {
+        if (from == null || to == null) throw new IllegalArgumentException("from and to are required");
+        int fromDay = (int) from.toEpochDay();
+        int toDay = (int) to.toEpochDay();
+        PackedHistory packed = packedHistory;
+        return packed != null ? packed.betweenDays(fromDay, toDay) : history().betweenDays(fromDay, toDay);
+    }
+
+    /**
+     * The most recent record of a service type (ignoring case), eg. the last "Oil Change", or null
+     * Same-day records go by mileage
+     */
+    public MaintenanceRecord getLatestRecordOfType(String serviceType) {
+        String type = requireNonBlank(serviceType, "serviceType");
+        PackedHistory packed = packedHistory;
+        return packed != null ? packed.latestOfType(type) : history().latestOfType(type);
+    }
+
+    /**
+     * Leaves the maintenance history on disk until something asks for it
+     * The loader must return new copies of the stored records in order. It's called once per vehicle
+     * (copies share it and load their own), except for frozen copies: they read it every time
+     * so a snapshot never pins a history. The records don't count as a change
+     */
+    public void setLazyHistory(Supplier<List<MaintenanceRecord>> loader) {
+        checkWritable();
+        if (loader == null) throw new IllegalArgumentException("loader cannot be null");
+        if (!maintenanceHistory.isEmpty() || lazyHistory != null || packedHistory != null) {
+            throw new IllegalStateException("maintenance history is already set");
+        }
+        this.lazyHistory = loader;
+    }
+
+    public boolean isHistoryLoaded() {
+        return lazyHistory == null;
+    }
+
+    /**
+     * True while the history is held in a RecordColumns store, see RecordColumns.pack
+     */
+    public boolean isHistoryPacked() {
+        return packedHistory != null;
+    }
+
+    // changes whenever the history does, lets FleetAnalytics skip re-reading one that didn't
+    int historyVersion() {
+        return historyChangeCount;
+    }
+
+    // latest-of-type reads for a pass over the whole garage (MaintenanceSchedule): a history still
+    // on disk is read for it and dropped after, instead of staying loaded for good
+    Function<String, MaintenanceRecord> latestOfTypeLookup() {
+        Supplier<List<MaintenanceRecord>> loader = lazyHistory;
+        if (loader == null) return this::getLatestRecordOfType;
+        MaintenanceHistory read = new MaintenanceHistory();
+        for (MaintenanceRecord r : loader.get()) read.add(r);
+        return type -> read.latestOfType(requireNonBlank(type, "serviceType"));
+    }
+
+    // called by RecordColumns.pack once rows holds this vehicle's records, in order
+    void packHistory(RecordColumns columns, int[] rows) {
+        checkWritable();
+        maintenanceHistory.view().forEach(r -> r.attachTo(null));
+        maintenanceHistory.clear();
+        packedHistory = new PackedHistory(columns, rows);
+        historyChangeCount++;
+    }
+
+    // changes, and reads that a packed history can't answer, go through here
+    // a lazy history is faulted in first (a frozen copy reads it without keeping it),
+    // a packed one is turned back into records
+    private MaintenanceHistory history() {
+        PackedHistory packed = packedHistory;
+        if (packed != null) {
+            for (MaintenanceRecord view : packed.view()) {
+                MaintenanceRecord r = view.copy(); // a real, clean record
+                maintenanceHistory.add(r);
+                r.attachTo(this);
+            }
+            packedHistory = null;
+            historyChangeCount++;
+        }
+
+        Supplier<List<MaintenanceRecord>> loader = lazyHistory;
+        if (loader != null) {
+            // frozen copies stay cached in the snapshot table, keeping what a save or
+            // FleetAnalytics read would hold every history in memory for good
+            if (frozen) return loadInto(new MaintenanceHistory(), loader);
+            loadInto(maintenanceHistory, loader);
+            historyChangeCount++;
+            lazyHistory = null; // only once the load worked, a failed read can be retried
+        }
+        return maintenanceHistory;
+    }
+
+    private MaintenanceHistory loadInto(MaintenanceHistory target, Supplier<List<MaintenanceRecord>> loader) {
+        // these were valid against the stored mileage when they were saved, so no mileage check here
+        for (MaintenanceRecord r : loader.get()) {
+            target.add(r);
+            r.attachTo(this);
+            r.markClean();
+            if (frozen) r.markFrozen();
+        }
+        return target;
     }
 
     // ---- setters with validation ----
     public void setNickname(String nickname) {
+        checkWritable();
         this.nickname = requireNonBlank(nickname, "nickname");
+        markDirty();
     }
 
     public void setMake(String make) {
-        this.make = requireNonBlank(make, "make");
+        checkWritable();
+        this.make = StringPool.canonical(requireNonBlank(make, "make"));
+        markDirty();
     }
 
     public void setModel(String model) {
-        this.model = requireNonBlank(model, "model");
+        checkWritable();
+        this.model = StringPool.canonical(requireNonBlank(model, "model"));
+        markDirty();
     }
 
     public void setYear(int year) {
+        checkWritable();
         validateYear(year);
         this.year = year;
+        markDirty();
     }
 
     public void setCurrentMileage(int mileage) {
+        checkWritable();
         validateMileage(mileage);
         this.currentMileage = mileage;
+        mileageChanged = true;
+        changed();
+    }
+
+    // ---- change tracking ----
+
+    /**
+     * True when this vehicle, its fields or its maintenance history changed since the last save
+     */
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    /**
+     * True when a save has to replace the stored vehicle and its whole history
+     * (never saved, history cleared, or removed from a garage since)
+     */
+    public boolean needsFullWrite() {
+        return rewrite;
+    }
+
+    /**
+     * True when a field other than the mileage changed since the last save
+     */
+    public boolean hasFieldChanges() {
+        return fieldsChanged;
+    }
+
+    public boolean hasMileageChange() {
+        return mileageChanged;
+    }
+
+    /**
+     * Ids of records removed since the last save, a record removed and added again is in here too
+     */
+    public Set<String> getRemovedRecordIds() {
+        Set<String> ids = removedRecordIds;
+        return ids == null ? Set.of() : Collections.unmodifiableSet(ids);
+    }
+
+    /**
+     * Records added or edited since the last save, in history order
+     * A history that's still on disk or packed hasn't changed, so it isn't loaded for this
+     */
+    public List<MaintenanceRecord> getChangedRecords() {
+        if (lazyHistory != null || packedHistory != null) return List.of();
+        List<MaintenanceRecord> changed = new ArrayList<>();
+        for (MaintenanceRecord r : maintenanceHistory.view()) {
+            if (r.isDirty()) changed.add(r);
+        }
+        return changed;
+    }
+
+    /**
+     * Called by the persistence layer once this vehicle and its records are stored
+     */
+    public void markClean() {
+        if (frozen) return; // a frozen copy keeps the flag it was taken with
+        boolean wasDirty = dirty;
+        dirty = false;
+        rewrite = false;
+        fieldsChanged = false;
+        mileageChanged = false;
+        removedRecordIds = null;
+        // a history that's still on disk is clean by definition
+        for (MaintenanceRecord r : maintenanceHistory.view()) {
+            r.markClean();
+        }
+        if (wasDirty) historyChangeCount++; // the records' flags changed too
+        // snapshots carry the flag, a save that merges uses it
+        Garage owner = garage;
+        if (wasDirty && owner != null) owner.vehicleCleaned(this);
+    }
+
+    // subclasses call this from their own setters
+    protected void markDirty() {
+        fieldsChanged = true;
+        changed();
+    }
+
+    // history changes come through here directly, they don't touch the vehicle's own line
+    private void changed() {
+        dirty = true;
+        changeCount++;
+        Garage owner = garage;
+        if (owner != null) owner.vehicleChanged(this);
+    }
+
+    // called by a record in our history after one of its fields changed
+    void recordChanged(MaintenanceRecord record) {
+        maintenanceHistory.refile(record);
+        historyChangeCount++;
+        changed();
+    }
+
+    // set by Garage when the vehicle is added or removed
+    // a frozen copy can sit in several garages at once (a snapshot, a save's merge) and belongs to none
+    void attachTo(Garage garage) {
+        if (frozen) return;
+        this.garage = garage;
+    }
+
+    Garage attachedGarage() {
+        return garage;
+    }
+
+    // called by Garage.removeVehicle: whatever the store held is about to be deleted,
+    // so if this vehicle is added back it has to be written in full
+    // the garage already let go of it, nobody is told
+    void removedFromGarage() {
+        if (frozen) return;
+        rewrite = true;
+        dirty = true;
+        changeCount++;
+    }
+
+    // GarageChanges.mergedWith: this is a newer copy of the same vehicle, so it has to carry
+    // everything the older copy still had to write
+    void mergeUnsavedFrom(VehicleBase older) {
+        rewrite |= older.rewrite;
+        fieldsChanged |= older.fieldsChanged;
+        mileageChanged |= older.mileageChanged;
+        if (older.removedRecordIds != null) {
+            Set<String> ids = new LinkedHashSet<>(older.removedRecordIds);
+            if (removedRecordIds != null) ids.addAll(removedRecordIds);
+            removedRecordIds = ids;
+        }
+        if (rewrite || older.lazyHistory != null || older.packedHistory != null) return;
+        for (MaintenanceRecord r : older.maintenanceHistory.view()) {
+            if (!r.isDirty()) continue;
+            MaintenanceRecord ours = maintenanceHistory.get(r.getRecordId());
+            if (ours != null) ours.markUnsaved();
+        }
     }
 
     // ---- maintenance behavior ----
     public void addMaintenanceRecord(MaintenanceRecord record) {
+        checkWritable();
         if (record == null) {
             throw new IllegalArgumentException("MaintenanceRecord cannot be null");
         }
@@ -86,12 +389,119 @@ public abstract class VehicleBase {
         if (record.getMileageAtService() > this.currentMileage) {
             throw new IllegalArgumentException("mileageAtService cannot exceed currentMileage");
         }
-        maintenanceHistory.add(record);
+        history().add(record); // rejects a duplicate id before anything changes
+        record.attachTo(this);
+        record.markUnsaved(); // a clean record from elsewhere is still new here
+        historyChangeCount++;
+        changed();
     }
 
     public boolean removeMaintenanceRecord(String recordId) {
+        checkWritable();
         String id = requireNonBlank(recordId, "recordId");
-        return maintenanceHistory.removeIf(r -> r.getRecordId().equals(id));
+        if (packedHistory != null && packedHistory.get(id) == null) return false; // nothing to unpack for
+        MaintenanceRecord removed = history().remove(id);
+        if (removed == null) return false;
+        removed.attachTo(null);
+        if (removedRecordIds == null) removedRecordIds = new LinkedHashSet<>();
+        removedRecordIds.add(id);
+        historyChangeCount++;
+        changed();
+        return true;
+    }
+
+    public void clearMaintenanceHistory() {
+        checkWritable();
+        if (packedHistory != null) {
+            packedHistory = null; // the rows stay in the store, unused
+            historyChangeCount++;
+            rewrite = true;
+            changed();
+            return;
+        }
+        if (lazyHistory != null) {
+            // nothing to detach, just forget what's on disk
+            lazyHistory = null;
+            historyChangeCount++;
+            rewrite = true;
+            changed();
+            return;
+        }
+        if (maintenanceHistory.isEmpty()) return;
+        maintenanceHistory.view().forEach(r -> r.attachTo(null));
+        maintenanceHistory.clear();
+        historyChangeCount++;
+        rewrite = true;
+        changed();
+    }
+
+    /**
+     * Deep copy of this vehicle including its maintenance history and dirty flag
+     * Subclass fields are all primitives, so a shallow clone covers them
+     * A history that's still on disk stays there, the copy loads its own records when asked
+     */
+    public VehicleBase copy() {
+        VehicleBase copy = shallowCopy();
+        copy.frozen = false; // copying a frozen vehicle gives an ordinary one
+        copy.maintenanceHistory = new MaintenanceHistory();
+        for (MaintenanceRecord r : maintenanceHistory.view()) {
+            MaintenanceRecord recordCopy = r.copy();
+            copy.maintenanceHistory.add(recordCopy);
+            recordCopy.attachTo(copy);
+        }
+        return copy;
+    }
+
+    /**
+     * An immutable copy of this vehicle as it is now, for Garage.frozenSnapshot()
+     * Reused until the vehicle changes. While the history doesn't change the copies share one frozen
+     * history, and a changed history reuses the frozen copy of every record that didn't change
+     */
+    VehicleBase freeze() {
+        if (frozen) return this;
+        VehicleBase last = frozenCopy;
+        if (last != null && last.changeCount == changeCount && last.dirty == dirty) return last;
+
+        VehicleBase f = shallowCopy();
+        f.frozen = true;
+        if (lazyHistory != null || packedHistory != null) {
+            // the loader and the packed rows are safe to share, but loading or unpacking fills
+            // the history object, so each side gets its own
+            f.maintenanceHistory = new MaintenanceHistory();
+        } else if (last != null && last.historyChangeCount == historyChangeCount && last.lazyHistory == null) {
+            f.maintenanceHistory = last.maintenanceHistory;
+        } else {
+            f.maintenanceHistory = new MaintenanceHistory();
+            for (MaintenanceRecord r : maintenanceHistory.view()) {
+                f.maintenanceHistory.add(r.freeze());
+            }
+        }
+        frozenCopy = f;
+        return f;
+    }
+
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    /**
+     * Subclass setters call this first, a frozen vehicle refuses every change
+     */
+    protected void checkWritable() {
+        if (frozen) throw new UnsupportedOperationException("vehicles in a frozen snapshot are read-only");
+    }
+
+    // clone keeps the fields and shares the history, the caller decides what to do with it
+    private VehicleBase shallowCopy() {
+        try {
+            VehicleBase copy = (VehicleBase) super.clone();
+            copy.garage = null; // a copy isn't in any garage until it's added to one
+            copy.frozenCopy = null;
+            if (removedRecordIds != null) copy.removedRecordIds = new LinkedHashSet<>(removedRecordIds);
+            return copy;
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError(e); // can't happen, VehicleBase is Cloneable
+        }
     }
 
     /**
@@ -109,7 +519,7 @@ public abstract class VehicleBase {
                 ", model='" + model + '\'' +
                 ", year=" + year +
                 ", currentMileage=" + currentMileage +
-                ", maintenanceCount=" + maintenanceHistory.size() +
+                ", maintenanceCount=" + getMaintenanceHistory().size() +
                 '}';
     }
 
@@ -0,0 +1,111 @@
+package com.garagemate.model;
+
+import java.util.*;
+
+/**
+ * Secondary indexes over a garage's vehicles: make, model and type by value,
+ * year, mileage, doors and engine CC by range
+ *
+ * Each vehicle's indexed keys are remembered, so a change only moves the keys that
+ * actually changed (a history edit moves none). Text keys ignore case
+ * Synchronized, a ConcurrentGarage can change it from several threads
+ */
+final class VehicleIndex implements GarageListener {
+
+    final Map<String, Set<VehicleBase>> byMake = new HashMap<>();
+    final Map<String, Set<VehicleBase>> byModel = new HashMap<>();
+    final Map<String, Set<VehicleBase>> byType = new HashMap<>();
+    final NavigableMap<Integer, Set<VehicleBase>> byYear = new TreeMap<>();
+    final NavigableMap<Integer, Set<VehicleBase>> byMileage = new TreeMap<>();
+    final NavigableMap<Integer, Set<VehicleBase>> byDoors = new TreeMap<>();
+    final NavigableMap<Integer, Set<VehicleBase>> byEngineCC = new TreeMap<>();
+
+    // what each vehicle is filed under right now, vehicles compare by identity
+    private final Map<VehicleBase, Keys> indexed = new IdentityHashMap<>();
+
+    private record Keys(String make, String model, String type, int year, int mileage, Integer doors, Integer engineCC) {
+
+        static Keys of(VehicleBase v) {
+            return new Keys(textKey(v.getMake()), textKey(v.getModel()), textKey(v.getVehicleType()),
+                    v.getYear(), v.getCurrentMileage(),
+                    v instanceof Car c ? c.getNumberOfDoors() : null,
+                    v instanceof Motorcycle m ? m.getEngineCC() : null);
+        }
+    }
+
+    // every vehicle keeps its keys, so they're pooled like the values they come from
+    static String textKey(String value) {
+        return StringPool.canonical(value.trim().toLowerCase(Locale.ROOT));
+    }
+
+    @Override
+    public synchronized void vehicleAdded(VehicleBase vehicle) {
+        if (indexed.containsKey(vehicle)) return;
+        Keys keys = Keys.of(vehicle);
+        indexed.put(vehicle, keys);
+        file(vehicle, null, keys);
+    }
+
+    @Override
+    public synchronized void vehicleRemoved(VehicleBase vehicle) {
+        Keys keys = indexed.remove(vehicle);
+        if (keys != null) unfile(vehicle, keys, null);
+    }
+
+    @Override
+    public synchronized void vehicleChanged(VehicleBase vehicle) {
+        Keys old = indexed.get(vehicle);
+        if (old == null) return; // not ours
+        Keys now = Keys.of(vehicle);
+        if (now.equals(old)) return;
+
+        indexed.put(vehicle, now);
+        unfile(vehicle, old, now);
+        file(vehicle, old, now);
+    }
+
+    // adds the vehicle under every key in now that differs from old (old may be null)
+    private void file(VehicleBase v, Keys old, Keys now) {
+        if (old == null || !old.make().equals(now.make())) add(byMake, now.make(), v);
+        if (old == null || !old.model().equals(now.model())) add(byModel, now.model(), v);
+        if (old == null || !old.type().equals(now.type())) add(byType, now.type(), v);
+        if (old == null || old.year() != now.year()) add(byYear, now.year(), v);
+        if (old == null || old.mileage() != now.mileage()) add(byMileage, now.mileage(), v);
+        if (now.doors() != null && (old == null || !now.doors().equals(old.doors()))) add(byDoors, now.doors(), v);
+        if (now.engineCC() != null && (old == null || !now.engineCC().equals(old.engineCC()))) {
+            add(byEngineCC, now.engineCC(), v);
+        }
+    }
+
+    // removes the vehicle from every key in old that differs from now (now may be null)
+    private void unfile(VehicleBase v, Keys old, Keys now) {
+        if (now == null || !old.make().equals(now.make())) remove(byMake, old.make(), v);
+        if (now == null || !old.model().equals(now.model())) remove(byModel, old.model(), v);
+        if (now == null || !old.type().equals(now.type())) remove(byType, old.type(), v);
+        if (now == null || old.year() != now.year()) remove(byYear, old.year(), v);
+        if (now == null || old.mileage() != now.mileage()) remove(byMileage, old.mileage(), v);
+        if (old.doors() != null && (now == null || !old.doors().equals(now.doors()))) remove(byDoors, old.doors(), v);
+        if (old.engineCC() != null && (now == null || !old.engineCC().equals(now.engineCC()))) {
+            remove(byEngineCC, old.engineCC(), v);
+        }
+    }
+
+    private static <K> void add(Map<K, Set<VehicleBase>> index, K key, VehicleBase v) {
+        index.computeIfAbsent(key, k -> Collections.newSetFromMap(new IdentityHashMap<>())).add(v);
+    }
+
+    private static <K> void remove(Map<K, Set<VehicleBase>> index, K key, VehicleBase v) {
+        Set<VehicleBase> set = index.get(key);
+        if (set == null) return;
+        set.remove(v);
+        if (set.isEmpty()) index.remove(key); // keeps range scans from walking empty keys
+    }
+
+    synchronized int size() {
+        return indexed.size();
+    }
+
+    synchronized Set<VehicleBase> all() {
+        return indexed.keySet();
+    }
+}
@@ -0,0 +1,159 @@
+package com.garagemate.model;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Filters a garage's vehicles through its indexes, from Garage.query()
+ * Every condition must match. The query walks only the candidates of its most selective
+ * condition and checks the rest on those, so "2018+ Hondas" costs about the number of Hondas
+ * (or 2018+ vehicles, whichever is smaller) instead of the whole garage
+ *
+ *   garage.query().make("Honda").yearBetween(2018, 2100).list()
+ *   garage.query().type("Motorcycle").engineCCBetween(1000, 3000).count()
+ *
+ * Text matches ignore case. Ranges include both ends
+ */
+public final class VehicleQuery {
+
+    private final VehicleIndex index;
+    private final List<Condition> conditions = new ArrayList<>();
+
+    VehicleQuery(VehicleIndex index) {
+        this.index = index;
+    }
+
+    public VehicleQuery make(String make) {
+        return equalTo(index.byMake, make, VehicleBase::getMake);
+    }
+
+    public VehicleQuery model(String model) {
+        return equalTo(index.byModel, model, VehicleBase::getModel);
+    }
+
+    /**
+     * "Car" or "Motorcycle"
+     */
+    public VehicleQuery type(String vehicleType) {
+        return equalTo(index.byType, vehicleType, VehicleBase::getVehicleType);
+    }
+
+    public VehicleQuery yearBetween(int from, int to) {
+        return between(index.byYear, from, to, v -> v.getYear() >= from && v.getYear() <= to);
+    }
+
+    public VehicleQuery mileageBetween(int from, int to) {
+        return between(index.byMileage, from, to,
+                v -> v.getCurrentMileage() >= from && v.getCurrentMileage() <= to);
+    }
+
+    /**
+     * Only matches cars
+     */
+    public VehicleQuery doorsBetween(int from, int to) {
+        return between(index.byDoors, from, to,
+                v -> v instanceof Car c && c.getNumberOfDoors() >= from && c.getNumberOfDoors() <= to);
+    }
+
+    /**
+     * Only matches motorcycles
+     */
+    public VehicleQuery engineCCBetween(int from, int to) {
+        return between(index.byEngineCC, from, to,
+                v -> v instanceof Motorcycle m && m.getEngineCC() >= from && m.getEngineCC() <= to);
+    }
+
+    /**
+     * The matching vehicles, in no particular order
+     */
+    public List<VehicleBase> list() {
+        List<VehicleBase> result = new ArrayList<>();
+        synchronized (index) {
+            for (VehicleBase v : candidates()) {
+                if (matches(v)) result.add(v);
+            }
+        }
+        return result;
+    }
+
+    public int count() {
+        int count = 0;
+        synchronized (index) {
+            for (VehicleBase v : candidates()) {
+                if (matches(v)) count++;
+            }
+        }
+        return count;
+    }
+
+    // ---- planning ----
+
+    // the condition with the fewest candidates, counting stops as soon as one can't win
+    private Iterable<VehicleBase> candidates() {
+        if (conditions.isEmpty()) return index.all();
+
+        Condition best = null;
+        int bestCount = Integer.MAX_VALUE;
+        for (Condition c : conditions) {
+            int n = c.estimate(bestCount);
+            if (n < bestCount) {
+                best = c;
+                bestCount = n;
+            }
+        }
+        return best == null ? conditions.get(0).candidates() : best.candidates();
+    }
+
+    private boolean matches(VehicleBase v) {
+        for (Condition c : conditions) {
+            if (!c.test().test(v)) return false;
+        }
+        return true;
+    }
+
+    private VehicleQuery equalTo(Map<String, Set<VehicleBase>> byValue, String value,
+                                 Function<VehicleBase, String> field) {
+        String key = VehicleIndex.textKey(VehicleBase.requireNonBlank(value, "value"));
+        conditions.add(new Condition(
+                limit -> byValue.getOrDefault(key, Set.of()).size(),
+                () -> byValue.getOrDefault(key, Set.of()),
+                v -> VehicleIndex.textKey(field.apply(v)).equals(key)));
+        return this;
+    }
+
+    private VehicleQuery between(NavigableMap<Integer, Set<VehicleBase>> byValue, int from, int to,
+                                 Predicate<VehicleBase> test) {
+        if (from > to) throw new IllegalArgumentException("from must be <= to");
+        conditions.add(new Condition(
+                limit -> {
+                    int n = 0;
+                    for (Set<VehicleBase> set : byValue.subMap(from, true, to, true).values()) {
+                        n += set.size();
+                        if (n >= limit) break; // already loses, no need to finish counting
+                    }
+                    return n;
+                },
+                () -> () -> byValue.subMap(from, true, to, true).values().stream()
+                        .flatMap(Set::stream).iterator(),
+                test));
+        return this;
+    }
+
+    private interface Estimate {
+        int candidates(int limit);
+    }
+
+    private record Condition(Estimate estimator, Supplier<Iterable<VehicleBase>> source,
+                             Predicate<VehicleBase> test) {
+
+        int estimate(int limit) {
+            return estimator.candidates(limit);
+        }
+
+        Iterable<VehicleBase> candidates() {
+            return source.get();
+        }
+    }
+}
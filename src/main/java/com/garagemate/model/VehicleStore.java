@@ -0,0 +1,30 @@
+package com.garagemate.model;
+
+import java.util.Collection;
+
+/**
+ * Where a Garage keeps its vehicles: by id, in insertion order
+ */
+interface VehicleStore {
+
+    VehicleBase get(String vehicleId);
+
+    /**
+     * Returns the vehicle already stored under the id and leaves it, or null after adding this one
+     */
+    VehicleBase putIfAbsent(String vehicleId, VehicleBase vehicle);
+
+    /**
+     * A replaced vehicle keeps its position
+     */
+    VehicleBase put(String vehicleId, VehicleBase vehicle);
+
+    VehicleBase remove(String vehicleId);
+
+    int size();
+
+    /**
+     * Live view in insertion order
+     */
+    Collection<VehicleBase> values();
+}
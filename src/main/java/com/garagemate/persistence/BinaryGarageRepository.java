@@ -0,0 +1,350 @@
+package com.garagemate.persistence;
+
+import com.garagemate.model.*;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Arrays;
+
+/**
+ * Saves and loads Garage Mate data in a compact BINARY FILE
+ * A full load goes through a MappedByteBuffer, loadVehicle binary-searches the id table
+ * with a few positional reads and only reads the one block it finds
+ *
+ * Layout (all fixed-width numbers are big-endian):
+ *   header   int magic "GMB1", short version, int vehicleCount, long idTablePosition
+ *   vehicles one block per vehicle, in garage order
+ *            byte type (0 = Car, 1 = Motorcycle), str vehicleId, str nickname, str make, str model,
+ *            var year, var mileage, var doors/engineCC, var recordCount,
+ *            then per record: str recordId, str serviceDate, str serviceType, var mileageAtService, str notes
+ *   table    per vehicle, sorted by id hash: int vehicleId.hashCode(), int block length, long block offset
+ *            (version 1 only had the offsets, in garage order; those files still load)
+ *
+ * var = zigzag varint, str = var byte length + UTF-8 bytes
+ * A single mapping covers up to 2 GB, which is far more than any garage we've seen.
+ * Java can't unmap a buffer, it goes when it's collected; the mapping never leaves loadGarage,
+ * and a save that finds the old file still mapped (Windows won't replace it) retries after a GC
+ * Single changes use the GarageRepository defaults (rewrite the file)
+ */
+public class BinaryGarageRepository implements GarageRepository {
+
+    static final int MAGIC = 0x474D4231; // "GMB1"
+    static final short VERSION = 2;
+    private static final short VERSION_OFFSETS_ONLY = 1;
+    private static final int HEADER_SIZE = 4 + 2 + 4 + 8;
+    private static final int ENTRY_SIZE = 4 + 4 + 8;
+
+    private static final byte TYPE_CAR = 0;
+    private static final byte TYPE_MOTORCYCLE = 1;
+
+    private final Path filePath;
+
+    public BinaryGarageRepository(String filePath) {
+        this.filePath = Paths.get(VehicleBase.requireNonBlank(filePath, "filePath"));
+    }
+
+    @Override
+    public Garage loadGarage() {
+        Garage garage = new Garage();
+        if (!Files.exists(filePath)) {
+            return garage; // if no file exists, initialize an empty garage
+        }
+
+        // only reachable in here, so the mapping can go as soon as the vehicles are built
+        MappedByteBuffer buffer = map();
+        readHeader(buffer);
+        int count = buffer.getInt(6);
+        buffer.position(HEADER_SIZE); // blocks are laid out back to back in garage order
+        for (int i = 0; i < count; i++) {
+            garage.addVehicle(readVehicle(buffer));
+        }
+        garage.markClean(); // everything just loaded is already stored
+        return garage;
+    }
+
+    /**
+     * Loads one vehicle and its history without decoding anything else
+     * O(log n) small reads to find it in the id table, then one read of its block
+     * Returns null when the vehicle isn't in the file
+     */
+    @Override
+    public VehicleBase loadVehicle(String vehicleId) {
+        String id = VehicleBase.requireNonBlank(vehicleId, "vehicleId");
+        if (!Files.exists(filePath)) return null;
+
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            ByteBuffer header = readAt(channel, 0, HEADER_SIZE);
+            if (readHeader(header) == VERSION_OFFSETS_ONLY) {
+                // no id table yet, the next save writes one
+                return loadGarage().getVehicleById(id);
+            }
+            int count = header.getInt(6);
+            long table = header.getLong(10);
+
+            // first entry whose hash isn't lower, then every entry with the same hash
+            int hash = id.hashCode();
+            int low = 0;
+            int high = count;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (readAt(channel, table + (long) mid * ENTRY_SIZE, 4).getInt(0) < hash) low = mid + 1;
+                else high = mid;
+            }
+            for (int i = low; i < count; i++) {
+                ByteBuffer entry = readAt(channel, table + (long) i * ENTRY_SIZE, ENTRY_SIZE);
+                if (entry.getInt(0) != hash) break;
+
+                ByteBuffer block = readAt(channel, entry.getLong(8), entry.getInt(4));
+                block.position(1); // skip the type byte
+                if (!id.equals(readString(block))) continue; // another id with the same hash
+                block.position(0);
+                VehicleBase v = readVehicle(block);
+                v.markClean();
+                return v;
+            }
+            return null;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to load vehicle from file: " + filePath, e);
+        }
+    }
+
+    @Override
+    public void saveGarage(Garage garage) {
+        if (garage == null) throw new IllegalArgumentException("garage cannot be null");
+
+        Path tempFile = filePath.resolveSibling(filePath.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(filePath.toAbsolutePath().getParent());
+
+            int count = garage.size();
+            long[] entries = new long[count]; // hash in the high half, index in the low half
+            long[] offsets = new long[count + 1];
+
+            try (FileChannel channel = FileChannel.open(tempFile,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+
+                CountingOutput out = new CountingOutput(
+                        new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024));
+                out.skipHeader();
+
+                int i = 0;
+                for (VehicleBase v : garage.vehicles()) {
+                    entries[i] = ((long) v.getVehicleId().hashCode() << 32) | i;
+                    offsets[i++] = out.position;
+                    writeVehicle(out, v);
+                }
+                long tablePosition = out.position;
+                offsets[count] = tablePosition; // the end of the last block
+
+                // sorted by hash, equal hashes keep garage order
+                Arrays.sort(entries);
+                for (long entry : entries) {
+                    int index = (int) entry;
+                    out.writeInt((int) (entry >>> 32));
+                    out.writeInt((int) (offsets[index + 1] - offsets[index]));
+                    out.writeLong(offsets[index]);
+                }
+                out.flush();
+
+                // now that the table position is known, fill in the header
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                header.putInt(MAGIC).putShort(VERSION).putInt(count).putLong(tablePosition).flip();
+                channel.write(header, 0);
+                channel.force(true);
+            }
+
+            try {
+                Files.move(tempFile, filePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, filePath, StandardCopyOption.REPLACE_EXISTING);
+            } catch (FileSystemException e) {
+                // Windows won't replace a file that's still mapped, and a mapping only goes once it's collected
+                System.gc();
+                Files.move(tempFile, filePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            TextFileRepository.syncDirectory(filePath.toAbsolutePath().getParent());
+        } catch (IOException e) {
+            try {
+                Files.deleteIfExists(tempFile);
+            } catch (IOException ignored) {
+                // the original error is the one worth reporting
+            }
+            throw new RuntimeException("Failed to save garage to file: " + filePath, e);
+        }
+    }
+
+    // ---- reading ----
+
+    private MappedByteBuffer map() {
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Binary garage file is larger than 2 GB: " + filePath);
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to load garage from file: " + filePath, e);
+        }
+    }
+
+    // checks the header and returns the version, the vehicle count is at 6 and the table position at 10
+    private short readHeader(ByteBuffer buffer) {
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("Not a binary garage file: " + filePath);
+        }
+        short version = buffer.getShort(4);
+        if (version != VERSION && version != VERSION_OFFSETS_ONLY) {
+            throw new IllegalArgumentException("Unsupported binary garage version " + version + ": " + filePath);
+        }
+        return version;
+    }
+
+    // a short file reads as a truncated buffer, readHeader and the decoders reject it
+    private static ByteBuffer readAt(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining() && channel.read(buffer, position + buffer.position()) > 0) {
+            // short reads are allowed, keep going
+        }
+        return buffer.flip();
+    }
+
+    private VehicleBase readVehicle(ByteBuffer buffer) {
+        byte type = buffer.get();
+        String vehicleId = readString(buffer);
+        String nickname = readString(buffer);
+        String make = readString(buffer);
+        String model = readString(buffer);
+        int year = readVarInt(buffer);
+        int mileage = readVarInt(buffer);
+        int extra = readVarInt(buffer);
+
+        VehicleBase v = switch (type) {
+            case TYPE_CAR -> new Car(vehicleId, nickname, make, model, year, mileage, extra);
+            case TYPE_MOTORCYCLE -> new Motorcycle(vehicleId, nickname, make, model, year, mileage, extra);
+            default -> throw new IllegalArgumentException("Unknown vehicle type code: " + type);
+        };
+
+        int records = readVarInt(buffer);
+        for (int i = 0; i < records; i++) {
+            String recordId = readString(buffer);
+            String date = readString(buffer);
+            String serviceType = readString(buffer);
+            int mileageAtService = readVarInt(buffer);
+            String notes = readString(buffer);
+            v.addMaintenanceRecord(new MaintenanceRecord(recordId, date, serviceType, mileageAtService, notes));
+        }
+        return v;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = readVarInt(buffer);
+        if (length == 0) return "";
+
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static int readVarInt(ByteBuffer buffer) {
+        int raw = 0;
+        int shift = 0;
+        byte b;
+        do {
+            if (shift > 28) throw new IllegalArgumentException("Malformed varint at " + buffer.position());
+            b = buffer.get();
+            raw |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return (raw >>> 1) ^ -(raw & 1); // undo zigzag
+    }
+
+    // ---- writing ----
+
+    private static void writeVehicle(CountingOutput out, VehicleBase v) throws IOException {
+        int extra;
+        if (v instanceof Car c) {
+            out.write(TYPE_CAR);
+            extra = c.getNumberOfDoors();
+        } else if (v instanceof Motorcycle m) {
+            out.write(TYPE_MOTORCYCLE);
+            extra = m.getEngineCC();
+        } else {
+            throw new IllegalArgumentException("Unsupported vehicle type: " + v.getClass().getName());
+        }
+
+        out.writeString(v.getVehicleId());
+        out.writeString(v.getNickname());
+        out.writeString(v.getMake());
+        out.writeString(v.getModel());
+        out.writeVarInt(v.getYear());
+        out.writeVarInt(v.getCurrentMileage());
+        out.writeVarInt(extra);
+
+        out.writeVarInt(v.getMaintenanceHistory().size());
+        for (MaintenanceRecord r : v.getMaintenanceHistory()) {
+            out.writeString(r.getRecordId());
+            out.writeString(r.getServiceDate());
+            out.writeString(r.getServiceType());
+            out.writeVarInt(r.getMileageAtService());
+            out.writeString(r.getNotes());
+        }
+    }
+
+    // tracks the byte position so vehicle offsets can be recorded while streaming
+    private static final class CountingOutput {
+        private final OutputStream out;
+        private long position;
+
+        CountingOutput(OutputStream out) {
+            this.out = out;
+        }
+
+        void skipHeader() throws IOException {
+            out.write(new byte[HEADER_SIZE]); // patched once the table position is known
+            position = HEADER_SIZE;
+        }
+
+        void write(int b) throws IOException {
+            out.write(b);
+            position++;
+        }
+
+        void writeVarInt(int value) throws IOException {
+            int raw = (value << 1) ^ (value >> 31); // zigzag keeps small negatives small
+            while ((raw & ~0x7F) != 0) {
+                write((raw & 0x7F) | 0x80);
+                raw >>>= 7;
+            }
+            write(raw);
+        }
+
+        void writeString(String value) throws IOException {
+            byte[] bytes = value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(bytes.length);
+            out.write(bytes);
+            position += bytes.length;
+        }
+
+        void writeInt(int value) throws IOException {
+            for (int shift = 24; shift >= 0; shift -= 8) {
+                write(value >>> shift);
+            }
+        }
+
+        void writeLong(long value) throws IOException {
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                write((int) (value >>> shift));
+            }
+        }
+
+        void flush() throws IOException {
+            out.flush();
+        }
+    }
+}
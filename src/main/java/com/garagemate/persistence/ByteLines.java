@@ -0,0 +1,99 @@
+package com.garagemate.persistence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+
+/**
+ * Splits raw file bytes into lines without decoding them
+ * Used where byte offsets matter or decoding would cost more than the work itself
+ * '\n' never appears inside a multi-byte UTF-8 character, so splitting on it is safe
+ * Same line rules as LineReader: '\n' ends a line, one '\r' before it is dropped
+ */
+final class ByteLines {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private ByteLines() {}
+
+    @FunctionalInterface
+    interface Handler {
+        /**
+         * buf[start, end) is the line without its terminator, offset is where it starts in the file
+         * and nextOffset where the next line starts. The buffer is reused once this returns
+         */
+        void line(byte[] buf, int start, int end, long offset, long nextOffset) throws IOException;
+    }
+
+    static void forEach(ReadableByteChannel in, Handler handler) throws IOException {
+        byte[] buf = new byte[BUFFER_SIZE];
+        long bufOffset = 0; // file offset of buf[0]
+        int start = 0;
+        int limit = 0;
+        int scanFrom = 0;
+        boolean eof = false;
+
+        while (true) {
+            int newline = -1;
+            for (int i = scanFrom; i < limit; i++) {
+                if (buf[i] == '\n') {
+                    newline = i;
+                    break;
+                }
+            }
+
+            int lineEnd;
+            int next;
+            if (newline >= 0) {
+                lineEnd = newline;
+                next = newline + 1;
+            } else if (eof) {
+                if (start == limit) return;
+                lineEnd = limit; // last line without a terminator
+                next = limit;
+            } else {
+                // move the partial line to the front (growing the buffer if one line fills it) and read more
+                int partial = limit - start;
+                if (partial == buf.length) {
+                    buf = Arrays.copyOf(buf, buf.length * 2);
+                } else if (start > 0) {
+                    System.arraycopy(buf, start, buf, 0, partial);
+                }
+                bufOffset += start;
+                start = 0;
+                limit = partial;
+                scanFrom = partial;
+
+                int n = in.read(ByteBuffer.wrap(buf, limit, buf.length - limit));
+                if (n < 0) eof = true;
+                else limit += n;
+                continue;
+            }
+
+            int end = (lineEnd > start && buf[lineEnd - 1] == '\r') ? lineEnd - 1 : lineEnd;
+            handler.line(buf, start, end, bufOffset + start, bufOffset + next);
+            start = next;
+            scanFrom = next;
+        }
+    }
+
+    /**
+     * End of the escaped field starting at buf[from], same rule as LineScanner
+     */
+    static int fieldEnd(byte[] buf, int from, int end) {
+        return fieldEnd(buf, from, end, false);
+    }
+
+    /**
+     * Same, backslashes are plain characters in legacy mode (see LineScanner.legacyEscapes)
+     */
+    static int fieldEnd(byte[] buf, int from, int end, boolean legacy) {
+        int i = from;
+        while (i < end) {
+            if (buf[i] == '|') break;
+            i += (buf[i] == '\\' && !legacy && i + 1 < end) ? 2 : 1;
+        }
+        return i;
+    }
+}
@@ -0,0 +1,393 @@
+package com.garagemate.persistence;
+
+import com.garagemate.model.*;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Bulk import of a customer fleet from CSV exports, one file of vehicles and one of service rows
+ *
+ * Each file runs through a three stage pipeline: a reader thread splits CSV rows,
+ * a parser thread turns them into model objects (which validates them), and the calling
+ * thread adds them to the garage. Stages hand over batches through small bounded queues,
+ * so a slow stage holds the others back instead of letting rows pile up in memory
+ *
+ * A bad row becomes a RowError and the import keeps going, the repository is written once at the end
+ * A quote that's never closed swallows the rest of the file, it's one RowError for the row it started on
+ * Anything else going wrong (an I/O error, a bug) stops the import and is thrown to the caller,
+ * rows applied before that stay in the garage but importFleet doesn't save them
+ */
+public class CsvFleetImporter {
+
+    /**
+     * The fields the importer knows about, each maps to a CSV header matched case-insensitively
+     */
+    public enum Column {
+        TYPE("type"), VEHICLE_ID("vehicleId"), NICKNAME("nickname"), MAKE("make"), MODEL("model"),
+        YEAR("year"), MILEAGE("mileage"), DOORS("doors"), ENGINE_CC("engineCC"),
+        RECORD_ID("recordId"), SERVICE_DATE("serviceDate"), SERVICE_TYPE("serviceType"),
+        MILEAGE_AT_SERVICE("mileageAtService"), NOTES("notes");
+
+        private final String defaultHeader;
+
+        Column(String defaultHeader) {
+            this.defaultHeader = defaultHeader;
+        }
+
+        public String defaultHeader() {
+            return defaultHeader;
+        }
+    }
+
+    public record RowError(String file, long line, String message) {
+        @Override
+        public String toString() {
+            return file + ":" + line + ": " + message;
+        }
+    }
+
+    /**
+     * errors holds at most maxErrors entries, errorCount is the real total
+     */
+    public record Result(int vehiclesImported, int recordsImported, long rowsRead,
+                         long errorCount, List<RowError> errors) {
+        public boolean hasErrors() {
+            return errorCount > 0;
+        }
+    }
+
+    private static final int DEFAULT_MAX_ERRORS = 1000;
+    private static final int BATCH_SIZE = 1024;
+    private static final int QUEUE_BATCHES = 8; // per stage, bounds memory to a few thousand rows
+
+    private static final Column[] VEHICLE_REQUIRED =
+            {Column.TYPE, Column.VEHICLE_ID, Column.MAKE, Column.MODEL, Column.YEAR, Column.MILEAGE};
+    private static final Column[] RECORD_REQUIRED =
+            {Column.VEHICLE_ID, Column.SERVICE_DATE, Column.SERVICE_TYPE, Column.MILEAGE_AT_SERVICE};
+
+    private final Map<Column, String> headers = new EnumMap<>(Column.class);
+    private final int maxErrors;
+
+    public CsvFleetImporter() {
+        this(Map.of(), DEFAULT_MAX_ERRORS);
+    }
+
+    /**
+     * @param columnMapping CSV header to use for a column, columns left out use their default header
+     * @param maxErrors     how many row errors to keep, later ones are only counted
+     */
+    public CsvFleetImporter(Map<Column, String> columnMapping, int maxErrors) {
+        if (columnMapping == null) throw new IllegalArgumentException("columnMapping cannot be null");
+        if (maxErrors < 0) throw new IllegalArgumentException("maxErrors must be >= 0");
+        for (Column c : Column.values()) {
+            headers.put(c, VehicleBase.requireNonBlank(columnMapping.getOrDefault(c, c.defaultHeader), c.name()));
+        }
+        this.maxErrors = maxErrors;
+    }
+
+    /**
+     * Imports into the repository's garage and saves it once
+     * Nothing is written when no row made it in
+     *
+     * @param recordsCsv may be null when there are only vehicles
+     */
+    public Result importFleet(GarageRepository repo, Path vehiclesCsv, Path recordsCsv) {
+        if (repo == null) throw new IllegalArgumentException("repo cannot be null");
+        Garage garage = repo.loadGarage();
+        Result result = importInto(garage, vehiclesCsv, recordsCsv);
+        if (result.vehiclesImported() > 0 || result.recordsImported() > 0) {
+            repo.saveGarage(garage);
+        }
+        return result;
+    }
+
+    /**
+     * Adds the vehicles, then the service rows, to an in-memory garage
+     * Vehicles go first so service rows can refer to vehicles from the same import
+     */
+    public Result importInto(Garage garage, Path vehiclesCsv, Path recordsCsv) {
+        if (garage == null) throw new IllegalArgumentException("garage cannot be null");
+        if (vehiclesCsv == null && recordsCsv == null) throw new IllegalArgumentException("nothing to import");
+
+        Tally tally = new Tally();
+        if (vehiclesCsv != null) {
+            run(vehiclesCsv, VEHICLE_REQUIRED, this::parseVehicle, v -> {
+                garage.addVehicle(v); // duplicate ids come back as a row error
+                tally.vehicles++;
+            }, tally);
+        }
+        if (recordsCsv != null) {
+            run(recordsCsv, RECORD_REQUIRED, this::parseRecord, row -> {
+                VehicleBase vehicle = garage.getVehicleById(row.vehicleId);
+                if (vehicle == null) throw new IllegalArgumentException("Unknown vehicleId: " + row.vehicleId);
+                vehicle.addMaintenanceRecord(row.record); // duplicate ids come back as a row error
+                tally.records++;
+            }, tally);
+        }
+        return new Result(tally.vehicles, tally.records, tally.rows, tally.errorCount, List.copyOf(tally.errors));
+    }
+
+    // ---- pipeline ----
+
+    private <T> void run(Path csv, Column[] required, RowParser<T> parser, RowApplier<T> applier, Tally tally) {
+        String file = csv.getFileName().toString();
+        BlockingQueue<List<RawRow>> rawRows = new ArrayBlockingQueue<>(QUEUE_BATCHES);
+        BlockingQueue<List<ParsedRow<T>>> parsedRows = new ArrayBlockingQueue<>(QUEUE_BATCHES);
+        AtomicReference<Exception> failure = new AtomicReference<>();
+
+        CsvReader reader;
+        int[] columns;
+        try {
+            reader = new CsvReader(new InputStreamReader(Files.newInputStream(csv), StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open CSV file: " + csv, e);
+        }
+
+        try {
+            // the header decides the column layout, a missing required column fails the whole file
+            columns = resolveColumns(reader.next(), required, file);
+        } catch (IOException | RuntimeException e) {
+            closeQuietly(reader);
+            if (e instanceof IOException io) throw new RuntimeException("Failed to read CSV file: " + csv, io);
+            throw (RuntimeException) e;
+        }
+
+        // each stage always ends its queue, even when it fails, so the next one never waits forever
+        Thread readStage = new Thread(() -> {
+            try (reader) {
+                List<RawRow> batch = new ArrayList<>(BATCH_SIZE);
+                List<String> fields;
+                while (true) {
+                    try {
+                        fields = reader.next();
+                    } catch (IllegalArgumentException e) {
+                        // an unclosed quote ran to the end of the file, nothing after it can be read
+                        batch.add(new RawRow(reader.recordLine(), null, e.getMessage()));
+                        break;
+                    }
+                    if (fields == null) break;
+                    if (fields.size() == 1 && fields.get(0).isBlank()) continue; // blank line
+                    batch.add(new RawRow(reader.recordLine(), fields, null));
+                    if (batch.size() == BATCH_SIZE) {
+                        rawRows.put(batch); // blocks while the parser is behind
+                        batch = new ArrayList<>(BATCH_SIZE);
+                    }
+                }
+                if (!batch.isEmpty()) rawRows.put(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                failure.compareAndSet(null, e);
+            } finally {
+                putEnd(rawRows);
+            }
+        }, "csv-read");
+
+        Thread parseStage = new Thread(() -> {
+            try {
+                while (true) {
+                    List<RawRow> batch = rawRows.take();
+                    if (batch.isEmpty()) break;
+
+                    List<ParsedRow<T>> parsed = new ArrayList<>(batch.size());
+                    for (RawRow row : batch) {
+                        if (row.error != null) {
+                            parsed.add(new ParsedRow<>(row.line, null, row.error));
+                            continue;
+                        }
+                        try {
+                            parsed.add(new ParsedRow<>(row.line, parser.parse(new Row(row.fields, columns)), null));
+                        } catch (IllegalArgumentException e) {
+                            parsed.add(new ParsedRow<>(row.line, null, e.getMessage()));
+                        }
+                    }
+                    parsedRows.put(parsed);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                failure.compareAndSet(null, e);
+            } finally {
+                putEnd(parsedRows);
+            }
+        }, "csv-parse");
+
+        readStage.setDaemon(true);
+        parseStage.setDaemon(true);
+        readStage.start();
+        parseStage.start();
+
+        try {
+            // apply stage runs here, the garage is only ever touched by the calling thread
+            while (failure.get() == null) {
+                List<ParsedRow<T>> batch = parsedRows.take();
+                if (batch.isEmpty()) break;
+
+                for (ParsedRow<T> row : batch) {
+                    tally.rows++;
+                    if (row.error != null) {
+                        tally.error(file, row.line, row.error, maxErrors);
+                        continue;
+                    }
+                    try {
+                        applier.apply(row.value);
+                    } catch (IllegalArgumentException e) {
+                        tally.error(file, row.line, e.getMessage(), maxErrors);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while importing " + csv, e);
+        } finally {
+            // stop the other stages if the apply stage left early
+            readStage.interrupt();
+            parseStage.interrupt();
+        }
+
+        Exception failed = failure.get();
+        if (failed instanceof IOException) {
+            throw new RuntimeException("Failed to read CSV file: " + csv, failed);
+        } else if (failed != null) {
+            throw new RuntimeException("Failed to import CSV file: " + csv, failed);
+        }
+    }
+
+    private int[] resolveColumns(List<String> header, Column[] required, String file) {
+        if (header == null) throw new IllegalArgumentException(file + " is empty");
+
+        int[] columns = new int[Column.values().length];
+        Arrays.fill(columns, -1);
+        for (int i = 0; i < header.size(); i++) {
+            String name = header.get(i).trim();
+            for (Column c : Column.values()) {
+                if (headers.get(c).equalsIgnoreCase(name)) columns[c.ordinal()] = i;
+            }
+        }
+        for (Column c : required) {
+            if (columns[c.ordinal()] < 0) {
+                throw new IllegalArgumentException(file + " has no \"" + headers.get(c) + "\" column");
+            }
+        }
+        return columns;
+    }
+
+    // ---- row parsing (parse stage) ----
+
+    // package-private so a test can make a row fail in ways real data can't
+    VehicleBase parseVehicle(Row row) {
+        String type = row.get(Column.TYPE).trim();
+        String vehicleId = row.get(Column.VEHICLE_ID);
+        String make = row.get(Column.MAKE);
+        String model = row.get(Column.MODEL);
+        String nickname = row.get(Column.NICKNAME);
+        if (nickname.isBlank()) nickname = make + " " + model;
+        int year = row.getInt(Column.YEAR);
+        int mileage = row.getInt(Column.MILEAGE);
+
+        return switch (type.toLowerCase(Locale.ROOT)) {
+            case "car" -> new Car(vehicleId, nickname, make, model, year, mileage, row.getInt(Column.DOORS));
+            case "motorcycle" -> new Motorcycle(vehicleId, nickname, make, model, year, mileage, row.getInt(Column.ENGINE_CC));
+            default -> throw new IllegalArgumentException("Unknown vehicle type: " + type);
+        };
+    }
+
+    private RecordRow parseRecord(Row row) {
+        String vehicleId = VehicleBase.requireNonBlank(row.get(Column.VEHICLE_ID), "vehicleId");
+        String recordId = row.get(Column.RECORD_ID);
+        if (recordId.isBlank()) recordId = UUID.randomUUID().toString(); // same as records added in the app
+
+        MaintenanceRecord record = new MaintenanceRecord(recordId,
+                row.get(Column.SERVICE_DATE),
+                row.get(Column.SERVICE_TYPE),
+                row.getInt(Column.MILEAGE_AT_SERVICE),
+                row.get(Column.NOTES));
+        return new RecordRow(vehicleId, record);
+    }
+
+    // an empty batch tells the next stage there's nothing more
+    private static <E> void putEnd(BlockingQueue<List<E>> queue) {
+        try {
+            queue.put(List.of());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void closeQuietly(CsvReader reader) {
+        try {
+            reader.close();
+        } catch (IOException ignored) {
+            // the original error is the one worth reporting
+        }
+    }
+
+    // ---- pipeline plumbing ----
+
+    @FunctionalInterface
+    private interface RowParser<T> {
+        T parse(Row row);
+    }
+
+    @FunctionalInterface
+    private interface RowApplier<T> {
+        void apply(T value);
+    }
+
+    // error is set instead of fields when the row couldn't even be split
+    private record RawRow(long line, List<String> fields, String error) {}
+
+    private record ParsedRow<T>(long line, T value, String error) {}
+
+    private record RecordRow(String vehicleId, MaintenanceRecord record) {}
+
+    // one CSV row seen through the column mapping, a column the file doesn't have reads as ""
+    record Row(List<String> fields, int[] columns) {
+        String get(Column c) {
+            int i = columns[c.ordinal()];
+            if (i < 0 || i >= fields.size()) return "";
+
+            // quoted cells can hold line breaks, the garage files are one line per entry
+            String value = fields.get(i);
+            return value.indexOf('\n') < 0 ? value : value.replace("\r\n", " ").replace('\n', ' ');
+        }
+
+        int getInt(Column c) {
+            String value = get(c).trim();
+            if (value.isEmpty()) throw new IllegalArgumentException(c.defaultHeader() + " is required");
+            try {
+                return Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(c.defaultHeader() + " must be a whole number: " + value);
+            }
+        }
+    }
+
+    // only touched by the apply stage
+    private static final class Tally {
+        int vehicles;
+        int records;
+        long rows;
+        long errorCount;
+        final List<RowError> errors = new ArrayList<>();
+
+        void error(String file, long line, String message, int maxErrors) {
+            errorCount++;
+            if (errors.size() < maxErrors) errors.add(new RowError(file, line, message));
+        }
+    }
+}
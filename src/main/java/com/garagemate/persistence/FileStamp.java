@@ -0,0 +1,27 @@
+package com.garagemate.persistence;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Size, modified time and file key (the inode on most systems) of a file
+ * An atomic replace always changes the key, so for files that are only ever replaced
+ * (like our snapshots) equal stamps mean nothing was written
+ */
+record FileStamp(long size, long modified, Object key) {
+
+    /**
+     * null when the file doesn't exist
+     */
+    static FileStamp of(Path path) throws IOException {
+        try {
+            BasicFileAttributes a = Files.readAttributes(path, BasicFileAttributes.class);
+            return new FileStamp(a.size(), a.lastModifiedTime().toMillis(), a.fileKey());
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.garagemate.persistence;
+
+import com.garagemate.model.Garage;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compressed garage files for moving garages between sites
+ * An archive is a GZIP'd text snapshot, so plain gunzip gives back a normal garage file
+ * Both directions stream through fixed-size buffers, the decompressed text is never held in memory
+ *
+ * Each call reports its sizes and timing so we can see if compressing is worth it for a transfer
+ */
+public final class GarageArchive {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private GarageArchive() {}
+
+    /**
+     * Sizes and timing of one export or import
+     * rawBytes is the decompressed snapshot text, compressedBytes the archive on disk
+     */
+    public record Stats(long rawBytes, long compressedBytes, long elapsedNanos) {
+
+        /**
+         * How many times smaller the archive is than the plain snapshot
+         */
+        public double compressionRatio() {
+            return compressedBytes == 0 ? 0 : (double) rawBytes / compressedBytes;
+        }
+
+        /**
+         * Decompressed megabytes per second, the number that matters for load/save time
+         */
+        public double megabytesPerSecond() {
+            return elapsedNanos == 0 ? 0 : (rawBytes / (1024.0 * 1024.0)) / (elapsedNanos / 1e9);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%,d bytes -> %,d bytes (%.1fx) in %.1f ms, %.1f MB/s",
+                    rawBytes, compressedBytes, compressionRatio(), elapsedNanos / 1e6, megabytesPerSecond());
+        }
+    }
+
+    /**
+     * Writes the garage as an archive, through a temp file so a failed export never leaves half an archive
+     */
+    public static Stats export(Garage garage, Path archive) {
+        if (garage == null) throw new IllegalArgumentException("garage cannot be null");
+        long start = System.nanoTime();
+        Path tempFile = archive.resolveSibling(archive.getFileName() + ".tmp");
+
+        try {
+            Path dir = archive.toAbsolutePath().getParent();
+            Files.createDirectories(dir);
+
+            CountingOutputStream compressed;
+            CountingOutputStream raw;
+            try (FileChannel channel = FileChannel.open(tempFile,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                compressed = new CountingOutputStream(
+                        new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE));
+                GZIPOutputStream gzip = new GZIPOutputStream(compressed, BUFFER_SIZE);
+                try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(
+                        raw = new CountingOutputStream(gzip), StandardCharsets.UTF_8), BUFFER_SIZE)) {
+                    TextFileRepository.writeLines(writer, garage, false);
+                    writer.flush();
+                    gzip.finish(); // the trailer has to be on disk too before the swap
+                    compressed.flush();
+                    channel.force(true);
+                }
+            }
+
+            try {
+                Files.move(tempFile, archive, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, archive, StandardCopyOption.REPLACE_EXISTING);
+            }
+            TextFileRepository.syncDirectory(dir);
+            return new Stats(raw.count, compressed.count, System.nanoTime() - start);
+        } catch (IOException e) {
+            try {
+                Files.deleteIfExists(tempFile);
+            } catch (IOException ignored) {
+                // the original error is the one worth reporting
+            }
+            throw new RuntimeException("Failed to export garage to archive: " + archive, e);
+        }
+    }
+
+    /**
+     * Adds every vehicle in the archive to the garage
+     */
+    public static Stats importInto(Path archive, Garage garage) {
+        if (garage == null) throw new IllegalArgumentException("garage cannot be null");
+        long start = System.nanoTime();
+
+        try {
+            long compressedBytes = Files.size(archive);
+            CountingInputStream raw;
+            try (LineReader reader = new LineReader(new InputStreamReader(
+                    raw = new CountingInputStream(new GZIPInputStream(Files.newInputStream(archive), BUFFER_SIZE)),
+                    StandardCharsets.UTF_8))) {
+                TextFileRepository.readLines(reader, garage);
+            }
+            return new Stats(raw.count, compressedBytes, System.nanoTime() - start);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to import garage from archive: " + archive, e);
+        }
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+        long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b >= 0) count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, len);
+            if (n > 0) count += n;
+            return n;
+        }
+    }
+}
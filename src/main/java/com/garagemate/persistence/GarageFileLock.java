@@ -0,0 +1,134 @@
+package com.garagemate.persistence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Cross-process lock plus version stamp for a garage file, both live in a small file next to it
+ * Writers hold it exclusively for one write, readers share it for one snapshot read,
+ * so nobody waits longer than that. The stamp goes up by one with every committed write
+ *
+ * OS locks belong to the whole process, so threads of one process take turns on a
+ * local lock first and the OS only ever sees one holder per process
+ */
+final class GarageFileLock {
+
+    private static final ConcurrentHashMap<Path, ReentrantLock> LOCAL_LOCKS = new ConcurrentHashMap<>();
+
+    private final Path lockFile;
+    private final ReentrantLock local;
+
+    GarageFileLock(Path lockFile) {
+        this.lockFile = lockFile.toAbsolutePath().normalize();
+        this.local = LOCAL_LOCKS.computeIfAbsent(this.lockFile, k -> new ReentrantLock());
+    }
+
+    /**
+     * For reading the garage, other readers can hold it at the same time
+     */
+    Held shared() {
+        return acquire(true);
+    }
+
+    /**
+     * For writing the garage, waits for every reader and writer to finish
+     */
+    Held exclusive() {
+        return acquire(false);
+    }
+
+    private Held acquire(boolean shared) {
+        // the OS lock isn't reentrant, a nested acquire would deadlock or throw
+        if (local.isHeldByCurrentThread()) {
+            throw new IllegalStateException("garage file lock is already held by this thread");
+        }
+
+        local.lock();
+        try {
+            Path dir = lockFile.getParent();
+            if (dir != null) Files.createDirectories(dir);
+
+            FileChannel channel = FileChannel.open(lockFile,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try {
+                return new Held(channel, channel.lock(0, Long.MAX_VALUE, shared));
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        } catch (IOException e) {
+            local.unlock();
+            throw new RuntimeException("Failed to lock garage file: " + lockFile, e);
+        } catch (RuntimeException e) {
+            local.unlock();
+            throw e;
+        }
+    }
+
+    final class Held implements AutoCloseable {
+        private final FileChannel channel;
+        private final FileLock lock;
+
+        private Held(FileChannel channel, FileLock lock) {
+            this.channel = channel;
+            this.lock = lock;
+        }
+
+        /**
+         * The stamp of the last committed write, 0 for a garage that was never written under a lock
+         */
+        long version() {
+            try {
+                ByteBuffer buffer = ByteBuffer.allocate(32);
+                while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) > 0) {
+                    // small file, usually one read
+                }
+                String text = new String(buffer.array(), 0, buffer.position(), StandardCharsets.US_ASCII).trim();
+                return text.isEmpty() ? 0 : Long.parseLong(text);
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to read garage version: " + lockFile, e);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid garage version in " + lockFile, e);
+            }
+        }
+
+        /**
+         * Records a write and returns its stamp
+         * Not fsynced: a crash that loses it takes down every process that could compare it
+         */
+        long commit() {
+            if (lock.isShared()) throw new IllegalStateException("a shared lock can't commit a write");
+            long next = version() + 1;
+            try {
+                channel.truncate(0);
+                ByteBuffer buffer = StandardCharsets.US_ASCII.encode(next + "\n");
+                long position = 0;
+                while (buffer.hasRemaining()) {
+                    position += channel.write(buffer, position);
+                }
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to write garage version: " + lockFile, e);
+            }
+            return next;
+        }
+
+        @Override
+        public void close() {
+            try (channel) {
+                lock.release();
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to unlock garage file: " + lockFile, e);
+            } finally {
+                local.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package com.garagemate.persistence;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Checks a text garage file line by line and moves bad lines out of the way
+ *
+ * A checksummed file (see LineChecksum) is verified on raw bytes with CRC32C,
+ * nothing is decoded or parsed, so it runs at close to disk speed.
+ * A file without checksums falls back to parsing each line on its own
+ *
+ * Usage: GarageFileVerifier verify garage-data.txt
+ *        GarageFileVerifier repair garage-data.txt          bad lines go to garage-data.txt.quarantine
+ *        GarageFileVerifier add-checksums garage-data.txt   later saves keep the checksums
+ */
+public final class GarageFileVerifier {
+
+    private static final int MAX_REPORTED_LINES = 1000;
+    private static final byte[] FORMAT_HEADER_BYTES = TextFileRepository.FORMAT_HEADER.getBytes(StandardCharsets.UTF_8);
+
+    private GarageFileVerifier() {}
+
+    /**
+     * badLines holds the first bad line numbers (1-based), badLineCount is the real total
+     */
+    public record Report(boolean checksummed, long lines, long bytes,
+                         long badLineCount, List<Long> badLines, long elapsedNanos) {
+
+        public boolean isClean() {
+            return badLineCount == 0;
+        }
+
+        @Override
+        public String toString() {
+            double seconds = elapsedNanos / 1e9;
+            return String.format("%,d lines (%s), %,d bad, %.1f MB/s%s",
+                    lines, checksummed ? "crc32c" : "parsed", badLineCount,
+                    seconds == 0 ? 0 : bytes / (1024.0 * 1024.0) / seconds,
+                    badLines.isEmpty() ? "" : ", bad lines: " + badLines);
+        }
+    }
+
+    public static Report verify(Path file) {
+        return scan(file, null, null);
+    }
+
+    /**
+     * Rewrites the file with only its good lines and appends the bad ones to file.quarantine
+     * Loading the repaired file gives everything that was still good
+     * (records whose vehicle line was quarantined are dropped, same as any orphan record)
+     */
+    public static Report repair(Path file) {
+        // holds off other writers, a repair that drops lines counts as a write
+        try (GarageFileLock.Held lock = lockFor(file).exclusive()) {
+            Report report = rewriteGoodLines(file);
+            if (!report.isClean()) lock.commit();
+            return report;
+        }
+    }
+
+    private static Report rewriteGoodLines(Path file) {
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        Path quarantine = file.resolveSibling(file.getFileName() + ".quarantine");
+
+        Report report;
+        try (FileChannel good = FileChannel.open(tempFile,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+             OutputStream goodOut = new BufferedOutputStream(Channels.newOutputStream(good), 64 * 1024);
+             OutputStream badOut = new BufferedOutputStream(Files.newOutputStream(quarantine,
+                     StandardOpenOption.CREATE, StandardOpenOption.APPEND))) {
+            report = scan(file, goodOut, badOut);
+            goodOut.flush();
+            good.force(true);
+        } catch (IOException e) {
+            deleteQuietly(tempFile);
+            throw new RuntimeException("Failed to repair garage file: " + file, e);
+        } catch (RuntimeException e) {
+            deleteQuietly(tempFile);
+            throw e;
+        }
+
+        try {
+            if (report.isClean()) {
+                // nothing to move, leave the original (and its timestamps) alone
+                Files.delete(tempFile);
+                if (Files.size(quarantine) == 0) Files.delete(quarantine);
+                return report;
+            }
+            try {
+                Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            TextFileRepository.syncDirectory(file.toAbsolutePath().getParent()); // so the rename survives a crash
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to repair garage file: " + file, e);
+        }
+        return report;
+    }
+
+    /**
+     * Signs every line of a file that has no checksums yet
+     * Refuses a file with bad lines, signing them would make them look good
+     */
+    public static void addChecksums(Path file) {
+        // what's stored doesn't change, so the version stays put
+        GarageFileLock.Held lock = lockFor(file).exclusive();
+        try (lock) {
+            signLines(file);
+        }
+    }
+
+    private static void signLines(Path file) {
+        if (LineChecksum.hasHeader(file)) return;
+        Report report = verify(file);
+        if (!report.isClean()) {
+            throw new IllegalArgumentException("Repair the file before adding checksums: " + report);
+        }
+
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ);
+                 FileChannel outChannel = FileChannel.open(tempFile,
+                         StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                 OutputStream out = new BufferedOutputStream(Channels.newOutputStream(outChannel), 64 * 1024)) {
+
+                boolean legacy = TextFileRepository.isLegacyFormat(in);
+                out.write(LineChecksum.HEADER.getBytes(StandardCharsets.UTF_8));
+                out.write('\n');
+                ByteLines.forEach(in, (buf, start, end, offset, nextOffset) -> {
+                    if (isBlank(buf, start, end)) return; // blank lines carry nothing
+                    if (offset == 0 && !legacy) return;   // the format header, the checksum header replaces it
+                    if (legacy) {
+                        // the checksum header means every field is escaped, so old lines are upgraded on the way
+                        byte[] line = TextFileRepository.upgradeLegacyLine(
+                                new String(buf, start, end - start, StandardCharsets.UTF_8)).getBytes(StandardCharsets.UTF_8);
+                        out.write(line);
+                        out.write(LineChecksum.suffix(line, 0, line.length));
+                    } else {
+                        out.write(buf, start, end - start);
+                        out.write(LineChecksum.suffix(buf, start, end));
+                    }
+                    out.write('\n');
+                });
+                out.flush();
+                outChannel.force(true);
+            }
+            try {
+                Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            TextFileRepository.syncDirectory(file.toAbsolutePath().getParent()); // so the rename survives a crash
+        } catch (IOException e) {
+            deleteQuietly(tempFile);
+            throw new RuntimeException("Failed to add checksums to garage file: " + file, e);
+        }
+    }
+
+    // one pass over the file, good and bad lines are copied to the given streams when they're not null
+    private static Report scan(Path file, OutputStream goodOut, OutputStream badOut) {
+        long startNanos = System.nanoTime();
+        boolean checksummed = LineChecksum.hasHeader(file);
+        Tally tally = new Tally();
+        CRC32C crc = new CRC32C();
+        LineScanner scanner = new LineScanner();
+        String fileName = file.getFileName().toString();
+
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            tally.bytes = in.size();
+            scanner.legacyEscapes(TextFileRepository.isLegacyFormat(in));
+            ByteLines.forEach(in, (buf, start, end, offset, nextOffset) -> {
+                tally.lines++;
+                boolean ok = checksummed
+                        ? isBlank(buf, start, end) || (tally.lines == 1 && isFileHeader(buf, start, end))
+                                || LineChecksum.matches(buf, start, end, crc)
+                        : parses(buf, start, end, tally.lines == 1, scanner);
+
+                if (ok) {
+                    if (goodOut != null) {
+                        goodOut.write(buf, start, end - start);
+                        goodOut.write('\n');
+                    }
+                    return;
+                }
+
+                tally.bad(tally.lines);
+                if (badOut != null) {
+                    badOut.write(("# " + fileName + " line " + tally.lines + "\n").getBytes(StandardCharsets.UTF_8));
+                    badOut.write(buf, start, end - start);
+                    badOut.write('\n');
+                }
+            });
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to verify garage file: " + file, e);
+        }
+
+        return new Report(checksummed, tally.lines, tally.bytes, tally.badCount,
+                List.copyOf(tally.badLines), System.nanoTime() - startNanos);
+    }
+
+    // without checksums the only test is whether the loader could use the line
+    private static boolean parses(byte[] buf, int start, int end, boolean firstLine, LineScanner scanner) {
+        if (isBlank(buf, start, end)) return true;
+        if (firstLine && isFileHeader(buf, start, end)) return true;
+
+        scanner.reset(new String(buf, start, end - start, StandardCharsets.UTF_8));
+        try {
+            if (scanner.lineStartsWith("V|")) {
+                TextFileRepository.parseVehicleLine(scanner);
+                return true;
+            }
+            if (scanner.lineStartsWith("R|")) {
+                scanner.skipField(); // "R"
+                scanner.skipField(); // vehicleId
+                TextFileRepository.parseRecordFields(scanner);
+                return true;
+            }
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        // the loader skips anything else, in a snapshot that usually means a mangled V or R line,
+        // a '#' line past the header included
+        return false;
+    }
+
+    // only the exact header counts, a damaged one is a bad line like any other
+    private static boolean isFileHeader(byte[] buf, int start, int end) {
+        return LineChecksum.isHeader(buf, start, end)
+                || Arrays.equals(buf, start, end, FORMAT_HEADER_BYTES, 0, FORMAT_HEADER_BYTES.length);
+    }
+
+    // same lock TextFileRepository takes for this file
+    private static GarageFileLock lockFor(Path file) {
+        return new GarageFileLock(file.resolveSibling(file.getFileName() + ".lock"));
+    }
+
+    private static boolean isBlank(byte[] buf, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (buf[i] != ' ' && buf[i] != '\t') return false;
+        }
+        return true;
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+            // the original error is the one worth reporting
+        }
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.err.println("Usage: GarageFileVerifier <verify|repair|add-checksums> <file>");
+            System.exit(2);
+        }
+
+        Path file = Paths.get(args[1]);
+        switch (args[0]) {
+            case "verify" -> {
+                Report report = verify(file);
+                System.out.println(file + ": " + report);
+                if (!report.isClean()) System.exit(1);
+            }
+            case "repair" -> System.out.println(file + ": " + repair(file));
+            case "add-checksums" -> {
+                addChecksums(file);
+                System.out.println(file + ": checksums added");
+            }
+            default -> throw new IllegalArgumentException("Unknown command: " + args[0]);
+        }
+    }
+
+    private static final class Tally {
+        long lines;
+        long bytes;
+        long badCount;
+        final List<Long> badLines = new ArrayList<>();
+
+        void bad(long line) {
+            badCount++;
+            if (badLines.size() < MAX_REPORTED_LINES) badLines.add(line);
+        }
+    }
+}
@@ -0,0 +1,567 @@
+package com.garagemate.persistence;
+
+import com.garagemate.model.Garage;
+import com.garagemate.model.GarageChanges;
+import com.garagemate.model.MaintenanceRecord;
+import com.garagemate.model.VehicleBase;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Watches a text garage file (and its journals) for changes made by other tools
+ * and reports only the vehicles whose stored lines changed
+ *
+ * The snapshot is fingerprinted per vehicle with a hash over the vehicle's V and R lines.
+ * When the snapshot is replaced it's re-hashed on raw bytes (nothing decoded) and only vehicles
+ * whose hash moved are parsed. The journals are tailed from the last offset, so an appended
+ * entry costs the size of that entry. Changes are found on the watcher's own thread,
+ * the listener gets fresh vehicles it can merge with applyStoredChanges
+ *
+ * Bad lines are handled like the loaders do: checksums are checked when the snapshot has them,
+ * a line that fails or doesn't parse is skipped and reported, the rest of the vehicle still comes back.
+ * What was seen only becomes the new baseline once every changed vehicle was built
+ */
+public class GarageFileWatcher implements Closeable {
+
+    // writers touch the snapshot and journal in a few steps, wait for them to go quiet
+    private static final long SETTLE_MILLIS = 100;
+
+    private final Path file;
+    private final Consumer<GarageChanges> listener;
+    private final Consumer<Exception> onFailure;
+    private volatile Consumer<SkippedLine> onSkippedLine = line -> System.err.println("Skipped " + line);
+
+    // guarded by this, both replaced as a whole by a check that went through
+    private Snapshot snapshot = new Snapshot(null, null, false, Map.of());
+    private List<JournalTail> journals;
+
+    private WatchService watchService;
+    private Thread thread;
+
+    public GarageFileWatcher(Path file, Consumer<GarageChanges> listener) {
+        this(file, listener, e -> System.err.println("Garage file reload failed: " + e.getMessage()));
+    }
+
+    /**
+     * @param onFailure called on the watcher thread when the files can't be read,
+     *                  watching goes on and the next change is picked up as usual
+     */
+    public GarageFileWatcher(Path file, Consumer<GarageChanges> listener, Consumer<Exception> onFailure) {
+        if (file == null) throw new IllegalArgumentException("file cannot be null");
+        if (listener == null) throw new IllegalArgumentException("listener cannot be null");
+        if (onFailure == null) throw new IllegalArgumentException("onFailure cannot be null");
+        this.file = file.toAbsolutePath();
+        this.listener = listener;
+        this.onFailure = onFailure;
+        // same order loadGarage replays them in
+        this.journals = List.of(
+                new JournalTail(this.file.resolveSibling(this.file.getFileName() + ".journal.compacting")),
+                new JournalTail(this.file.resolveSibling(this.file.getFileName() + ".journal")));
+    }
+
+    /**
+     * Where lines that can't be used go, called on the watcher thread
+     * Same lines the loaders skip, see TextFileRepository.setOnSkippedLine
+     */
+    public void setOnSkippedLine(Consumer<SkippedLine> onSkippedLine) {
+        if (onSkippedLine == null) throw new IllegalArgumentException("onSkippedLine cannot be null");
+        this.onSkippedLine = onSkippedLine;
+    }
+
+    /**
+     * Starts watching on a daemon thread, the files as they are now are the baseline
+     */
+    public synchronized void start() {
+        if (thread != null) throw new IllegalStateException("watcher already started");
+        try {
+            watchService = file.getFileSystem().newWatchService();
+            file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to watch garage file: " + file, e);
+        }
+
+        thread = new Thread(this::watchLoop, "garage-file-watcher");
+        thread.setDaemon(true); // never keep the app alive just to watch
+        thread.start();
+    }
+
+    private void watchLoop() {
+        WatchService watcher = watchService;
+        try {
+            // the baseline is taken here so a big file doesn't hold up the caller,
+            // events that arrive meanwhile are already queued
+            try {
+                readBaseline();
+            } catch (RuntimeException e) {
+                onFailure.accept(e);
+            }
+
+            while (true) {
+                WatchKey key = watcher.take();
+                boolean relevant = drain(key);
+
+                // keep collecting until the writer is done, then look once
+                WatchKey more;
+                while ((more = watcher.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    relevant |= drain(more);
+                }
+                if (!relevant) continue;
+
+                try {
+                    GarageChanges changes = checkForChanges();
+                    if (!changes.isEmpty()) listener.accept(changes);
+                } catch (RuntimeException e) {
+                    // usually a file caught mid-write, the writer's next event brings us back
+                    onFailure.accept(e);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // closed
+        }
+    }
+
+    private boolean drain(WatchKey key) {
+        boolean relevant = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                relevant = true; // lost events, just look
+                continue;
+            }
+            String name = event.context().toString();
+            relevant |= name.startsWith(file.getFileName().toString())
+                    && !name.endsWith(".tmp") && !name.endsWith(".lock");
+        }
+        key.reset();
+        return relevant;
+    }
+
+    /**
+     * Remembers the files as they are now without reporting anything
+     */
+    synchronized void readBaseline() {
+        Snapshot next = null;
+        try {
+            // bad lines were already reported by whoever loaded the garage
+            List<SkippedLine> ignoredLines = new ArrayList<>();
+            Set<String> ignored = new HashSet<>();
+            next = refreshSnapshot(ignored, ignoredLines);
+            List<JournalTail> nextJournals = new ArrayList<>();
+            for (JournalTail journal : journals) {
+                nextJournals.add(journal.refreshed(ignored, ignoredLines));
+            }
+            commit(next, nextJournals);
+        } catch (IOException e) {
+            discard(next);
+            throw new RuntimeException("Failed to read garage file: " + file, e);
+        } catch (RuntimeException e) {
+            discard(next);
+            throw e;
+        }
+    }
+
+    /**
+     * Compares the files with what was seen last time and returns the difference
+     * Each changed vehicle is rebuilt from its snapshot lines plus its journal entries,
+     * a vehicle no longer stored shows up as a removed id. A vehicle whose lines only moved
+     * (like a compaction folding its journal entries in) comes back unchanged, the merge skips it.
+     * If the files can't be read nothing moves, the next check looks at the same difference again
+     */
+    synchronized GarageChanges checkForChanges() {
+        Set<String> touched = new LinkedHashSet<>();
+        List<SkippedLine> skipped = new ArrayList<>();
+        Snapshot next = null;
+        try {
+            next = refreshSnapshot(touched, skipped);
+            List<JournalTail> nextJournals = new ArrayList<>();
+            for (JournalTail journal : journals) {
+                nextJournals.add(journal.refreshed(touched, skipped));
+            }
+
+            Set<String> removed = new LinkedHashSet<>();
+            List<VehicleBase> changed = new ArrayList<>();
+            for (String id : touched) {
+                VehicleBase v = materialize(id, next, nextJournals, skipped);
+                if (v == null) removed.add(id);
+                else changed.add(v);
+            }
+
+            // everything was built, only now is it the baseline for the next check
+            commit(next, nextJournals);
+            skipped.forEach(onSkippedLine);
+            return new GarageChanges(removed, changed);
+        } catch (IOException e) {
+            discard(next);
+            throw new RuntimeException("Failed to reload garage file: " + file, e);
+        } catch (RuntimeException e) {
+            discard(next);
+            throw e;
+        }
+    }
+
+    private void commit(Snapshot next, List<JournalTail> nextJournals) throws IOException {
+        if (next != snapshot && snapshot.channel != null) snapshot.channel.close();
+        snapshot = next;
+        journals = List.copyOf(nextJournals);
+    }
+
+    // a snapshot opened for a check that didn't go through
+    private void discard(Snapshot next) {
+        if (next == null || next == snapshot || next.channel == null) return;
+        try {
+            next.channel.close();
+        } catch (IOException ignored) {
+            // only read from, the original error is the one worth reporting
+        }
+    }
+
+    // ---- snapshot ----
+
+    // the current snapshot when it didn't change, otherwise a freshly scanned one (not yet the baseline)
+    private Snapshot refreshSnapshot(Set<String> touched, List<SkippedLine> skipped) throws IOException {
+        FileStamp stamp = FileStamp.of(file);
+        if (Objects.equals(stamp, snapshot.stamp)) return snapshot;
+
+        Map<String, Block> scanned = new HashMap<>();
+        FileChannel channel = null;
+        boolean legacy = false;
+        if (stamp != null) {
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+            try {
+                legacy = TextFileRepository.isLegacyFormat(channel);
+                scan(channel, scanned, legacy, file.toString(), skipped);
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        Map<String, Block> blocks = snapshot.blocks;
+        for (Map.Entry<String, Block> e : scanned.entrySet()) {
+            Block before = blocks.get(e.getKey());
+            Block after = e.getValue();
+            if (before == null || before.hash != after.hash || before.hasVehicle != after.hasVehicle) {
+                touched.add(e.getKey());
+            }
+        }
+        for (String id : blocks.keySet()) {
+            if (!scanned.containsKey(id)) touched.add(id);
+        }
+        return new Snapshot(stamp, channel, legacy, scanned);
+    }
+
+    // hashes each vehicle's lines without decoding them, ids are only turned into Strings when they change
+    // a line whose checksum doesn't match is left out, so it's in no vehicle's hash or lines
+    private static void scan(FileChannel channel, Map<String, Block> scanned, boolean legacy,
+                             String source, List<SkippedLine> skipped) throws IOException {
+        CRC32C crc = new CRC32C();
+        LineScanner scanner = new LineScanner().legacyEscapes(legacy);
+        byte[][] lastId = {new byte[0]};
+        Block[] last = {null};
+        boolean[] checksummed = {false};
+
+        ByteLines.forEach(channel, (buf, start, end, offset, nextOffset) -> {
+            if (offset == 0 && LineChecksum.isHeader(buf, start, end)) {
+                checksummed[0] = true;
+                return;
+            }
+            if (checksummed[0] && !isBlank(buf, start, end) && !LineChecksum.matches(buf, start, end, crc)) {
+                skipped.add(new SkippedLine(source,
+                        new String(buf, start, end - start, StandardCharsets.UTF_8), "checksum mismatch"));
+                return;
+            }
+
+            boolean vehicleLine = startsWith(buf, start, end, 'V');
+            if (!vehicleLine && !startsWith(buf, start, end, 'R')) return; // blank or unknown line
+
+            int idStart = start + 2;
+            if (vehicleLine) idStart = ByteLines.fieldEnd(buf, idStart, end, legacy) + 1; // past the type
+            int idEnd = ByteLines.fieldEnd(buf, Math.min(idStart, end), end, legacy);
+
+            Block block = last[0];
+            if (block == null || !Arrays.equals(lastId[0], 0, lastId[0].length, buf, idStart, idEnd)) {
+                String id = scanner.reset(new String(buf, idStart, idEnd - idStart, StandardCharsets.UTF_8))
+                        .nextString();
+                block = scanned.computeIfAbsent(id, k -> new Block());
+                last[0] = block;
+                lastId[0] = Arrays.copyOfRange(buf, idStart, idEnd);
+            }
+
+            crc.reset();
+            crc.update(buf, start, end - start);
+            block.add(crc.getValue(), offset, nextOffset);
+            if (vehicleLine) block.hasVehicle = true;
+        });
+    }
+
+    private static boolean startsWith(byte[] buf, int start, int end, char type) {
+        return end - start >= 2 && buf[start] == type && buf[start + 1] == '|';
+    }
+
+    private static boolean isBlank(byte[] buf, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (buf[i] != ' ' && buf[i] != '\t') return false;
+        }
+        return true;
+    }
+
+    // the vehicle as a fresh load would see it, or null when it isn't stored anymore
+    // lines that don't parse or don't fit are skipped one by one, like the loader does
+    private VehicleBase materialize(String id, Snapshot snapshot, List<JournalTail> journals,
+                                           List<SkippedLine> skipped) throws IOException {
+        Garage garage = new Garage();
+        Block block = snapshot.blocks.get(id);
+        if (block != null && block.hasVehicle) {
+            VehicleBase v = readBlock(block, snapshot, skipped);
+            if (v != null) garage.addVehicle(v);
+        }
+
+        LineScanner scanner = new LineScanner();
+        for (JournalTail journal : journals) {
+            List<String> entries = journal.entriesById.get(id);
+            if (entries == null) continue;
+            scanner.legacyEscapes(journal.legacy);
+            for (String entry : entries) {
+                try {
+                    TextFileRepository.applyJournalEntry(garage, scanner.reset(entry));
+                } catch (IllegalArgumentException e) {
+                    skipped.add(new SkippedLine(journal.path.toString(), entry, e.getMessage()));
+                }
+            }
+        }
+        return garage.containsVehicle(id) ? garage.getVehicleById(id) : null;
+    }
+
+    // null when the vehicle line itself is bad, its records go with it like any orphan
+    private VehicleBase readBlock(Block block, Snapshot snapshot, List<SkippedLine> skipped) throws IOException {
+        LineScanner scanner = new LineScanner().legacyEscapes(snapshot.legacy);
+        String source = file.toString();
+        VehicleBase[] vehicle = {null};
+        List<MaintenanceRecord> records = new ArrayList<>();
+
+        for (int r = 0; r < block.count; r++) {
+            long from = block.bounds[r * 2];
+            ByteBuffer bytes = ByteBuffer.allocate((int) (block.bounds[r * 2 + 1] - from));
+            while (bytes.hasRemaining()) {
+                if (snapshot.channel.read(bytes, from + bytes.position()) < 0) {
+                    throw new IOException("Garage file changed while it was being read");
+                }
+            }
+
+            ByteLines.forEach(Channels.newChannel(new ByteArrayInputStream(bytes.array())),
+                    (buf, start, end, offset, nextOffset) -> {
+                        scanner.reset(new String(buf, start, end - start, StandardCharsets.UTF_8));
+                        try {
+                            if (scanner.lineStartsWith("V|")) {
+                                VehicleBase v = TextFileRepository.parseVehicleLine(scanner);
+                                if (vehicle[0] != null) {
+                                    throw new IllegalArgumentException("Duplicate vehicleId: " + v.getVehicleId());
+                                }
+                                vehicle[0] = v;
+                            } else {
+                                scanner.skipField(); // "R"
+                                scanner.skipField(); // vehicleId, the block only holds this vehicle's lines
+                                records.add(TextFileRepository.parseRecordFields(scanner));
+                            }
+                        } catch (IllegalArgumentException e) {
+                            skipped.add(new SkippedLine(source, scanner.line(), e.getMessage()));
+                        }
+                    });
+        }
+        if (vehicle[0] == null) return null;
+
+        // records can come before their vehicle line, attach them once it's built
+        for (MaintenanceRecord record : records) {
+            TextFileRepository.addRecord(vehicle[0], record, source, skipped::add);
+        }
+        return vehicle[0];
+    }
+
+    // ---- merging ----
+
+    /**
+     * Merges changes from the watcher into a garage that's being edited, returns true if anything changed
+     * Local edits that aren't saved yet win, their save will overwrite the stored copy anyway.
+     * Vehicles that already match what's stored (like after our own save) are left alone.
+     * Nothing merged here counts as a change to save
+     */
+    public static boolean applyStoredChanges(Garage garage, GarageChanges changes) {
+        boolean applied = false;
+        for (String id : changes.removedVehicleIds()) {
+            VehicleBase local = garage.getVehicleById(id);
+            if (local != null && !local.isDirty()) {
+                applied |= garage.forgetVehicle(id);
+            }
+        }
+        for (VehicleBase stored : changes.changedVehicles()) {
+            String id = stored.getVehicleId();
+            if (garage.isRemovedSinceSave(id)) continue;
+
+            VehicleBase local = garage.getVehicleById(id);
+            if (local != null && (local.isDirty() || sameAsStored(local, stored))) continue;
+
+            VehicleBase copy = stored.copy();
+            copy.markClean();
+            garage.putVehicle(copy);
+            applied = true;
+        }
+        return applied;
+    }
+
+    // compared in file form, which is exactly what a save would write
+    private static boolean sameAsStored(VehicleBase local, VehicleBase stored) {
+        if (!TextFileRepository.toVehicleLine(local).equals(TextFileRepository.toVehicleLine(stored))) return false;
+
+        List<MaintenanceRecord> a = local.getMaintenanceHistory();
+        List<MaintenanceRecord> b = stored.getMaintenanceHistory();
+        if (a.size() != b.size()) return false;
+        for (int i = 0; i < a.size(); i++) {
+            if (!TextFileRepository.toRecordLine(local.getVehicleId(), a.get(i))
+                    .equals(TextFileRepository.toRecordLine(stored.getVehicleId(), b.get(i)))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (thread != null) {
+            thread.interrupt();
+            watchService.close();
+        }
+        if (snapshot.channel != null) {
+            snapshot.channel.close();
+            snapshot = new Snapshot(null, null, false, Map.of());
+        }
+    }
+
+    // the snapshot the blocks point into, legacy when it has no format header (see LineScanner.legacyEscapes)
+    private static final class Snapshot {
+        final FileStamp stamp;
+        final FileChannel channel;
+        final boolean legacy;
+        final Map<String, Block> blocks;
+
+        Snapshot(FileStamp stamp, FileChannel channel, boolean legacy, Map<String, Block> blocks) {
+            this.stamp = stamp;
+            this.channel = channel;
+            this.legacy = legacy;
+            this.blocks = blocks;
+        }
+    }
+
+    // one vehicle's lines in the snapshot: a hash over them and their byte ranges [start, end)
+    private static final class Block {
+        long hash;
+        boolean hasVehicle;
+        long[] bounds = new long[4];
+        int count;
+
+        void add(long lineHash, long start, long end) {
+            hash = Long.rotateLeft(hash, 19) ^ (lineHash * 0x9E3779B97F4A7C15L);
+            if (count > 0 && bounds[count * 2 - 1] == start) {
+                bounds[count * 2 - 1] = end; // records are saved grouped, so nearly always one run
+                return;
+            }
+            if (count * 2 == bounds.length) bounds = Arrays.copyOf(bounds, bounds.length * 2);
+            bounds[count * 2] = start;
+            bounds[count * 2 + 1] = end;
+            count++;
+        }
+    }
+
+    // reads a journal from where it left off, entries are kept per vehicle until the journal is reset
+    // never changed once built, a check that reads further gets a new tail and only keeps it if it goes through
+    private static final class JournalTail {
+        final Path path;
+        final Map<String, List<String>> entriesById;
+        final FileStamp stamp;
+        final long offset;
+        final boolean legacy; // no format header, decided by the first line
+
+        JournalTail(Path path) {
+            this(path, Map.of(), null, 0, false);
+        }
+
+        private JournalTail(Path path, Map<String, List<String>> entriesById, FileStamp stamp, long offset,
+                            boolean legacy) {
+            this.path = path;
+            this.entriesById = entriesById;
+            this.stamp = stamp;
+            this.offset = offset;
+            this.legacy = legacy;
+        }
+
+        JournalTail refreshed(Set<String> touched, List<SkippedLine> skipped) throws IOException {
+            FileStamp now = FileStamp.of(path);
+            if (Objects.equals(now, stamp)) return this;
+
+            // gone, replaced or cut short: whatever it held no longer applies
+            Map<String, List<String>> entries = new HashMap<>(entriesById);
+            long base = offset;
+            boolean[] legacyNow = {legacy};
+            if (now == null || stamp == null || !Objects.equals(now.key(), stamp.key()) || now.size() < offset) {
+                touched.addAll(entriesById.keySet());
+                entries.clear();
+                base = 0;
+            }
+            if (now == null || now.size() == base) return new JournalTail(path, entries, now, base, legacyNow[0]);
+
+            // lists shared with this tail are copied before the first append
+            Set<String> copied = new HashSet<>();
+            LineScanner scanner = new LineScanner();
+            long start0 = base;
+            long[] end = {base};
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                channel.position(start0);
+                ByteLines.forEach(channel, (buf, start, stop, lineOffset, nextOffset) -> {
+                    // a line without its terminator is still being written, pick it up next time
+                    if (nextOffset - lineOffset == stop - start) return;
+                    end[0] = start0 + nextOffset;
+                    if (start0 + lineOffset == 0) {
+                        legacyNow[0] = !TextFileRepository.isFormatHeader(
+                                new String(buf, start, stop - start, StandardCharsets.UTF_8));
+                        if (!legacyNow[0]) return;
+                    }
+                    if (start == stop) return;
+
+                    String entry = new String(buf, start, stop - start, StandardCharsets.UTF_8);
+                    String id;
+                    try {
+                        id = entryVehicleId(scanner.legacyEscapes(legacyNow[0]).reset(entry));
+                    } catch (IllegalArgumentException e) {
+                        skipped.add(new SkippedLine(path.toString(), entry, e.getMessage()));
+                        return;
+                    }
+                    if (copied.add(id)) {
+                        List<String> before = entries.get(id);
+                        entries.put(id, before == null ? new ArrayList<>() : new ArrayList<>(before));
+                    }
+                    entries.get(id).add(entry);
+                    touched.add(id);
+                });
+            }
+            return new JournalTail(path, entries, now, end[0], legacyNow[0]);
+        }
+
+        // V|type|id, U|type|id, E|type|id, anything else has the id right after the tag
+        private static String entryVehicleId(LineScanner s) {
+            boolean typed = s.lineStartsWith("V|") || s.lineStartsWith("U|") || s.lineStartsWith("E|");
+            s.skipField();
+            if (typed) s.skipField();
+            return s.nextString();
+        }
+    }
+}
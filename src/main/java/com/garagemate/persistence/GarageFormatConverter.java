@@ -0,0 +1,66 @@
+package com.garagemate.persistence;
+
+import com.garagemate.model.Garage;
+
+import java.nio.file.Paths;
+
+/**
+ * Converts garage files between the text and binary formats
+ * Both formats store every field, so a round trip gives back the same garage
+ *
+ * Usage: GarageFormatConverter to-binary garage-data.txt garage-data.gmb
+ *        GarageFormatConverter to-text garage-data.gmb garage-data.txt
+ *        GarageFormatConverter to-archive garage-data.txt garage-data.txt.gz
+ *        GarageFormatConverter from-archive garage-data.txt.gz garage-data.txt
+ */
+public class GarageFormatConverter {
+
+    private GarageFormatConverter() {}
+
+    /**
+     * Any journaled changes next to the text file are folded in first
+     */
+    public static Garage textToBinary(String textPath, String binaryPath) {
+        Garage garage = new TextFileRepository(textPath).loadGarage();
+        new BinaryGarageRepository(binaryPath).saveGarage(garage);
+        return garage;
+    }
+
+    public static Garage binaryToText(String binaryPath, String textPath) {
+        Garage garage = new BinaryGarageRepository(binaryPath).loadGarage();
+        new TextFileRepository(textPath).saveGarage(garage);
+        return garage;
+    }
+
+    public static GarageArchive.Stats textToArchive(String textPath, String archivePath) {
+        Garage garage = new TextFileRepository(textPath).loadGarage();
+        return GarageArchive.export(garage, Paths.get(archivePath));
+    }
+
+    public static GarageArchive.Stats archiveToText(String archivePath, String textPath) {
+        Garage garage = new Garage();
+        GarageArchive.Stats stats = GarageArchive.importInto(Paths.get(archivePath), garage);
+        new TextFileRepository(textPath).saveGarage(garage);
+        return stats;
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 3) {
+            System.err.println("Usage: GarageFormatConverter <to-binary|to-text|to-archive|from-archive> <source> <target>");
+            System.exit(2);
+        }
+
+        switch (args[0]) {
+            case "to-archive" -> System.out.println("Archived " + args[1] + ": " + textToArchive(args[1], args[2]));
+            case "from-archive" -> System.out.println("Restored " + args[2] + ": " + archiveToText(args[1], args[2]));
+            default -> {
+                Garage garage = switch (args[0]) {
+                    case "to-binary" -> textToBinary(args[1], args[2]);
+                    case "to-text" -> binaryToText(args[1], args[2]);
+                    default -> throw new IllegalArgumentException("Unknown direction: " + args[0]);
+                };
+                System.out.println("Converted " + garage.size() + " vehicles to " + args[2]);
+            }
+        }
+    }
+}
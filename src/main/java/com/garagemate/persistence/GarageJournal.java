@@ -0,0 +1,133 @@
+package com.garagemate.persistence;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Append-only log of garage changes that sits next to the snapshot file
+ * One line per mutation, so a save costs the size of the change instead of the whole garage
+ * A new journal starts with the snapshot's format header, journals without one use the old escapes
+ */
+public class GarageJournal {
+
+    private final Path journalPath;
+
+    public GarageJournal(Path journalPath) {
+        if (journalPath == null) throw new IllegalArgumentException("journalPath cannot be null");
+        this.journalPath = journalPath;
+    }
+
+    public Path getPath() {
+        return journalPath;
+    }
+
+    public void append(String entry) {
+        append(List.of(entry));
+    }
+
+    /**
+     * Appends the entries and fsyncs them before returning, so a journaled change survives a crash
+     */
+    public synchronized void append(List<String> entries) {
+        StringBuilder sb = new StringBuilder();
+        for (String entry : entries) {
+            sb.append(entry).append(System.lineSeparator());
+        }
+
+        try {
+            Path parent = journalPath.getParent();
+            if (parent != null) Files.createDirectories(parent);
+
+            try (FileChannel channel = FileChannel.open(journalPath,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                // writers hold the file lock, so only one of them can find it empty
+                if (channel.size() == 0) sb.insert(0, TextFileRepository.FORMAT_HEADER + System.lineSeparator());
+                ByteBuffer buffer = StandardCharsets.UTF_8.encode(sb.toString());
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to append to journal: " + journalPath, e);
+        }
+    }
+
+    /**
+     * Streams every entry in the order it was written, blank lines and the header are skipped
+     */
+    public void forEachEntry(Consumer<String> action) {
+        forEachEntry(new LineScanner(), s -> action.accept(s.line()));
+    }
+
+    /**
+     * Same, each entry is handed over in the scanner, set to the escape rules of this journal
+     */
+    synchronized void forEachEntry(LineScanner scanner, Consumer<LineScanner> action) {
+        if (!Files.exists(journalPath)) return;
+
+        try (BufferedReader reader = Files.newBufferedReader(journalPath, StandardCharsets.UTF_8)) {
+            String line = reader.readLine();
+            boolean legacy = line == null || !TextFileRepository.isFormatHeader(line);
+            scanner.legacyEscapes(legacy);
+            if (!legacy) line = reader.readLine();
+            for (; line != null; line = reader.readLine()) {
+                if (line.isBlank()) continue;
+                action.accept(scanner.reset(line));
+            }
+        } catch (NoSuchFileException e) {
+            // another process folded it into the snapshot between the check and the open
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read journal: " + journalPath, e);
+        }
+    }
+
+    /**
+     * Drops every entry, called once a fresh snapshot already contains them
+     */
+    public synchronized void reset() {
+        try {
+            Files.deleteIfExists(journalPath);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to reset journal: " + journalPath, e);
+        }
+    }
+
+    public synchronized boolean exists() {
+        return Files.exists(journalPath);
+    }
+
+    /**
+     * Atomically renames the journal so new appends start a fresh file
+     * Returns false when there is nothing to move
+     */
+    public synchronized boolean moveTo(Path target) {
+        if (!Files.exists(journalPath)) return false;
+        try {
+            Files.move(journalPath, target, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to rotate journal: " + journalPath, e);
+        }
+    }
+
+    public synchronized long sizeInBytes() {
+        try {
+            return Files.size(journalPath);
+        } catch (NoSuchFileException e) {
+            return 0L; // never written, or another process just rotated it
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read journal size: " + journalPath, e);
+        }
+    }
+}
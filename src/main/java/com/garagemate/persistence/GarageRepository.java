@@ -0,0 +1,78 @@
+package com.garagemate.persistence;
+
+import com.garagemate.model.Garage;
+import com.garagemate.model.GarageChanges;
+import com.garagemate.model.MaintenanceRecord;
+import com.garagemate.model.VehicleBase;
+
+/**
+ * Storage for a Garage, MainApp and BackendDriver only talk to this
+ *
+ * The single-change methods persist one mutation that was already applied to the in-memory garage
+ * The defaults fall back to a full load + save, so implementations that can
+ * store one change cheaply (journal, SQL rows) should override them
+ */
+public interface GarageRepository extends AutoCloseable {
+
+    Garage loadGarage();
+
+    void saveGarage(Garage garage);
+
+    /**
+     * Stores only what changed since the last save (see Garage.takeChanges())
+     */
+    default void saveChanges(GarageChanges changes) {
+        if (changes == null) throw new IllegalArgumentException("changes cannot be null");
+        if (changes.isEmpty()) return;
+
+        Garage garage = loadGarage();
+        changes.applyTo(garage);
+        saveGarage(garage);
+    }
+
+    /**
+     * Returns null when the vehicle isn't stored
+     */
+    default VehicleBase loadVehicle(String vehicleId) {
+        return loadGarage().getVehicleById(vehicleId);
+    }
+
+    default void addVehicle(VehicleBase vehicle) {
+        Garage garage = loadGarage();
+        garage.addVehicle(vehicle);
+        saveGarage(garage);
+    }
+
+    default void removeVehicle(String vehicleId) {
+        Garage garage = loadGarage();
+        garage.removeVehicle(vehicleId);
+        saveGarage(garage);
+    }
+
+    default void addRecord(String vehicleId, MaintenanceRecord record) {
+        Garage garage = loadGarage();
+        VehicleBase vehicle = garage.getVehicleById(vehicleId);
+        if (vehicle != null) vehicle.addMaintenanceRecord(record);
+        saveGarage(garage);
+    }
+
+    default void removeRecord(String vehicleId, String recordId) {
+        Garage garage = loadGarage();
+        VehicleBase vehicle = garage.getVehicleById(vehicleId);
+        if (vehicle != null) vehicle.removeMaintenanceRecord(recordId);
+        saveGarage(garage);
+    }
+
+    default void updateMileage(String vehicleId, int mileage) {
+        Garage garage = loadGarage();
+        VehicleBase vehicle = garage.getVehicleById(vehicleId);
+        if (vehicle != null) vehicle.setCurrentMileage(mileage);
+        saveGarage(garage);
+    }
+
+    /**
+     * Releases files or connections, file based repositories have nothing to release
+     */
+    @Override
+    default void close() {}
+}
@@ -0,0 +1,257 @@
+package com.garagemate.persistence;
+
+import com.garagemate.model.Garage;
+import com.garagemate.model.MaintenanceRecord;
+import com.garagemate.model.VehicleBase;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Lazy history for a text snapshot: only V lines are parsed at load,
+ * R lines are remembered as byte ranges per vehicle and parsed the first time
+ * a vehicle's history is asked for
+ *
+ * Keeps the snapshot open, so a later save that swaps in a new snapshot doesn't move
+ * the offsets out from under vehicles that haven't loaded yet. The file is closed once
+ * no vehicle can ask for its history any more (the index is collected), or by the repository.
+ * After that a history is read by reopening the file, which only works while it hasn't been saved over
+ */
+final class LazyHistoryIndex {
+
+    // closes the snapshots of garages nobody holds any more
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    private final Path file;
+    private final OpenSnapshot snapshot;
+    private final FileStamp stamp; // the snapshot we indexed, checked before reopening it
+    private final boolean legacy;  // the file has no format header, see LineScanner.legacyEscapes
+    private final Consumer<SkippedLine> onSkipped;
+
+    private LazyHistoryIndex(Path file, FileChannel channel, Consumer<SkippedLine> onSkipped) throws IOException {
+        this.file = file;
+        this.snapshot = new OpenSnapshot(channel);
+        this.stamp = FileStamp.of(file);
+        this.legacy = TextFileRepository.isLegacyFormat(channel);
+        this.onSkipped = onSkipped;
+    }
+
+    /**
+     * Adds every vehicle in the file to the garage, each with a lazy history
+     * Gives the same garage as the full reader once the histories are loaded, bad lines included:
+     * checksums are checked here, records that don't parse are reported when their history loads
+     */
+    static LazyHistoryIndex load(Path file, Garage garage, Consumer<SkippedLine> onSkipped) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            LazyHistoryIndex index = new LazyHistoryIndex(file, channel, onSkipped);
+            index.scan(garage);
+            CLEANER.register(index, index.snapshot::closeQuietly);
+            return index;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // works on raw bytes so every line's file offset is known
+    private void scan(Garage garage) throws IOException {
+        Map<String, Ranges> recordRanges = new HashMap<>();
+        LineScanner scanner = new LineScanner().legacyEscapes(legacy);
+        RunState state = new RunState();
+        CRC32C crc = new CRC32C();
+        String source = file.toString();
+
+        ByteLines.forEach(snapshot.channel, (buf, start, end, offset, nextOffset) -> {
+            if (offset == 0 && LineChecksum.isHeader(buf, start, end)) {
+                state.checksummed = true;
+                return;
+            }
+            if (state.checksummed && !isBlank(buf, start, end) && !LineChecksum.matches(buf, start, end, crc)) {
+                onSkipped.accept(new SkippedLine(source,
+                        new String(buf, start, end - start, StandardCharsets.UTF_8), "checksum mismatch"));
+                state.run = null; // the range can't run across it
+                return;
+            }
+
+            if (startsWith(buf, start, end, 'V')) {
+                String line = new String(buf, start, end - start, StandardCharsets.UTF_8);
+                try {
+                    garage.addVehicle(TextFileRepository.parseVehicleLine(scanner.reset(line)));
+                } catch (IllegalArgumentException e) {
+                    onSkipped.accept(new SkippedLine(source, line, e.getMessage()));
+                }
+                state.run = null;
+            } else if (startsWith(buf, start, end, 'R')) {
+                int idStart = start + 2;
+                int idEnd = ByteLines.fieldEnd(buf, idStart, end, legacy);
+
+                if (state.run != null && Arrays.equals(state.runId, 0, state.runId.length, buf, idStart, idEnd)) {
+                    state.run.extendLast(nextOffset);
+                } else {
+                    // only turn the id into a String when the vehicle changes
+                    String id = scanner.reset(new String(buf, idStart, idEnd - idStart, StandardCharsets.UTF_8))
+                            .nextString();
+                    state.run = recordRanges.computeIfAbsent(id, k -> new Ranges());
+                    state.run.add(offset, nextOffset);
+                    state.runId = Arrays.copyOfRange(buf, idStart, idEnd);
+                }
+            }
+            // anything else is a blank or unknown line, skip it
+        });
+
+        // ranges whose vehicle isn't in the file are dropped, same as the full reader
+        for (VehicleBase v : garage.vehicles()) {
+            Ranges ranges = recordRanges.get(v.getVehicleId());
+            if (ranges != null) {
+                v.setLazyHistory(() -> readRecords(ranges));
+            }
+        }
+    }
+
+    private static boolean startsWith(byte[] buf, int start, int end, char type) {
+        return end - start >= 2 && buf[start] == type && buf[start + 1] == '|';
+    }
+
+    private static boolean isBlank(byte[] buf, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (buf[i] != ' ' && buf[i] != '\t') return false;
+        }
+        return true;
+    }
+
+    /**
+     * The open snapshot, the repository closes it on close()
+     */
+    OpenSnapshot snapshot() {
+        return snapshot;
+    }
+
+    // called on whichever thread first touches the history, positional reads are safe to share
+    private List<MaintenanceRecord> readRecords(Ranges ranges) {
+        try {
+            try {
+                return readRecords(ranges, snapshot.channel);
+            } catch (ClosedChannelException e) {
+                // closed by the repository meanwhile, reopen below
+            }
+            try (FileChannel reopened = FileChannel.open(file, StandardOpenOption.READ)) {
+                // checked after opening: a snapshot is only ever replaced, so if the path still has it, so do we
+                if (!Objects.equals(stamp, FileStamp.of(file))) {
+                    throw new IllegalStateException("Maintenance history can't be loaded any more, "
+                            + file + " was saved over after this garage was loaded and the repository closed");
+                }
+                return readRecords(ranges, reopened);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to load maintenance history from file: " + file, e);
+        }
+    }
+
+    // a line that doesn't parse, or repeats a record id, is skipped like the full reader does
+    // (the mileage isn't checked, see VehicleBase.setLazyHistory)
+    private List<MaintenanceRecord> readRecords(Ranges ranges, FileChannel channel) throws IOException {
+        List<MaintenanceRecord> records = new ArrayList<>();
+        Set<String> ids = new HashSet<>();
+        LineScanner scanner = new LineScanner().legacyEscapes(legacy);
+        for (int r = 0; r < ranges.count; r++) {
+            long from = ranges.bounds[r * 2];
+            int length = (int) (ranges.bounds[r * 2 + 1] - from);
+
+            ByteBuffer bytes = ByteBuffer.allocate(length);
+            while (bytes.hasRemaining()) {
+                if (channel.read(bytes, from + bytes.position()) < 0) {
+                    throw new IOException("Garage file is shorter than its history index");
+                }
+            }
+
+            try (LineReader reader = new LineReader(new InputStreamReader(
+                    new ByteArrayInputStream(bytes.array()), StandardCharsets.UTF_8))) {
+                while (reader.nextLine(scanner)) {
+                    if (!scanner.lineStartsWith("R|")) continue;
+                    try {
+                        scanner.skipField(); // "R"
+                        scanner.skipField(); // vehicleId, the range only holds this vehicle's lines
+                        MaintenanceRecord record = TextFileRepository.parseRecordFields(scanner);
+                        if (!ids.add(record.getRecordId())) {
+                            throw new IllegalArgumentException("Duplicate recordId: " + record.getRecordId());
+                        }
+                        records.add(record);
+                    } catch (IllegalArgumentException e) {
+                        onSkipped.accept(new SkippedLine(file.toString(), scanner.line(), e.getMessage()));
+                    }
+                }
+            }
+        }
+        return records;
+    }
+
+    // the file itself, apart from the index so the cleaner can close it without keeping the index alive
+    static final class OpenSnapshot implements Closeable {
+        private final FileChannel channel;
+
+        private OpenSnapshot(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        boolean isOpen() {
+            return channel.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+
+        private void closeQuietly() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // only read from, nothing to lose
+            }
+        }
+    }
+
+    // the run of R lines being extended, records are saved grouped by vehicle
+    private static final class RunState {
+        boolean checksummed;
+        Ranges run;
+        byte[] runId = new byte[0];
+    }
+
+    // byte ranges [start, end) of one vehicle's R lines, nearly always a single range
+    private static final class Ranges {
+        long[] bounds = new long[2];
+        int count;
+
+        void add(long start, long end) {
+            if (count * 2 == bounds.length) bounds = Arrays.copyOf(bounds, bounds.length * 2);
+            bounds[count * 2] = start;
+            bounds[count * 2 + 1] = end;
+            count++;
+        }
+
+        void extendLast(long end) {
+            bounds[count * 2 - 1] = end;
+        }
+    }
+}
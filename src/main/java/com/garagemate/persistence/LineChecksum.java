@@ -0,0 +1,109 @@
+package com.garagemate.persistence;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.CRC32C;
+
+/**
+ * Optional per-line CRC32C for text snapshots
+ * A checksummed file starts with HEADER, every entry after it ends in "|" plus 8 hex digits
+ * of the CRC32C of the line's UTF-8 bytes before that suffix
+ *
+ * Readers that don't know about checksums still load these files: the header is an unknown
+ * line (skipped) and the suffix is one more field after the last one they read
+ */
+final class LineChecksum {
+
+    static final String HEADER = "#garage-mate crc32c";
+    static final int SUFFIX_LENGTH = 9; // '|' + 8 hex digits
+
+    private static final byte[] HEADER_BYTES = HEADER.getBytes(StandardCharsets.UTF_8);
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private LineChecksum() {}
+
+    /**
+     * The line plus its checksum suffix
+     */
+    static String sign(String line) {
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        CRC32C crc = new CRC32C();
+        crc.update(bytes, 0, bytes.length);
+        StringBuilder sb = new StringBuilder(line.length() + SUFFIX_LENGTH).append(line).append('|');
+        appendHex(sb, (int) crc.getValue());
+        return sb.toString();
+    }
+
+    /**
+     * Checksum suffix for raw line bytes, used when signing an existing file without decoding it
+     */
+    static byte[] suffix(byte[] buf, int start, int end) {
+        CRC32C crc = new CRC32C();
+        crc.update(buf, start, end - start);
+        StringBuilder sb = new StringBuilder(SUFFIX_LENGTH).append('|');
+        appendHex(sb, (int) crc.getValue());
+        return sb.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * True when buf[start, end) ends in a suffix that matches the rest of the line
+     */
+    static boolean matches(byte[] buf, int start, int end, CRC32C crc) {
+        int suffixStart = end - SUFFIX_LENGTH;
+        if (suffixStart < start || buf[suffixStart] != '|') return false;
+
+        int expected = 0;
+        for (int i = suffixStart + 1; i < end; i++) {
+            int digit = Character.digit(buf[i], 16);
+            if (digit < 0) return false;
+            expected = (expected << 4) | digit;
+        }
+
+        crc.reset();
+        crc.update(buf, start, suffixStart - start);
+        return (int) crc.getValue() == expected;
+    }
+
+    /**
+     * Same check for a line that was already decoded, encoding it again gives back the stored
+     * bytes for any valid UTF-8 (and a mismatch for anything the decoder had to replace)
+     * Allocates, only loaders of checksummed files call it
+     */
+    static boolean matches(String line, CRC32C crc) {
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        return matches(bytes, 0, bytes.length, crc);
+    }
+
+    static boolean isHeader(byte[] buf, int start, int end) {
+        if (end - start != HEADER_BYTES.length) return false;
+        for (int i = 0; i < HEADER_BYTES.length; i++) {
+            if (buf[start + i] != HEADER_BYTES[i]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Reads only the first line, so it's cheap to call before every save
+     */
+    static boolean hasHeader(Path file) {
+        if (!Files.exists(file)) return false;
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] first = in.readNBytes(HEADER_BYTES.length + 2);
+            int end = HEADER_BYTES.length;
+            if (first.length < end) return false;
+            boolean lineEnds = first.length == end || first[end] == '\n' || first[end] == '\r';
+            return lineEnds && isHeader(first, 0, end);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read garage file: " + file, e);
+        }
+    }
+
+    private static void appendHex(StringBuilder sb, int value) {
+        for (int shift = 28; shift >= 0; shift -= 4) {
+            sb.append(HEX[(value >>> shift) & 0xF]);
+        }
+    }
+}
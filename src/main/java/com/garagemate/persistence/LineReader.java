@@ -0,0 +1,78 @@
+package com.garagemate.persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Reads lines into one reusable char buffer and hands them to a LineScanner
+ * Unlike BufferedReader.readLine() no String is created per line
+ */
+final class LineReader implements Closeable {
+
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final Reader in;
+    private char[] buf = new char[DEFAULT_BUFFER_SIZE];
+    private int start; // first char of the next line
+    private int limit; // end of the chars read so far
+    private boolean eof;
+
+    LineReader(Reader in) {
+        this.in = in;
+    }
+
+    /**
+     * Points the scanner at the next line, without its line terminator
+     * Returns false at end of input
+     */
+    boolean nextLine(LineScanner scanner) throws IOException {
+        int scanFrom = start;
+        while (true) {
+            for (int i = scanFrom; i < limit; i++) {
+                if (buf[i] == '\n') {
+                    int lineEnd = (i > start && buf[i - 1] == '\r') ? i - 1 : i;
+                    scanner.reset(buf, start, lineEnd);
+                    start = i + 1;
+                    return true;
+                }
+            }
+
+            if (eof) {
+                if (start == limit) return false;
+                // last line without a terminator
+                int lineEnd = buf[limit - 1] == '\r' ? limit - 1 : limit;
+                scanner.reset(buf, start, lineEnd);
+                start = limit;
+                return true;
+            }
+
+            scanFrom = limit - start;
+            fill();
+            scanFrom += start;
+        }
+    }
+
+    // move the partial line to the front (growing the buffer if one line fills it) and read more
+    private void fill() throws IOException {
+        int partial = limit - start;
+        if (partial == buf.length) {
+            char[] bigger = new char[buf.length * 2];
+            System.arraycopy(buf, start, bigger, 0, partial);
+            buf = bigger;
+        } else if (start > 0) {
+            System.arraycopy(buf, start, buf, 0, partial);
+        }
+        start = 0;
+        limit = partial;
+
+        int n = in.read(buf, limit, buf.length - limit);
+        if (n < 0) eof = true;
+        else limit += n;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,248 @@
+package com.garagemate.persistence;
+
+import com.garagemate.model.Garage;
+import com.garagemate.model.MaintenanceRecord;
+import com.garagemate.model.VehicleBase;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Parses a large text snapshot on several threads
+ * The file is cut into chunks at newline boundaries, each chunk is decoded and parsed
+ * on a ForkJoin pool, then the results are merged in file order on the calling thread
+ *
+ * The merge gives the same garage as TextFileRepository's sequential reader:
+ * vehicles in the order of their V lines, each history in the order of its R lines,
+ * records whose vehicle isn't in the file are dropped, bad lines are skipped and reported in file order
+ */
+final class ParallelGarageLoader {
+
+    // below this a chunk isn't worth a task
+    static final long DEFAULT_MIN_CHUNK_BYTES = 1024 * 1024;
+
+    // a few chunks per worker so one slow chunk doesn't leave the others idle
+    private static final int CHUNKS_PER_THREAD = 4;
+    private static final long MAX_CHUNK_BYTES = 256L * 1024 * 1024;
+
+    private final int parallelism;
+    private final long minChunkBytes;
+
+    ParallelGarageLoader(int parallelism, long minChunkBytes) {
+        if (parallelism < 1) throw new IllegalArgumentException("parallelism must be >= 1");
+        if (minChunkBytes < 1) throw new IllegalArgumentException("minChunkBytes must be >= 1");
+        this.parallelism = parallelism;
+        this.minChunkBytes = minChunkBytes;
+    }
+
+    /**
+     * Adds every vehicle in the file to the garage, lines that can't be used go to onSkipped
+     */
+    void load(Path file, Garage garage, Consumer<SkippedLine> onSkipped) throws IOException {
+        List<ParsedChunk> parsed;
+        String source = file.toString();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            List<ChunkTask> tasks = split(channel, TextFileRepository.isLegacyFormat(channel),
+                    LineChecksum.hasHeader(file), source);
+
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                parsed = pool.invoke(new RecursiveTask<List<ParsedChunk>>() {
+                    @Override
+                    protected List<ParsedChunk> compute() {
+                        List<ParsedChunk> results = new ArrayList<>(tasks.size());
+                        for (ChunkTask task : ForkJoinTask.invokeAll(tasks)) {
+                            results.add(task.join());
+                        }
+                        return results;
+                    }
+                });
+            } finally {
+                pool.shutdown();
+            }
+        } catch (RuntimeException e) {
+            // a worker's IOException comes back wrapped, unwrap it so callers see the same error either way
+            if (e.getCause() instanceof IOException io) throw io;
+            throw e;
+        }
+
+        // the workers only collect them, they're reported here on the caller's thread
+        for (ParsedChunk chunk : parsed) {
+            chunk.skipped.forEach(onSkipped);
+        }
+
+        // every vehicle first, so a record finds its vehicle no matter which chunk it came from
+        for (ParsedChunk chunk : parsed) {
+            for (VehicleBase v : chunk.vehicles) {
+                if (garage.containsVehicle(v.getVehicleId())) {
+                    onSkipped.accept(new SkippedLine(source, TextFileRepository.toVehicleLine(v),
+                            "Duplicate vehicleId: " + v.getVehicleId()));
+                    continue;
+                }
+                garage.addVehicle(v);
+            }
+        }
+        for (ParsedChunk chunk : parsed) {
+            for (RecordRun run : chunk.runs) {
+                VehicleBase vehicle = garage.getVehicleById(run.vehicleId);
+                if (vehicle == null) continue; // its vehicle isn't in the file, drop it
+                for (MaintenanceRecord r : run.records) {
+                    TextFileRepository.addRecord(vehicle, r, source, onSkipped);
+                }
+            }
+        }
+    }
+
+    // cut the file into roughly even byte ranges, each one ends right after a '\n'
+    // '\n' never shows up inside a multi-byte UTF-8 character, so every chunk decodes on its own
+    private List<ChunkTask> split(FileChannel channel, boolean legacy, boolean checksummed, String source)
+            throws IOException {
+        long size = channel.size();
+        long target = Math.max(minChunkBytes, size / ((long) parallelism * CHUNKS_PER_THREAD));
+        target = Math.min(target, MAX_CHUNK_BYTES);
+
+        List<ChunkTask> tasks = new ArrayList<>();
+        ByteBuffer probe = ByteBuffer.allocate(8 * 1024);
+        long start = 0;
+        while (start < size) {
+            long end = start + target >= size ? size : nextLineStart(channel, start + target, size, probe);
+            if (end - start > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Line longer than 2 GB in garage file");
+            }
+            tasks.add(new ChunkTask(channel, start, (int) (end - start), legacy, checksummed, source));
+            start = end;
+        }
+        return tasks;
+    }
+
+    private static long nextLineStart(FileChannel channel, long from, long size, ByteBuffer probe) throws IOException {
+        long pos = from;
+        while (pos < size) {
+            probe.clear();
+            int n = channel.read(probe, pos);
+            if (n < 0) break;
+            for (int i = 0; i < n; i++) {
+                if (probe.get(i) == '\n') return pos + i + 1;
+            }
+            pos += n;
+        }
+        return size;
+    }
+
+    private static final class ChunkTask extends RecursiveTask<ParsedChunk> {
+        private static final long serialVersionUID = 1L;
+
+        private final FileChannel channel;
+        private final long position;
+        private final int length;
+        private final boolean legacy;      // the file has no format header, see LineScanner.legacyEscapes
+        private final boolean checksummed; // every line but the header ends in a CRC32C, see LineChecksum
+        private final String source;
+
+        ChunkTask(FileChannel channel, long position, int length, boolean legacy, boolean checksummed, String source) {
+            this.channel = channel;
+            this.position = position;
+            this.length = length;
+            this.legacy = legacy;
+            this.checksummed = checksummed;
+            this.source = source;
+        }
+
+        @Override
+        protected ParsedChunk compute() {
+            CharBuffer chars;
+            try {
+                ByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                // same replacement behavior as the InputStreamReader the sequential reader uses
+                chars = StandardCharsets.UTF_8.newDecoder()
+                        .onMalformedInput(CodingErrorAction.REPLACE)
+                        .onUnmappableCharacter(CodingErrorAction.REPLACE)
+                        .decode(bytes);
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to read garage file chunk at byte " + position, e);
+            }
+            return parse(chars.array(), chars.arrayOffset() + chars.position(), chars.arrayOffset() + chars.limit());
+        }
+
+        // same line rules as LineReader: '\n' ends a line, one '\r' before it is dropped
+        private ParsedChunk parse(char[] buf, int from, int limit) {
+            ParsedChunk chunk = new ParsedChunk();
+            LineScanner scanner = new LineScanner().legacyEscapes(legacy);
+            CRC32C crc = checksummed ? new CRC32C() : null;
+            RecordRun run = null;
+
+            int start = from;
+            while (start < limit) {
+                boolean firstInFile = position == 0 && start == from;
+                int i = start;
+                while (i < limit && buf[i] != '\n') i++;
+                int lineEnd = (i > start && buf[i - 1] == '\r') ? i - 1 : i;
+                scanner.reset(buf, start, lineEnd);
+                start = i + 1;
+
+                if (firstInFile && !legacy) continue; // the format or checksum header
+                if (crc != null) {
+                    String line = scanner.line();
+                    if (!line.isBlank() && !LineChecksum.matches(line, crc)) {
+                        chunk.skipped.add(new SkippedLine(source, line, "checksum mismatch"));
+                        run = null;
+                        continue;
+                    }
+                }
+
+                try {
+                    if (scanner.lineStartsWith("V|")) {
+                        chunk.vehicles.add(TextFileRepository.parseVehicleLine(scanner));
+                    } else if (scanner.lineStartsWith("R|")) {
+                        scanner.skipField(); // "R"
+
+                        // records are saved grouped by vehicle, so most lines extend the current run
+                        // and the vehicle id is only turned into a String once per run
+                        String vehicleId = run == null || !scanner.peekFieldEquals(run.vehicleId)
+                                ? scanner.nextString() : null;
+                        if (vehicleId == null) scanner.skipField();
+                        MaintenanceRecord record = TextFileRepository.parseRecordFields(scanner);
+                        if (vehicleId != null) {
+                            run = new RecordRun(vehicleId);
+                            chunk.runs.add(run);
+                        }
+                        run.records.add(record);
+                    }
+                    // anything else is a blank or unknown line, skip it
+                } catch (IllegalArgumentException e) {
+                    chunk.skipped.add(new SkippedLine(source, scanner.line(), e.getMessage()));
+                }
+            }
+            return chunk;
+        }
+    }
+
+    private static final class ParsedChunk {
+        final List<VehicleBase> vehicles = new ArrayList<>();
+        final List<RecordRun> runs = new ArrayList<>();
+        final List<SkippedLine> skipped = new ArrayList<>();
+    }
+
+    // consecutive R lines for the same vehicle
+    private static final class RecordRun {
+        final String vehicleId;
+        final List<MaintenanceRecord> records = new ArrayList<>();
+
+        RecordRun(String vehicleId) {
+            this.vehicleId = vehicleId;
+        }
+    }
+}
@@ -0,0 +1,371 @@
+package com.garagemate.persistence;
+
+import com.garagemate.model.*;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Saves each vehicle in its own shard file under a garage directory
+ * A shard holds the vehicle's V line and all its R lines (same layout as the text snapshot),
+ * the manifest lists the shards in garage order:
+ *
+ *   garage.manifest   S|vehicleId|shard-7.txt   one line per vehicle
+ *   shard-7.txt       V|...  then R|...
+ *
+ * A single change rewrites one shard, the manifest is only rewritten when vehicles
+ * are added or removed, and a full save skips every shard whose content didn't change.
+ * Shards and the manifest are each replaced atomically, a full save is not one transaction across files
+ * Another process may write the same directory, the manifest is read again when its file changed
+ */
+public class ShardedGarageRepository implements GarageRepository {
+
+    static final String MANIFEST_FILE = "garage.manifest";
+    private static final String SHARD_PREFIX = "shard-";
+    private static final String SHARD_SUFFIX = ".txt";
+
+    private final Path dir;
+
+    // vehicleId -> shard file name in garage order, read from the manifest on first use
+    // and again whenever the file isn't the one we read or wrote last
+    private Map<String, String> shards;
+    private FileStamp manifestStamp;
+    private long nextShard;
+
+    // shard file -> what it held when we last read or wrote it, a save with the same content skips the write
+    // only trusted while the file's stamp still matches, so another process's writes aren't skipped over
+    // loadGarage reads shards on several threads
+    private final Map<String, ShardContent> knownShards = new ConcurrentHashMap<>();
+
+    public ShardedGarageRepository(String directory) {
+        this.dir = Paths.get(VehicleBase.requireNonBlank(directory, "directory"));
+    }
+
+    @Override
+    public synchronized Garage loadGarage() {
+        List<String> files = new ArrayList<>(manifest().values());
+
+        // shards are independent files, parse them on every core and keep manifest order
+        List<VehicleBase> vehicles = files.parallelStream()
+                .map(this::readShard)
+                .toList();
+
+        Garage garage = new Garage();
+        vehicles.forEach(garage::addVehicle);
+        garage.markClean(); // everything just loaded is already stored
+        return garage;
+    }
+
+    @Override
+    public synchronized VehicleBase loadVehicle(String vehicleId) {
+        String file = manifest().get(VehicleBase.requireNonBlank(vehicleId, "vehicleId"));
+        if (file == null) return null;
+
+        VehicleBase v = readShard(file);
+        v.markClean();
+        return v;
+    }
+
+    @Override
+    public synchronized void saveGarage(Garage garage) {
+        if (garage == null) throw new IllegalArgumentException("garage cannot be null");
+
+        Map<String, String> old = manifest();
+        Map<String, String> next = new LinkedHashMap<>();
+        for (VehicleBase v : garage.vehicles()) {
+            // keep each vehicle's file name so backups see an edit, not a delete plus an add
+            String file = old.containsKey(v.getVehicleId()) ? old.get(v.getVehicleId()) : newShardName();
+            writeShard(file, v);
+            next.put(v.getVehicleId(), file);
+        }
+
+        writeManifest(next);
+        for (Map.Entry<String, String> e : old.entrySet()) {
+            if (!next.containsKey(e.getKey())) deleteShard(e.getValue());
+        }
+        shards = next;
+    }
+
+    /**
+     * Rewrites the shard of each changed vehicle, the manifest only when vehicles came or went
+     */
+    @Override
+    public synchronized void saveChanges(GarageChanges changes) {
+        if (changes == null) throw new IllegalArgumentException("changes cannot be null");
+        if (changes.isEmpty()) return;
+
+        Map<String, String> next = new LinkedHashMap<>(manifest());
+        Map<String, String> deleted = new LinkedHashMap<>();
+        for (String id : changes.removedVehicleIds()) {
+            String file = next.remove(id);
+            if (file != null) deleted.put(id, file);
+        }
+
+        boolean membershipChanged = !deleted.isEmpty();
+        for (VehicleBase v : changes.changedVehicles()) {
+            String id = v.getVehicleId();
+            String file = next.get(id);
+            if (file == null) {
+                // a vehicle removed and re-added in the same change set keeps its old shard
+                file = deleted.containsKey(id) ? deleted.remove(id) : newShardName();
+                membershipChanged = true;
+            }
+            writeShard(file, v);
+            next.put(id, file);
+        }
+
+        if (membershipChanged) writeManifest(next);
+        for (String file : deleted.values()) {
+            deleteShard(file);
+        }
+        shards = next;
+    }
+
+    @Override
+    public synchronized void addVehicle(VehicleBase vehicle) {
+        if (vehicle == null) throw new IllegalArgumentException("vehicle cannot be null");
+        if (manifest().containsKey(vehicle.getVehicleId())) {
+            throw new IllegalArgumentException("Duplicate vehicleId: " + vehicle.getVehicleId());
+        }
+
+        // shard first, a crash before the manifest leaves an unlisted file instead of a missing one
+        String file = newShardName();
+        writeShard(file, vehicle);
+
+        Map<String, String> next = new LinkedHashMap<>(shards);
+        next.put(vehicle.getVehicleId(), file);
+        writeManifest(next);
+        shards = next;
+    }
+
+    @Override
+    public synchronized void removeVehicle(String vehicleId) {
+        String id = VehicleBase.requireNonBlank(vehicleId, "vehicleId");
+        if (!manifest().containsKey(id)) return;
+
+        Map<String, String> next = new LinkedHashMap<>(shards);
+        String file = next.remove(id);
+        writeManifest(next);
+        shards = next;
+        deleteShard(file);
+    }
+
+    @Override
+    public synchronized void addRecord(String vehicleId, MaintenanceRecord record) {
+        if (record == null) throw new IllegalArgumentException("MaintenanceRecord cannot be null");
+        updateShard(vehicleId, v -> v.addMaintenanceRecord(record));
+    }
+
+    @Override
+    public synchronized void removeRecord(String vehicleId, String recordId) {
+        String id = VehicleBase.requireNonBlank(recordId, "recordId");
+        updateShard(vehicleId, v -> v.removeMaintenanceRecord(id));
+    }
+
+    @Override
+    public synchronized void updateMileage(String vehicleId, int mileage) {
+        updateShard(vehicleId, v -> v.setCurrentMileage(mileage));
+    }
+
+    // read, change and rewrite one shard, nothing else is touched
+    private void updateShard(String vehicleId, Consumer<VehicleBase> change) {
+        String file = manifest().get(VehicleBase.requireNonBlank(vehicleId, "vehicleId"));
+        if (file == null) return; // same as the default: a change to a missing vehicle is dropped
+
+        VehicleBase v = readShard(file);
+        change.accept(v);
+        writeShard(file, v);
+    }
+
+    // ---- manifest ----
+
+    private Map<String, String> manifest() {
+        Path manifestPath = dir.resolve(MANIFEST_FILE);
+        FileStamp stamp = stamp(manifestPath);
+        if (shards != null && Objects.equals(stamp, manifestStamp)) return shards;
+
+        Map<String, String> loaded = new LinkedHashMap<>();
+        if (stamp != null) {
+            LineScanner scanner = new LineScanner();
+            try (LineReader reader = new LineReader(
+                    new InputStreamReader(Files.newInputStream(manifestPath), StandardCharsets.UTF_8))) {
+                while (reader.nextLine(scanner)) {
+                    if (!scanner.lineStartsWith("S|")) continue; // blank or unknown line
+                    scanner.skipField(); // "S"
+                    String vehicleId = scanner.nextString();
+                    String file = scanner.nextString();
+                    loaded.put(vehicleId, file);
+                    nextShard = Math.max(nextShard, shardNumber(file) + 1);
+                }
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to read garage manifest: " + manifestPath, e);
+            }
+        }
+        shards = loaded;
+        manifestStamp = stamp;
+        return shards;
+    }
+
+    private void writeManifest(Map<String, String> entries) {
+        List<String> lines = new ArrayList<>(entries.size());
+        for (Map.Entry<String, String> e : entries.entrySet()) {
+            StringBuilder sb = new StringBuilder("S");
+            TextFileRepository.appendField(sb, e.getKey());
+            TextFileRepository.appendField(sb, e.getValue());
+            lines.add(sb.toString());
+        }
+        writeAtomically(dir.resolve(MANIFEST_FILE), lines);
+        manifestStamp = stamp(dir.resolve(MANIFEST_FILE));
+    }
+
+    private String newShardName() {
+        manifest();
+        return SHARD_PREFIX + (nextShard++) + SHARD_SUFFIX;
+    }
+
+    private static long shardNumber(String file) {
+        if (!file.startsWith(SHARD_PREFIX) || !file.endsWith(SHARD_SUFFIX)) return -1;
+        try {
+            return Long.parseLong(file.substring(SHARD_PREFIX.length(), file.length() - SHARD_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1; // hand-named shard, never clashes with generated names
+        }
+    }
+
+    // ---- shards ----
+
+    private VehicleBase readShard(String file) {
+        Path path = dir.resolve(file);
+        LineScanner scanner = new LineScanner();
+        VehicleBase vehicle = null;
+        FileStamp stamp = stamp(path); // before reading, a file replaced meanwhile just won't match later
+        ContentHash hash = new ContentHash();
+
+        try (LineReader reader = new LineReader(
+                new InputStreamReader(Files.newInputStream(path), StandardCharsets.UTF_8))) {
+            while (reader.nextLine(scanner)) {
+                hash.add(scanner.line());
+                if (scanner.lineStartsWith("V|")) {
+                    if (vehicle != null) throw new IllegalArgumentException("Shard holds more than one vehicle: " + path);
+                    vehicle = TextFileRepository.parseVehicleLine(scanner);
+                } else if (scanner.lineStartsWith("R|")) {
+                    if (vehicle == null) throw new IllegalArgumentException("Record before vehicle in shard: " + path);
+                    scanner.skipField(); // "R"
+                    scanner.skipField(); // vehicleId, a shard only holds one vehicle
+                    vehicle.addMaintenanceRecord(TextFileRepository.parseRecordFields(scanner));
+                }
+                // anything else is a blank or unknown line, skip it
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to load vehicle shard: " + path, e);
+        }
+
+        if (vehicle == null) throw new IllegalArgumentException("Shard has no vehicle: " + path);
+        knownShards.put(file, hash.of(stamp));
+        return vehicle;
+    }
+
+    private void writeShard(String file, VehicleBase v) {
+        List<String> lines = new ArrayList<>(1 + v.getMaintenanceHistory().size());
+        lines.add(TextFileRepository.toVehicleLine(v));
+        for (MaintenanceRecord r : v.getMaintenanceHistory()) {
+            lines.add(TextFileRepository.toRecordLine(v.getVehicleId(), r));
+        }
+
+        Path path = dir.resolve(file);
+        ContentHash hash = new ContentHash();
+        lines.forEach(hash::add);
+        ShardContent known = knownShards.get(file);
+        if (known != null && known.sameContent(hash) && Objects.equals(known.stamp(), stamp(path))) {
+            return; // what's there is exactly what we'd write
+        }
+        writeAtomically(path, lines);
+        knownShards.put(file, hash.of(stamp(path)));
+    }
+
+    private void deleteShard(String file) {
+        knownShards.remove(file);
+        try {
+            Files.deleteIfExists(dir.resolve(file));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to delete vehicle shard: " + dir.resolve(file), e);
+        }
+    }
+
+    private static FileStamp stamp(Path path) {
+        try {
+            return FileStamp.of(path);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read garage file: " + path, e);
+        }
+    }
+
+    // CRC32C and length of a shard's lines, a changed vehicle practically never keeps both
+    private static final class ContentHash {
+        private final CRC32C crc = new CRC32C();
+        private long length;
+
+        void add(String line) {
+            byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+            crc.update(bytes);
+            crc.update('\n');
+            length += bytes.length + 1;
+        }
+
+        ShardContent of(FileStamp stamp) {
+            return new ShardContent(stamp, length, crc.getValue());
+        }
+    }
+
+    private record ShardContent(FileStamp stamp, long length, long crc) {
+        boolean sameContent(ContentHash hash) {
+            return length == hash.length && crc == hash.crc.getValue();
+        }
+    }
+
+    // write to a temp file, fsync it, then atomically swap it in
+    private void writeAtomically(Path target, List<String> lines) {
+        Path tempFile = target.resolveSibling(target.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(dir);
+
+            try (FileChannel channel = FileChannel.open(tempFile,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                 BufferedWriter writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8))) {
+                for (String line : lines) {
+                    writer.write(line);
+                    writer.newLine();
+                }
+                writer.flush();
+                channel.force(true);
+            }
+
+            try {
+                Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            TextFileRepository.syncDirectory(dir);
+        } catch (IOException e) {
+            try {
+                Files.deleteIfExists(tempFile);
+            } catch (IOException ignored) {
+                // the original error is the one worth reporting
+            }
+            throw new RuntimeException("Failed to save garage file: " + target, e);
+        }
+    }
+}
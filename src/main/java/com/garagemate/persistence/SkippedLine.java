@@ -0,0 +1,14 @@
+package com.garagemate.persistence;
+
+/**
+ * A line a load left out because its checksum didn't match, it didn't parse,
+ * or the garage refused it (eg. a duplicate id). Everything else in the file still loads
+ * GarageFileVerifier repair moves bad snapshot lines to a quarantine file
+ */
+public record SkippedLine(String source, String line, String reason) {
+
+    @Override
+    public String toString() {
+        return source + ": " + reason + ": " + line;
+    }
+}
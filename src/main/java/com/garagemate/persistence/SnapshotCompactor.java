@@ -0,0 +1,60 @@
+package com.garagemate.persistence;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Runs journal compaction for a TextFileRepository on a single background thread
+ * Requests made while a compaction is already queued share that run instead of stacking up
+ */
+class SnapshotCompactor {
+
+    private final TextFileRepository repo;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "garage-compactor");
+        t.setDaemon(true); // never keep the app alive just to compact
+        return t;
+    });
+
+    private CompletableFuture<Void> queued;
+
+    // nobody waits on the future, so a failure goes here; stderr until the owner says otherwise
+    private volatile Consumer<Exception> onFailure =
+            e -> System.err.println("Journal compaction failed: " + e.getMessage());
+
+    SnapshotCompactor(TextFileRepository repo) {
+        this.repo = repo;
+    }
+
+    void setOnFailure(Consumer<Exception> onFailure) {
+        if (onFailure == null) throw new IllegalArgumentException("onFailure cannot be null");
+        this.onFailure = onFailure;
+    }
+
+    synchronized Future<?> requestCompaction() {
+        if (queued != null && !queued.isDone()) {
+            return queued;
+        }
+
+        CompletableFuture<Void> run = new CompletableFuture<>();
+        queued = run;
+        executor.execute(() -> {
+            synchronized (this) {
+                // from here on a new request needs a new run, this one may miss its changes
+                if (queued == run) queued = null;
+            }
+            try {
+                repo.compactJournal();
+                run.complete(null);
+            } catch (RuntimeException e) {
+                // the journal is still intact, the next request retries
+                onFailure.accept(e);
+                run.completeExceptionally(e);
+            }
+        });
+        return run;
+    }
+}
@@ -0,0 +1,373 @@
+package com.garagemate.persistence;
+
+import com.garagemate.model.*;
+
+import java.sql.*;
+
+/**
+ * Saves and loads Garage Mate data in an embedded H2 database file
+ * Vehicles and maintenance records are separate indexed tables, so a single change
+ * is one row insert/update/delete and a vehicle lookup reads only that vehicle's rows
+ *
+ * Keeps one connection open, call close() when done
+ */
+public class SqlGarageRepository implements GarageRepository {
+
+    private static final String TYPE_CAR = "Car";
+    private static final String TYPE_MOTORCYCLE = "Motorcycle";
+
+    // seq keeps the garage's insertion order, the model relies on it
+    private static final String[] SCHEMA = {
+            """
+            CREATE TABLE IF NOT EXISTS vehicle (
+                seq BIGINT GENERATED BY DEFAULT AS IDENTITY,
+                vehicle_id VARCHAR PRIMARY KEY,
+                vehicle_type VARCHAR(16) NOT NULL,
+                nickname VARCHAR NOT NULL,
+                make VARCHAR NOT NULL,
+                model VARCHAR NOT NULL,
+                model_year INT NOT NULL,
+                current_mileage INT NOT NULL,
+                extra INT NOT NULL
+            )""",
+            "CREATE UNIQUE INDEX IF NOT EXISTS vehicle_seq_idx ON vehicle(seq)",
+            """
+            CREATE TABLE IF NOT EXISTS maintenance_record (
+                seq BIGINT GENERATED BY DEFAULT AS IDENTITY,
+                vehicle_id VARCHAR NOT NULL,
+                record_id VARCHAR NOT NULL,
+                service_date VARCHAR NOT NULL,
+                service_type VARCHAR NOT NULL,
+                mileage_at_service INT NOT NULL,
+                notes VARCHAR NOT NULL,
+                PRIMARY KEY (vehicle_id, record_id),
+                FOREIGN KEY (vehicle_id) REFERENCES vehicle(vehicle_id) ON DELETE CASCADE
+            )""",
+            "CREATE INDEX IF NOT EXISTS record_vehicle_seq_idx ON maintenance_record(vehicle_id, seq)"
+    };
+
+    private static final String INSERT_VEHICLE =
+            "INSERT INTO vehicle (vehicle_id, vehicle_type, nickname, make, model, model_year, current_mileage, extra)"
+                    + " VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_RECORD =
+            "INSERT INTO maintenance_record (vehicle_id, record_id, service_date, service_type, mileage_at_service, notes)"
+                    + " VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String MERGE_VEHICLE =
+            "MERGE INTO vehicle (vehicle_id, vehicle_type, nickname, make, model, model_year, current_mileage, extra)"
+                    + " KEY (vehicle_id) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String MERGE_RECORD =
+            "MERGE INTO maintenance_record (vehicle_id, record_id, service_date, service_type, mileage_at_service, notes)"
+                    + " KEY (vehicle_id, record_id) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String SELECT_VEHICLES =
+            "SELECT vehicle_id, vehicle_type, nickname, make, model, model_year, current_mileage, extra FROM vehicle";
+    private static final String SELECT_RECORDS =
+            "SELECT vehicle_id, record_id, service_date, service_type, mileage_at_service, notes FROM maintenance_record";
+
+    private final Connection connection;
+
+    /**
+     * @param dbPath database file path without the ".mv.db" extension H2 adds
+     */
+    public SqlGarageRepository(String dbPath) {
+        String path = VehicleBase.requireNonBlank(dbPath, "dbPath");
+        try {
+            this.connection = DriverManager.getConnection("jdbc:h2:file:" + java.nio.file.Paths.get(path).toAbsolutePath());
+            try (Statement st = connection.createStatement()) {
+                for (String ddl : SCHEMA) {
+                    st.execute(ddl);
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to open garage database: " + path, e);
+        }
+    }
+
+    @Override
+    public synchronized Garage loadGarage() {
+        Garage garage = new Garage();
+        try (Statement st = connection.createStatement()) {
+            try (ResultSet rs = st.executeQuery(SELECT_VEHICLES + " ORDER BY seq")) {
+                while (rs.next()) {
+                    garage.addVehicle(readVehicle(rs));
+                }
+            }
+            try (ResultSet rs = st.executeQuery(SELECT_RECORDS + " ORDER BY seq")) {
+                while (rs.next()) {
+                    VehicleBase vehicle = garage.getVehicleById(rs.getString(1));
+                    if (vehicle != null) vehicle.addMaintenanceRecord(readRecord(rs));
+                }
+            }
+            garage.markClean(); // everything just loaded is already stored
+            return garage;
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to load garage from database", e);
+        }
+    }
+
+    /**
+     * Replaces everything in one transaction, only needed for imports and conversions
+     * Day to day edits go through the single-row methods
+     */
+    @Override
+    public synchronized void saveGarage(Garage garage) {
+        if (garage == null) throw new IllegalArgumentException("garage cannot be null");
+
+        inTransaction(() -> {
+            try (Statement st = connection.createStatement()) {
+                st.executeUpdate("DELETE FROM maintenance_record");
+                st.executeUpdate("DELETE FROM vehicle");
+            }
+            try (PreparedStatement vehicles = connection.prepareStatement(INSERT_VEHICLE);
+                 PreparedStatement records = connection.prepareStatement(INSERT_RECORD)) {
+                for (VehicleBase v : garage.vehicles()) {
+                    bindVehicle(vehicles, v);
+                    vehicles.addBatch();
+                }
+                vehicles.executeBatch();
+
+                for (VehicleBase v : garage.vehicles()) {
+                    for (MaintenanceRecord r : v.getMaintenanceHistory()) {
+                        bindRecord(records, v.getVehicleId(), r);
+                        records.addBatch();
+                    }
+                }
+                records.executeBatch();
+            }
+        });
+    }
+
+    /**
+     * One transaction touching only the rows that changed: the vehicle row if its fields did,
+     * removed records deleted, added or edited records merged (an edit keeps its position)
+     * A vehicle that needs a full write keeps its row but gets all its records replaced
+     */
+    @Override
+    public synchronized void saveChanges(GarageChanges changes) {
+        if (changes == null) throw new IllegalArgumentException("changes cannot be null");
+        if (changes.isEmpty()) return;
+
+        inTransaction(() -> {
+            try (PreparedStatement deleteVehicle = connection.prepareStatement("DELETE FROM vehicle WHERE vehicle_id = ?");
+                 PreparedStatement mergeVehicle = connection.prepareStatement(MERGE_VEHICLE);
+                 PreparedStatement deleteRecords = connection.prepareStatement(
+                         "DELETE FROM maintenance_record WHERE vehicle_id = ?");
+                 PreparedStatement insertRecord = connection.prepareStatement(INSERT_RECORD);
+                 PreparedStatement updateMileage = connection.prepareStatement(
+                         "UPDATE vehicle SET current_mileage = ? WHERE vehicle_id = ?");
+                 PreparedStatement deleteRecord = connection.prepareStatement(
+                         "DELETE FROM maintenance_record WHERE vehicle_id = ? AND record_id = ?");
+                 PreparedStatement mergeRecord = connection.prepareStatement(MERGE_RECORD)) {
+
+                for (String id : changes.removedVehicleIds()) {
+                    deleteVehicle.setString(1, id);
+                    deleteVehicle.executeUpdate();
+                }
+                for (VehicleBase v : changes.changedVehicles()) {
+                    String id = v.getVehicleId();
+                    if (v.needsFullWrite()) {
+                        bindVehicle(mergeVehicle, v);
+                        mergeVehicle.executeUpdate();
+
+                        deleteRecords.setString(1, id);
+                        deleteRecords.executeUpdate();
+                        for (MaintenanceRecord r : v.getMaintenanceHistory()) {
+                            bindRecord(insertRecord, id, r);
+                            insertRecord.addBatch();
+                        }
+                        insertRecord.executeBatch();
+                        continue;
+                    }
+
+                    if (v.hasFieldChanges()) {
+                        bindVehicle(mergeVehicle, v);
+                        mergeVehicle.executeUpdate();
+                    } else if (v.hasMileageChange()) {
+                        updateMileage.setInt(1, v.getCurrentMileage());
+                        updateMileage.setString(2, id);
+                        updateMileage.executeUpdate();
+                    }
+                    // a record removed and added back is in both, deleting first gives it a new seq like in memory
+                    for (String recordId : v.getRemovedRecordIds()) {
+                        deleteRecord.setString(1, id);
+                        deleteRecord.setString(2, recordId);
+                        deleteRecord.addBatch();
+                    }
+                    deleteRecord.executeBatch();
+                    for (MaintenanceRecord r : v.getChangedRecords()) {
+                        bindRecord(mergeRecord, id, r);
+                        mergeRecord.addBatch();
+                    }
+                    mergeRecord.executeBatch();
+                }
+            }
+        });
+    }
+
+    @Override
+    public synchronized VehicleBase loadVehicle(String vehicleId) {
+        String id = VehicleBase.requireNonBlank(vehicleId, "vehicleId");
+        try {
+            VehicleBase vehicle;
+            try (PreparedStatement ps = connection.prepareStatement(SELECT_VEHICLES + " WHERE vehicle_id = ?")) {
+                ps.setString(1, id);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (!rs.next()) return null;
+                    vehicle = readVehicle(rs);
+                }
+            }
+            try (PreparedStatement ps = connection.prepareStatement(
+                    SELECT_RECORDS + " WHERE vehicle_id = ? ORDER BY seq")) {
+                ps.setString(1, id);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        vehicle.addMaintenanceRecord(readRecord(rs));
+                    }
+                }
+            }
+            vehicle.markClean();
+            return vehicle;
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to load vehicle " + id + " from database", e);
+        }
+    }
+
+    @Override
+    public synchronized void addVehicle(VehicleBase vehicle) {
+        if (vehicle == null) throw new IllegalArgumentException("vehicle cannot be null");
+
+        inTransaction(() -> {
+            try (PreparedStatement ps = connection.prepareStatement(INSERT_VEHICLE)) {
+                bindVehicle(ps, vehicle);
+                ps.executeUpdate();
+            }
+            try (PreparedStatement ps = connection.prepareStatement(INSERT_RECORD)) {
+                for (MaintenanceRecord r : vehicle.getMaintenanceHistory()) {
+                    bindRecord(ps, vehicle.getVehicleId(), r);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+        });
+    }
+
+    @Override
+    public synchronized void removeVehicle(String vehicleId) {
+        // records go with it through ON DELETE CASCADE
+        update("DELETE FROM vehicle WHERE vehicle_id = ?", VehicleBase.requireNonBlank(vehicleId, "vehicleId"));
+    }
+
+    @Override
+    public synchronized void addRecord(String vehicleId, MaintenanceRecord record) {
+        if (record == null) throw new IllegalArgumentException("MaintenanceRecord cannot be null");
+        String id = VehicleBase.requireNonBlank(vehicleId, "vehicleId");
+
+        try (PreparedStatement ps = connection.prepareStatement(INSERT_RECORD)) {
+            bindRecord(ps, id, record);
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to save record for vehicle " + id, e);
+        }
+    }
+
+    @Override
+    public synchronized void removeRecord(String vehicleId, String recordId) {
+        update("DELETE FROM maintenance_record WHERE vehicle_id = ? AND record_id = ?",
+                VehicleBase.requireNonBlank(vehicleId, "vehicleId"),
+                VehicleBase.requireNonBlank(recordId, "recordId"));
+    }
+
+    @Override
+    public synchronized void updateMileage(String vehicleId, int mileage) {
+        update("UPDATE vehicle SET current_mileage = ? WHERE vehicle_id = ?",
+                mileage, VehicleBase.requireNonBlank(vehicleId, "vehicleId"));
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to close garage database", e);
+        }
+    }
+
+    // ---- helpers ----
+
+    private interface SqlWork {
+        void run() throws SQLException;
+    }
+
+    private void inTransaction(SqlWork work) {
+        try {
+            connection.setAutoCommit(false);
+            try {
+                work.run();
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to save garage to database", e);
+        }
+    }
+
+    private void update(String sql, Object... params) {
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            for (int i = 0; i < params.length; i++) {
+                ps.setObject(i + 1, params[i]);
+            }
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to save garage to database", e);
+        }
+    }
+
+    private static void bindVehicle(PreparedStatement ps, VehicleBase v) throws SQLException {
+        int extra;
+        if (v instanceof Car c) extra = c.getNumberOfDoors();
+        else if (v instanceof Motorcycle m) extra = m.getEngineCC();
+        else throw new IllegalArgumentException("Unsupported vehicle type: " + v.getClass().getName());
+
+        ps.setString(1, v.getVehicleId());
+        ps.setString(2, v.getVehicleType());
+        ps.setString(3, v.getNickname());
+        ps.setString(4, v.getMake());
+        ps.setString(5, v.getModel());
+        ps.setInt(6, v.getYear());
+        ps.setInt(7, v.getCurrentMileage());
+        ps.setInt(8, extra);
+    }
+
+    private static void bindRecord(PreparedStatement ps, String vehicleId, MaintenanceRecord r) throws SQLException {
+        ps.setString(1, vehicleId);
+        ps.setString(2, r.getRecordId());
+        ps.setString(3, r.getServiceDate());
+        ps.setString(4, r.getServiceType());
+        ps.setInt(5, r.getMileageAtService());
+        ps.setString(6, r.getNotes());
+    }
+
+    private static VehicleBase readVehicle(ResultSet rs) throws SQLException {
+        String type = rs.getString(2);
+        String vehicleId = rs.getString(1);
+        String nickname = rs.getString(3);
+        String make = rs.getString(4);
+        String model = rs.getString(5);
+        int year = rs.getInt(6);
+        int mileage = rs.getInt(7);
+        int extra = rs.getInt(8);
+
+        return switch (type) {
+            case TYPE_CAR -> new Car(vehicleId, nickname, make, model, year, mileage, extra);
+            case TYPE_MOTORCYCLE -> new Motorcycle(vehicleId, nickname, make, model, year, mileage, extra);
+            default -> throw new IllegalArgumentException("Unknown vehicle type: " + type);
+        };
+    }
+
+    private static MaintenanceRecord readRecord(ResultSet rs) throws SQLException {
+        return new MaintenanceRecord(rs.getString(2), rs.getString(3), rs.getString(4), rs.getInt(5), rs.getString(6));
+    }
+}
@@ -2,165 +2,751 @@ package com.garagemate.persistence;
 
 import com.garagemate.model.*;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
 
 /**
  * Saves and loads Garage Mate data to a local TEXT FILE
+ * Small changes can be appended to a journal next to the file instead of rewriting it,
+ * the journal is replayed on top of the file at load and cleared by the next full save
+ * Snapshots are written to a temp file and atomically moved into place,
+ * a background compactor folds a large journal into a fresh snapshot
+ * In lazy history mode only the vehicles are read at load, each history is read
+ * from the snapshot the first time it's needed (call close() when done)
+ * A snapshot that carries line checksums (see GarageFileVerifier) keeps them on every rewrite
+ * Several processes can share one file: writes hold a file lock and bump a version stamp,
+ * a full save that finds a newer version than it loaded merges its changes into what's stored
+ * A bad line (checksum mismatch, doesn't parse) is skipped and reported, the rest still loads
  */
-public class TextFileRepository {
+public class TextFileRepository implements GarageRepository {
+
+    // compact once the journal grows past this, keeps startup replay short
+    private static final long DEFAULT_COMPACT_THRESHOLD_BYTES = 1024 * 1024;
+
+    // snapshots bigger than this are parsed on every core, smaller ones aren't worth the threads
+    private static final long PARALLEL_LOAD_THRESHOLD_BYTES = 8 * 1024 * 1024;
+
+    // first line of every snapshot and journal written since all text fields are escaped
+    // LineChecksum's header starts the same way and implies the same rules,
+    // a file without either is from before and only has escapes in the notes
+    static final String FORMAT_HEADER = "#garage-mate 2";
+    private static final String HEADER_PREFIX = "#garage-mate ";
+    private static final byte[] HEADER_PREFIX_BYTES = HEADER_PREFIX.getBytes(StandardCharsets.UTF_8);
 
     private final Path filePath;
+    private final GarageJournal journal;
+    private final GarageJournal compactingJournal;
+    private final SnapshotCompactor compactor;
+    private final long compactThresholdBytes;
+    private final boolean lazyHistory;
+    private final GarageFileLock fileLock;
+
+    // version of the stored garage the in-memory one is based on, -1 until loaded
+    // left alone when our own write lands on top of someone else's, so the next full save still merges
+    private volatile long knownVersion = -1;
+
+    // open snapshots that unloaded histories still point into, guarded by snapshotLock
+    // each closes by itself once its garage is collected, closed ones are dropped at the next load
+    private final List<LazyHistoryIndex.OpenSnapshot> lazySnapshots = new ArrayList<>();
+
+    // snapshot writes, compaction and loads never overlap
+    private final Object snapshotLock = new Object();
+
+    // lines loads had to leave out, stderr until the owner says otherwise
+    private volatile Consumer<SkippedLine> onSkippedLine = line -> System.err.println("Skipped " + line);
 
     public TextFileRepository(String filePath) {
+        this(filePath, DEFAULT_COMPACT_THRESHOLD_BYTES, false);
+    }
+
+    public TextFileRepository(String filePath, boolean lazyHistory) {
+        this(filePath, DEFAULT_COMPACT_THRESHOLD_BYTES, lazyHistory);
+    }
+
+    public TextFileRepository(String filePath, long compactThresholdBytes) {
+        this(filePath, compactThresholdBytes, false);
+    }
+
+    public TextFileRepository(String filePath, long compactThresholdBytes, boolean lazyHistory) {
+        if (compactThresholdBytes <= 0) throw new IllegalArgumentException("compactThresholdBytes must be > 0");
         this.filePath = Paths.get(VehicleBase.requireNonBlank(filePath, "filePath"));
+        this.journal = new GarageJournal(Paths.get(this.filePath + ".journal"));
+        this.compactingJournal = new GarageJournal(Paths.get(this.filePath + ".journal.compacting"));
+        this.compactor = new SnapshotCompactor(this);
+        this.compactThresholdBytes = compactThresholdBytes;
+        this.lazyHistory = lazyHistory;
+        this.fileLock = new GarageFileLock(Paths.get(this.filePath + ".lock"));
+    }
+
+    /**
+     * Where background compaction failures go, called on the compactor's thread
+     * The journal is left intact when compaction fails, so this is a warning rather than lost data
+     */
+    public void setOnBackgroundFailure(Consumer<Exception> onFailure) {
+        compactor.setOnFailure(onFailure);
+    }
+
+    /**
+     * Where loads report the lines they left out, called on the loading thread
+     * (for a lazy history, whichever thread first reads it)
+     */
+    public void setOnSkippedLine(Consumer<SkippedLine> onSkippedLine) {
+        if (onSkippedLine == null) throw new IllegalArgumentException("onSkippedLine cannot be null");
+        this.onSkippedLine = onSkippedLine;
     }
 
+    @Override
     public Garage loadGarage() {
-        Garage garage = new Garage();
+        synchronized (snapshotLock) {
+            Garage garage = new Garage();
+            try (GarageFileLock.Held lock = fileLock.shared()) {
+                if (lazyHistory) readSnapshotLazily(garage);
+                else readSnapshot(garage);
+
+                // a compaction that was interrupted leaves its journal behind, it is older than the live one
+                replayJournal(compactingJournal, garage, onSkippedLine);
+                replayJournal(journal, garage, onSkippedLine);
+                knownVersion = lock.version();
+            }
+
+            // everything just loaded is already stored
+            garage.markClean();
+            return garage;
+        }
+    }
+
+    @Override
+    public void saveGarage(Garage garage) {
+        if (garage == null) throw new IllegalArgumentException("garage cannot be null");
+
+        synchronized (snapshotLock) {
+            try (GarageFileLock.Held lock = fileLock.exclusive()) {
+                long stored = lock.version();
+                // someone else wrote since we loaded, writing ours as-is would throw their changes away
+                Garage toWrite = knownVersion >= 0 && stored != knownVersion ? mergeWithStored(garage) : garage;
+                writeSnapshot(toWrite);
+
+                // the snapshot now has every journaled change
+                compactingJournal.reset();
+                journal.reset();
+                long written = lock.commit();
+                // a merged write stored changes the caller's garage still doesn't have,
+                // stay stale so every full save merges again until the next load picks them up
+                if (toWrite == garage) knownVersion = written;
+            }
+        }
+    }
+
+    /**
+     * Version stamp of the stored garage this repository last loaded or wrote, -1 before the first load
+     * A save that had to merge in someone else's changes leaves it at the older stamp
+     */
+    public long getKnownVersion() {
+        return knownVersion;
+    }
+
+    // what's stored now with our unsaved changes on top: our changed vehicles win,
+    // our removals apply, everything we didn't touch comes from the file
+    private Garage mergeWithStored(Garage ours) {
+        Garage merged = new Garage();
+        readSnapshot(merged);
+        replayJournal(compactingJournal, merged, onSkippedLine);
+        replayJournal(journal, merged, onSkippedLine);
+
+        for (VehicleBase v : merged.getAllVehicles()) {
+            if (ours.isRemovedSinceSave(v.getVehicleId())) merged.removeVehicle(v.getVehicleId());
+        }
+        for (VehicleBase v : ours.vehicles()) {
+            if (v.isDirty()) merged.putVehicle(v);
+        }
+        return merged;
+    }
+
+    /**
+     * Folds the journal into a fresh snapshot on the compactor's background thread
+     * The in-memory garage isn't touched, the new snapshot is rebuilt from disk
+     */
+    public Future<?> compactInBackground() {
+        return compactor.requestCompaction();
+    }
+
+    // called by SnapshotCompactor, never on the caller's thread
+    // the file lock is only held to rotate and to swap in the result, appends keep going in between
+    // the stored garage doesn't change, so the version stays put
+    void compactJournal() {
+        synchronized (snapshotLock) {
+            FileStamp before;
+            GarageFileLock.Held rotateLock = fileLock.exclusive();
+            try (rotateLock) {
+                // fold a leftover from an interrupted compaction first, otherwise rotate the live journal
+                if (!compactingJournal.exists() && !journal.moveTo(compactingJournal.getPath())) {
+                    return; // nothing journaled since the last snapshot
+                }
+                before = snapshotStamp();
+            }
+
+            // appends keep going to a fresh live journal while this runs
+            // a bad journal entry fails the compaction, so the journal stays for a look instead of being folded away
+            Garage garage = new Garage();
+            readSnapshot(garage);
+            replayJournal(compactingJournal, garage, null);
+
+            GarageFileLock.Held swapLock = fileLock.exclusive();
+            try (swapLock) {
+                // another process saved or compacted meanwhile, what we built is already out of date
+                if (!compactingJournal.exists() || !Objects.equals(before, snapshotStamp())) return;
+                writeSnapshot(garage);
+                compactingJournal.reset();
+            }
+        }
+    }
+
+    private FileStamp snapshotStamp() {
+        try {
+            return FileStamp.of(filePath);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read garage file: " + filePath, e);
+        }
+    }
+
+    // vehicles now, histories on first use, the journal replay below faults in only what it touches
+    private void readSnapshotLazily(Garage garage) {
+        if (!Files.exists(filePath)) {
+            return;
+        }
+        try {
+            lazySnapshots.removeIf(s -> !s.isOpen());
+            lazySnapshots.add(LazyHistoryIndex.load(filePath, garage, onSkippedLine).snapshot());
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to load garage from file: " + filePath, e);
+        }
+    }
+
+    /**
+     * Releases the snapshots that lazy histories read from
+     * A history that wasn't loaded yet reopens the file when it's needed, if the file was
+     * saved over since its garage was loaded that throws IllegalStateException instead
+     */
+    @Override
+    public void close() {
+        synchronized (snapshotLock) {
+            try {
+                for (LazyHistoryIndex.OpenSnapshot snapshot : lazySnapshots) {
+                    snapshot.close();
+                }
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to close garage file: " + filePath, e);
+            } finally {
+                lazySnapshots.clear();
+            }
+        }
+    }
+
+    // snapshots still held open for lazy histories, for tests
+    int openLazySnapshots() {
+        synchronized (snapshotLock) {
+            return (int) lazySnapshots.stream().filter(LazyHistoryIndex.OpenSnapshot::isOpen).count();
+        }
+    }
 
+    private void readSnapshot(Garage garage) {
         // check if text file exists first
         if (!Files.exists(filePath)) {
-            return garage; // if no file exists, initialize an empty garage
+            return; // if no file exists, start from an empty garage
         }
 
-        // text file exists, parse through it!
         try {
-            List<String> lines = Files.readAllLines(filePath);
+            int cores = Runtime.getRuntime().availableProcessors();
+            if (cores > 1 && Files.size(filePath) >= PARALLEL_LOAD_THRESHOLD_BYTES) {
+                new ParallelGarageLoader(cores, ParallelGarageLoader.DEFAULT_MIN_CHUNK_BYTES)
+                        .load(filePath, garage, onSkippedLine);
+                return;
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to load garage from file: " + filePath, e);
+        }
 
-            // pass 1: load vehicles
-            for (String line : lines) {
-                if (line == null || line.trim().isEmpty()) continue;
-                if (line.startsWith("V|")) {
-                    VehicleBase v = parseVehicleLine(line);
-                    garage.addVehicle(v);
+        // text file exists, stream through it once
+        try (LineReader reader = new LineReader(
+                new InputStreamReader(Files.newInputStream(filePath), StandardCharsets.UTF_8))) {
+            readLines(reader, garage, filePath.toString(), onSkippedLine);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to load garage from file: " + filePath, e);
+        }
+    }
+
+    /**
+     * Adds every vehicle and record from snapshot-format lines to the garage, a bad line throws
+     */
+    static void readLines(LineReader reader, Garage garage) throws IOException {
+        readLines(reader, garage, "", skipped -> {
+            throw new IllegalArgumentException(skipped.reason() + ": " + skipped.line());
+        });
+    }
+
+    /**
+     * Adds every vehicle and record from snapshot-format lines to the garage
+     * Vehicles are built as soon as their line is read, records attach right away
+     * and only get parked when their vehicle line hasn't shown up yet
+     * A line with a bad checksum, or that doesn't parse or fit the garage, goes to onSkipped
+     */
+    static void readLines(LineReader reader, Garage garage, String source, Consumer<SkippedLine> onSkipped)
+            throws IOException {
+        Map<String, List<MaintenanceRecord>> pending = new HashMap<>();
+        LineScanner scanner = new LineScanner();
+        VehicleBase last = null;
+        boolean first = true;
+        CRC32C crc = null; // set when the file has checksums
+
+        while (reader.nextLine(scanner)) {
+            if (first) {
+                first = false;
+                boolean header = scanner.lineStartsWith(HEADER_PREFIX);
+                scanner.legacyEscapes(!header);
+                if (header) {
+                    if (scanner.line().equals(LineChecksum.HEADER)) crc = new CRC32C();
+                    continue;
+                }
+            }
+            if (crc != null) {
+                String line = scanner.line();
+                if (!line.isBlank() && !LineChecksum.matches(line, crc)) {
+                    onSkipped.accept(new SkippedLine(source, line, "checksum mismatch"));
+                    continue;
                 }
             }
 
-            // pass 2: load maintenance records and attach to vehicles
-            for (String line : lines) {
-                if (line == null || line.trim().isEmpty()) continue;
-                if (line.startsWith("R|")) {
-                    ParsedRecord pr = parseRecordLine(line);
-                    VehicleBase vehicle = garage.getVehicleById(pr.vehicleId);
+            try {
+                if (scanner.lineStartsWith("V|")) {
+                    VehicleBase v = parseVehicleLine(scanner);
+                    garage.addVehicle(v);
+                    last = v;
+
+                    // drain any records that were read before this vehicle
+                    List<MaintenanceRecord> parked = pending.remove(v.getVehicleId());
+                    if (parked != null) {
+                        for (MaintenanceRecord r : parked) {
+                            addRecord(v, r, source, onSkipped);
+                        }
+                    }
+                } else if (scanner.lineStartsWith("R|")) {
+                    scanner.skipField(); // "R"
+
+                    // records are saved grouped by vehicle, so the id nearly always matches
+                    // the previous line and no String has to be built just for the lookup
+                    if (last != null && scanner.peekFieldEquals(last.getVehicleId())) {
+                        scanner.skipField();
+                        last.addMaintenanceRecord(parseRecordFields(scanner));
+                        continue;
+                    }
+
+                    String vehicleId = scanner.nextString();
+                    MaintenanceRecord record = parseRecordFields(scanner);
+                    VehicleBase vehicle = garage.getVehicleById(vehicleId);
                     if (vehicle != null) {
-                        vehicle.addMaintenanceRecord(pr.record);
+                        vehicle.addMaintenanceRecord(record);
+                        last = vehicle;
+                    } else {
+                        pending.computeIfAbsent(vehicleId, k -> new ArrayList<>()).add(record);
                     }
                 }
+                // anything else is a blank or unknown line, skip it
+            } catch (IllegalArgumentException e) {
+                onSkipped.accept(new SkippedLine(source, scanner.line(), e.getMessage()));
             }
+        }
 
-            return garage;
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to load garage from file: " + filePath, e);
+        // anything still parked belongs to a vehicle that isn't in the file, drop it
+    }
+
+    // a record the vehicle refuses (duplicate id, more miles than the vehicle) is skipped, not fatal
+    static void addRecord(VehicleBase vehicle, MaintenanceRecord r, String source, Consumer<SkippedLine> onSkipped) {
+        try {
+            vehicle.addMaintenanceRecord(r);
+        } catch (IllegalArgumentException e) {
+            onSkipped.accept(new SkippedLine(source, toRecordLine(vehicle.getVehicleId(), r), e.getMessage()));
         }
     }
 
-    public void saveGarage(Garage garage) {
-        if (garage == null) throw new IllegalArgumentException("garage cannot be null");
+    // write to a temp file, fsync it, then atomically swap it in
+    // a crash or full disk mid-write leaves the previous snapshot untouched
+    private void writeSnapshot(Garage garage) {
+        Path dir = filePath.toAbsolutePath().getParent();
+        Path tempFile = filePath.resolveSibling(filePath.getFileName() + ".tmp");
+        boolean checksums = LineChecksum.hasHeader(filePath);
+
+        try {
+            Files.createDirectories(dir);
+
+            try (FileChannel channel = FileChannel.open(tempFile,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                 BufferedWriter writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8))) {
+
+                writeLines(writer, garage, checksums);
+                writer.flush();
+                channel.force(true);
+            }
+
+            try {
+                Files.move(tempFile, filePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                // some file systems can't do it, a plain replace is still better than truncating in place
+                Files.move(tempFile, filePath, StandardCopyOption.REPLACE_EXISTING);
+            }
+            syncDirectory(dir);
+        } catch (IOException e) {
+            try {
+                Files.deleteIfExists(tempFile);
+            } catch (IOException ignored) {
+                // the original error is the one worth reporting
+            }
+            throw new RuntimeException("Failed to save garage to file: " + filePath, e);
+        }
+    }
 
-        List<String> lines = new ArrayList<>();
+    /**
+     * Flushes a directory's entries to disk so a rename into it survives a power cut
+     * Best effort: some platforms (Windows) can't open a directory, the rename is still atomic there
+     */
+    static void syncDirectory(Path dir) {
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException | UnsupportedOperationException ignored) {
+            // nothing more we can do, the file itself is already on disk
+        }
+    }
 
-        for (VehicleBase v : garage.getAllVehicles()) {
-            lines.add(toVehicleLine(v));
+    /**
+     * Writes the garage in snapshot format: the format header, every vehicle line, then every record line
+     * With checksums LineChecksum's header takes the format header's place and each line is signed
+     */
+    static void writeLines(BufferedWriter writer, Garage garage, boolean checksums) throws IOException {
+        writer.write(checksums ? LineChecksum.HEADER : FORMAT_HEADER);
+        writer.newLine();
+        for (VehicleBase v : garage.vehicles()) {
+            String line = toVehicleLine(v);
+            writer.write(checksums ? LineChecksum.sign(line) : line);
+            writer.newLine();
         }
-        for (VehicleBase v : garage.getAllVehicles()) {
+        for (VehicleBase v : garage.vehicles()) {
             for (MaintenanceRecord r : v.getMaintenanceHistory()) {
-                lines.add(toRecordLine(v.getVehicleId(), r));
+                String line = toRecordLine(v.getVehicleId(), r);
+                writer.write(checksums ? LineChecksum.sign(line) : line);
+                writer.newLine();
             }
         }
+    }
 
-        try {
-            Files.createDirectories(filePath.getParent() == null ? Paths.get(".") : filePath.getParent());
-            Files.write(filePath, lines, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to save garage to file: " + filePath, e);
+    // ---- journaled changes ----
+    // one small line per mutation, cost is O(change) instead of O(garage)
+    //   V|...                   vehicle added (same layout as the snapshot)
+    //   R|...                   record added, or edited in place if its id is there (same layout as the snapshot)
+    //   -V|vehicleId            vehicle removed
+    //   -R|vehicleId|recordId   record removed
+    //   M|vehicleId|mileage     current mileage updated
+    //   E|...                   vehicle fields edited (V layout), its history stays
+    //   U|...                   vehicle replaced in place (V layout), its R lines follow
+
+    @Override
+    public void addVehicle(VehicleBase v) {
+        if (v == null) throw new IllegalArgumentException("vehicle cannot be null");
+        List<String> entries = new ArrayList<>();
+        entries.add(toVehicleLine(v));
+        for (MaintenanceRecord r : v.getMaintenanceHistory()) {
+            entries.add(toRecordLine(v.getVehicleId(), r));
+        }
+        appendEntries(entries);
+    }
+
+    @Override
+    public void removeVehicle(String vehicleId) {
+        StringBuilder sb = new StringBuilder("-V");
+        appendField(sb, VehicleBase.requireNonBlank(vehicleId, "vehicleId"));
+        appendEntries(List.of(sb.toString()));
+    }
+
+    @Override
+    public void addRecord(String vehicleId, MaintenanceRecord r) {
+        if (r == null) throw new IllegalArgumentException("MaintenanceRecord cannot be null");
+        appendEntries(List.of(toRecordLine(VehicleBase.requireNonBlank(vehicleId, "vehicleId"), r)));
+    }
+
+    @Override
+    public void removeRecord(String vehicleId, String recordId) {
+        StringBuilder sb = new StringBuilder("-R");
+        appendField(sb, VehicleBase.requireNonBlank(vehicleId, "vehicleId"));
+        appendField(sb, VehicleBase.requireNonBlank(recordId, "recordId"));
+        appendEntries(List.of(sb.toString()));
+    }
+
+    @Override
+    public void updateMileage(String vehicleId, int mileage) {
+        StringBuilder sb = new StringBuilder("M");
+        appendField(sb, VehicleBase.requireNonBlank(vehicleId, "vehicleId"));
+        sb.append('|').append(mileage);
+        appendEntries(List.of(sb.toString()));
+    }
+
+    /**
+     * Journals each removed id as -V, then for each changed vehicle only what changed:
+     * E or M for its fields, -R and R for its records. A vehicle that needs a full write
+     * (new, history cleared, added back after a removal) is a U line plus all its records
+     * Cost is the size of the changes, not the garage or the changed vehicles' histories
+     */
+    @Override
+    public void saveChanges(GarageChanges changes) {
+        if (changes == null) throw new IllegalArgumentException("changes cannot be null");
+        if (changes.isEmpty()) return;
+
+        List<String> entries = new ArrayList<>();
+        for (String id : changes.removedVehicleIds()) {
+            StringBuilder sb = new StringBuilder("-V");
+            appendField(sb, id);
+            entries.add(sb.toString());
+        }
+        for (VehicleBase v : changes.changedVehicles()) {
+            String id = v.getVehicleId();
+            if (v.needsFullWrite()) {
+                entries.add("U" + toVehicleLine(v).substring(1));
+                for (MaintenanceRecord r : v.getMaintenanceHistory()) {
+                    entries.add(toRecordLine(id, r));
+                }
+                continue;
+            }
+            if (v.hasFieldChanges()) {
+                entries.add("E" + toVehicleLine(v).substring(1));
+            } else if (v.hasMileageChange()) {
+                StringBuilder sb = new StringBuilder("M");
+                appendField(sb, id);
+                sb.append('|').append(v.getCurrentMileage());
+                entries.add(sb.toString());
+            }
+            // a record removed and added back is in both, -R first so it lands at the end like in memory
+            for (String recordId : v.getRemovedRecordIds()) {
+                StringBuilder sb = new StringBuilder("-R");
+                appendField(sb, id);
+                appendField(sb, recordId);
+                entries.add(sb.toString());
+            }
+            for (MaintenanceRecord r : v.getChangedRecords()) {
+                entries.add(toRecordLine(id, r));
+            }
+        }
+        appendEntries(entries);
+    }
+
+    private void appendEntries(List<String> entries) {
+        try (GarageFileLock.Held lock = fileLock.exclusive()) {
+            long stored = lock.version();
+            journal.append(entries);
+            long written = lock.commit();
+            // only move up if nobody else wrote in between
+            if (stored == knownVersion) knownVersion = written;
+        }
+        if (journal.sizeInBytes() >= compactThresholdBytes) {
+            compactor.requestCompaction();
+        }
+    }
+
+    // replay is idempotent: adds skip ids that already exist and removes ignore missing ids,
+    // so replaying entries a snapshot already contains leaves the garage unchanged
+    // an entry that doesn't apply goes to onSkipped, or fails the replay when that's null
+    private void replayJournal(GarageJournal source, Garage garage, Consumer<SkippedLine> onSkipped) {
+        String name = source.getPath().toString();
+        source.forEachEntry(new LineScanner(), s -> {
+            if (onSkipped == null) {
+                applyJournalEntry(garage, s);
+                return;
+            }
+            try {
+                applyJournalEntry(garage, s);
+            } catch (IllegalArgumentException e) {
+                onSkipped.accept(new SkippedLine(name, s.line(), e.getMessage()));
+            }
+        });
+    }
+
+    static void applyJournalEntry(Garage garage, LineScanner s) {
+        if (s.lineStartsWith("V|")) {
+            VehicleBase v = parseVehicleLine(s);
+            if (!garage.containsVehicle(v.getVehicleId())) garage.addVehicle(v);
+        } else if (s.lineStartsWith("U|")) {
+            // replaces the vehicle and its history, the record lines that follow refill it
+            garage.putVehicle(parseVehicleLine(s));
+        } else if (s.lineStartsWith("E|")) {
+            VehicleBase edited = parseVehicleLine(s);
+            VehicleBase vehicle = garage.getVehicleById(edited.getVehicleId());
+            if (vehicle == null) garage.addVehicle(edited);
+            else if (vehicle.getClass() != edited.getClass()) garage.putVehicle(edited); // can't happen through the model
+            else copyFields(edited, vehicle);
+        } else if (s.lineStartsWith("R|")) {
+            s.skipField();
+            VehicleBase vehicle = garage.getVehicleById(s.nextString());
+            MaintenanceRecord record = parseRecordFields(s);
+            if (vehicle == null) return;
+            MaintenanceRecord stored = vehicle.getMaintenanceRecord(record.getRecordId());
+            if (stored == null) vehicle.addMaintenanceRecord(record);
+            else copyFields(record, stored);
+        } else if (s.lineStartsWith("-V|")) {
+            s.skipField();
+            garage.removeVehicle(s.nextString());
+        } else if (s.lineStartsWith("-R|")) {
+            s.skipField();
+            VehicleBase vehicle = garage.getVehicleById(s.nextString());
+            String recordId = s.nextString();
+            if (vehicle != null) vehicle.removeMaintenanceRecord(recordId);
+        } else if (s.lineStartsWith("M|")) {
+            s.skipField();
+            VehicleBase vehicle = garage.getVehicleById(s.nextString());
+            int mileage = s.nextInt();
+            if (vehicle != null) vehicle.setCurrentMileage(mileage);
+        } else {
+            throw new IllegalArgumentException("Invalid journal line: " + s.line());
         }
     }
 
+    // setters only run for what differs, replaying an entry the garage already has changes nothing
+    private static void copyFields(VehicleBase from, VehicleBase to) {
+        if (!from.getNickname().equals(to.getNickname())) to.setNickname(from.getNickname());
+        if (!from.getMake().equals(to.getMake())) to.setMake(from.getMake());
+        if (!from.getModel().equals(to.getModel())) to.setModel(from.getModel());
+        if (from.getYear() != to.getYear()) to.setYear(from.getYear());
+        if (from.getCurrentMileage() != to.getCurrentMileage()) to.setCurrentMileage(from.getCurrentMileage());
+        if (from instanceof Car c && c.getNumberOfDoors() != ((Car) to).getNumberOfDoors()) {
+            ((Car) to).setNumberOfDoors(c.getNumberOfDoors());
+        } else if (from instanceof Motorcycle m && m.getEngineCC() != ((Motorcycle) to).getEngineCC()) {
+            ((Motorcycle) to).setEngineCC(m.getEngineCC());
+        }
+    }
+
+    private static void copyFields(MaintenanceRecord from, MaintenanceRecord to) {
+        if (!from.getServiceDate().equals(to.getServiceDate())) to.setServiceDate(from.getServiceDate());
+        if (!from.getServiceType().equals(to.getServiceType())) to.setServiceType(from.getServiceType());
+        if (from.getMileageAtService() != to.getMileageAtService()) to.setMileageAtService(from.getMileageAtService());
+        if (!from.getNotes().equals(to.getNotes())) to.setNotes(from.getNotes());
+    }
+
     // ---- parsing/formatting helpers ----
 
-    private VehicleBase parseVehicleLine(String line) {
+    private static final String[] VEHICLE_TYPES = {"Car", "Motorcycle"};
+
+    static VehicleBase parseVehicleLine(LineScanner s) {
         // records will always follow the same naming convention
         // V|type|vehicleId|nickname|make|model|year|mileage|extra
-        String[] parts = line.split("\\|", -1);
-        if (parts.length < 9) throw new IllegalArgumentException("Invalid vehicle line: " + line);
-
-        String type = parts[1];
-        String vehicleId = parts[2];
-        String nickname = parts[3];
-        String make = parts[4];
-        String model = parts[5];
-        int year = Integer.parseInt(parts[6]);
-        int mileage = Integer.parseInt(parts[7]);
-        int extra = Integer.parseInt(parts[8]);
-
-        return switch (type) {
-            case "Car" -> new Car(vehicleId, nickname, make, model, year, mileage, extra);
-            case "Motorcycle" -> new Motorcycle(vehicleId, nickname, make, model, year, mileage, extra);
-            default -> throw new IllegalArgumentException("Unknown vehicle type: " + type);
-        };
-    }
-
-    private ParsedRecord parseRecordLine(String line) {
+        s.skipField(); // "V"
+        int type = s.nextChoice(VEHICLE_TYPES);
+        if (type < 0) throw new IllegalArgumentException("Unknown vehicle type in line: " + s.line());
+
+        String vehicleId = s.nextString();
+        String nickname = s.nextString();
+        String make = s.nextString();
+        String model = s.nextString();
+        int year = s.nextInt();
+        int mileage = s.nextInt();
+        int extra = s.nextInt();
+
+        return type == 0
+                ? new Car(vehicleId, nickname, make, model, year, mileage, extra)
+                : new Motorcycle(vehicleId, nickname, make, model, year, mileage, extra);
+    }
+
+    static MaintenanceRecord parseRecordFields(LineScanner s) {
         // records will always follow the same naming convention
         // R|vehicleId|recordId|date|serviceType|mileageAtService|notes
-        String[] parts = line.split("\\|", -1);
-        if (parts.length < 7) throw new IllegalArgumentException("Invalid record line: " + line);
+        // the scanner is already past "R" and the vehicleId
+        String recordId = s.nextString();
+        String date = s.nextString();
+        String serviceType = s.nextString();
+        int mileageAtService = s.nextInt();
+        String notes = s.nextEscapedString();
 
-        String vehicleId = parts[1];
-        String recordId = parts[2];
-        String date = parts[3];
-        String serviceType = parts[4];
-        int mileageAtService = Integer.parseInt(parts[5]);
-        String notes = unescape(parts[6]);
+        return new MaintenanceRecord(recordId, date, serviceType, mileageAtService, notes);
+    }
 
-        MaintenanceRecord record = new MaintenanceRecord(recordId, date, serviceType, mileageAtService, notes);
-        return new ParsedRecord(vehicleId, record);
+    static boolean isFormatHeader(String line) {
+        return line.startsWith(HEADER_PREFIX);
     }
 
-    private String toVehicleLine(VehicleBase v) {
+    /**
+     * True when the file has no format header, its lines need LineScanner.legacyEscapes
+     * Reads the first bytes through the caller's channel, so it's the same file the caller parses
+     */
+    static boolean isLegacyFormat(FileChannel channel) throws IOException {
+        ByteBuffer first = ByteBuffer.allocate(HEADER_PREFIX_BYTES.length);
+        while (first.hasRemaining() && channel.read(first, first.position()) > 0) {
+            // short reads are allowed, keep going
+        }
+        return first.hasRemaining() || !Arrays.equals(first.array(), HEADER_PREFIX_BYTES);
+    }
+
+    /**
+     * A line from a file without format header, re-escaped for the current rules
+     * Only the notes of a record line had escapes, every other backslash was literal
+     */
+    static String upgradeLegacyLine(String line) {
+        LineScanner s = new LineScanner().legacyEscapes(true).reset(line);
+        boolean record = s.lineStartsWith("R|");
+        StringBuilder sb = new StringBuilder(line.length() + 8);
+        sb.append(s.nextString()); // the tag, never escaped
+        for (int field = 1; s.hasMoreFields(); field++) {
+            appendField(sb, record && field == 6 ? s.nextEscapedString() : s.nextString());
+        }
+        return sb.toString();
+    }
+
+    static String toVehicleLine(VehicleBase v) {
         int extra;
         if (v instanceof Car c) extra = c.getNumberOfDoors();
         else if (v instanceof Motorcycle m) extra = m.getEngineCC();
         else throw new IllegalArgumentException("Unsupported vehicle type: " + v.getClass().getName());
 
-        return String.join("|",
-                "V",
-                v.getVehicleType(),
-                v.getVehicleId(),
-                v.getNickname(),
-                v.getMake(),
-                v.getModel(),
-                String.valueOf(v.getYear()),
-                String.valueOf(v.getCurrentMileage()),
-                String.valueOf(extra)
-        );
-    }
-
-    private String toRecordLine(String vehicleId, MaintenanceRecord r) {
-        return String.join("|",
-                "R",
-                vehicleId,
-                r.getRecordId(),
-                r.getServiceDate(),
-                r.getServiceType(),
-                String.valueOf(r.getMileageAtService()),
-                escape(r.getNotes())
-        );
+        StringBuilder sb = new StringBuilder(96);
+        sb.append("V|").append(v.getVehicleType());
+        appendField(sb, v.getVehicleId());
+        appendField(sb, v.getNickname());
+        appendField(sb, v.getMake());
+        appendField(sb, v.getModel());
+        sb.append('|').append(v.getYear());
+        sb.append('|').append(v.getCurrentMileage());
+        sb.append('|').append(extra);
+        return sb.toString();
     }
 
-    // keep notes safe even if user types "|" in notes
-    private static String escape(String value) {
-        return value == null ? "" : value.replace("\\", "\\\\").replace("|", "\\|");
+    static String toRecordLine(String vehicleId, MaintenanceRecord r) {
+        StringBuilder sb = new StringBuilder(128);
+        sb.append('R');
+        appendField(sb, vehicleId);
+        appendField(sb, r.getRecordId());
+        appendField(sb, r.getServiceDate());
+        appendField(sb, r.getServiceType());
+        sb.append('|').append(r.getMileageAtService());
+        appendField(sb, r.getNotes());
+        return sb.toString();
     }
 
-    private static String unescape(String value) {
-        if (value == null) return "";
-        // simple unescape for the two escape rules
-        return value.replace("\\|", "|").replace("\\\\", "\\");
+    // keep every text field safe even if user types "|" in it, LineScanner undoes this
+    static void appendField(StringBuilder sb, String value) {
+        sb.append('|');
+        if (value == null) return;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '|' || c == '\\') sb.append('\\');
+            sb.append(c);
+        }
     }
-
-    private record ParsedRecord(String vehicleId, MaintenanceRecord record) {}
 }
@@ -0,0 +1,112 @@
+package com.garagemate.app;
+
+import com.garagemate.model.*;
+import com.garagemate.persistence.TextFileRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SaveSchedulerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void burstOfSavesIsCoalescedIntoNewestSnapshot() throws Exception {
+        TextFileRepository repo = new TextFileRepository(tempDir.resolve("garage-data.txt").toString());
+        SaveScheduler scheduler = new SaveScheduler(repo, ex -> fail(ex));
+
+        // hold the writer so the saves below pile up behind it
+        CountDownLatch release = new CountDownLatch(1);
+        scheduler.submitChange(() -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        Garage g = new Garage();
+        g.addVehicle(new Car("v1", "Daily", "Honda", "Civic", 2018, 50000, 4));
+        CompletableFuture<Void> first = scheduler.requestSave(g);
+        g.addVehicle(new Car("v2", "Spare", "Mazda", "3", 2020, 100, 4));
+        CompletableFuture<Void> second = scheduler.requestSave(g);
+        assertSame(first, second);
+
+        // edits after the request don't leak into the snapshot
+        g.getVehicleById("v1").setCurrentMileage(60000);
+
+        release.countDown();
+        second.get(5, TimeUnit.SECONDS);
+
+        Garage loaded = repo.loadGarage();
+        assertEquals(2, loaded.size());
+        assertEquals(50000, loaded.getVehicleById("v1").getCurrentMileage());
+    }
+
+    @Test
+    void closeFlushesPendingChangesIncrementally() {
+        TextFileRepository repo = new TextFileRepository(tempDir.resolve("garage-data.txt").toString());
+        Garage initial = new Garage();
+        initial.addVehicle(new Car("v1", "Daily", "Honda", "Civic", 2018, 50000, 4));
+        initial.addVehicle(new Car("v2", "Spare", "Mazda", "3", 2020, 100, 4));
+        repo.saveGarage(initial);
+
+        SaveScheduler scheduler = new SaveScheduler(repo, ex -> fail(ex));
+        Garage g = repo.loadGarage();
+        assertFalse(g.hasUnsavedChanges());
+
+        g.getVehicleById("v1").addMaintenanceRecord(new MaintenanceRecord("r1", "2026-02-17", "Oil Change", 49900, ""));
+        scheduler.requestChanges(g);
+        g.removeVehicle("v2");
+        g.addVehicle(new Motorcycle("v3", "Weekend", "Ducati", "Monster", 2022, 1200, 937));
+        scheduler.close(g);
+        assertFalse(g.hasUnsavedChanges());
+
+        // only the changes were journaled, the snapshot still has the original two vehicles
+        assertTrue(tempDir.resolve("garage-data.txt.journal").toFile().length() > 0);
+
+        Garage loaded = repo.loadGarage();
+        assertEquals(2, loaded.size());
+        assertEquals(1, loaded.getVehicleById("v1").getMaintenanceHistory().size());
+        assertFalse(loaded.containsVehicle("v2"));
+        assertTrue(loaded.containsVehicle("v3"));
+    }
+
+    @Test
+    void fullSaveLeavesLazyHistoriesOnDisk() throws Exception {
+        Path file = tempDir.resolve("garage-data.txt");
+        Garage initial = new Garage();
+        for (int i = 0; i < 3; i++) {
+            Car car = new Car("v" + i, "Daily", "Honda", "Civic", 2018, 50000, 4);
+            car.addMaintenanceRecord(new MaintenanceRecord("r" + i, "2026-02-17", "Oil Change", 49900, ""));
+            initial.addVehicle(car);
+        }
+        new TextFileRepository(file.toString()).saveGarage(initial);
+
+        TextFileRepository repo = new TextFileRepository(file.toString(), true);
+        Garage g = repo.loadGarage();
+        SaveScheduler scheduler = new SaveScheduler(repo, ex -> fail(ex));
+        g.getVehicleById("v0").setNickname("Renamed");
+        scheduler.requestSave(g).get(5, TimeUnit.SECONDS);
+
+        // the save read every history through the frozen copies, none of them kept it
+        Garage cached = g.frozenSnapshot();
+        for (VehicleBase v : g.vehicles()) {
+            assertFalse(v.isHistoryLoaded(), v.getVehicleId());
+            assertFalse(cached.getVehicleById(v.getVehicleId()).isHistoryLoaded(), v.getVehicleId());
+        }
+        assertEquals(1, cached.getVehicleById("v2").getMaintenanceHistory().size());
+        assertFalse(cached.getVehicleById("v2").isHistoryLoaded());
+
+        assertEquals("Renamed", new TextFileRepository(file.toString()).loadGarage().getVehicleById("v0").getNickname());
+        scheduler.close(g);
+        repo.close();
+    }
+}
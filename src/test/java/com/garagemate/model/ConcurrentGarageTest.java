@@ -0,0 +1,151 @@
+package com.garagemate.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentGarageTest {
+
+    private static Car car(String id) {
+        return new Car(id, "Car " + id, "Honda", "Civic", 2018, 50000, 4);
+    }
+
+    private static List<String> ids(Garage g) {
+        List<String> ids = new ArrayList<>();
+        for (VehicleBase v : g.vehicles()) ids.add(v.getVehicleId());
+        return ids;
+    }
+
+    @Test
+    void keepsInsertionOrderThroughReplaceRemoveAndCompaction() {
+        ConcurrentGarage g = new ConcurrentGarage();
+        for (int i = 0; i < 100; i++) g.addVehicle(car("v" + i));
+
+        // replacing keeps the position, removing most of them compacts the order
+        g.putVehicle(new Motorcycle("v5", "Bike", "Honda", "CB", 2020, 1000, 650));
+        for (int i = 10; i < 100; i++) g.removeVehicle("v" + i);
+        g.addVehicle(car("late"));
+
+        assertEquals(List.of("v0", "v1", "v2", "v3", "v4", "v5", "v6", "v7", "v8", "v9", "late"), ids(g));
+        assertEquals("Motorcycle", g.getVehicleById("v5").getVehicleType());
+        assertEquals(11, g.size());
+        assertThrows(IllegalArgumentException.class, () -> g.addVehicle(car("v1")));
+    }
+
+    @Test
+    void readersIterateWhileWritersChangeTheGarage() throws Exception {
+        ConcurrentGarage g = new ConcurrentGarage();
+        for (int i = 0; i < 1000; i++) g.addVehicle(car("base" + i));
+
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            try {
+                while (!done.get()) {
+                    int seen = 0;
+                    String previous = null;
+                    for (VehicleBase v : g.vehicles()) {
+                        // the base vehicles are never touched, they always come back in order
+                        if (v.getVehicleId().startsWith("base")) {
+                            int n = Integer.parseInt(v.getVehicleId().substring(4));
+                            if (previous != null) assertEquals(Integer.parseInt(previous) + 1, n);
+                            previous = String.valueOf(n);
+                            seen++;
+                        }
+                    }
+                    assertEquals(1000, seen);
+                }
+            } catch (Throwable t) {
+                failure.set(t);
+            }
+        });
+        reader.start();
+
+        List<Thread> writers = new ArrayList<>();
+        for (int w = 0; w < 4; w++) {
+            int writer = w;
+            writers.add(new Thread(() -> {
+                for (int i = 0; i < 2000; i++) {
+                    String id = "w" + writer + "-" + i;
+                    g.addVehicle(car(id));
+                    if (i % 2 == 0) g.removeVehicle(id);
+                }
+            }));
+        }
+        for (Thread t : writers) t.start();
+        for (Thread t : writers) t.join();
+        done.set(true);
+        reader.join();
+
+        assertNull(failure.get());
+        assertEquals(1000 + 4 * 1000, g.size());
+        assertEquals(g.size(), ids(g).size());
+    }
+
+    @Test
+    void listenersSeeWritesInTheOrderTheyHappened() throws Exception {
+        ConcurrentGarage g = new ConcurrentGarage();
+        List<String> events = new CopyOnWriteArrayList<>();
+        CountDownLatch inAdd = new CountDownLatch(1);
+        CountDownLatch removed = new CountDownLatch(1);
+        g.addListener(new GarageListener() {
+            @Override
+            public void vehicleAdded(VehicleBase vehicle) {
+                inAdd.countDown();
+                try {
+                    // a removal on another thread must wait for this event, not overtake it
+                    removed.await(200, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                events.add("added " + vehicle.getVehicleId());
+            }
+
+            @Override
+            public void vehicleRemoved(VehicleBase vehicle) {
+                events.add("removed " + vehicle.getVehicleId());
+            }
+        });
+
+        Thread remover = new Thread(() -> {
+            try {
+                inAdd.await();
+            } catch (InterruptedException e) {
+                return;
+            }
+            g.removeVehicle("v1");
+            removed.countDown();
+        });
+        remover.start();
+        g.addVehicle(car("v1"));
+        remover.join();
+
+        assertEquals(List.of("added v1", "removed v1"), events);
+        assertEquals(0, g.size());
+    }
+
+    @Test
+    void takesOverALoadedGarageWithItsPendingRemovals() {
+        Garage loaded = new Garage();
+        loaded.addVehicle(car("v1"));
+        loaded.addVehicle(car("v2"));
+        loaded.markClean();
+        loaded.removeVehicle("v2");
+
+        ConcurrentGarage g = new ConcurrentGarage(loaded);
+        assertSame(loaded.getVehicleById("v1"), g.getVehicleById("v1"));
+        assertTrue(g.isRemovedSinceSave("v2"));
+
+        GarageChanges changes = g.takeChanges();
+        assertEquals(List.of("v2"), List.copyOf(changes.removedVehicleIds()));
+        assertTrue(changes.changedVehicles().isEmpty());
+    }
+}
@@ -0,0 +1,142 @@
+package com.garagemate.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FleetAnalyticsTest {
+
+    private static final String[] TYPES = {"Oil Change", "oil change", "Tires", "Brakes"};
+
+    private static Garage garage(int n, Random random) {
+        Garage g = new Garage();
+        for (int i = 0; i < n; i++) {
+            VehicleBase v = i % 4 == 0
+                    ? new Motorcycle("m" + i, "Bike " + i, "Ducati", "Monster", 2015 + random.nextInt(8), 30000, 821)
+                    : new Car("c" + i, "Car " + i, i % 2 == 0 ? "Honda" : "HONDA", "Civic", 2015 + random.nextInt(8), 60000, 4);
+            addRecords(v, "r" + i + "-", random.nextInt(6), random);
+            g.addVehicle(v);
+        }
+        return g;
+    }
+
+    private static void addRecords(VehicleBase v, String prefix, int count, Random random) {
+        LocalDate day = LocalDate.of(2020, 1, 1).plusDays(random.nextInt(100));
+        int mileage = random.nextInt(1000);
+        for (int j = 0; j < count; j++) {
+            day = day.plusDays(30 + random.nextInt(200));
+            mileage += 1000 + random.nextInt(5000);
+            v.addMaintenanceRecord(new MaintenanceRecord(prefix + j, day, TYPES[random.nextInt(TYPES.length)], mileage, ""));
+        }
+    }
+
+    @Test
+    void aggregatesOneVehicle() {
+        Garage g = new Garage();
+        Car c = new Car("c1", "Daily", "Honda", "Civic", 2018, 20000, 4);
+        c.addMaintenanceRecord(new MaintenanceRecord("r2", "2025-07-01", "Oil Change", 15000, ""));
+        c.addMaintenanceRecord(new MaintenanceRecord("r1", "2025-01-01", "Oil Change", 10000, ""));
+        c.addMaintenanceRecord(new MaintenanceRecord("r3", "2026-01-01", "Tires", 19000, ""));
+        c.addMaintenanceRecord(new MaintenanceRecord("r4", "sometime", "tires", 12000, "")); // no date, counted but no gap
+        g.addVehicle(c);
+
+        FleetStats stats = FleetAnalytics.compute(g);
+        assertEquals(2L, stats.serviceCounts().get("oil change"));
+        assertEquals(2L, stats.serviceCounts().get("tires"));
+        FleetStats.ServiceGaps gaps = stats.gapsByMakeModel().get(new FleetStats.MakeModel("honda", "civic"));
+        assertEquals(2, gaps.gaps());
+        assertEquals(4500, gaps.averageMiles());
+        assertEquals(365 / 2.0, gaps.averageDays());
+        assertEquals(gaps, FleetAnalytics.gapsOf(c));
+        assertEquals(new FleetStats.MileageStats(1, 20000, 20000, 20000), stats.mileageByYear().get(2018));
+    }
+
+    @Test
+    void incrementalTotalsMatchAFullPass() {
+        Random random = new Random(11);
+        Garage g = garage(400, random);
+        FleetAnalytics analytics = new FleetAnalytics(g);
+        assertEquals(FleetAnalytics.compute(g), analytics.stats());
+
+        FleetStats before = analytics.stats();
+        assertSame(before, analytics.stats()); // nothing changed, nothing rebuilt
+
+        for (int i = 0; i < 300; i++) {
+            int n = random.nextInt(400);
+            VehicleBase v = g.getVehicleById((n % 4 == 0 ? "m" : "c") + n);
+            if (v == null) continue; // removed earlier
+            switch (random.nextInt(5)) {
+                case 0 -> v.setCurrentMileage(v.getCurrentMileage() + random.nextInt(5000));
+                case 1 -> addRecords(v, "x" + i + "-", 1 + random.nextInt(2), random);
+                case 2 -> v.setModel(random.nextBoolean() ? "Accord" : "Civic");
+                case 3 -> g.removeVehicle(v.getVehicleId());
+                default -> g.addVehicle(new Car("n" + i, "New " + i, "Mazda", "3", 2024, random.nextInt(1000), 4));
+            }
+            if (v.getMaintenanceHistory().size() > 0 && random.nextInt(10) == 0) {
+                v.getMaintenanceHistory().get(0).setServiceType("Brakes");
+            }
+        }
+        assertNotSame(before, analytics.stats());
+        assertEquals(FleetAnalytics.compute(g), analytics.stats());
+
+        VehicleBase any = g.vehicles().iterator().next();
+        assertEquals(FleetAnalytics.gapsOf(any), analytics.gapsFor(any.getVehicleId()));
+        analytics.close();
+    }
+
+    @Test
+    void startingPassLeavesLazyHistoriesOnDiskAndAddsAreCountedIn() {
+        Garage g = new Garage();
+        Car c = new Car("c1", "Daily", "Honda", "Civic", 2018, 20000, 4);
+        c.markClean();
+        c.setLazyHistory(() -> List.of(
+                new MaintenanceRecord("r1", "2025-07-01", "Oil Change", 15000, ""),
+                new MaintenanceRecord("r2", "2026-01-01", "Tires", 19000, "")));
+        g.addVehicle(c);
+
+        FleetAnalytics analytics = new FleetAnalytics(g);
+        assertEquals(1, analytics.gapsFor("c1").gaps());
+        assertFalse(c.isHistoryLoaded());
+        assertFalse(g.frozenSnapshot().getVehicleById("c1").isHistoryLoaded());
+
+        // earlier than anything there, the first date moves
+        c.addMaintenanceRecord(new MaintenanceRecord("r0", "2025-01-01", "oil change", 10000, ""));
+        c.addMaintenanceRecord(new MaintenanceRecord("r3", "whenever", "Brakes", 19500, ""));
+        assertEquals(FleetAnalytics.gapsOf(c), analytics.gapsFor("c1"));
+        assertEquals(FleetAnalytics.compute(g), analytics.stats());
+        assertEquals(2L, analytics.stats().serviceCounts().get("oil change"));
+        analytics.close();
+    }
+
+    @Test
+    void recordAddedDuringTheStartingPassIsCounted() {
+        Garage g = new Garage();
+        Car busy = new Car("c2", "Busy", "Honda", "Civic", 2019, 30000, 4);
+        busy.addMaintenanceRecord(new MaintenanceRecord("b1", "2025-01-01", "Oil Change", 20000, ""));
+        g.addVehicle(busy);
+
+        // reading c1's history for the pass is what adds to c2, after c2 was frozen
+        AtomicBoolean added = new AtomicBoolean();
+        Car lazy = new Car("c1", "Daily", "Honda", "Civic", 2018, 20000, 4);
+        lazy.markClean();
+        lazy.setLazyHistory(() -> {
+            if (added.compareAndSet(false, true)) {
+                busy.addMaintenanceRecord(new MaintenanceRecord("b2", "2025-06-01", "Tires", 25000, ""));
+            }
+            return List.of(new MaintenanceRecord("r1", "2025-07-01", "Oil Change", 15000, ""));
+        });
+        g.addVehicle(lazy);
+
+        FleetAnalytics analytics = new FleetAnalytics(g);
+        assertTrue(added.get());
+        assertEquals(FleetAnalytics.compute(g), analytics.stats());
+        assertEquals(1L, analytics.stats().serviceCounts().get("tires"));
+        assertEquals(FleetAnalytics.gapsOf(busy), analytics.gapsFor("c2"));
+        analytics.close();
+    }
+}
@@ -26,4 +26,185 @@ class GarageTest {
         assertThrows(IllegalArgumentException.class,
                 () -> g.addVehicle(new Car("v1", "B", "Honda", "Accord", 2019, 2, 4)));
     }
+
+    @Test
+    void snapshotIsIndependentOfGarage() {
+        Garage g = new Garage();
+        Car c = new Car("v1", "Daily", "Honda", "Civic", 2018, 50000, 4);
+        c.addMaintenanceRecord(new MaintenanceRecord("r1", "2026-02-17", "Oil Change", 49900, ""));
+        g.addVehicle(c);
+
+        Garage snapshot = g.snapshot();
+        c.setCurrentMileage(60000);
+        c.removeMaintenanceRecord("r1");
+        g.addVehicle(new Car("v2", "B", "Honda", "Accord", 2019, 2, 4));
+
+        assertEquals(1, snapshot.size());
+        VehicleBase copy = snapshot.getVehicleById("v1");
+        assertEquals(50000, copy.getCurrentMileage());
+        assertEquals(1, copy.getMaintenanceHistory().size());
+        assertEquals(4, ((Car) copy).getNumberOfDoors());
+    }
+
+    @Test
+    void frozenSnapshotIsReadOnlyAndUnaffectedByLaterEdits() {
+        Garage g = new Garage();
+        Car c = new Car("v1", "Daily", "Honda", "Civic", 2018, 50000, 4);
+        c.addMaintenanceRecord(new MaintenanceRecord("r1", "2026-02-17", "Oil Change", 49900, ""));
+        g.addVehicle(c);
+        g.addVehicle(new Car("v2", "B", "Honda", "Accord", 2019, 2, 4));
+
+        Garage snapshot = g.frozenSnapshot();
+        c.setCurrentMileage(60000);
+        c.getMaintenanceRecord("r1").setNotes("changed");
+        g.removeVehicle("v2");
+        g.addVehicle(new Car("v3", "C", "Mazda", "3", 2020, 100, 4));
+
+        assertEquals(2, snapshot.size());
+        VehicleBase frozen = snapshot.getVehicleById("v1");
+        assertEquals(50000, frozen.getCurrentMileage());
+        assertEquals("", frozen.getMaintenanceRecord("r1").getNotes());
+        assertNotNull(snapshot.getVehicleById("v2"));
+        assertNull(snapshot.getVehicleById("v3"));
+
+        assertThrows(UnsupportedOperationException.class, () -> frozen.setNickname("x"));
+        assertThrows(UnsupportedOperationException.class, () -> ((Car) frozen).setNumberOfDoors(2));
+        assertThrows(UnsupportedOperationException.class,
+                () -> frozen.getMaintenanceRecord("r1").setNotes("x"));
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.removeVehicle("v1"));
+
+        // a copy of a frozen vehicle is an ordinary one again
+        VehicleBase copy = frozen.copy();
+        copy.setNickname("Editable");
+        copy.getMaintenanceRecord("r1").setNotes("fine");
+    }
+
+    @Test
+    void frozenSnapshotsShareWhatDidntChange() {
+        Garage g = new Garage();
+        for (int i = 0; i < 200; i++) {
+            g.addVehicle(new Car("v" + i, "Car " + i, "Honda", "Civic", 2018, i, 4));
+        }
+        g.markClean();
+        Garage first = g.frozenSnapshot();
+        g.getVehicleById("v5").setCurrentMileage(5000);
+        g.putVehicle(new Car("v7", "Replaced", "Mazda", "3", 2020, 7, 4));
+        for (int i = 60; i < 200; i++) g.removeVehicle("v" + i); // enough to compact the table
+
+        Garage second = g.frozenSnapshot();
+        assertSame(first.getVehicleById("v0"), second.getVehicleById("v0"));
+        assertNotSame(first.getVehicleById("v5"), second.getVehicleById("v5"));
+        assertEquals(5000, second.getVehicleById("v5").getCurrentMileage());
+        assertEquals("Replaced", second.getVehicleById("v7").getNickname());
+        assertFalse(first.getVehicleById("v5").isDirty());
+        assertTrue(second.getVehicleById("v5").isDirty());
+        assertEquals(200, first.size());
+        assertEquals(60, second.size());
+        assertTrue(second.isRemovedSinceSave("v150"));
+
+        // same order as the garage, the replaced vehicle kept its place
+        assertEquals(g.getAllVehicles().stream().map(VehicleBase::getVehicleId).toList(),
+                second.vehicles().stream().map(VehicleBase::getVehicleId).toList());
+
+        g.markClean();
+        assertFalse(g.frozenSnapshot().getVehicleById("v5").isDirty()); // a save's clean flag reaches the next one
+    }
+
+    @Test
+    void takeChangesReturnsOnlyDirtyVehiclesAndRemovals() {
+        Garage g = new Garage();
+        g.addVehicle(new Car("v1", "Daily", "Honda", "Civic", 2018, 50000, 4));
+        g.addVehicle(new Car("v2", "Spare", "Mazda", "3", 2020, 100, 4));
+        g.addVehicle(new Car("v3", "Old", "Ford", "Focus", 2010, 150000, 4));
+        g.markClean();
+        assertFalse(g.hasUnsavedChanges());
+
+        g.getVehicleById("v1").addMaintenanceRecord(new MaintenanceRecord("r1", "2026-02-17", "Oil Change", 49900, ""));
+        g.removeVehicle("v3");
+
+        GarageChanges changes = g.takeChanges();
+        assertEquals(1, changes.changedVehicles().size());
+        assertEquals("v1", changes.changedVehicles().get(0).getVehicleId());
+        assertEquals(java.util.Set.of("v3"), changes.removedVehicleIds());
+        assertFalse(g.hasUnsavedChanges());
+
+        // editing a record marks its vehicle dirty again
+        g.getVehicleById("v1").getMaintenanceHistory().get(0).setNotes("synthetic");
+        assertTrue(g.hasUnsavedChanges());
+        assertEquals(1, g.takeChanges().changedVehicles().size());
+    }
+
+    @Test
+    void markCleanOnlyTouchesWhatChanged() {
+        Garage g = new Garage();
+        for (int i = 0; i < 5; i++) {
+            g.addVehicle(new Car("v" + i, "Car " + i, "Honda", "Civic", 2018, 1000, 4));
+        }
+        g.markClean();
+
+        // a vehicle cleaned behind the garage's back and one that left aren't counted
+        VehicleBase moved = g.getVehicleById("v4");
+        g.forgetVehicle("v4");
+        moved.setNickname("Elsewhere");
+        g.getVehicleById("v1").setNickname("Renamed");
+        g.getVehicleById("v2").setYear(2019);
+        g.getVehicleById("v2").markClean();
+        assertTrue(g.hasUnsavedChanges());
+
+        GarageChanges changes = g.takeChanges();
+        assertEquals(java.util.List.of("v1"),
+                changes.changedVehicles().stream().map(VehicleBase::getVehicleId).toList());
+        assertFalse(g.hasUnsavedChanges());
+        assertTrue(moved.isDirty());
+
+        g.getVehicleById("v3").setCurrentMileage(2000);
+        g.markClean();
+        assertFalse(g.getVehicleById("v3").isDirty());
+        assertFalse(g.hasUnsavedChanges());
+    }
+
+    @Test
+    void aCleanVehicleAddedBackAfterItsRemovalIsSavedAgain() {
+        Garage g = new Garage();
+        Car car = new Car("v1", "Daily", "Honda", "Civic", 2018, 1000, 4);
+        g.addVehicle(car);
+        g.markClean();
+
+        g.removeVehicle("v1");
+        g.addVehicle(car);
+        GarageChanges changes = g.takeChanges();
+        // the removal still goes first, the vehicle has to be written in full after it
+        assertEquals(java.util.Set.of("v1"), changes.removedVehicleIds());
+        assertEquals(1, changes.changedVehicles().size());
+        assertTrue(changes.changedVehicles().get(0).needsFullWrite());
+
+        // same when the removal was already saved
+        g.removeVehicle("v1");
+        g.takeChanges();
+        g.addVehicle(car);
+        assertTrue(g.hasUnsavedChanges());
+        assertTrue(g.takeChanges().changedVehicles().get(0).needsFullWrite());
+    }
+
+    @Test
+    void mergedChangesStillCarryWhatTheOlderSetHadToWrite() {
+        Garage g = new Garage();
+        Car car = new Car("v1", "Daily", "Honda", "Civic", 2018, 1000, 4);
+        car.addMaintenanceRecord(new MaintenanceRecord("r1", "2026-01-01", "Oil Change", 900, ""));
+        car.addMaintenanceRecord(new MaintenanceRecord("r2", "2026-02-01", "Tires", 950, ""));
+        g.addVehicle(car);
+        g.markClean();
+
+        car.getMaintenanceRecord("r1").setNotes("edited");
+        car.removeMaintenanceRecord("r2");
+        GarageChanges older = g.takeChanges();
+        car.setCurrentMileage(2000);
+        GarageChanges merged = older.mergedWith(g.takeChanges());
+
+        VehicleBase v = merged.changedVehicles().get(0);
+        assertTrue(v.hasMileageChange());
+        assertFalse(v.hasFieldChanges());
+        assertEquals(java.util.Set.of("r2"), v.getRemovedRecordIds());
+        assertEquals(java.util.List.of("r1"), v.getChangedRecords().stream().map(MaintenanceRecord::getRecordId).toList());
+    }
 }
@@ -2,6 +2,8 @@ package com.garagemate.model;
 
 import org.junit.jupiter.api.Test;
 
+import java.time.LocalDate;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class MaintenanceRecordTest {
@@ -25,4 +27,34 @@ class MaintenanceRecordTest {
         assertThrows(IllegalArgumentException.class,
                 () -> new MaintenanceRecord("r1", "2026-02-17", "Oil", -1, ""));
     }
+
+    @Test
+    void readsOlderDateShapesAndKeepsWhatIsntADate() {
+        LocalDate expected = LocalDate.of(2026, 2, 7);
+        for (String text : new String[]{"2026-02-07", " 2026/2/7 ", "2026.02.07", "20260207",
+                "02/07/2026", "2026-02-07T10:15:00"}) {
+            MaintenanceRecord r = new MaintenanceRecord("r1", text, "Oil", 100, "");
+            assertEquals(expected, r.getServiceLocalDate(), text);
+            assertEquals("2026-02-07", r.getServiceDate(), text); // saved back in the standard shape
+        }
+
+        MaintenanceRecord odd = new MaintenanceRecord("r2", "last spring", "Oil", 100, "");
+        assertFalse(odd.hasReadableDate());
+        assertEquals(ServiceDates.UNKNOWN, odd.getServiceDay());
+        assertNull(odd.getServiceLocalDate());
+        assertEquals("last spring", odd.copy().getServiceDate());
+        assertEquals(ServiceDates.UNKNOWN, ServiceDates.parseLenient("2026-02-30"));
+
+        odd.setServiceDate(expected);
+        assertTrue(odd.hasReadableDate());
+        assertEquals("2026-02-07", odd.getServiceDate());
+    }
+
+    @Test
+    void strictParseOnlyTakesIsoDates() {
+        assertEquals(LocalDate.of(2026, 2, 17).toEpochDay(), ServiceDates.parse("2026-02-17"));
+        assertThrows(IllegalArgumentException.class, () -> ServiceDates.parse("2026/02/17"));
+        assertThrows(IllegalArgumentException.class, () -> ServiceDates.parse("2026-13-01"));
+        assertThrows(IllegalArgumentException.class, () -> ServiceDates.parse(" "));
+    }
 }
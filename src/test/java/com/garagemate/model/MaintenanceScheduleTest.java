@@ -0,0 +1,141 @@
+package com.garagemate.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MaintenanceScheduleTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2026, 1, 1);
+    private static final Clock CLOCK = Clock.fixed(TODAY.atStartOfDay().toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+
+    @Test
+    void followsMileageAndNewRecords() {
+        Garage g = new Garage();
+        Car car = new Car("c1", "Daily", "Honda", "Civic", 2018, 14000, 4);
+        car.addMaintenanceRecord(new MaintenanceRecord("r1", "2025-01-01", "Oil Change", 10000, ""));
+        Motorcycle bike = new Motorcycle("m1", "Weekend", "Ducati", "Panigale V4", 2022, 12000, 1103);
+        bike.addMaintenanceRecord(new MaintenanceRecord("r2", "2025-12-20", "Chain Service", 11950, ""));
+        bike.addMaintenanceRecord(new MaintenanceRecord("r0", "2025-12-01", "Oil Change", 11900, ""));
+        g.addVehicle(car);
+        g.addVehicle(bike);
+
+        ServiceIntervals intervals = new ServiceIntervals()
+                .every("Oil Change", 5000, 180)
+                .everyFor("motorcycle", "Chain Service", 500, 0);
+        MaintenanceSchedule schedule = new MaintenanceSchedule(g, intervals, CLOCK);
+
+        // the car is due by time, the bike's chain has 450 miles left and no date
+        List<DueService> overdue = schedule.overdue(10);
+        assertEquals(1, overdue.size());
+        assertEquals("c1", overdue.get(0).vehicle().getVehicleId());
+        assertEquals(LocalDate.of(2025, 6, 30), overdue.get(0).due());
+        assertEquals(1000, overdue.get(0).milesLeft());
+        assertEquals(2, schedule.forVehicle("m1").size()); // oil change applies to every vehicle type
+        assertEquals(450, schedule.dueWithinMiles(500, 10).get(0).milesLeft());
+
+        bike.setCurrentMileage(12500);
+        overdue = schedule.overdue(10);
+        assertEquals(2, overdue.size());
+        assertEquals("m1", overdue.get(1).vehicle().getVehicleId());
+        assertEquals(TODAY, overdue.get(1).due()); // first seen past its mileage today
+
+        car.addMaintenanceRecord(new MaintenanceRecord("r3", "2025-12-31", "oil change", 14000, ""));
+        bike.addMaintenanceRecord(new MaintenanceRecord("r4", "2025-12-31", "Chain Service", 12500, ""));
+        assertTrue(schedule.overdue(10).isEmpty());
+        assertEquals(LocalDate.of(2026, 6, 29), schedule.forVehicle("c1").get(0).due());
+
+        g.removeVehicle("c1");
+        assertTrue(schedule.forVehicle("c1").isEmpty());
+        assertEquals(2, schedule.dueWithinMiles(Integer.MAX_VALUE - 1, 10).size()); // bike oil and chain
+        schedule.close();
+        g.addVehicle(car);
+        assertTrue(schedule.forVehicle("c1").isEmpty());
+    }
+
+    @Test
+    void dueListsMatchAScanAfterRandomEdits() {
+        Garage g = new Garage();
+        Random random = new Random(7);
+        for (int i = 0; i < 300; i++) {
+            Car c = new Car("c" + i, "Car " + i, "Honda", "Civic", 2018, 20000 + random.nextInt(20000), 4);
+            if (random.nextBoolean()) {
+                c.addMaintenanceRecord(new MaintenanceRecord("r" + i, TODAY.minusDays(random.nextInt(400)),
+                        "Oil Change", 15000 + random.nextInt(5000), ""));
+            }
+            g.addVehicle(c);
+        }
+        MaintenanceSchedule schedule = new MaintenanceSchedule(g, new ServiceIntervals().every("Oil Change", 5000, 180), CLOCK);
+
+        for (int i = 0; i < 200; i++) {
+            VehicleBase v = g.getVehicleById("c" + random.nextInt(300));
+            if (random.nextBoolean()) {
+                v.setCurrentMileage(v.getCurrentMileage() + random.nextInt(3000));
+            } else {
+                v.addMaintenanceRecord(new MaintenanceRecord("x" + i, TODAY.minusDays(random.nextInt(200)),
+                        "Oil Change", v.getCurrentMileage(), ""));
+            }
+        }
+
+        Set<String> expected = new TreeSet<>();
+        for (VehicleBase v : g.vehicles()) {
+            MaintenanceRecord last = v.getLatestRecordOfType("Oil Change");
+            int base = last == null ? 0 : last.getMileageAtService();
+            boolean byTime = last != null && !last.getServiceLocalDate().plusDays(180).isAfter(TODAY);
+            if (byTime || v.getCurrentMileage() >= base + 5000) expected.add(v.getVehicleId());
+        }
+        Set<String> found = new TreeSet<>();
+        List<DueService> overdue = schedule.overdue(Integer.MAX_VALUE);
+        for (DueService d : overdue) found.add(d.vehicle().getVehicleId());
+        assertEquals(expected, found);
+
+        for (int i = 1; i < overdue.size(); i++) {
+            assertFalse(overdue.get(i).due().isBefore(overdue.get(i - 1).due()));
+        }
+        assertEquals(5, schedule.overdue(5).size());
+    }
+
+    @Test
+    void leavesLazyHistoriesOnDiskAndSkipsEditsThatDontMoveAnything() {
+        Garage g = new Garage();
+        Car car = new Car("c1", "Daily", "Honda", "Civic", 2018, 14000, 4);
+        car.markClean();
+        int[] loads = {0};
+        car.setLazyHistory(() -> {
+            loads[0]++;
+            return List.of(new MaintenanceRecord("r1", "2025-12-01", "Oil Change", 10000, ""));
+        });
+        g.addVehicle(car);
+
+        MaintenanceSchedule schedule = new MaintenanceSchedule(g, new ServiceIntervals().every("Oil Change", 5000, 180), CLOCK);
+        assertEquals(1000, schedule.forVehicle("c1").get(0).milesLeft());
+        assertEquals(1, loads[0]);
+        assertFalse(car.isHistoryLoaded());
+
+        // the latest oil change is the same, only the miles left move
+        car.setNickname("Renamed");
+        car.setCurrentMileage(15500);
+        assertEquals(-500, schedule.forVehicle("c1").get(0).milesLeft());
+        assertEquals(TODAY, schedule.forVehicle("c1").get(0).due());
+        assertEquals(1, loads[0]);
+        assertFalse(car.isHistoryLoaded());
+    }
+
+    @Test
+    void pastDueWhenTrackedIsDueTodayMostMilesOverdueFirst() {
+        Garage g = new Garage();
+        g.addVehicle(new Car("a", "A", "Honda", "Civic", 2018, 5200, 4));
+        g.addVehicle(new Car("b", "B", "Honda", "Civic", 2018, 9000, 4));
+        g.addVehicle(new Car("c", "C", "Honda", "Civic", 2018, 6000, 4));
+
+        MaintenanceSchedule schedule = new MaintenanceSchedule(g, new ServiceIntervals().every("Oil Change", 5000, 0), CLOCK);
+        List<DueService> overdue = schedule.overdue(10);
+        assertEquals(List.of("b", "c", "a"), overdue.stream().map(d -> d.vehicle().getVehicleId()).toList());
+        for (DueService d : overdue) assertEquals(TODAY, d.due());
+    }
+}
@@ -0,0 +1,86 @@
+package com.garagemate.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecordColumnsTest {
+
+    private static Garage garage() {
+        Garage g = new Garage();
+        for (int v = 0; v < 50; v++) {
+            Car car = new Car("v" + v, "Car " + v, "Honda", "Civic", 2018, 200000, 4);
+            for (int r = 0; r < 40; r++) {
+                String type = r % 4 == 0 ? "Oil Change" : "Tires";
+                car.addMaintenanceRecord(new MaintenanceRecord("v" + v + "-r" + r,
+                        LocalDate.of(2020, 1, 1).plusDays(r * 10L), type, r * 5000, "note " + r + " | ünïcode"));
+            }
+            g.addVehicle(car);
+        }
+        g.markClean();
+        return g;
+    }
+
+    private static List<String> describe(List<MaintenanceRecord> records) {
+        List<String> out = new ArrayList<>();
+        for (MaintenanceRecord r : records) out.add(r.toString());
+        return out;
+    }
+
+    @Test
+    void packedHistoriesReadAndQueryLikeOrdinaryOnes() {
+        Garage plain = garage();
+        Garage g = garage();
+        RecordColumns columns = RecordColumns.pack(g);
+        assertEquals(50 * 40, columns.size());
+
+        for (VehicleBase v : g.vehicles()) {
+            VehicleBase expected = plain.getVehicleById(v.getVehicleId());
+            assertTrue(v.isHistoryPacked());
+            assertEquals(describe(expected.getMaintenanceHistory()), describe(v.getMaintenanceHistory()));
+            assertEquals(describe(expected.getRecordsBetweenMileage(20000, 60000)),
+                    describe(v.getRecordsBetweenMileage(20000, 60000)));
+            LocalDate from = LocalDate.of(2020, 3, 1);
+            LocalDate to = LocalDate.of(2020, 6, 1);
+            assertEquals(describe(expected.getRecordsBetweenDates(from, to)), describe(v.getRecordsBetweenDates(from, to)));
+            assertEquals(expected.getLatestRecordOfType("oil change").toString(),
+                    v.getLatestRecordOfType("OIL CHANGE").toString());
+            assertEquals("note 7 | ünïcode", v.getMaintenanceRecord(v.getVehicleId() + "-r7").getNotes());
+            assertNull(v.getMaintenanceRecord("nope"));
+        }
+        assertFalse(g.hasUnsavedChanges()); // packing isn't a change
+    }
+
+    @Test
+    void aChangeUnpacksTheHistory() {
+        Garage g = garage();
+        RecordColumns.pack(g);
+        VehicleBase v = g.getVehicleById("v3");
+
+        MaintenanceRecord view = v.getMaintenanceHistory().get(0);
+        assertThrows(UnsupportedOperationException.class, () -> view.setNotes("x"));
+        assertFalse(v.removeMaintenanceRecord("nope"));
+        assertTrue(v.isHistoryPacked());
+
+        assertTrue(v.removeMaintenanceRecord("v3-r0"));
+        assertFalse(v.isHistoryPacked());
+        assertTrue(v.isDirty());
+        assertEquals(39, v.getMaintenanceHistory().size());
+        v.getMaintenanceRecord("v3-r1").setNotes("edited"); // ordinary records again
+        assertEquals("edited", v.getMaintenanceHistory().get(0).getNotes());
+
+        // the copy a save takes reads the same rows
+        VehicleBase other = g.getVehicleById("v4");
+        VehicleBase copy = other.copy();
+        assertTrue(copy.isHistoryPacked());
+        assertEquals(describe(other.getMaintenanceHistory()), describe(copy.getMaintenanceHistory()));
+
+        // dirty vehicles are left alone by a second pack
+        RecordColumns second = RecordColumns.pack(g);
+        assertEquals(0, second.size());
+    }
+}
@@ -0,0 +1,50 @@
+package com.garagemate.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StringPoolTest {
+
+    @Test
+    void loadedVehiclesAndRecordsShareRepeatedFields() {
+        // new String(...) stands in for what a loader parses out of each line
+        Car a = new Car("v1", "One", new String("Honda"), new String("Civic"), 2018, 50000, 4);
+        Car b = new Car("v2", "Two", new String(" Honda "), new String("Civic"), 2019, 40000, 4);
+        assertSame(a.getMake(), b.getMake());
+        assertSame(a.getModel(), b.getModel());
+
+        MaintenanceRecord r1 = new MaintenanceRecord("r1", "2026-02-17", new String("Oil Change"), 100, "");
+        MaintenanceRecord r2 = new MaintenanceRecord("r2", "2026-02-18", new String("Oil Change"), 200, "");
+        assertSame(r1.getServiceType(), r2.getServiceType());
+
+        // notes are never pooled
+        MaintenanceRecord r3 = new MaintenanceRecord("r3", "2026-02-18", "Tires", 200, new String("same"));
+        MaintenanceRecord r4 = new MaintenanceRecord("r4", "2026-02-18", "Tires", 200, new String("same"));
+        assertNotSame(r3.getNotes(), r4.getNotes());
+
+        StringPool.Stats stats = StringPool.stats();
+        assertTrue(stats.hits() > 0);
+        assertTrue(stats.bytesSaved() > 0);
+    }
+
+    @Test
+    void keepsPoolingPastAnyOldCapAndLetsUnusedValuesGo() throws Exception {
+        int before = StringPool.stats().entries();
+        for (int i = 0; i < 100_000; i++) {
+            StringPool.canonical("model-" + i);
+        }
+
+        // the old pool stopped at 65536 entries and handed back whatever it was given
+        String a = StringPool.canonical(new String("Late Model"));
+        assertSame(a, StringPool.canonical(new String("Late Model")));
+
+        // nothing holds the 100k values, they drop out once collected
+        for (int i = 0; i < 100 && StringPool.stats().entries() > before + 1000; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertTrue(StringPool.stats().entries() <= before + 1000, StringPool.stats().toString());
+        assertSame(a, StringPool.canonical(new String("Late Model")));
+    }
+}
@@ -3,6 +3,7 @@ package com.garagemate.model;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.time.LocalDate;
 import java.util.List;
 
 class VehicleBaseTest {
@@ -102,4 +103,73 @@ class VehicleBaseTest {
         assertTrue(result.contains("Honda"));
         assertTrue(result.contains("Civic"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void lazyHistoryIsLoadedOnceOnFirstUse() {
+        TestVehicle v = new TestVehicle(
+                "id1", "Daily", "Honda", "Civic", 2018, 50000
+        );
+        v.markClean();
+
+        int[] loads = {0};
+        v.setLazyHistory(() -> {
+            loads[0]++;
+            return List.of(new MaintenanceRecord("r1", "2026-02-17", "Oil Change", 49900, ""));
+        });
+        VehicleBase copy = v.copy();
+        assertEquals(0, loads[0]);
+
+        assertEquals(1, v.getMaintenanceHistory().size());
+        assertEquals(1, v.getMaintenanceHistory().size());
+        assertEquals(1, loads[0]);
+        assertFalse(v.isDirty()); // reading the history isn't a change
+
+        // the copy reads its own records
+        assertEquals(1, copy.getMaintenanceHistory().size());
+        assertEquals(2, loads[0]);
+        assertNotSame(v.getMaintenanceHistory().get(0), copy.getMaintenanceHistory().get(0));
+    }
+
+    @Test
+    void historyQueriesFollowAddsRemovalsAndEdits() {
+        TestVehicle v = new TestVehicle(
+                "id1", "Daily", "Honda", "Civic", 2018, 100000
+        );
+        for (int i = 0; i < 100; i++) {
+            String type = i % 3 == 0 ? "Oil Change" : "Tires";
+            String date = String.format("2020-%02d-%02d", 1 + i / 28, 1 + i % 28);
+            v.addMaintenanceRecord(new MaintenanceRecord("r" + i, date, type, i * 1000, ""));
+        }
+
+        assertEquals(List.of("r40", "r41", "r42"), ids(v.getRecordsBetweenMileage(40000, 42000)));
+        assertEquals(List.of("r28", "r29"), ids(v.getRecordsBetweenDates(LocalDate.of(2020, 2, 1), LocalDate.of(2020, 2, 2))));
+        assertEquals("r99", v.getLatestRecordOfType("oil change").getRecordId());
+        assertNull(v.getLatestRecordOfType("Brakes"));
+
+        // removing and editing keep the indexes and the plain list in step
+        assertTrue(v.removeMaintenanceRecord("r99"));
+        assertFalse(v.removeMaintenanceRecord("r99"));
+        assertEquals("r96", v.getLatestRecordOfType("Oil Change").getRecordId());
+        v.getMaintenanceRecord("r1").setServiceType("Oil Change");
+        v.getMaintenanceRecord("r1").setServiceDate("2021-01-01");
+        assertEquals("r1", v.getLatestRecordOfType("Oil Change").getRecordId());
+        v.getMaintenanceRecord("r41").setMileageAtService(99000);
+        assertEquals(List.of("r40", "r42"), ids(v.getRecordsBetweenMileage(40000, 42000)));
+
+        assertEquals(99, v.getMaintenanceHistory().size());
+        assertEquals("r98", v.getMaintenanceHistory().get(98).getRecordId());
+        assertThrows(IllegalArgumentException.class,
+                () -> v.addMaintenanceRecord(new MaintenanceRecord("r5", "2020-01-01", "Oil", 1, "")));
+        assertThrows(UnsupportedOperationException.class, () -> v.getMaintenanceHistory().remove(0));
+
+        // the copy has its own indexes
+        VehicleBase copy = v.copy();
+        copy.removeMaintenanceRecord("r1");
+        assertEquals("r1", v.getLatestRecordOfType("Oil Change").getRecordId());
+        assertEquals("r96", copy.getLatestRecordOfType("Oil Change").getRecordId());
+    }
+
+    private static List<String> ids(List<MaintenanceRecord> records) {
+        return records.stream().map(MaintenanceRecord::getRecordId).toList();
+    }
+}
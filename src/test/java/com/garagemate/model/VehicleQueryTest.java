@@ -0,0 +1,105 @@
+package com.garagemate.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VehicleQueryTest {
+
+    private static final String[] MAKES = {"Honda", "Toyota", "Ford", "BMW"};
+
+    private static Garage garage(int n) {
+        Garage g = new Garage();
+        Random random = new Random(42);
+        for (int i = 0; i < n; i++) {
+            String make = MAKES[random.nextInt(MAKES.length)];
+            int year = 1990 + random.nextInt(35);
+            int mileage = random.nextInt(200_000);
+            if (i % 3 == 0) {
+                g.addVehicle(new Motorcycle("m" + i, "Bike " + i, make, "Model" + (i % 5), year, mileage,
+                        50 + random.nextInt(2950)));
+            } else {
+                g.addVehicle(new Car("c" + i, "Car " + i, make, "Model" + (i % 5), year, mileage,
+                        2 + random.nextInt(4)));
+            }
+        }
+        return g;
+    }
+
+    private static Set<String> ids(Collection<VehicleBase> vehicles) {
+        Set<String> ids = new TreeSet<>();
+        for (VehicleBase v : vehicles) ids.add(v.getVehicleId());
+        return ids;
+    }
+
+    private static Set<String> scan(Garage g, Predicate<VehicleBase> test) {
+        List<VehicleBase> matching = new ArrayList<>();
+        for (VehicleBase v : g.vehicles()) {
+            if (test.test(v)) matching.add(v);
+        }
+        return ids(matching);
+    }
+
+    @Test
+    void matchesAFullScan() {
+        Garage g = garage(500);
+
+        assertEquals(scan(g, v -> v.getMake().equals("Honda") && v.getYear() >= 2018),
+                ids(g.query().make("honda").yearBetween(2018, 2100).list()));
+        assertEquals(scan(g, v -> v instanceof Motorcycle m && m.getEngineCC() >= 1000),
+                ids(g.query().type("Motorcycle").engineCCBetween(1000, 3000).list()));
+        assertEquals(scan(g, v -> v instanceof Car c && c.getNumberOfDoors() == 4
+                        && v.getCurrentMileage() <= 50_000 && v.getModel().equals("Model2")),
+                ids(g.query().doorsBetween(4, 4).mileageBetween(0, 50_000).model("MODEL2").list()));
+        assertEquals(500, g.query().count());
+        assertEquals(0, g.query().make("Lada").count());
+        assertThrows(IllegalArgumentException.class, () -> g.query().yearBetween(2020, 2010));
+    }
+
+    @Test
+    void indexesFollowEditsAddsAndRemovals() {
+        Garage g = garage(100);
+        assertEquals(0, g.query().make("Lada").count()); // builds the indexes
+
+        Car car = (Car) g.getVehicleById("c1");
+        car.setMake("Lada");
+        car.setCurrentMileage(250_000);
+        car.setNumberOfDoors(5);
+        Motorcycle bike = (Motorcycle) g.getVehicleById("m0");
+        bike.setEngineCC(3000);
+
+        assertEquals(Set.of("c1"), ids(g.query().make("Lada").list()));
+        assertEquals(Set.of("c1"), ids(g.query().mileageBetween(200_000, 300_000).list()));
+        assertTrue(ids(g.query().doorsBetween(5, 5).list()).contains("c1"));
+        assertTrue(ids(g.query().engineCCBetween(3000, 3000).list()).contains("m0"));
+
+        // replacing swaps the indexed vehicle, the old one stops counting
+        g.putVehicle(new Motorcycle("c1", "Now a bike", "Lada", "X", 2000, 10, 125));
+        car.setMake("Ghost");
+        assertEquals(0, g.query().make("Ghost").count());
+        assertEquals(Set.of("c1"), ids(g.query().type("motorcycle").make("Lada").list()));
+        assertFalse(ids(g.query().doorsBetween(2, 5).list()).contains("c1"));
+
+        g.removeVehicle("c1");
+        assertEquals(0, g.query().make("Lada").count());
+        g.addVehicle(new Car("new", "New", "Lada", "Niva", 2024, 0, 3));
+        assertEquals(Set.of("new"), ids(g.query().make("Lada").yearBetween(2024, 2024).list()));
+        assertEquals(g.size(), g.query().count());
+    }
+
+    @Test
+    void copiesAreNotTrackedByTheGarage() {
+        Garage g = garage(10);
+        g.query();
+        VehicleBase copy = g.getVehicleById("c1").copy();
+        copy.setMake("Lada");
+        assertEquals(0, g.query().make("Lada").count());
+
+        ConcurrentGarage concurrent = new ConcurrentGarage(g);
+        concurrent.getVehicleById("c1").setMake("Lada");
+        assertEquals(Set.of("c1"), ids(concurrent.query().make("Lada").list()));
+    }
+}
@@ -0,0 +1,91 @@
+package com.garagemate.persistence;
+
+import com.garagemate.model.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinaryGarageRepositoryTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Garage sampleGarage() {
+        Garage g = new Garage();
+        Car car = new Car("v1", "Daily", "Honda", "Civic", 2018, 50000, 4);
+        car.addMaintenanceRecord(new MaintenanceRecord("r1", "2026-02-17", "Oil Change", 49900, "Motul | 7100"));
+        car.addMaintenanceRecord(new MaintenanceRecord("r2", "2026-03-01", "Tires", 50000, ""));
+        g.addVehicle(car);
+        g.addVehicle(new Motorcycle("v2", "Weekend", "Ducati", "Panigale V4 ü", 2022, 12000, 1103));
+        return g;
+    }
+
+    @Test
+    void savesAndLoadsGarage() {
+        BinaryGarageRepository repo = new BinaryGarageRepository(tempDir.resolve("garage.gmb").toString());
+        repo.saveGarage(sampleGarage());
+
+        Garage loaded = repo.loadGarage();
+        assertEquals(2, loaded.size());
+        assertEquals("v1", loaded.getAllVehicles().get(0).getVehicleId());
+
+        VehicleBase car = loaded.getVehicleById("v1");
+        assertEquals(4, ((Car) car).getNumberOfDoors());
+        assertEquals(2, car.getMaintenanceHistory().size());
+        assertEquals("Motul | 7100", car.getMaintenanceHistory().get(0).getNotes());
+
+        Motorcycle bike = (Motorcycle) loaded.getVehicleById("v2");
+        assertEquals("Panigale V4 ü", bike.getModel());
+        assertEquals(1103, bike.getEngineCC());
+    }
+
+    @Test
+    void loadsSingleVehicleThroughOffsetTable() {
+        BinaryGarageRepository repo = new BinaryGarageRepository(tempDir.resolve("garage.gmb").toString());
+        repo.saveGarage(sampleGarage());
+
+        VehicleBase bike = repo.loadVehicle("v2");
+        assertNotNull(bike);
+        assertEquals(12000, bike.getCurrentMileage());
+        assertNull(repo.loadVehicle("missing"));
+    }
+
+    @Test
+    void findsEveryVehicleThroughTheSortedIdTable() {
+        BinaryGarageRepository repo = new BinaryGarageRepository(tempDir.resolve("garage.gmb").toString());
+        Garage g = new Garage();
+        for (int i = 0; i < 500; i++) {
+            g.addVehicle(new Car("car-" + i, "Car " + i, "Honda", "Civic", 2018, i, 4));
+        }
+        // "Aa" and "BB" have the same hashCode, the search has to look past the first match
+        g.addVehicle(new Car("Aa", "First", "Honda", "Civic", 2018, 1, 4));
+        g.addVehicle(new Car("BB", "Second", "Honda", "Civic", 2018, 2, 4));
+        repo.saveGarage(g);
+
+        for (int i = 0; i < 500; i += 37) {
+            assertEquals(i, repo.loadVehicle("car-" + i).getCurrentMileage());
+        }
+        assertEquals("First", repo.loadVehicle("Aa").getNickname());
+        assertEquals("Second", repo.loadVehicle("BB").getNickname());
+        assertNull(repo.loadVehicle("C#")); // same hash again, not stored
+        assertEquals("car-0", repo.loadGarage().getAllVehicles().get(0).getVehicleId());
+    }
+
+    @Test
+    void converterRoundTripIsLossless() throws Exception {
+        Path text = tempDir.resolve("garage-data.txt");
+        Path binary = tempDir.resolve("garage.gmb");
+        Path back = tempDir.resolve("garage-back.txt");
+        new TextFileRepository(text.toString()).saveGarage(sampleGarage());
+
+        GarageFormatConverter.textToBinary(text.toString(), binary.toString());
+        GarageFormatConverter.binaryToText(binary.toString(), back.toString());
+
+        assertEquals(Files.readString(text), Files.readString(back));
+        assertTrue(Files.size(binary) < Files.size(text));
+    }
+}
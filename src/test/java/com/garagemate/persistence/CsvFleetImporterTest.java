@@ -0,0 +1,133 @@
+package com.garagemate.persistence;
+
+import com.garagemate.model.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvFleetImporterTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void importsFleetCollectsRowErrorsAndSavesOnce() throws Exception {
+        Path vehicles = tempDir.resolve("vehicles.csv");
+        Files.write(vehicles, List.of(
+                "VIN,Kind,Make,Model,Year,Odometer,Doors,CC,Name",
+                "v1,Car,Honda,Civic,2018,50000,4,,Daily",
+                "v2,motorcycle,Ducati,Monster,2022,1200,,937,",
+                "v3,Truck,Ford,F150,2019,100,2,,",
+                "v4,Car,Mazda,\"3, hatch\",20x9,100,4,,",
+                "v1,Car,Honda,Accord,2019,10,4,,Dup"
+        ));
+        Path records = tempDir.resolve("records.csv");
+        Files.write(records, List.of(
+                "VIN,Date,Service,Miles,Notes,Id",
+                "v1,2026-02-17,Oil Change,49900,\"5w30, \"\"synthetic\"\"\nand filter\",r1",
+                "v2,2026-03-01,Chain lube,1100,,",
+                "ghost,2026-03-01,Tires,1,,r9",
+                "v1,2026-03-01,Tires,60000,,r2"
+        ));
+
+        Map<CsvFleetImporter.Column, String> mapping = Map.of(
+                CsvFleetImporter.Column.VEHICLE_ID, "VIN",
+                CsvFleetImporter.Column.TYPE, "Kind",
+                CsvFleetImporter.Column.MILEAGE, "Odometer",
+                CsvFleetImporter.Column.ENGINE_CC, "CC",
+                CsvFleetImporter.Column.NICKNAME, "Name",
+                CsvFleetImporter.Column.SERVICE_DATE, "Date",
+                CsvFleetImporter.Column.SERVICE_TYPE, "Service",
+                CsvFleetImporter.Column.MILEAGE_AT_SERVICE, "Miles",
+                CsvFleetImporter.Column.RECORD_ID, "Id");
+
+        TextFileRepository repo = new TextFileRepository(tempDir.resolve("garage-data.txt").toString());
+        CsvFleetImporter.Result result = new CsvFleetImporter(mapping, 100).importFleet(repo, vehicles, records);
+
+        assertEquals(2, result.vehiclesImported());
+        assertEquals(2, result.recordsImported());
+        assertEquals(9, result.rowsRead());
+        assertEquals(5, result.errorCount());
+        // errors come back in file order with the line they started on
+        assertEquals(List.of(4L, 5L, 6L, 5L, 6L), result.errors().stream().map(CsvFleetImporter.RowError::line).toList());
+
+        Garage loaded = repo.loadGarage();
+        assertEquals(2, loaded.size());
+        assertEquals("Ducati Monster", loaded.getVehicleById("v2").getNickname());
+        MaintenanceRecord r1 = loaded.getVehicleById("v1").getMaintenanceHistory().get(0);
+        assertEquals("5w30, \"synthetic\" and filter", r1.getNotes()); // line break flattened
+        assertFalse(loaded.getVehicleById("v2").getMaintenanceHistory().get(0).getRecordId().isBlank());
+    }
+
+    @Test
+    void missingRequiredColumnFailsTheFile() throws Exception {
+        Path vehicles = tempDir.resolve("vehicles.csv");
+        Files.write(vehicles, List.of("vehicleId,make,model", "v1,Honda,Civic"));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> new CsvFleetImporter().importInto(new Garage(), vehicles, null));
+    }
+
+    @Test
+    void keepsGoingPastManyBatches() throws Exception {
+        Path vehicles = tempDir.resolve("vehicles.csv");
+        StringBuilder sb = new StringBuilder("type,vehicleId,make,model,year,mileage,doors\n");
+        for (int i = 0; i < 5000; i++) {
+            sb.append("Car,v").append(i).append(",Honda,Civic,2018,").append(i % 100 == 0 ? "bad" : "100").append(",4\n");
+        }
+        Files.writeString(vehicles, sb.toString());
+
+        Garage g = new Garage();
+        CsvFleetImporter.Result result = new CsvFleetImporter(Map.of(), 10).importInto(g, vehicles, null);
+        assertEquals(4950, g.size());
+        assertEquals(50, result.errorCount());
+        assertEquals(10, result.errors().size());
+        assertEquals("v1", g.getAllVehicles().get(0).getVehicleId()); // v0 had a bad mileage
+    }
+
+    @Test
+    void unexpectedFailureInTheParseStageReachesTheCaller() throws Exception {
+        Path vehicles = tempDir.resolve("vehicles.csv");
+        StringBuilder sb = new StringBuilder("type,vehicleId,make,model,year,mileage,doors\n");
+        for (int i = 0; i < 3000; i++) {
+            sb.append("Car,v").append(i).append(",Honda,Civic,2018,100,4\n");
+        }
+        Files.writeString(vehicles, sb.toString());
+        CsvFleetImporter broken = new CsvFleetImporter() {
+            @Override
+            VehicleBase parseVehicle(Row row) {
+                if (row.fields().get(1).equals("v1500")) throw new IllegalStateException("boom");
+                return super.parseVehicle(row);
+            }
+        };
+
+        RuntimeException e = assertTimeoutPreemptively(Duration.ofSeconds(10),
+                () -> assertThrows(RuntimeException.class, () -> broken.importInto(new Garage(), vehicles, null)));
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+    }
+
+    @Test
+    void unterminatedQuoteIsARowError() throws Exception {
+        Path vehicles = tempDir.resolve("vehicles.csv");
+        StringBuilder sb = new StringBuilder("type,vehicleId,make,model,year,mileage,doors\n");
+        for (int i = 0; i < 2000; i++) {
+            sb.append("Car,v").append(i).append(",Honda,Civic,2018,100,4\n");
+        }
+        sb.append("Car,bad,Honda,\"Civic,2018,100,4\n");
+        sb.append("Car,lost,Honda,Civic,2018,100,4\n");
+        Files.writeString(vehicles, sb.toString());
+
+        Garage g = new Garage();
+        CsvFleetImporter.Result result = new CsvFleetImporter().importInto(g, vehicles, null);
+        assertEquals(2000, g.size());
+        assertEquals(1, result.errorCount());
+        assertEquals(2002L, result.errors().get(0).line());
+    }
+}
@@ -0,0 +1,67 @@
+package com.garagemate.persistence;
+
+import com.garagemate.model.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GarageArchiveTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void roundTripsGarageAndReportsStats() throws Exception {
+        Garage g = new Garage();
+        for (int i = 0; i < 200; i++) {
+            Car car = new Car("v" + i, "Car | " + i, "Honda", "Civic \\ Si", 2018, 50000, 4);
+            for (int r = 0; r < 5; r++) {
+                car.addMaintenanceRecord(new MaintenanceRecord("r" + i + "-" + r, "2026-02-17", "Oil Change", 49000 + r, "5w30"));
+            }
+            g.addVehicle(car);
+        }
+
+        Path archive = tempDir.resolve("garage-data.txt.gz");
+        GarageArchive.Stats exported = GarageArchive.export(g, archive);
+        assertEquals(Files.size(archive), exported.compressedBytes());
+        assertTrue(exported.compressionRatio() > 2, exported.toString());
+
+        // the archive is just a gzipped snapshot
+        Path plain = tempDir.resolve("garage-data.txt");
+        new TextFileRepository(plain.toString()).saveGarage(g);
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(archive))) {
+            assertArrayEquals(Files.readAllBytes(plain), in.readAllBytes());
+        }
+
+        Garage imported = new Garage();
+        GarageArchive.Stats stats = GarageArchive.importInto(archive, imported);
+        assertEquals(exported.rawBytes(), stats.rawBytes());
+        assertEquals(200, imported.size());
+        VehicleBase v = imported.getVehicleById("v7");
+        assertEquals("Car | 7", v.getNickname());
+        assertEquals("Civic \\ Si", v.getModel());
+        assertEquals(5, v.getMaintenanceHistory().size());
+        assertFalse(Files.exists(tempDir.resolve("garage-data.txt.gz.tmp")));
+    }
+
+    @Test
+    void failedExportLeavesNoTempFileBehind() throws Exception {
+        Garage g = new Garage();
+        g.addVehicle(new Car("v1", "Daily", "Honda", "Civic", 2018, 50000, 4));
+
+        // a directory with something in it can't be replaced, so the swap fails
+        Path archive = tempDir.resolve("garage-data.txt.gz");
+        Files.createDirectories(archive);
+        Files.writeString(archive.resolve("keep.txt"), "still here");
+
+        assertThrows(RuntimeException.class, () -> GarageArchive.export(g, archive));
+        assertFalse(Files.exists(tempDir.resolve("garage-data.txt.gz.tmp")));
+        assertEquals("still here", Files.readString(archive.resolve("keep.txt")));
+    }
+}
@@ -0,0 +1,131 @@
+package com.garagemate.persistence;
+
+import com.garagemate.model.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GarageFileVerifierTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Garage sampleGarage() {
+        Garage g = new Garage();
+        for (int i = 0; i < 3; i++) {
+            Car car = new Car("v" + i, "Car | " + i, "Honda", "Civic", 2018, 50000, 4);
+            car.addMaintenanceRecord(new MaintenanceRecord("r" + i + "-a", "2026-02-17", "Oil Change", 49000, "5w30"));
+            car.addMaintenanceRecord(new MaintenanceRecord("r" + i + "-b", "2026-03-01", "Tires", 49900, "rotated"));
+            g.addVehicle(car);
+        }
+        return g;
+    }
+
+    @Test
+    void checksummedFileVerifiesAndKeepsChecksumsOnSave() throws Exception {
+        Path file = tempDir.resolve("garage-data.txt");
+        TextFileRepository repo = new TextFileRepository(file.toString());
+        repo.saveGarage(sampleGarage());
+
+        GarageFileVerifier.Report plain = GarageFileVerifier.verify(file);
+        assertFalse(plain.checksummed());
+        assertTrue(plain.isClean(), plain.toString());
+
+        GarageFileVerifier.addChecksums(file);
+        GarageFileVerifier.Report signed = GarageFileVerifier.verify(file);
+        assertTrue(signed.checksummed());
+        assertTrue(signed.isClean(), signed.toString());
+        assertEquals(10, signed.lines()); // header + 3 vehicles + 6 records
+
+        // the suffix is invisible to the loader, and the next save keeps it
+        Garage loaded = repo.loadGarage();
+        assertEquals(3, loaded.size());
+        assertEquals("Car | 1", loaded.getVehicleById("v1").getNickname());
+        assertEquals("rotated", loaded.getVehicleById("v1").getMaintenanceHistory().get(1).getNotes());
+
+        repo.saveGarage(loaded);
+        assertEquals(LineChecksum.HEADER, Files.readAllLines(file).get(0));
+        assertTrue(GarageFileVerifier.verify(file).isClean());
+    }
+
+    @Test
+    void repairQuarantinesCorruptLinesAndKeepsTheRest() throws Exception {
+        Path file = tempDir.resolve("garage-data.txt");
+        TextFileRepository repo = new TextFileRepository(file.toString());
+        repo.saveGarage(sampleGarage());
+        GarageFileVerifier.addChecksums(file);
+
+        // flip one byte in a record line, it still parses but its checksum no longer matches
+        List<String> lines = Files.readAllLines(file);
+        int corrupt = -1;
+        for (int i = 0; i < lines.size(); i++) {
+            if (lines.get(i).startsWith("R|v1|r1-b")) corrupt = i;
+        }
+        lines.set(corrupt, lines.get(corrupt).replace("rotated", "rotatex"));
+        Files.write(file, lines, StandardCharsets.UTF_8);
+
+        GarageFileVerifier.Report report = GarageFileVerifier.verify(file);
+        assertEquals(1, report.badLineCount());
+        assertEquals(List.of((long) corrupt + 1), report.badLines());
+
+        GarageFileVerifier.repair(file);
+        assertTrue(GarageFileVerifier.verify(file).isClean());
+
+        List<String> quarantined = Files.readAllLines(tempDir.resolve("garage-data.txt.quarantine"));
+        assertEquals("# garage-data.txt line " + (corrupt + 1), quarantined.get(0));
+        assertTrue(quarantined.get(1).contains("rotatex"));
+
+        Garage loaded = repo.loadGarage();
+        assertEquals(3, loaded.size());
+        assertEquals(1, loaded.getVehicleById("v1").getMaintenanceHistory().size());
+        assertEquals(2, loaded.getVehicleById("v2").getMaintenanceHistory().size());
+    }
+
+    @Test
+    void addingChecksumsUpgradesALegacyFile() throws Exception {
+        Path file = tempDir.resolve("garage-data.txt");
+        Files.writeString(file, "V|Car|v1|C:\\|Honda|Civic|2018|50000|4\n"
+                + "R|v1|r1|2026-02-17|Oil Change|49900|a \\| b\n");
+
+        GarageFileVerifier.addChecksums(file);
+        assertTrue(GarageFileVerifier.verify(file).isClean());
+
+        VehicleBase v = new TextFileRepository(file.toString()).loadGarage().getVehicleById("v1");
+        assertEquals("C:\\", v.getNickname());
+        assertEquals("a | b", v.getMaintenanceHistory().get(0).getNotes());
+    }
+
+    @Test
+    void plainFilesAreCheckedByParsing() throws Exception {
+        Path file = tempDir.resolve("garage-data.txt");
+        new TextFileRepository(file.toString()).saveGarage(sampleGarage());
+        Files.writeString(file, "V|Car|v9|Broken|Honda|Civic|not-a-year|1|4\n",
+                StandardCharsets.UTF_8, java.nio.file.StandardOpenOption.APPEND);
+
+        GarageFileVerifier.Report report = GarageFileVerifier.verify(file);
+        assertEquals(1, report.badLineCount());
+        assertThrows(IllegalArgumentException.class, () -> GarageFileVerifier.addChecksums(file));
+    }
+
+    @Test
+    void onlyTheHeaderOnTheFirstLineIsExempt() throws Exception {
+        Path file = tempDir.resolve("garage-data.txt");
+        new TextFileRepository(file.toString()).saveGarage(sampleGarage());
+        Files.writeString(file, "#garage-mate 2\n", StandardCharsets.UTF_8, java.nio.file.StandardOpenOption.APPEND);
+        long last = Files.readAllLines(file).size();
+        assertEquals(List.of(last), GarageFileVerifier.verify(file).badLines());
+
+        new TextFileRepository(file.toString()).saveGarage(sampleGarage());
+        GarageFileVerifier.addChecksums(file);
+        List<String> lines = new java.util.ArrayList<>(Files.readAllLines(file));
+        lines.set(3, "# " + lines.get(3)); // a '#' line would otherwise hide a mangled entry
+        Files.write(file, lines);
+        assertEquals(List.of(4L), GarageFileVerifier.verify(file).badLines());
+    }
+}
@@ -0,0 +1,193 @@
+package com.garagemate.persistence;
+
+import com.garagemate.model.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GarageFileWatcherTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Garage sampleGarage(int vehicles) {
+        Garage g = new Garage();
+        for (int i = 0; i < vehicles; i++) {
+            Car car = new Car("v" + i, "Car " + i, "Honda", "Civic", 2018, 50000, 4);
+            car.addMaintenanceRecord(new MaintenanceRecord("r" + i, "2026-02-17", "Oil Change", 49000, "5w30"));
+            g.addVehicle(car);
+        }
+        return g;
+    }
+
+    @Test
+    void reportsOnlyVehiclesWhoseLinesChanged() throws Exception {
+        Path file = tempDir.resolve("garage-data.txt");
+        TextFileRepository other = new TextFileRepository(file.toString());
+        Garage g = sampleGarage(50);
+        other.saveGarage(g);
+
+        try (GarageFileWatcher watcher = new GarageFileWatcher(file, changes -> {})) {
+            watcher.readBaseline();
+            assertTrue(watcher.checkForChanges().isEmpty());
+
+            // another tool rewrites the whole snapshot with one vehicle edited, one removed and one added
+            g.getVehicleById("v7").setNickname("Renamed");
+            g.removeVehicle("v3");
+            g.addVehicle(new Motorcycle("m1", "Bike", "Honda", "CB", 2020, 1000, 650));
+            other.saveGarage(g);
+
+            GarageChanges changes = watcher.checkForChanges();
+            assertEquals(Set.of("v3"), changes.removedVehicleIds());
+            assertEquals(Set.of("v7", "m1"), ids(changes.changedVehicles()));
+            VehicleBase v7 = changes.changedVehicles().stream()
+                    .filter(v -> v.getVehicleId().equals("v7")).findFirst().orElseThrow();
+            assertEquals("Renamed", v7.getNickname());
+            assertEquals(1, v7.getMaintenanceHistory().size());
+
+            assertTrue(watcher.checkForChanges().isEmpty());
+        }
+    }
+
+    @Test
+    void tailsTheJournalFromTheLastOffset() throws Exception {
+        Path file = tempDir.resolve("garage-data.txt");
+        TextFileRepository other = new TextFileRepository(file.toString());
+        other.saveGarage(sampleGarage(5));
+
+        try (GarageFileWatcher watcher = new GarageFileWatcher(file, changes -> {})) {
+            watcher.readBaseline();
+
+            other.addRecord("v2", new MaintenanceRecord("r-new", "2026-03-01", "Tires", 49500, "rotated"));
+            GarageChanges changes = watcher.checkForChanges();
+            assertEquals(Set.of("v2"), ids(changes.changedVehicles()));
+            assertEquals(2, changes.changedVehicles().get(0).getMaintenanceHistory().size());
+
+            // earlier journal entries still apply to the vehicle they belong to
+            other.updateMileage("v2", 60000);
+            VehicleBase v2 = watcher.checkForChanges().changedVehicles().get(0);
+            assertEquals(60000, v2.getCurrentMileage());
+            assertEquals(2, v2.getMaintenanceHistory().size());
+
+            // a half-written entry waits for its line end
+            Files.writeString(tempDir.resolve("garage-data.txt.journal"), "-V|v4",
+                    StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+            assertTrue(watcher.checkForChanges().isEmpty());
+            Files.writeString(tempDir.resolve("garage-data.txt.journal"), "\n",
+                    StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+            assertEquals(Set.of("v4"), watcher.checkForChanges().removedVehicleIds());
+
+            // folding the journal into the snapshot moves lines around but changes nothing that's stored
+            Garage loaded = other.loadGarage();
+            other.compactInBackground().get();
+            assertFalse(GarageFileWatcher.applyStoredChanges(loaded, watcher.checkForChanges()));
+            assertTrue(watcher.checkForChanges().isEmpty());
+        }
+    }
+
+    @Test
+    void mergeKeepsLocalEditsAndSkipsWhatAlreadyMatches() throws Exception {
+        Path file = tempDir.resolve("garage-data.txt");
+        TextFileRepository repo = new TextFileRepository(file.toString());
+        repo.saveGarage(sampleGarage(3));
+        Garage local = repo.loadGarage();
+
+        Garage stored = repo.loadGarage();
+        stored.getVehicleById("v0").setNickname("From another tool");
+        stored.getVehicleById("v1").setNickname("Also from another tool");
+        VehicleBase v2 = stored.getVehicleById("v2").copy();
+        GarageChanges changes = new GarageChanges(Set.of(),
+                List.of(stored.getVehicleById("v0"), stored.getVehicleById("v1"), v2));
+
+        local.getVehicleById("v1").setNickname("Edited here");
+
+        assertTrue(GarageFileWatcher.applyStoredChanges(local, changes));
+        assertEquals("From another tool", local.getVehicleById("v0").getNickname());
+        assertEquals("Edited here", local.getVehicleById("v1").getNickname());
+
+        // the merge itself isn't something to save, only the local edit is
+        assertEquals(Set.of("v1"), ids(local.takeChanges().changedVehicles()));
+
+        // our own save coming back through the watcher is a no-op
+        assertFalse(GarageFileWatcher.applyStoredChanges(local, new GarageChanges(Set.of(), List.of(v2))));
+    }
+
+    @Test
+    void badLineIsSkippedAndTheGoodEditNextToItStillComesThrough() throws Exception {
+        Path file = tempDir.resolve("garage-data.txt");
+        new TextFileRepository(file.toString()).saveGarage(sampleGarage(3));
+
+        List<SkippedLine> skipped = new ArrayList<>();
+        try (GarageFileWatcher watcher = new GarageFileWatcher(file, changes -> {})) {
+            watcher.setOnSkippedLine(skipped::add);
+            watcher.readBaseline();
+
+            // one rewrite renames v1 and breaks v2's year
+            List<String> lines = new ArrayList<>();
+            for (String line : Files.readAllLines(file)) {
+                if (line.startsWith("V|") && line.contains("|v1|")) line = line.replace("Car 1", "Renamed");
+                if (line.startsWith("V|") && line.contains("|v2|")) line = line.replace("2018", "20x8");
+                lines.add(line);
+            }
+            Files.write(file, lines);
+
+            GarageChanges changes = watcher.checkForChanges();
+            assertEquals(Set.of("v1"), ids(changes.changedVehicles()));
+            assertEquals("Renamed", changes.changedVehicles().get(0).getNickname());
+            // same as a load, a vehicle whose line can't be read isn't there
+            assertEquals(Set.of("v2"), changes.removedVehicleIds());
+            assertEquals(1, skipped.size());
+            assertTrue(skipped.get(0).line().contains("20x8"));
+
+            // the check went through, so it's the new baseline
+            assertTrue(watcher.checkForChanges().isEmpty());
+            assertEquals(1, skipped.size());
+        }
+    }
+
+    @Test
+    void lineWithABadChecksumIsLeftOut() throws Exception {
+        Path file = tempDir.resolve("garage-data.txt");
+        TextFileRepository other = new TextFileRepository(file.toString());
+        Garage g = sampleGarage(3);
+        other.saveGarage(g);
+        GarageFileVerifier.addChecksums(file);
+
+        List<SkippedLine> skipped = new ArrayList<>();
+        try (GarageFileWatcher watcher = new GarageFileWatcher(file, changes -> {})) {
+            watcher.setOnSkippedLine(skipped::add);
+            watcher.readBaseline();
+
+            // a proper save renames v1, then a byte in v2's record flips
+            g.getVehicleById("v1").setNickname("Renamed");
+            other.saveGarage(g);
+            List<String> lines = new ArrayList<>();
+            for (String line : Files.readAllLines(file)) {
+                lines.add(line.startsWith("R|v2|") ? line.replace("5w30", "5w31") : line);
+            }
+            Files.write(file, lines);
+
+            GarageChanges changes = watcher.checkForChanges();
+            assertEquals(Set.of("v1", "v2"), ids(changes.changedVehicles()));
+            for (VehicleBase v : changes.changedVehicles()) {
+                if (v.getVehicleId().equals("v1")) assertEquals("Renamed", v.getNickname());
+                else assertTrue(v.getMaintenanceHistory().isEmpty());
+            }
+            assertEquals(1, skipped.size());
+            assertEquals("checksum mismatch", skipped.get(0).reason());
+        }
+    }
+
+    private static Set<String> ids(List<VehicleBase> vehicles) {
+        return Set.copyOf(vehicles.stream().map(VehicleBase::getVehicleId).toList());
+    }
+}
@@ -0,0 +1,72 @@
+package com.garagemate.persistence;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LineScannerTest {
+
+    @Test
+    void readsEscapedPipesAndBackslashes() {
+        LineScanner s = new LineScanner().reset("R|v1|r1|a \\| b|C:\\\\tmp|-42|plain\\x");
+
+        assertEquals("R", s.nextString());
+        assertTrue(s.peekFieldEquals("v1"));
+        assertEquals("v1", s.nextString());
+        s.skipField();
+        assertEquals("a | b", s.nextString());
+        assertEquals("C:\\tmp", s.nextString());
+        assertEquals(-42, s.nextInt());
+        assertEquals("plain\\x", s.nextString()); // unknown escapes are kept as-is
+        assertFalse(s.hasMoreFields());
+    }
+
+    @Test
+    void legacyModeOnlyUnescapesOnRequest() {
+        LineScanner s = new LineScanner().legacyEscapes(true).reset("V|C:\\|Civic \\\\ Si|a \\| b");
+
+        s.skipField();
+        assertEquals("C:\\", s.nextString()); // the pipe after it still ends the field
+        assertFalse(s.peekFieldEquals("Civic \\ Si"));
+        assertEquals("Civic \\\\ Si", s.nextString());
+        assertEquals("a | b", s.nextEscapedString());
+        assertFalse(s.hasMoreFields());
+    }
+
+    @Test
+    void keepsTrailingEmptyField() {
+        LineScanner s = new LineScanner().reset("a||");
+        assertEquals("a", s.nextString());
+        assertEquals("", s.nextString());
+        assertEquals("", s.nextString());
+        assertThrows(IllegalArgumentException.class, s::nextString);
+    }
+
+    @Test
+    void rejectsBadNumbers() {
+        assertThrows(NumberFormatException.class, () -> new LineScanner().reset("12x").nextInt());
+        assertThrows(NumberFormatException.class, () -> new LineScanner().reset("").nextInt());
+        assertThrows(NumberFormatException.class, () -> new LineScanner().reset("2147483648").nextInt());
+        assertEquals(Integer.MIN_VALUE, new LineScanner().reset("-2147483648").nextInt());
+    }
+
+    @Test
+    void lineReaderHandlesLongLinesAndCrLf() throws Exception {
+        String longField = "x".repeat(200_000);
+        LineReader reader = new LineReader(new StringReader("V|a\r\n" + longField + "\n\nlast"));
+        LineScanner s = new LineScanner();
+
+        assertTrue(reader.nextLine(s));
+        assertTrue(s.lineStartsWith("V|"));
+        assertEquals("V|a", s.line());
+        assertTrue(reader.nextLine(s));
+        assertEquals(longField, s.nextString());
+        assertTrue(reader.nextLine(s));
+        assertTrue(s.isBlankLine());
+        assertTrue(reader.nextLine(s));
+        assertEquals("last", s.line());
+        assertFalse(reader.nextLine(s));
+    }
+}
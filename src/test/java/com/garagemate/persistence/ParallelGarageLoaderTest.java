@@ -0,0 +1,75 @@
+package com.garagemate.persistence;
+
+import com.garagemate.model.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelGarageLoaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void matchesSequentialLoaderAcrossManySmallChunks() throws Exception {
+        // mixes everything the sequential reader copes with: records before their vehicle,
+        // orphans, CRLF, blank lines, escapes, non-ASCII text and no final newline
+        StringBuilder sb = new StringBuilder(TextFileRepository.FORMAT_HEADER).append('\n');
+        sb.append("R|v7|early|2026-01-01|Oil Change|10|before its vehicle\r\n");
+        for (int i = 0; i < 40; i++) {
+            sb.append("V|").append(i % 3 == 0 ? "Motorcycle" : "Car").append("|v").append(i)
+                    .append("|Nick \\| ").append(i).append("|Make|Modèl|2020|").append(100000 + i)
+                    .append(i % 3 == 0 ? "|650\n" : "|4\n");
+            if (i % 5 == 0) sb.append("\n");
+        }
+        for (int i = 0; i < 40; i++) {
+            for (int r = 0; r < 6; r++) {
+                sb.append("R|v").append(i).append("|r").append(i).append('-').append(r)
+                        .append("|2026-02-0").append(r + 1).append("|Service ü|").append(1000 * r)
+                        .append("|notes \\\\ ").append(r).append(r % 2 == 0 ? "\r\n" : "\n");
+            }
+            if (i % 7 == 0) sb.append("R|ghost|g").append(i).append("|2026-02-01|Tires|1|orphan\n");
+        }
+        sb.append("R|v3|last|2026-03-01|Brakes|5|no newline");
+
+        Path file = tempDir.resolve("garage-data.txt");
+        Files.writeString(file, sb.toString(), StandardCharsets.UTF_8);
+
+        Garage sequential = new TextFileRepository(file.toString()).loadGarage();
+        Garage parallel = new Garage();
+        new ParallelGarageLoader(4, 64).load(file, parallel, skipped -> fail("skipped " + skipped));
+
+        assertEquals(40, parallel.size());
+        assertEquals("early", parallel.getVehicleById("v7").getMaintenanceHistory().get(0).getRecordId());
+        assertEquals(sequential.getAllVehicles().stream().map(VehicleBase::getVehicleId).toList(),
+                parallel.getAllVehicles().stream().map(VehicleBase::getVehicleId).toList());
+
+        // saving both must produce byte-identical snapshots
+        Path a = tempDir.resolve("a.txt");
+        Path b = tempDir.resolve("b.txt");
+        new TextFileRepository(a.toString()).saveGarage(sequential);
+        new TextFileRepository(b.toString()).saveGarage(parallel);
+        assertArrayEquals(Files.readAllBytes(a), Files.readAllBytes(b));
+    }
+
+    @Test
+    void reportsBadLinesLikeTheSequentialLoader() throws Exception {
+        Path file = tempDir.resolve("garage-data.txt");
+        Files.writeString(file, "V|Car|v1|Daily|Honda|Civic|2018|500|4\nV|Truck|v2|Big|Ford|F150|2018|500|2\n");
+
+        List<SkippedLine> skipped = new ArrayList<>();
+        Garage garage = new Garage();
+        new ParallelGarageLoader(2, 16).load(file, garage, skipped::add);
+
+        assertEquals(List.of("v1"), garage.getAllVehicles().stream().map(VehicleBase::getVehicleId).toList());
+        assertEquals(1, skipped.size());
+        assertEquals("V|Truck|v2|Big|Ford|F150|2018|500|2", skipped.get(0).line());
+    }
+}
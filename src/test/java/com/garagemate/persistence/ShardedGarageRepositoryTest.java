@@ -0,0 +1,125 @@
+package com.garagemate.persistence;
+
+import com.garagemate.model.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardedGarageRepositoryTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void savesAndLoadsGarageInManifestOrder() {
+        ShardedGarageRepository repo = new ShardedGarageRepository(tempDir.resolve("garage").toString());
+
+        Garage g = new Garage();
+        Car car = new Car("v2", "Daily", "Honda", "Civic", 2018, 50000, 4);
+        car.addMaintenanceRecord(new MaintenanceRecord("r1", "2026-02-17", "Oil Change", 49900, "a | b"));
+        g.addVehicle(car);
+        g.addVehicle(new Motorcycle("v1", "Weekend", "Ducati", "Monster", 2022, 1200, 937));
+        repo.saveGarage(g);
+
+        // a fresh instance reads everything back from disk
+        Garage loaded = new ShardedGarageRepository(tempDir.resolve("garage").toString()).loadGarage();
+        assertEquals(List.of("v2", "v1"), loaded.getAllVehicles().stream().map(VehicleBase::getVehicleId).toList());
+        assertEquals("a | b", loaded.getVehicleById("v2").getMaintenanceHistory().get(0).getNotes());
+        assertEquals(937, ((Motorcycle) loaded.getVehicleById("v1")).getEngineCC());
+        assertFalse(loaded.hasUnsavedChanges());
+    }
+
+    @Test
+    void singleChangeRewritesOnlyItsShard() throws Exception {
+        Path dir = tempDir.resolve("garage");
+        ShardedGarageRepository repo = new ShardedGarageRepository(dir.toString());
+
+        Garage g = new Garage();
+        g.addVehicle(new Car("v1", "Daily", "Honda", "Civic", 2018, 50000, 4));
+        g.addVehicle(new Car("v2", "Spare", "Mazda", "3", 2020, 100, 4));
+        repo.saveGarage(g);
+
+        byte[] manifest = Files.readAllBytes(dir.resolve(ShardedGarageRepository.MANIFEST_FILE));
+        byte[] v2Shard = Files.readAllBytes(dir.resolve("shard-1.txt"));
+
+        repo.addRecord("v1", new MaintenanceRecord("r1", "2026-02-17", "Oil Change", 49900, ""));
+        repo.updateMileage("v1", 51000);
+
+        assertArrayEquals(manifest, Files.readAllBytes(dir.resolve(ShardedGarageRepository.MANIFEST_FILE)));
+        assertArrayEquals(v2Shard, Files.readAllBytes(dir.resolve("shard-1.txt")));
+
+        VehicleBase v1 = repo.loadVehicle("v1");
+        assertEquals(51000, v1.getCurrentMileage());
+        assertEquals(1, v1.getMaintenanceHistory().size());
+    }
+
+    @Test
+    void saveChangesAddsAndRemovesShards() throws Exception {
+        Path dir = tempDir.resolve("garage");
+        ShardedGarageRepository repo = new ShardedGarageRepository(dir.toString());
+
+        Garage g = new Garage();
+        g.addVehicle(new Car("v1", "Daily", "Honda", "Civic", 2018, 50000, 4));
+        g.addVehicle(new Car("v2", "Spare", "Mazda", "3", 2020, 100, 4));
+        repo.saveGarage(g);
+
+        Garage loaded = repo.loadGarage();
+        loaded.removeVehicle("v1");
+        loaded.addVehicle(new Motorcycle("v3", "Weekend", "Ducati", "Monster", 2022, 1200, 937));
+        repo.saveChanges(loaded.takeChanges());
+
+        assertFalse(Files.exists(dir.resolve("shard-0.txt")));
+        try (var files = Files.list(dir)) {
+            assertEquals(3, files.count()); // manifest plus two shards, no temp files left
+        }
+        assertEquals(List.of("v2", "v3"),
+                new ShardedGarageRepository(dir.toString()).loadGarage().getAllVehicles().stream()
+                        .map(VehicleBase::getVehicleId).toList());
+    }
+
+    @Test
+    void fullSaveSkipsShardsThatDidntChange() throws Exception {
+        Path dir = tempDir.resolve("garage");
+        ShardedGarageRepository repo = new ShardedGarageRepository(dir.toString());
+        Garage g = new Garage();
+        g.addVehicle(new Car("v1", "Daily", "Honda", "Civic", 2018, 50000, 4));
+        g.addVehicle(new Car("v2", "Spare", "Mazda", "3", 2020, 100, 4));
+        repo.saveGarage(g);
+        FileStamp v1Shard = FileStamp.of(dir.resolve("shard-0.txt"));
+        FileStamp v2Shard = FileStamp.of(dir.resolve("shard-1.txt"));
+
+        g.getVehicleById("v2").setNickname("Renamed");
+        repo.saveGarage(g);
+
+        assertEquals(v1Shard, FileStamp.of(dir.resolve("shard-0.txt"))); // not replaced
+        assertNotEquals(v2Shard, FileStamp.of(dir.resolve("shard-1.txt")));
+        assertEquals("Renamed", new ShardedGarageRepository(dir.toString()).loadVehicle("v2").getNickname());
+    }
+
+    @Test
+    void seesWhatAnotherInstanceWrote() {
+        Path dir = tempDir.resolve("garage");
+        ShardedGarageRepository first = new ShardedGarageRepository(dir.toString());
+        ShardedGarageRepository second = new ShardedGarageRepository(dir.toString());
+        Garage g = new Garage();
+        g.addVehicle(new Car("v1", "Daily", "Honda", "Civic", 2018, 50000, 4));
+        first.saveGarage(g);
+        assertEquals(1, second.loadGarage().size());
+
+        first.addVehicle(new Car("v2", "Spare", "Mazda", "3", 2020, 100, 4));
+        first.updateMileage("v1", 51000);
+        Garage loaded = second.loadGarage();
+        assertEquals(2, loaded.size());
+        assertEquals(51000, loaded.getVehicleById("v1").getCurrentMileage());
+
+        // and doesn't write over it, or hand out a shard name that's taken
+        second.addVehicle(new Car("v3", "Third", "Mazda", "3", 2020, 100, 4));
+        assertEquals(List.of("v1", "v2", "v3"),
+                first.loadGarage().getAllVehicles().stream().map(VehicleBase::getVehicleId).toList());
+    }
+}
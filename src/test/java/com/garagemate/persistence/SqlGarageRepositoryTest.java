@@ -0,0 +1,113 @@
+package com.garagemate.persistence;
+
+import com.garagemate.model.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SqlGarageRepositoryTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void savesAndLoadsGarageInOrder() {
+        try (SqlGarageRepository repo = new SqlGarageRepository(tempDir.resolve("garage").toString())) {
+            Garage g = new Garage();
+            Car car = new Car("v2", "Daily", "Honda", "Civic", 2018, 50000, 4);
+            car.addMaintenanceRecord(new MaintenanceRecord("r1", "2026-02-17", "Oil Change", 49900, "notes"));
+            g.addVehicle(car);
+            g.addVehicle(new Motorcycle("v1", "Weekend", "Ducati", "Monster", 2022, 1200, 937));
+            repo.saveGarage(g);
+
+            Garage loaded = repo.loadGarage();
+            assertEquals(2, loaded.size());
+            assertEquals("v2", loaded.getAllVehicles().get(0).getVehicleId());
+            assertEquals(1, loaded.getVehicleById("v2").getMaintenanceHistory().size());
+            assertEquals(937, ((Motorcycle) loaded.getVehicleById("v1")).getEngineCC());
+        }
+    }
+
+    @Test
+    void singleRowChangesPersistAcrossReopen() {
+        String db = tempDir.resolve("garage").toString();
+        try (SqlGarageRepository repo = new SqlGarageRepository(db)) {
+            repo.addVehicle(new Car("v1", "Daily", "Honda", "Civic", 2018, 50000, 4));
+            repo.addVehicle(new Car("v2", "Spare", "Mazda", "3", 2020, 100, 4));
+            repo.addRecord("v1", new MaintenanceRecord("r1", "2026-02-17", "Oil Change", 49900, ""));
+            repo.addRecord("v1", new MaintenanceRecord("r2", "2026-03-01", "Tires", 50000, ""));
+            repo.removeRecord("v1", "r1");
+            repo.updateMileage("v1", 52000);
+            repo.addRecord("v2", new MaintenanceRecord("r3", "2026-03-01", "Tires", 90, ""));
+            repo.removeVehicle("v2");
+        }
+
+        try (SqlGarageRepository repo = new SqlGarageRepository(db)) {
+            assertNull(repo.loadVehicle("v2"));
+
+            VehicleBase v1 = repo.loadVehicle("v1");
+            assertEquals(52000, v1.getCurrentMileage());
+            assertEquals(1, v1.getMaintenanceHistory().size());
+            assertEquals("r2", v1.getMaintenanceHistory().get(0).getRecordId());
+            assertEquals(1, repo.loadGarage().size());
+        }
+    }
+
+    @Test
+    void saveChangesWritesOnlyWhatChanged() {
+        String db = tempDir.resolve("garage").toString();
+        try (SqlGarageRepository repo = new SqlGarageRepository(db)) {
+            Garage g = new Garage();
+            g.addVehicle(new Car("v1", "Daily", "Honda", "Civic", 2018, 50000, 4));
+            g.addVehicle(new Car("v2", "Spare", "Mazda", "3", 2020, 100, 4));
+            repo.saveGarage(g);
+
+            Garage loaded = repo.loadGarage();
+            loaded.getVehicleById("v1").addMaintenanceRecord(new MaintenanceRecord("r1", "2026-02-17", "Oil Change", 49900, ""));
+            loaded.getVehicleById("v1").setCurrentMileage(50100);
+            loaded.removeVehicle("v2");
+            repo.saveChanges(loaded.takeChanges());
+        }
+
+        try (SqlGarageRepository repo = new SqlGarageRepository(db)) {
+            Garage loaded = repo.loadGarage();
+            assertEquals(1, loaded.size());
+            VehicleBase v1 = loaded.getVehicleById("v1");
+            assertEquals(50100, v1.getCurrentMileage());
+            assertEquals(1, v1.getMaintenanceHistory().size());
+        }
+    }
+
+    @Test
+    void saveChangesEditsRecordsInPlaceAndKeepsVehiclesAddedBack() {
+        String db = tempDir.resolve("garage").toString();
+        try (SqlGarageRepository repo = new SqlGarageRepository(db)) {
+            Garage g = new Garage();
+            Car car = new Car("v1", "Daily", "Honda", "Civic", 2018, 50000, 4);
+            car.addMaintenanceRecord(new MaintenanceRecord("r1", "2026-01-01", "Oil Change", 1000, ""));
+            car.addMaintenanceRecord(new MaintenanceRecord("r2", "2026-02-01", "Tires", 2000, ""));
+            g.addVehicle(car);
+            g.addVehicle(new Car("v2", "Spare", "Mazda", "3", 2020, 100, 4));
+            repo.saveGarage(g);
+
+            Garage loaded = repo.loadGarage();
+            loaded.getVehicleById("v1").getMaintenanceRecord("r1").setNotes("edited");
+            VehicleBase v2 = loaded.getVehicleById("v2");
+            loaded.removeVehicle("v2");
+            loaded.addVehicle(v2);
+            repo.saveChanges(loaded.takeChanges());
+        }
+
+        try (SqlGarageRepository repo = new SqlGarageRepository(db)) {
+            Garage loaded = repo.loadGarage();
+            assertEquals(java.util.List.of("v1", "v2"),
+                    loaded.vehicles().stream().map(VehicleBase::getVehicleId).toList());
+            java.util.List<MaintenanceRecord> history = loaded.getVehicleById("v1").getMaintenanceHistory();
+            assertEquals("r1", history.get(0).getRecordId());
+            assertEquals("edited", history.get(0).getNotes());
+        }
+    }
+}
@@ -4,7 +4,11 @@ import com.garagemate.model.*;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -34,4 +38,489 @@ class TextFileRepositoryTest {
         assertEquals(1, v.getMaintenanceHistory().size());
         assertEquals("Oil Change", v.getMaintenanceHistory().get(0).getServiceType());
     }
+
+    @Test
+    void loadsRecordsThatAppearBeforeTheirVehicle() throws Exception {
+        Path file = tempDir.resolve("garage-data.txt");
+        Files.write(file, List.of(
+                "R|v1|r1|2026-01-01|Oil Change|100|first",
+                "V|Car|v1|Daily|Honda|Civic|2018|500|4",
+                "R|v1|r2|2026-02-01|Tires|200|second",
+                "R|ghost|r3|2026-02-01|Tires|200|orphan"
+        ));
+
+        Garage loaded = new TextFileRepository(file.toString()).loadGarage();
+        assertEquals(1, loaded.size());
+
+        List<MaintenanceRecord> history = loaded.getVehicleById("v1").getMaintenanceHistory();
+        assertEquals(2, history.size());
+        assertEquals("r1", history.get(0).getRecordId());
+        assertEquals("r2", history.get(1).getRecordId());
+    }
+
+    @Test
+    void replaysJournaledChangesOnTopOfSnapshot() {
+        Path file = tempDir.resolve("garage-data.txt");
+        TextFileRepository repo = new TextFileRepository(file.toString());
+
+        Garage g = new Garage();
+        Car car = new Car("v1", "Daily", "Honda", "Civic", 2018, 50000, 4);
+        car.addMaintenanceRecord(new MaintenanceRecord("r1", "2026-02-17", "Oil Change", 49900, "notes"));
+        g.addVehicle(car);
+        g.addVehicle(new Motorcycle("v2", "Weekend", "Ducati", "Monster", 2022, 1200, 937));
+        repo.saveGarage(g);
+
+        repo.addVehicle(new Car("v3", "Spare", "Mazda", "3", 2020, 100, 4));
+        repo.updateMileage("v1", 51000);
+        repo.addRecord("v1", new MaintenanceRecord("r2", "2026-03-01", "Tires", 51000, "a | b"));
+        repo.removeRecord("v1", "r1");
+        repo.removeVehicle("v2");
+
+        Garage loaded = repo.loadGarage();
+        assertEquals(2, loaded.size());
+        assertFalse(loaded.containsVehicle("v2"));
+        assertTrue(loaded.containsVehicle("v3"));
+
+        VehicleBase v1 = loaded.getVehicleById("v1");
+        assertEquals(51000, v1.getCurrentMileage());
+        assertEquals(1, v1.getMaintenanceHistory().size());
+        assertEquals("r2", v1.getMaintenanceHistory().get(0).getRecordId());
+
+        // a full save folds the journal into the snapshot
+        repo.saveGarage(loaded);
+        assertFalse(Files.exists(tempDir.resolve("garage-data.txt.journal")));
+        assertEquals(2, repo.loadGarage().size());
+    }
+
+    @Test
+    void saveChangesJournalsOnlyWhatChanged() throws Exception {
+        Path file = tempDir.resolve("garage-data.txt");
+        TextFileRepository repo = new TextFileRepository(file.toString());
+
+        Garage g = new Garage();
+        Car car = new Car("v1", "Daily", "Honda", "Civic", 2018, 50000, 4);
+        for (int i = 1; i <= 4; i++) {
+            car.addMaintenanceRecord(new MaintenanceRecord("r" + i, "2026-0" + i + "-01", "Oil Change", 1000 * i, ""));
+        }
+        g.addVehicle(car);
+        g.addVehicle(new Car("v2", "Spare", "Mazda", "3", 2020, 100, 4));
+        repo.saveGarage(g);
+
+        Garage loaded = repo.loadGarage();
+        VehicleBase v1 = loaded.getVehicleById("v1");
+        v1.setCurrentMileage(51000);
+        v1.getMaintenanceRecord("r2").setNotes("edited");
+        v1.removeMaintenanceRecord("r3");
+        MaintenanceRecord r4 = v1.getMaintenanceRecord("r4");
+        v1.removeMaintenanceRecord("r4");
+        v1.addMaintenanceRecord(r4); // moves it to the end
+        v1.addMaintenanceRecord(new MaintenanceRecord("r5", "2026-05-01", "Tires", 50500, ""));
+        loaded.getVehicleById("v2").setNickname("Renamed");
+        repo.saveChanges(loaded.takeChanges());
+
+        assertEquals(List.of(
+                TextFileRepository.FORMAT_HEADER,
+                "M|v1|51000",
+                "-R|v1|r3",
+                "-R|v1|r4",
+                "R|v1|r2|2026-02-01|Oil Change|2000|edited",
+                "R|v1|r4|2026-04-01|Oil Change|4000|",
+                "R|v1|r5|2026-05-01|Tires|50500|",
+                "E|Car|v2|Renamed|Mazda|3|2020|100|4"
+        ), Files.readAllLines(tempDir.resolve("garage-data.txt.journal")));
+
+        Garage reloaded = repo.loadGarage();
+        List<MaintenanceRecord> history = reloaded.getVehicleById("v1").getMaintenanceHistory();
+        assertEquals(List.of("r1", "r2", "r4", "r5"), history.stream().map(MaintenanceRecord::getRecordId).toList());
+        assertEquals("edited", history.get(1).getNotes());
+        assertEquals(51000, reloaded.getVehicleById("v1").getCurrentMileage());
+        assertEquals("Renamed", reloaded.getVehicleById("v2").getNickname());
+    }
+
+    @Test
+    void aVehicleRemovedAndAddedBackIsStillStored() {
+        Path file = tempDir.resolve("garage-data.txt");
+        TextFileRepository repo = new TextFileRepository(file.toString());
+        Garage g = new Garage();
+        g.addVehicle(new Car("v1", "Daily", "Honda", "Civic", 2018, 50000, 4));
+        g.addVehicle(new Car("v2", "Spare", "Mazda", "3", 2020, 100, 4));
+        repo.saveGarage(g);
+
+        Garage loaded = repo.loadGarage();
+        VehicleBase v1 = loaded.getVehicleById("v1");
+        loaded.removeVehicle("v1");
+        loaded.addVehicle(v1);
+        repo.saveChanges(loaded.takeChanges());
+
+        Garage reloaded = repo.loadGarage();
+        assertEquals(List.of("v2", "v1"), reloaded.vehicles().stream().map(VehicleBase::getVehicleId).toList());
+    }
+
+    @Test
+    void compactionFoldsJournalIntoSnapshot() throws Exception {
+        Path file = tempDir.resolve("garage-data.txt");
+        TextFileRepository repo = new TextFileRepository(file.toString(), 64);
+
+        Garage g = new Garage();
+        g.addVehicle(new Car("v1", "Daily", "Honda", "Civic", 2018, 50000, 4));
+        repo.saveGarage(g);
+
+        repo.addVehicle(new Motorcycle("v2", "Weekend", "Ducati", "Monster", 2022, 1200, 937));
+        repo.addRecord("v2", new MaintenanceRecord("r1", "2026-03-01", "Chain lube", 1100, ""));
+        repo.compactInBackground().get();
+
+        assertFalse(Files.exists(tempDir.resolve("garage-data.txt.journal")));
+        assertFalse(Files.exists(tempDir.resolve("garage-data.txt.journal.compacting")));
+        assertFalse(Files.exists(tempDir.resolve("garage-data.txt.tmp")));
+        assertTrue(Files.readString(file).contains("R|v2|r1|"));
+
+        Garage loaded = repo.loadGarage();
+        assertEquals(2, loaded.size());
+        assertEquals(1, loaded.getVehicleById("v2").getMaintenanceHistory().size());
+    }
+
+    @Test
+    void compactionFailuresReachTheFailureHandler() throws Exception {
+        Path file = tempDir.resolve("garage-data.txt");
+        TextFileRepository repo = new TextFileRepository(file.toString(), 64);
+        repo.saveGarage(new Garage());
+        Files.writeString(tempDir.resolve("garage-data.txt.journal"), "X|not an entry\n");
+
+        List<Exception> failures = new CopyOnWriteArrayList<>();
+        repo.setOnBackgroundFailure(failures::add);
+        assertThrows(ExecutionException.class, () -> repo.compactInBackground().get());
+        assertEquals(1, failures.size());
+        // the journal is kept for the next try
+        assertTrue(Files.exists(tempDir.resolve("garage-data.txt.journal.compacting")));
+    }
+
+    @Test
+    void readsLegacyFilesWithOnlyTheNotesEscaped() throws Exception {
+        // written before every field was escaped: no header, raw backslashes outside the notes
+        Path file = tempDir.resolve("garage-data.txt");
+        Files.writeString(file, "V|Car|v1|C:\\|Honda|Civic \\\\ Si|2018|50000|4\n"
+                + "R|v1|r1|2026-02-17|Oil\\Change|49900|5w30 \\| filter \\\\ gasket\n");
+        Files.writeString(tempDir.resolve("garage-data.txt.journal"), "M|v1|50100\n");
+        TextFileRepository repo = new TextFileRepository(file.toString());
+
+        Garage g = repo.loadGarage();
+        VehicleBase v = g.getVehicleById("v1");
+        assertEquals("C:\\", v.getNickname());
+        assertEquals("Honda", v.getMake());
+        assertEquals("Civic \\\\ Si", v.getModel());
+        assertEquals(50100, v.getCurrentMileage());
+        MaintenanceRecord r = v.getMaintenanceHistory().get(0);
+        assertEquals("Oil\\Change", r.getServiceType());
+        assertEquals("5w30 | filter \\ gasket", r.getNotes());
+
+        // the next save writes the current format, and the same values come back
+        repo.saveGarage(g);
+        assertTrue(Files.readString(file).startsWith(TextFileRepository.FORMAT_HEADER + System.lineSeparator()));
+        assertEquals("Civic \\\\ Si", repo.loadGarage().getVehicleById("v1").getModel());
+        assertEquals("C:\\", new TextFileRepository(file.toString(), true).loadGarage().getVehicleById("v1").getNickname());
+    }
+
+    @Test
+    void roundTripsPipesAndBackslashesInText() {
+        Path file = tempDir.resolve("garage-data.txt");
+        TextFileRepository repo = new TextFileRepository(file.toString());
+
+        Garage g = new Garage();
+        Car car = new Car("v1", "My|Car", "Honda", "Civic \\ Si", 2018, 50000, 4);
+        car.addMaintenanceRecord(new MaintenanceRecord("r1", "2026-02-17", "Oil Change", 49900, "5w30 | filter \\ gasket"));
+        g.addVehicle(car);
+        repo.saveGarage(g);
+
+        VehicleBase v = repo.loadGarage().getVehicleById("v1");
+        assertEquals("My|Car", v.getNickname());
+        assertEquals("Civic \\ Si", v.getModel());
+        assertEquals("5w30 | filter \\ gasket", v.getMaintenanceHistory().get(0).getNotes());
+    }
+
+    @Test
+    void lazyHistoryLoadsOnFirstUseAndMatchesFullLoad() throws Exception {
+        Path file = tempDir.resolve("garage-data.txt");
+        Files.write(file, List.of(
+                "R|v2|r0|2026-01-01|Oil Change|100|before its vehicle",
+                "V|Car|v1|Daily|Honda|Civic|2018|50000|4",
+                "V|Motorcycle|v2|Weekend|Ducati|Monster|2022|1200|937",
+                "R|v1|r1|2026-02-17|Oil Change|49900|5w30 \\| filter",
+                "R|v1|r2|2026-03-01|Tires|50000|",
+                "R|v2|r3|2026-03-01|Chain lube|1100|",
+                "R|ghost|r4|2026-03-01|Tires|1|orphan"
+        ));
+
+        Garage eager = new TextFileRepository(file.toString()).loadGarage();
+        try (TextFileRepository repo = new TextFileRepository(file.toString(), true)) {
+            Garage lazy = repo.loadGarage();
+            VehicleBase v1 = lazy.getVehicleById("v1");
+            VehicleBase v2 = lazy.getVehicleById("v2");
+            assertFalse(v1.isHistoryLoaded());
+            assertFalse(v2.isHistoryLoaded());
+
+            // a new snapshot doesn't disturb histories that are still on disk
+            repo.saveGarage(new Garage());
+
+            for (VehicleBase v : eager.getAllVehicles()) {
+                List<MaintenanceRecord> expected = v.getMaintenanceHistory();
+                List<MaintenanceRecord> actual = lazy.getVehicleById(v.getVehicleId()).getMaintenanceHistory();
+                assertEquals(expected.stream().map(MaintenanceRecord::getRecordId).toList(),
+                        actual.stream().map(MaintenanceRecord::getRecordId).toList());
+            }
+            assertEquals("5w30 | filter", v1.getMaintenanceHistory().get(0).getNotes());
+            assertTrue(v1.isHistoryLoaded());
+            assertFalse(lazy.hasUnsavedChanges());
+        }
+    }
+
+    @Test
+    void lazyHistoryReplaysJournalOnTop() {
+        Path file = tempDir.resolve("garage-data.txt");
+        TextFileRepository repo = new TextFileRepository(file.toString(), true);
+
+        Garage g = new Garage();
+        Car car = new Car("v1", "Daily", "Honda", "Civic", 2018, 50000, 4);
+        car.addMaintenanceRecord(new MaintenanceRecord("r1", "2026-02-17", "Oil Change", 49900, ""));
+        g.addVehicle(car);
+        Car spare = new Car("v2", "Spare", "Mazda", "3", 2020, 100, 4);
+        spare.addMaintenanceRecord(new MaintenanceRecord("r3", "2026-02-17", "Oil Change", 90, ""));
+        g.addVehicle(spare);
+        repo.saveGarage(g);
+        repo.addRecord("v1", new MaintenanceRecord("r2", "2026-03-01", "Tires", 50000, ""));
+
+        Garage loaded = repo.loadGarage();
+        // only the vehicle the journal touched had to read its history
+        assertTrue(loaded.getVehicleById("v1").isHistoryLoaded());
+        assertFalse(loaded.getVehicleById("v2").isHistoryLoaded());
+        assertEquals(2, loaded.getVehicleById("v1").getMaintenanceHistory().size());
+        assertEquals(1, loaded.getVehicleById("v2").getMaintenanceHistory().size());
+        repo.close();
+    }
+
+    @Test
+    void lazySnapshotsOfDroppedGaragesAreClosed() throws Exception {
+        Path file = tempDir.resolve("garage-data.txt");
+        TextFileRepository repo = new TextFileRepository(file.toString(), true);
+        Garage g = new Garage();
+        Car car = new Car("v1", "Daily", "Honda", "Civic", 2018, 50000, 4);
+        car.addMaintenanceRecord(new MaintenanceRecord("r1", "2026-02-17", "Oil Change", 49900, ""));
+        g.addVehicle(car);
+        repo.saveGarage(g);
+
+        Garage kept = repo.loadGarage();
+        for (int i = 0; i < 20; i++) {
+            repo.loadGarage(); // dropped right away
+        }
+        for (int i = 0; i < 100 && repo.openLazySnapshots() > 1; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        assertEquals(1, repo.openLazySnapshots());
+        assertEquals(1, kept.getVehicleById("v1").getMaintenanceHistory().size());
+        repo.close();
+    }
+
+    @Test
+    void unloadedHistoriesReopenTheFileAfterCloseUnlessItWasSavedOver() {
+        Path file = tempDir.resolve("garage-data.txt");
+        TextFileRepository repo = new TextFileRepository(file.toString(), true);
+        Garage g = new Garage();
+        Car car = new Car("v1", "Daily", "Honda", "Civic", 2018, 50000, 4);
+        car.addMaintenanceRecord(new MaintenanceRecord("r1", "2026-02-17", "Oil Change", 49900, ""));
+        g.addVehicle(car);
+        g.addVehicle(new Car("v2", "Spare", "Mazda", "3", 2020, 100, 4));
+        repo.saveGarage(g);
+
+        Garage unchanged = repo.loadGarage();
+        repo.close();
+        assertEquals(1, unchanged.getVehicleById("v1").getMaintenanceHistory().size());
+
+        Garage stale = repo.loadGarage();
+        repo.saveGarage(g); // a new snapshot replaces the one stale was indexed from
+        assertEquals(1, stale.getVehicleById("v1").getMaintenanceHistory().size()); // still open, still readable
+        Garage stale2 = repo.loadGarage();
+        repo.saveGarage(g);
+        repo.close();
+        assertThrows(IllegalStateException.class, () -> stale2.getVehicleById("v1").getMaintenanceHistory());
+    }
+
+    @Test
+    void staleFullSaveMergesInsteadOfOverwriting() {
+        Path file = tempDir.resolve("garage-data.txt");
+        TextFileRepository first = new TextFileRepository(file.toString());
+        Garage g = new Garage();
+        g.addVehicle(new Car("v1", "Daily", "Honda", "Civic", 2018, 50000, 4));
+        g.addVehicle(new Car("v2", "Spare", "Honda", "Fit", 2015, 90000, 4));
+        first.saveGarage(g);
+
+        // two processes load the same file
+        TextFileRepository second = new TextFileRepository(file.toString());
+        Garage a = first.loadGarage();
+        Garage b = second.loadGarage();
+        assertEquals(first.getKnownVersion(), second.getKnownVersion());
+
+        // the second one adds a vehicle and removes one, the first edits one and saves last
+        b.addVehicle(new Motorcycle("m1", "Bike", "Honda", "CB", 2020, 1000, 650));
+        b.removeVehicle("v2");
+        second.saveGarage(b);
+
+        a.getVehicleById("v1").setNickname("Renamed");
+        first.saveGarage(a);
+
+        Garage stored = new TextFileRepository(file.toString()).loadGarage();
+        assertEquals("Renamed", stored.getVehicleById("v1").getNickname());
+        assertTrue(stored.containsVehicle("m1"));
+        assertFalse(stored.containsVehicle("v2"));
+        // a's garage still doesn't have m1, so its next full save has to merge too
+        assertTrue(first.getKnownVersion() < second.getKnownVersion());
+    }
+
+    @Test
+    void everyFullSaveMergesUntilTheNextLoad() {
+        Path file = tempDir.resolve("garage-data.txt");
+        TextFileRepository first = new TextFileRepository(file.toString());
+        Garage g = new Garage();
+        g.addVehicle(new Car("v1", "Daily", "Honda", "Civic", 2018, 50000, 4));
+        g.addVehicle(new Car("v2", "Spare", "Honda", "Fit", 2015, 90000, 4));
+        first.saveGarage(g);
+
+        TextFileRepository second = new TextFileRepository(file.toString());
+        Garage a = first.loadGarage();
+        Garage b = second.loadGarage();
+        b.addVehicle(new Motorcycle("m1", "Bike", "Honda", "CB", 2020, 1000, 650));
+        b.removeVehicle("v2");
+        second.saveGarage(b);
+
+        // two saves in a row, a's garage never saw m1 or the removal
+        a.getVehicleById("v1").setNickname("Renamed");
+        first.saveGarage(a);
+        a.markClean();
+        a.getVehicleById("v1").setCurrentMileage(51000);
+        first.saveGarage(a);
+
+        Garage stored = new TextFileRepository(file.toString()).loadGarage();
+        assertEquals("Renamed", stored.getVehicleById("v1").getNickname());
+        assertEquals(51000, stored.getVehicleById("v1").getCurrentMileage());
+        assertTrue(stored.containsVehicle("m1"));
+        assertFalse(stored.containsVehicle("v2"));
+
+        // a load catches up, after that a save writes as-is again
+        Garage reloaded = first.loadGarage();
+        assertEquals(2, reloaded.size());
+        first.saveGarage(reloaded);
+        second.loadGarage();
+        assertEquals(second.getKnownVersion(), first.getKnownVersion());
+    }
+
+    @Test
+    void journalAppendsBumpTheVersionAndKeepAStaleOneStale() {
+        Path file = tempDir.resolve("garage-data.txt");
+        TextFileRepository first = new TextFileRepository(file.toString());
+        TextFileRepository second = new TextFileRepository(file.toString());
+        first.saveGarage(new Garage());
+        first.loadGarage();
+        second.loadGarage();
+
+        long loaded = first.getKnownVersion();
+        first.addVehicle(new Car("v1", "Daily", "Honda", "Civic", 2018, 50000, 4));
+        assertEquals(loaded + 1, first.getKnownVersion());
+
+        // the second one writes on top of a change it hasn't seen, its next full save still has to merge
+        second.addVehicle(new Car("v2", "Spare", "Honda", "Fit", 2015, 90000, 4));
+        assertEquals(loaded, second.getKnownVersion());
+    }
+
+    @Test
+    void aFlippedByteSkipsOnlyThatLine() throws Exception {
+        Path file = tempDir.resolve("garage-data.txt");
+        Garage g = new Garage();
+        for (int i = 0; i < 3; i++) {
+            Car car = new Car("v" + i, "Daily", "Honda", "Civic", 2018, 50000, 4);
+            car.addMaintenanceRecord(new MaintenanceRecord("r" + i + "-a", "2026-02-17", "Oil Change", 49000, "5w30"));
+            car.addMaintenanceRecord(new MaintenanceRecord("r" + i + "-b", "2026-03-01", "Tires", 49900, "rotated"));
+            g.addVehicle(car);
+        }
+        new TextFileRepository(file.toString()).saveGarage(g);
+        GarageFileVerifier.addChecksums(file);
+
+        // still parses, only the checksum gives it away
+        List<String> lines = new java.util.ArrayList<>(Files.readAllLines(file));
+        for (int i = 0; i < lines.size(); i++) {
+            if (lines.get(i).startsWith("R|v1|r1-b")) lines.set(i, lines.get(i).replace("rotated", "rotatex"));
+        }
+        Files.write(file, lines);
+
+        for (boolean lazy : new boolean[] {false, true}) {
+            TextFileRepository repo = new TextFileRepository(file.toString(), lazy);
+            List<SkippedLine> skipped = new CopyOnWriteArrayList<>();
+            repo.setOnSkippedLine(skipped::add);
+
+            Garage loaded = repo.loadGarage();
+            assertEquals(3, loaded.size());
+            assertEquals(1, loaded.getVehicleById("v1").getMaintenanceHistory().size());
+            assertEquals(2, loaded.getVehicleById("v2").getMaintenanceHistory().size());
+            assertEquals(1, skipped.size());
+            assertEquals("checksum mismatch", skipped.get(0).reason());
+            assertTrue(skipped.get(0).line().contains("rotatex"));
+            repo.close();
+        }
+
+        Garage parallel = new Garage();
+        List<SkippedLine> skipped = new java.util.ArrayList<>();
+        new ParallelGarageLoader(2, 16).load(file, parallel, skipped::add);
+        assertEquals(3, parallel.size());
+        assertEquals(1, parallel.getVehicleById("v1").getMaintenanceHistory().size());
+        assertEquals(1, skipped.size());
+    }
+
+    @Test
+    void aLineThatDoesntParseDoesntFailTheLoad() throws Exception {
+        Path file = tempDir.resolve("garage-data.txt");
+        Files.write(file, List.of(
+                TextFileRepository.FORMAT_HEADER,
+                "V|Car|v1|Daily|Honda|Civic|2018|500|4",
+                "V|Car|v2|Broken|Honda|Civic|not-a-year|500|4",
+                "R|v1|r1|2026-01-01|Oil Change|100|first",
+                "R|v1|r1|2026-01-02|Oil Change|100|same id",
+                "R|v1|r2|2026-02-01|Tires|lots|bad miles"
+        ));
+
+        TextFileRepository repo = new TextFileRepository(file.toString());
+        List<SkippedLine> skipped = new java.util.ArrayList<>();
+        repo.setOnSkippedLine(skipped::add);
+
+        Garage loaded = repo.loadGarage();
+        assertEquals(1, loaded.size());
+        assertEquals(1, loaded.getVehicleById("v1").getMaintenanceHistory().size());
+        assertEquals(3, skipped.size());
+        assertTrue(skipped.get(0).line().contains("Broken"));
+    }
+
+    @Test
+    void concurrentWritersDontLoseJournalEntries() throws Exception {
+        Path file = tempDir.resolve("garage-data.txt");
+        new TextFileRepository(file.toString()).saveGarage(new Garage());
+
+        // small threshold so compactions run in between the appends
+        List<Thread> writers = new java.util.ArrayList<>();
+        List<TextFileRepository> repos = new java.util.ArrayList<>();
+        for (int w = 0; w < 4; w++) {
+            int writer = w;
+            TextFileRepository repo = new TextFileRepository(file.toString(), 2048);
+            repos.add(repo);
+            writers.add(new Thread(() -> {
+                for (int i = 0; i < 50; i++) {
+                    repo.addVehicle(new Car("w" + writer + "-" + i, "Car", "Honda", "Civic", 2018, 50000, 4));
+                }
+            }));
+        }
+        for (Thread t : writers) t.start();
+        for (Thread t : writers) t.join();
+        // a compaction still running would race the temp dir cleanup, queue one more behind it
+        for (TextFileRepository repo : repos) repo.compactInBackground().get();
+
+        TextFileRepository reader = new TextFileRepository(file.toString());
+        reader.compactInBackground().get();
+        assertEquals(200, reader.loadGarage().size());
+    }
 }